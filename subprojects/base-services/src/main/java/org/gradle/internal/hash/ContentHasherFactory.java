@@ -19,4 +19,8 @@ package org.gradle.internal.hash;
 import org.gradle.internal.Factory;
 
 public interface ContentHasherFactory extends Factory<Hasher> {
+    /**
+     * The name of the hash function used by the hashers this factory creates. Hashes created by different hash functions must not be mixed.
+     */
+    String getHashFunctionName();
 }
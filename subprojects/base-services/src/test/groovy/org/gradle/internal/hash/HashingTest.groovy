@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@Unroll
+class HashingTest extends Specification {
+    def "murmur3 hashes #input.length bytes the same as Guava"() {
+        expect:
+        Hashing.murmur3_128().hashBytes(input).toByteArray() == com.google.common.hash.Hashing.murmur3_128().hashBytes(input).asBytes()
+
+        where:
+        input << [0, 1, 7, 15, 16, 17, 31, 32, 100, 1025].collect { length -> randomBytes(length) }
+    }
+
+    def "murmur3 hashes incrementally added content the same as all at once"() {
+        def bytes = randomBytes(1000)
+        def hasher = Hashing.murmur3_128().newHasher()
+
+        when:
+        hasher.putByte(bytes[0])
+        hasher.putBytes(bytes, 1, 20)
+        hasher.putBytes(bytes, 21, 979)
+
+        then:
+        hasher.hash() == Hashing.murmur3_128().hashBytes(bytes)
+    }
+
+    def "murmur3 hashes strings as UTF-8"() {
+        expect:
+        Hashing.murmur3_128().hashString("häsh") == Hashing.murmur3_128().hashBytes("häsh".getBytes("UTF-8"))
+        Hashing.murmur3_128().hashString("häsh").toByteArray() == com.google.common.hash.Hashing.murmur3_128().hashString("häsh", com.google.common.base.Charsets.UTF_8).asBytes()
+    }
+
+    private static byte[] randomBytes(int length) {
+        def bytes = new byte[length]
+        new Random(length).nextBytes(bytes)
+        return bytes
+    }
+}
@@ -33,6 +33,7 @@ dependencies {
     implementation(project(":logging"))
 
     implementation(library("commons_io"))
+    implementation(library("commons_compress"))
 
     jmh(library("ant")) {
         version {
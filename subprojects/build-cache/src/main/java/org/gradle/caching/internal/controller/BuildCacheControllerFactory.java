@@ -29,6 +29,8 @@ import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperation
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
 import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -47,6 +49,7 @@ import java.util.Map;
 public final class BuildCacheControllerFactory {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildCacheControllerFactory.class);
+    private static final int REMOTE_STORE_THREADS = 4;
 
     public enum BuildCacheMode {
         ENABLED, DISABLED
@@ -56,6 +59,14 @@ public final class BuildCacheControllerFactory {
         ONLINE, OFFLINE
     }
 
+    public enum RemoteStoreMode {
+        SYNC, ASYNC
+    }
+
+    public enum RemoteLoadMode {
+        ON_DEMAND, STREAMING
+    }
+
     public static BuildCacheController create(
         final BuildOperationExecutor buildOperationExecutor,
         final Path buildIdentityPath,
@@ -63,9 +74,12 @@ public final class BuildCacheControllerFactory {
         final BuildCacheConfigurationInternal buildCacheConfiguration,
         final BuildCacheMode buildCacheState,
         final RemoteAccessMode remoteAccessMode,
+        final RemoteStoreMode remoteStoreMode,
+        final RemoteLoadMode remoteLoadMode,
         final boolean logStackTraces,
         final boolean emitDebugLogging,
-        final Instantiator instantiator
+        final Instantiator instantiator,
+        final ExecutorFactory executorFactory
     ) {
         return buildOperationExecutor.call(new CallableBuildOperation<BuildCacheController>() {
             @Override
@@ -111,12 +125,18 @@ public final class BuildCacheControllerFactory {
                         remote, remoteDescribedService == null ? null : remoteDescribedService.service
                     );
 
+                    ManagedExecutor remoteStoreExecutor = remoteStoreMode == RemoteStoreMode.ASYNC && remoteDescribedService != null && remote.isPush()
+                        ? executorFactory.create("Build cache remote store", REMOTE_STORE_THREADS)
+                        : null;
+
                     return new DefaultBuildCacheController(
                         config,
                         buildOperationExecutor,
                         gradleUserHomeDir,
                         logStackTraces,
-                        emitDebugLogging
+                        emitDebugLogging,
+                        remoteStoreExecutor,
+                        remoteLoadMode == RemoteLoadMode.STREAMING
                     );
                 }
             }
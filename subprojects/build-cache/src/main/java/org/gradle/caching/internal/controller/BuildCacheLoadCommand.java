@@ -32,6 +32,14 @@ public interface BuildCacheLoadCommand<T> {
      */
     Result<T> load(InputStream inputStream) throws IOException;
 
+    /**
+     * Called at-most-once, instead of {@link #load(InputStream)}, to initiate loading the artifact from a stream that holds its archive without compression.
+     * This is how a deduplicating local build cache provides its entries.
+     *
+     * The input stream will be closed by this method.
+     */
+    Result<T> loadUncompressed(InputStream inputStream) throws IOException;
+
     interface Result<T> {
 
         /**
@@ -27,6 +27,7 @@ import org.gradle.caching.internal.controller.operations.PackOperationDetails;
 import org.gradle.caching.internal.controller.operations.PackOperationResult;
 import org.gradle.caching.internal.controller.operations.UnpackOperationDetails;
 import org.gradle.caching.internal.controller.operations.UnpackOperationResult;
+import org.gradle.caching.internal.controller.service.AsyncStoreBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BaseBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
@@ -38,11 +39,14 @@ import org.gradle.caching.internal.controller.service.NullBuildCacheServiceHandl
 import org.gradle.caching.internal.controller.service.NullLocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.OpFiringBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.StoreTarget;
+import org.gradle.caching.internal.controller.service.StreamingLoadTarget;
 import org.gradle.caching.local.internal.BuildCacheTempFileStore;
 import org.gradle.caching.local.internal.DefaultBuildCacheTempFileStore;
+import org.gradle.caching.local.internal.LocalBuildCacheEntryReader;
 import org.gradle.caching.local.internal.LocalBuildCacheService;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -58,6 +62,8 @@ import java.io.InputStream;
 
 public class DefaultBuildCacheController implements BuildCacheController {
 
+    private static final int MAX_PENDING_REMOTE_STORE_BYTES = 64 * 1024 * 1024;
+
     @VisibleForTesting
     final BuildCacheServiceHandle legacyLocal;
 
@@ -68,6 +74,7 @@ public class DefaultBuildCacheController implements BuildCacheController {
     final LocalBuildCacheServiceHandle local;
 
     private final BuildCacheTempFileStore tmp;
+    private final boolean streamRemoteLoads;
     private final BuildOperationExecutor buildOperationExecutor;
     private final boolean emitDebugLogging;
 
@@ -79,6 +86,29 @@ public class DefaultBuildCacheController implements BuildCacheController {
         File gradleUserHomeDir,
         boolean logStackTraces,
         boolean emitDebugLogging
+    ) {
+        this(config, buildOperationExecutor, gradleUserHomeDir, logStackTraces, emitDebugLogging, null);
+    }
+
+    public DefaultBuildCacheController(
+        BuildCacheServicesConfiguration config,
+        BuildOperationExecutor buildOperationExecutor,
+        File gradleUserHomeDir,
+        boolean logStackTraces,
+        boolean emitDebugLogging,
+        @Nullable ManagedExecutor remoteStoreExecutor
+    ) {
+        this(config, buildOperationExecutor, gradleUserHomeDir, logStackTraces, emitDebugLogging, remoteStoreExecutor, false);
+    }
+
+    public DefaultBuildCacheController(
+        BuildCacheServicesConfiguration config,
+        BuildOperationExecutor buildOperationExecutor,
+        File gradleUserHomeDir,
+        boolean logStackTraces,
+        boolean emitDebugLogging,
+        @Nullable ManagedExecutor remoteStoreExecutor,
+        boolean streamRemoteLoads
     ) {
         this.buildOperationExecutor = buildOperationExecutor;
         this.emitDebugLogging = emitDebugLogging;
@@ -94,7 +124,11 @@ public class DefaultBuildCacheController implements BuildCacheController {
             this.tmp = new DefaultBuildCacheTempFileStore(new File(gradleUserHomeDir, "build-cache-tmp"));
         }
 
-        this.remote = toHandle(config.remote, config.remotePush, BuildCacheServiceRole.REMOTE, buildOperationExecutor, logStackTraces);
+        BuildCacheServiceHandle remote = toHandle(config.remote, config.remotePush, BuildCacheServiceRole.REMOTE, buildOperationExecutor, logStackTraces);
+        this.remote = remoteStoreExecutor == null
+            ? remote
+            : new AsyncStoreBuildCacheServiceHandle(remote, remoteStoreExecutor, MAX_PENDING_REMOTE_STORE_BYTES);
+        this.streamRemoteLoads = streamRemoteLoads;
     }
 
     @Override
@@ -124,7 +158,9 @@ public class DefaultBuildCacheController implements BuildCacheController {
             }
         }
 
-        if (legacyLocal.canLoad() || remote.canLoad()) {
+        if (streamRemoteLoads && !legacyLocal.canLoad() && remote.canLoad()) {
+            loadStreaming(command.getKey(), unpack);
+        } else if (legacyLocal.canLoad() || remote.canLoad()) {
             tmp.withTempFile(command.getKey(), new Action<File>() {
                 @Override
                 public void execute(File file) {
@@ -163,7 +199,34 @@ public class DefaultBuildCacheController implements BuildCacheController {
         }
     }
 
-    private class Unpack<T> implements Action<File> {
+    /**
+     * Unpacks the entry while it is downloaded from the remote cache, instead of downloading it to a file first.
+     * The downloaded copy is still written to a file, which is moved to the local cache once the whole entry has been read.
+     */
+    private void loadStreaming(final BuildCacheKey key, final Unpack<?> unpack) {
+        tmp.withTempFile(key, new Action<File>() {
+            @Override
+            public void execute(File file) {
+                StreamingLoadTarget loadTarget = new StreamingLoadTarget(file, new Action<InputStream>() {
+                    @Override
+                    public void execute(InputStream input) {
+                        unpack.unpack(input, -1);
+                    }
+                });
+                remote.load(key, loadTarget);
+
+                Throwable unpackFailure = loadTarget.getUnpackFailure();
+                if (unpackFailure != null) {
+                    throw new GradleException("Build cache entry " + key + " from " + BuildCacheServiceRole.REMOTE.getDisplayName() + " build cache is invalid", unpackFailure);
+                }
+                if (loadTarget.isLoaded() && local.canStore()) {
+                    local.store(key, file);
+                }
+            }
+        });
+    }
+
+    private class Unpack<T> implements LocalBuildCacheEntryReader {
         private final BuildCacheLoadCommand<T> command;
 
         private BuildCacheLoadCommand.Result<T> result;
@@ -173,23 +236,38 @@ public class DefaultBuildCacheController implements BuildCacheController {
         }
 
         @Override
-        public void execute(final File file) {
+        public void execute(File file) {
+            InputStream input;
+            try {
+                input = new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            try {
+                unpack(input, file.length());
+            } finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+
+        @Override
+        public void readUncompressed(InputStream input) {
+            unpack(input, -1, true);
+        }
+
+        void unpack(InputStream input, long archiveSize) {
+            unpack(input, archiveSize, false);
+        }
+
+        private void unpack(final InputStream input, final long archiveSize, final boolean uncompressed) {
             buildOperationExecutor.run(new RunnableBuildOperation() {
                 @Override
                 public void run(BuildOperationContext context) {
-                    InputStream input;
-                    try {
-                        input = new FileInputStream(file);
-                    } catch (FileNotFoundException e) {
-                        throw new UncheckedIOException(e);
-                    }
-
                     try {
-                        result = command.load(input);
+                        result = uncompressed ? command.loadUncompressed(input) : command.load(input);
                     } catch (IOException e) {
                         throw new UncheckedIOException(e);
-                    } finally {
-                        IOUtils.closeQuietly(input);
                     }
 
                     context.setResult(new UnpackOperationResult(
@@ -200,7 +278,7 @@ public class DefaultBuildCacheController implements BuildCacheController {
                 @Override
                 public BuildOperationDescriptor.Builder description() {
                     return BuildOperationDescriptor.displayName("Unpack build cache entry " + command.getKey())
-                        .details(new UnpackOperationDetails(command.getKey(), file.length()))
+                        .details(new UnpackOperationDetails(command.getKey(), archiveSize))
                         .progressDisplayName("Unpacking build cache entry");
                 }
             });
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ManagedExecutor;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stores entries in the background, so that the caller does not wait for the delegate to store the entry.
+ *
+ * Entries waiting to be stored are buffered in memory. When the buffer is full, callers block until
+ * enough pending entries have been stored. Entries that are larger than the buffer are stored synchronously.
+ * All pending entries are stored when the handle is closed.
+ */
+public class AsyncStoreBuildCacheServiceHandle implements BuildCacheServiceHandle {
+
+    private static final Logger LOGGER = Logging.getLogger(AsyncStoreBuildCacheServiceHandle.class);
+
+    private final BuildCacheServiceHandle delegate;
+    private final ManagedExecutor executor;
+    private final int maxPendingBytes;
+    private final Semaphore pendingBytes;
+
+    public AsyncStoreBuildCacheServiceHandle(BuildCacheServiceHandle delegate, ManagedExecutor executor, int maxPendingBytes) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxPendingBytes = maxPendingBytes;
+        this.pendingBytes = new Semaphore(maxPendingBytes);
+    }
+
+    @Nullable
+    @Override
+    public BuildCacheService getService() {
+        return delegate.getService();
+    }
+
+    @Override
+    public boolean canLoad() {
+        return delegate.canLoad();
+    }
+
+    @Override
+    public void load(BuildCacheKey key, LoadTarget loadTarget) {
+        delegate.load(key, loadTarget);
+    }
+
+    @Override
+    public boolean canStore() {
+        return delegate.canStore();
+    }
+
+    @Override
+    public void store(final BuildCacheKey key, StoreTarget storeTarget) {
+        long size = storeTarget.getSize();
+        if (size > maxPendingBytes) {
+            LOGGER.debug("Entry {} is too large to be stored in the background", key.getHashCode());
+            delegate.store(key, storeTarget);
+            return;
+        }
+
+        final int permits = (int) size;
+        pendingBytes.acquireUninterruptibly(permits);
+        final byte[] bytes;
+        try {
+            bytes = buffer(storeTarget, permits);
+        } catch (RuntimeException e) {
+            pendingBytes.release(permits);
+            throw e;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    delegate.store(key, new StoreTarget(bytes));
+                } finally {
+                    pendingBytes.release(permits);
+                }
+            }
+        });
+    }
+
+    private static byte[] buffer(StoreTarget storeTarget, int size) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+        try {
+            storeTarget.writeTo(output);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Waiting for pending stores to complete");
+        CompositeStoppable.stoppable(executor, delegate).stop();
+    }
+}
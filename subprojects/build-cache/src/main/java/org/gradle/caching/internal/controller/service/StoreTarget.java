@@ -16,6 +16,7 @@
 
 package org.gradle.caching.internal.controller.service;
 
+import com.google.common.io.ByteSource;
 import com.google.common.io.Closer;
 import com.google.common.io.Files;
 import org.gradle.caching.BuildCacheEntryWriter;
@@ -26,11 +27,21 @@ import java.io.OutputStream;
 
 public class StoreTarget implements BuildCacheEntryWriter {
 
-    private final File file;
+    private final ByteSource source;
+    private final long size;
     private boolean stored;
 
     public StoreTarget(File file) {
-        this.file = file;
+        this(Files.asByteSource(file), file.length());
+    }
+
+    public StoreTarget(byte[] bytes) {
+        this(ByteSource.wrap(bytes), bytes.length);
+    }
+
+    private StoreTarget(ByteSource source, long size) {
+        this.source = source;
+        this.size = size;
     }
 
     @Override
@@ -42,7 +53,7 @@ public class StoreTarget implements BuildCacheEntryWriter {
                 throw new IllegalStateException("Build cache entry has already been stored");
             }
             stored = true;
-            Files.asByteSource(file).copyTo(output);
+            source.copyTo(output);
         } catch (Exception e) {
             throw closer.rethrow(e);
         } finally {
@@ -56,6 +67,6 @@ public class StoreTarget implements BuildCacheEntryWriter {
 
     @Override
     public long getSize() {
-        return file.length();
+        return size;
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.caching.internal.controller.service;
+
+import com.google.common.io.ByteStreams;
+import org.gradle.api.Action;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Unpacks a build cache entry while it is being read, and writes a copy of the entry to a file at the same time.
+ *
+ * <p>A failure to unpack the entry is not passed on to the build cache service, which would treat it as a failure of the service itself.
+ * It is available from {@link #getUnpackFailure()} instead. Failures to read the entry are passed on as usual.</p>
+ */
+public class StreamingLoadTarget extends LoadTarget {
+
+    private final Action<? super InputStream> unpack;
+    private Throwable unpackFailure;
+
+    public StreamingLoadTarget(File file, Action<? super InputStream> unpack) {
+        super(file);
+        this.unpack = unpack;
+    }
+
+    @Override
+    protected void readInto(File file, InputStream input) throws IOException {
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            CopyingInputStream copyingInput = new CopyingInputStream(input, output);
+            try {
+                unpack.execute(copyingInput);
+            } catch (Exception e) {
+                if (copyingInput.failure != null) {
+                    throw copyingInput.failure;
+                }
+                unpackFailure = e;
+                return;
+            }
+            // Copy what the unpacker did not consume, so that the file contains the complete entry
+            ByteStreams.exhaust(copyingInput);
+        } finally {
+            output.close();
+        }
+    }
+
+    @Nullable
+    public Throwable getUnpackFailure() {
+        return unpackFailure;
+    }
+
+    /**
+     * Copies everything read to the given output. Closing the stream is left to the load target, so that the rest of the entry can be copied after unpacking.
+     */
+    private static class CopyingInputStream extends FilterInputStream {
+        private final OutputStream output;
+        private final byte[] skipBuffer = new byte[8192];
+        private IOException failure;
+
+        CopyingInputStream(InputStream in, OutputStream output) {
+            super(in);
+            this.output = output;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = in.read();
+                if (b != -1) {
+                    output.write(b);
+                }
+                return b;
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                int count = in.read(b, off, len);
+                if (count > 0) {
+                    output.write(b, off, count);
+                }
+                return count;
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            int count = read(skipBuffer, 0, (int) Math.min(n, skipBuffer.length));
+            return Math.max(count, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -29,6 +29,9 @@ public final class BuildCacheArchiveUnpackBuildOperationType implements BuildOpe
          */
         String getCacheKey();
 
+        /**
+         * The size of the archive in bytes, or -1 if the archive is unpacked while it is being downloaded.
+         */
         long getArchiveSize();
 
     }
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.caching.local.internal;
+
+import com.google.common.io.ByteStreams;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Stores build cache entries so that the contents of files shared between entries are only kept once.
+ *
+ * <p>Build cache entries are (gzipped) tar archives. For every entry, a manifest named after the cache key is written. It contains the uncompressed
+ * archive, except for the contents of files of at least {@value #MIN_SHARED_FILE_SIZE} bytes. These are stored in separate files named after
+ * the MD5 hash of their contents, and the manifest refers to them by hash. Restored entries are streamed from the manifest and content files.</p>
+ *
+ * <p>All files are kept directly in the cache directory, and are touched whenever they are used, so that age based cleanup of the cache directory
+ * never removes a content file that is still referenced by a more recently used manifest.</p>
+ */
+@SuppressWarnings("Since15")
+public class DeduplicatingEntryStore {
+    public static final String MANIFEST_SUFFIX = ".manifest";
+    public static final String CONTENT_PREFIX = "content-";
+
+    static final int MIN_SHARED_FILE_SIZE = 16 * 1024;
+
+    private static final int MANIFEST_VERSION = 1;
+    private static final byte END = 0;
+    private static final byte INLINE = 1;
+    private static final byte SHARED = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File baseDir;
+
+    public DeduplicatingEntryStore(File baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Returns the manifest for the given key, or null if the entry is not stored.
+     */
+    @Nullable
+    public File getManifest(String key) {
+        File manifest = manifestFile(key);
+        return manifest.isFile() ? manifest : null;
+    }
+
+    /**
+     * Stores the given build cache entry under the given key.
+     */
+    public void store(String key, File entry) {
+        try {
+            File archive = isGzipped(entry) ? decompress(key, entry) : entry;
+            try {
+                File manifest = File.createTempFile(key + "-", MANIFEST_SUFFIX + BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX, baseDir);
+                try {
+                    writeManifest(archive, findSharedFileContents(archive), manifest);
+                    Files.move(manifest.toPath(), manifestFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    GFileUtils.deleteQuietly(manifest);
+                }
+            } finally {
+                if (archive != entry) {
+                    GFileUtils.deleteQuietly(archive);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens a stream of the uncompressed archive of the entry with the given manifest. The contents of shared files are read from their content files as the stream is read.
+     */
+    public InputStream open(File manifest) {
+        try {
+            DataInputStream input = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(manifest)), BUFFER_SIZE));
+            try {
+                int version = input.readInt();
+                if (version != MANIFEST_VERSION) {
+                    throw new IllegalStateException("Unsupported build cache manifest version: " + version);
+                }
+            } catch (Exception e) {
+                input.close();
+                throw e;
+            }
+            return new RestoredArchiveInputStream(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the archive of the entry with the given manifest to the given file, compressed in the same way as the entry was when it was stored.
+     */
+    public void restoreCompressed(File manifest, File target) {
+        try {
+            InputStream input = open(manifest);
+            try {
+                OutputStream output = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(target)), BUFFER_SIZE);
+                try {
+                    ByteStreams.copy(input, output);
+                } finally {
+                    output.close();
+                }
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<SharedFileContent> findSharedFileContents(File archive) throws IOException {
+        List<SharedFileContent> contents = newArrayList();
+        TarArchiveInputStream tarInput = new TarArchiveInputStream(new BufferedInputStream(new FileInputStream(archive)));
+        try {
+            TarArchiveEntry tarEntry;
+            while ((tarEntry = tarInput.getNextTarEntry()) != null) {
+                if (tarEntry.isFile() && tarEntry.getSize() >= MIN_SHARED_FILE_SIZE) {
+                    // The entry's headers have been read, so the contents of the file start here
+                    contents.add(new SharedFileContent(tarInput.getBytesRead(), tarEntry.getSize()));
+                }
+            }
+        } finally {
+            tarInput.close();
+        }
+        return contents;
+    }
+
+    private void writeManifest(File archive, List<SharedFileContent> sharedContents, File manifest) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        RandomAccessFile input = new RandomAccessFile(archive, "r");
+        try {
+            DataOutputStream output = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(manifest))));
+            try {
+                output.writeInt(MANIFEST_VERSION);
+                long position = 0;
+                for (SharedFileContent content : sharedContents) {
+                    writeInline(input, position, content.offset, output, buffer);
+                    HashCode hash = storeContent(input, content, buffer);
+                    output.writeByte(SHARED);
+                    output.writeLong(content.size);
+                    output.writeUTF(hash.toString());
+                    position = content.offset + content.size;
+                }
+                writeInline(input, position, input.length(), output, buffer);
+                output.writeByte(END);
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void writeInline(RandomAccessFile input, long from, long to, DataOutputStream output, byte[] buffer) throws IOException {
+        input.seek(from);
+        long remaining = to - from;
+        while (remaining > 0) {
+            int length = (int) Math.min(remaining, buffer.length);
+            input.readFully(buffer, 0, length);
+            output.writeByte(INLINE);
+            output.writeInt(length);
+            output.write(buffer, 0, length);
+            remaining -= length;
+        }
+    }
+
+    private HashCode storeContent(RandomAccessFile input, SharedFileContent content, byte[] buffer) throws IOException {
+        Hasher hasher = Hashing.md5().newHasher();
+        input.seek(content.offset);
+        long remaining = content.size;
+        while (remaining > 0) {
+            int length = (int) Math.min(remaining, buffer.length);
+            input.readFully(buffer, 0, length);
+            hasher.putBytes(buffer, 0, length);
+            remaining -= length;
+        }
+        HashCode hash = hasher.hash();
+
+        File contentFile = contentFile(hash.toString());
+        if (contentFile.length() == content.size) {
+            touch(contentFile);
+            return hash;
+        }
+
+        File tempFile = File.createTempFile(CONTENT_PREFIX, BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX, baseDir);
+        try {
+            OutputStream output = new FileOutputStream(tempFile);
+            try {
+                input.seek(content.offset);
+                remaining = content.size;
+                while (remaining > 0) {
+                    int length = (int) Math.min(remaining, buffer.length);
+                    input.readFully(buffer, 0, length);
+                    output.write(buffer, 0, length);
+                    remaining -= length;
+                }
+            } finally {
+                output.close();
+            }
+            Files.move(tempFile.toPath(), contentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            GFileUtils.deleteQuietly(tempFile);
+        }
+        return hash;
+    }
+
+    private File decompress(String key, File entry) throws IOException {
+        File archive = File.createTempFile(key + "-", ".tar" + BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX, baseDir);
+        InputStream input = new GZIPInputStream(new FileInputStream(entry), BUFFER_SIZE);
+        try {
+            OutputStream output = new FileOutputStream(archive);
+            try {
+                ByteStreams.copy(input, output);
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            GFileUtils.deleteQuietly(archive);
+            throw e;
+        } finally {
+            input.close();
+        }
+        return archive;
+    }
+
+    private static boolean isGzipped(File file) throws IOException {
+        byte[] header = new byte[2];
+        InputStream input = new FileInputStream(file);
+        try {
+            int read = ByteStreams.read(input, header, 0, header.length);
+            return read == header.length && header[0] == (byte) GZIPInputStream.GZIP_MAGIC && header[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+        } finally {
+            input.close();
+        }
+    }
+
+    private File manifestFile(String key) {
+        return new File(baseDir, key + MANIFEST_SUFFIX);
+    }
+
+    private File contentFile(String hash) {
+        return new File(baseDir, CONTENT_PREFIX + hash);
+    }
+
+    private static void touch(File file) throws IOException {
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    private static class SharedFileContent {
+        final long offset;
+        final long size;
+
+        SharedFileContent(long offset, long size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Reads the records of a manifest as they are needed, switching to the content file of each shared file in turn.
+     */
+    private class RestoredArchiveInputStream extends InputStream {
+        private final DataInputStream manifest;
+        private InputStream source;
+        private long remaining;
+        private boolean finished;
+
+        RestoredArchiveInputStream(DataInputStream manifest) {
+            this.manifest = manifest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            int read = read(buffer, 0, 1);
+            return read < 0 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (remaining == 0) {
+                if (!nextRecord()) {
+                    return -1;
+                }
+            }
+            int read = source.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException("Unexpected end of build cache entry");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        private boolean nextRecord() throws IOException {
+            closeContent();
+            if (finished) {
+                return false;
+            }
+            byte type = manifest.readByte();
+            switch (type) {
+                case END:
+                    finished = true;
+                    return false;
+                case INLINE:
+                    remaining = manifest.readInt();
+                    source = manifest;
+                    return true;
+                case SHARED:
+                    long size = manifest.readLong();
+                    File content = contentFile(manifest.readUTF());
+                    if (content.length() != size) {
+                        throw new IllegalStateException("Content file " + content.getName() + " of the build cache entry is missing or has an unexpected size");
+                    }
+                    touch(content);
+                    source = new FileInputStream(content);
+                    remaining = size;
+                    return true;
+                default:
+                    throw new IllegalStateException("Build cache manifest format error, unknown record type: " + type);
+            }
+        }
+
+        private void closeContent() throws IOException {
+            if (source != null && source != manifest) {
+                source.close();
+            }
+            source = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                closeContent();
+            } finally {
+                manifest.close();
+            }
+        }
+    }
+}
@@ -31,10 +31,12 @@ import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.util.GFileUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.attribute.FileTime;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -46,13 +48,23 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final String failedFileSuffix;
+    @Nullable
+    private final DeduplicatingEntryStore deduplicatingStore;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, String failedFileSuffix) {
+        this(fileStore, persistentCache, tempFileStore, failedFileSuffix, null);
+    }
+
+    /**
+     * @param deduplicatingStore When not null, new entries are stored in this store instead of the file store. Entries already in the file store can still be loaded.
+     */
+    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, String failedFileSuffix, @Nullable DeduplicatingEntryStore deduplicatingStore) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
         this.failedFileSuffix = failedFileSuffix;
+        this.deduplicatingStore = deduplicatingStore;
     }
 
     private static class LoadAction implements Action<File> {
@@ -107,6 +119,14 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     }
 
     private void loadInsideLock(BuildCacheKey key, Action<? super File> reader) {
+        if (deduplicatingStore != null) {
+            File manifest = deduplicatingStore.getManifest(key.getHashCode());
+            if (manifest != null) {
+                loadDeduplicated(key, manifest, reader);
+                return;
+            }
+        }
+
         LocallyAvailableResource resource = fileStore.get(key.getHashCode());
         if (resource == null) {
             return;
@@ -118,17 +138,45 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         try {
             reader.execute(file);
         } catch (Exception e) {
-            // Try to move the file out of the way in case its permanently corrupt
-            // Don't delete, so that it can be potentially used for debugging
-            File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
-            GFileUtils.deleteQuietly(failedFile);
-            //noinspection ResultOfMethodCallIgnored
-            file.renameTo(failedFile);
-
-            throw UncheckedException.throwAsUncheckedException(e);
+            throw moveAsideAfterFailure(file, e);
         }
     }
 
+    private void loadDeduplicated(BuildCacheKey key, final File manifest, final Action<? super File> reader) {
+        touch(manifest);
+        try {
+            if (reader instanceof LocalBuildCacheEntryReader) {
+                InputStream input = deduplicatingStore.open(manifest);
+                try {
+                    ((LocalBuildCacheEntryReader) reader).readUncompressed(input);
+                } finally {
+                    input.close();
+                }
+            } else {
+                tempFileStore.withTempFile(key, new Action<File>() {
+                    @Override
+                    public void execute(@Nonnull File file) {
+                        deduplicatingStore.restoreCompressed(manifest, file);
+                        reader.execute(file);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            throw moveAsideAfterFailure(manifest, e);
+        }
+    }
+
+    private RuntimeException moveAsideAfterFailure(File file, Exception e) {
+        // Try to move the file out of the way in case its permanently corrupt
+        // Don't delete, so that it can be potentially used for debugging
+        File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
+        GFileUtils.deleteQuietly(failedFile);
+        //noinspection ResultOfMethodCallIgnored
+        file.renameTo(failedFile);
+
+        throw UncheckedException.throwAsUncheckedException(e);
+    }
+
     @Override
     public void store(final BuildCacheKey key, final BuildCacheEntryWriter result) throws BuildCacheException {
         tempFileStore.withTempFile(key, new Action<File>() {
@@ -168,7 +216,12 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     }
 
     private void storeInsideLock(BuildCacheKey key, File file) {
-        fileStore.move(key.getHashCode(), file);
+        if (deduplicatingStore != null) {
+            deduplicatingStore.store(key.getHashCode(), file);
+            GFileUtils.deleteQuietly(file);
+        } else {
+            fileStore.move(key.getHashCode(), file);
+        }
     }
 
     @Override
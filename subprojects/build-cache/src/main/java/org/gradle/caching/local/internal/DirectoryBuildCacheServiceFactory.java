@@ -38,6 +38,7 @@ import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFactory<DirectoryBuildCache> {
     public static final String FAILED_READ_SUFFIX = ".failed";
+    public static final String DEDUPLICATE_PROPERTY = "org.gradle.caching.internal.local-deduplication";
 
     private static final String BUILD_CACHE_VERSION = "1";
     private static final String BUILD_CACHE_KEY = "build-cache-" + BUILD_CACHE_VERSION;
@@ -84,7 +85,9 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
             .open();
         BuildCacheTempFileStore tempFileStore = new DefaultBuildCacheTempFileStore(target);
 
-        return new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, FAILED_READ_SUFFIX);
+        DeduplicatingEntryStore deduplicatingStore = Boolean.getBoolean(DEDUPLICATE_PROPERTY) ? new DeduplicatingEntryStore(target) : null;
+
+        return new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, FAILED_READ_SUFFIX, deduplicatingStore);
     }
 
     private static void checkDirectory(File directory) {
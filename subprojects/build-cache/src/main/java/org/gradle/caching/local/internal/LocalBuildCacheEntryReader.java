@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.api.Action;
+
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * Reads build cache entries loaded from a {@link LocalBuildCacheService}, including entries that the service does not keep in the compressed form they were stored in.
+ *
+ * <p>A deduplicating local build cache passes such entries to readers implementing this interface as a stream of the uncompressed archive,
+ * so that they don't have to be restored to a file first. Other readers are given a file that holds the compressed entry.</p>
+ */
+public interface LocalBuildCacheEntryReader extends Action<File> {
+    /**
+     * Reads an entry from the given stream, which holds the archive of the entry without compression.
+     */
+    void readUncompressed(InputStream input);
+}
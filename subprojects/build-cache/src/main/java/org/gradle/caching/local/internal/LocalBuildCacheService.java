@@ -31,6 +31,7 @@ public interface LocalBuildCacheService extends BuildCacheTempFileStore, Closeab
 
     /**
      * Loads a cache artifact from a local file store. If a result is found the {@code reader} is executed.
+     * A {@link LocalBuildCacheEntryReader} may be given the artifact as a stream instead.
      */
     void loadLocally(BuildCacheKey key, Action<? super File> reader);
 
@@ -29,6 +29,7 @@ import org.gradle.caching.configuration.internal.DefaultBuildCacheServiceRegistr
 import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperationType
 import org.gradle.caching.local.DirectoryBuildCache
 import org.gradle.caching.local.internal.LocalBuildCacheService
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.reflect.DirectInstantiator
 import org.gradle.testing.internal.util.Specification
@@ -37,6 +38,8 @@ import org.gradle.util.Path
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.BuildCacheMode.DISABLED
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.BuildCacheMode.ENABLED
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteAccessMode.ONLINE
+import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteLoadMode.ON_DEMAND
+import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteStoreMode.SYNC
 
 class BuildCacheControllerFactoryTest extends Specification {
 
@@ -63,9 +66,12 @@ class BuildCacheControllerFactoryTest extends Specification {
             config,
             buildCacheEnabled ? ENABLED : DISABLED,
             ONLINE,
+            SYNC,
+            ON_DEMAND,
             logStacktraces,
             emitDebugLogging,
-            DirectInstantiator.INSTANCE
+            DirectInstantiator.INSTANCE,
+            Stub(ExecutorFactory)
         )
         assert controllerType.isInstance(controller)
         controllerType.cast(controller)
@@ -17,6 +17,7 @@
 package org.gradle.caching.internal.controller
 
 import org.gradle.api.Action
+import org.gradle.api.GradleException
 import org.gradle.caching.BuildCacheEntryReader
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
@@ -45,6 +46,7 @@ class DefaultBuildCacheControllerTest extends Specification {
     def remotePush = true
 
     BuildCacheService legacyLocal = null
+    boolean streamRemoteLoads = false
 
     def storeCommand = Stub(BuildCacheStoreCommand) {
         getKey() >> key
@@ -92,7 +94,9 @@ class DefaultBuildCacheControllerTest extends Specification {
             ),
             operations,
             tmpDir.file("dir"),
-            false, false
+            false, false,
+            null,
+            streamRemoteLoads
         )
     }
 
@@ -337,4 +341,88 @@ class DefaultBuildCacheControllerTest extends Specification {
         }
     }
 
+    def "unpacks remote entry while it is downloaded and stores the complete entry locally"() {
+        given:
+        streamRemoteLoads = true
+        def partialLoadCommand = Stub(BuildCacheLoadCommand) {
+            getKey() >> key
+            load(_) >> { InputStream input ->
+                assert input.read() == 'f'.bytes[0]
+                Stub(BuildCacheLoadCommand.Result)
+            }
+        }
+        File stored = null
+
+        when:
+        controller.load(partialLoadCommand)
+
+        then:
+        1 * local.loadLocally(key, _) // miss
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("foo".bytes))
+            true
+        }
+        1 * local.storeLocally(key, _) >> { BuildCacheKey key, File file -> stored = file }
+        stored.text == "foo"
+    }
+
+    def "streamed remote entry that cannot be unpacked is invalid but does not disable the remote cache"() {
+        given:
+        streamRemoteLoads = true
+        def invalidLoadCommand = Stub(BuildCacheLoadCommand) {
+            getKey() >> key
+            load(_) >> { throw new IOException("invalid") }
+        }
+        def controller = getController()
+
+        when:
+        controller.load(invalidLoadCommand)
+
+        then:
+        def e = thrown(GradleException)
+        e.message == "Build cache entry key from remote build cache is invalid"
+        1 * local.loadLocally(key, _) // miss
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("foo".bytes))
+            true
+        }
+        0 * local.storeLocally(key, _)
+
+        when:
+        controller.store(storeCommand)
+
+        then:
+        1 * remote.store(key, _)
+    }
+
+    def "falls back to executing when streamed remote entry fails to download"() {
+        given:
+        streamRemoteLoads = true
+        def brokenInput = new InputStream() {
+            @Override
+            int read() throws IOException {
+                throw new IOException("broken")
+            }
+        }
+
+        def readingLoadCommand = Stub(BuildCacheLoadCommand) {
+            getKey() >> key
+            load(_) >> { InputStream input ->
+                input.read()
+                Stub(BuildCacheLoadCommand.Result)
+            }
+        }
+
+        when:
+        def result = controller.load(readingLoadCommand)
+
+        then:
+        result == null
+        1 * local.loadLocally(key, _) // miss
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(brokenInput)
+            true
+        }
+        0 * local.storeLocally(key, _)
+    }
 }
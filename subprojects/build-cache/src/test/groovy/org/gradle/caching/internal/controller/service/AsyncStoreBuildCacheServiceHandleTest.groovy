@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service
+
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testing.internal.util.Specification
+import org.junit.Rule
+
+import java.util.concurrent.CountDownLatch
+
+class AsyncStoreBuildCacheServiceHandleTest extends Specification {
+
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def key = Mock(BuildCacheKey) {
+        getHashCode() >> "key"
+    }
+    def delegate = Mock(BuildCacheServiceHandle)
+    def executor = new DefaultExecutorFactory().create("test")
+
+    def "stores buffered copy of entry in the background and waits for pending stores on close"() {
+        def handle = new AsyncStoreBuildCacheServiceHandle(delegate, executor, 1024)
+        def file = temporaryFolder.file("entry") << "content"
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def stored = new ByteArrayOutputStream()
+
+        when:
+        handle.store(key, new StoreTarget(file))
+        started.await()
+        file.delete()
+        release.countDown()
+        handle.close()
+
+        then:
+        1 * delegate.store(key, _) >> { BuildCacheKey k, StoreTarget target ->
+            started.countDown()
+            release.await()
+            target.writeTo(stored)
+        }
+        1 * delegate.close()
+        stored.toString() == "content"
+    }
+
+    def "stores entries larger than the buffer synchronously"() {
+        def handle = new AsyncStoreBuildCacheServiceHandle(delegate, executor, 4)
+        def target = new StoreTarget(temporaryFolder.file("entry") << "content")
+
+        when:
+        handle.store(key, target)
+
+        then:
+        1 * delegate.store(key, target)
+
+        cleanup:
+        handle.close()
+    }
+}
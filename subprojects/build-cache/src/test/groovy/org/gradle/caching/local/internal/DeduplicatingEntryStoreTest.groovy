@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.caching.local.internal
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+@CleanupTestDirectory
+class DeduplicatingEntryStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheDir = temporaryFolder.createDir("cache")
+    def store = new DeduplicatingEntryStore(cacheDir)
+    def random = new Random(1234)
+
+    def "streams the uncompressed archive of a stored entry"() {
+        def archive = archive(
+            "METADATA": "origin".bytes,
+            "property-out/small.txt": "small".bytes,
+            "property-out/large.jar": bytes(DeduplicatingEntryStore.MIN_SHARED_FILE_SIZE * 3 + 17)
+        )
+
+        when:
+        store.store("key", gzip(archive))
+
+        then:
+        contentFiles().size() == 1
+        restore("key") == archive
+    }
+
+    def "keeps the contents of files shared between entries once"() {
+        def shared = bytes(DeduplicatingEntryStore.MIN_SHARED_FILE_SIZE * 2)
+        def first = archive("METADATA": "first".bytes, "property-out/lib.jar": shared)
+        def second = archive("METADATA": "second".bytes, "property-out/other/lib.jar": shared, "property-out/own.jar": bytes(DeduplicatingEntryStore.MIN_SHARED_FILE_SIZE))
+
+        when:
+        store.store("first", gzip(first))
+        store.store("second", gzip(second))
+
+        then:
+        contentFiles().size() == 2
+        restore("first") == first
+        restore("second") == second
+    }
+
+    def "stores uncompressed entries"() {
+        def archive = archive("METADATA": "origin".bytes, "property-out/large.jar": bytes(DeduplicatingEntryStore.MIN_SHARED_FILE_SIZE))
+        def entry = temporaryFolder.file("entry.tar")
+        entry.bytes = archive
+
+        when:
+        store.store("key", entry)
+
+        then:
+        restore("key") == archive
+    }
+
+    def "fails to restore entry when shared content is missing"() {
+        store.store("key", gzip(archive("METADATA": "origin".bytes, "property-out/large.jar": bytes(DeduplicatingEntryStore.MIN_SHARED_FILE_SIZE))))
+        contentFiles()*.delete()
+
+        when:
+        restore("key")
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message.contains("is missing or has an unexpected size")
+    }
+
+    def "restores compressed archive of a stored entry to a file"() {
+        def archive = archive("METADATA": "origin".bytes, "property-out/large.jar": bytes(DeduplicatingEntryStore.MIN_SHARED_FILE_SIZE))
+        store.store("key", gzip(archive))
+        def target = temporaryFolder.file("restored.tgz")
+
+        when:
+        store.restoreCompressed(store.getManifest("key"), target)
+
+        then:
+        new GZIPInputStream(new FileInputStream(target)).withStream { it.bytes } == archive
+    }
+
+    def "does not find manifest for entries that are not stored"() {
+        expect:
+        store.getManifest("missing") == null
+    }
+
+    private byte[] restore(String key) {
+        return store.open(store.getManifest(key)).withStream { it.bytes }
+    }
+
+    private List<File> contentFiles() {
+        cacheDir.listFiles().findAll { it.name.startsWith(DeduplicatingEntryStore.CONTENT_PREFIX) }
+    }
+
+    private byte[] bytes(int size) {
+        def bytes = new byte[size]
+        random.nextBytes(bytes)
+        return bytes
+    }
+
+    private static byte[] archive(Map<String, byte[]> files) {
+        def output = new ByteArrayOutputStream()
+        def tarOutput = new TarArchiveOutputStream(output, "utf-8")
+        files.each { path, content ->
+            def entry = new TarArchiveEntry(path, true)
+            entry.size = content.length
+            tarOutput.putArchiveEntry(entry)
+            tarOutput.write(content)
+            tarOutput.closeArchiveEntry()
+        }
+        tarOutput.close()
+        return output.toByteArray()
+    }
+
+    private File gzip(byte[] archive) {
+        def file = temporaryFolder.createFile("entry-${UUID.randomUUID()}.tgz")
+        file.withOutputStream { new GZIPOutputStream(it).withStream { it.write(archive) } }
+        return file
+    }
+}
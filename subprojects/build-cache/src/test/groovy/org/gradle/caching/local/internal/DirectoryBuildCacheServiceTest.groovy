@@ -16,6 +16,9 @@
 
 package org.gradle.caching.local.internal
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
+import org.gradle.api.Action
 import org.gradle.cache.PersistentCache
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
@@ -26,6 +29,9 @@ import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
 @UsesNativeServices
 @CleanupTestDirectory
 class DirectoryBuildCacheServiceTest extends Specification {
@@ -68,4 +74,61 @@ class DirectoryBuildCacheServiceTest extends Specification {
         cacheDir.listFiles() as List == []
         1 * key.getHashCode() >> hashCode
     }
+
+    def "streams deduplicated entries to readers of uncompressed entries"() {
+        def deduplicatingStore = new DeduplicatingEntryStore(cacheDir)
+        def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, ".failed", deduplicatingStore)
+        key.getHashCode() >> "1234abcd"
+        persistentCache.withFileLock(_ as Runnable) >> { Runnable action -> action.run() }
+        def archive = tarArchive()
+        service.storeLocally(key, entry(archive))
+        def reader = Mock(LocalBuildCacheEntryReader)
+
+        when:
+        service.loadLocally(key, reader)
+
+        then:
+        1 * reader.readUncompressed(_) >> { InputStream input ->
+            assert input.bytes == archive
+            assert cacheDir.listFiles().findAll { it.name.endsWith(BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX) }.empty
+        }
+        0 * reader.execute(_)
+    }
+
+    def "restores compressed deduplicated entries for other readers"() {
+        def deduplicatingStore = new DeduplicatingEntryStore(cacheDir)
+        def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, ".failed", deduplicatingStore)
+        key.getHashCode() >> "1234abcd"
+        persistentCache.withFileLock(_ as Runnable) >> { Runnable action -> action.run() }
+        def archive = tarArchive()
+        service.storeLocally(key, entry(archive))
+        def reader = Mock(Action)
+
+        when:
+        service.loadLocally(key, reader)
+
+        then:
+        1 * reader.execute(_) >> { File file ->
+            assert new GZIPInputStream(new FileInputStream(file)).withStream { it.bytes } == archive
+        }
+    }
+
+    private static byte[] tarArchive() {
+        def output = new ByteArrayOutputStream()
+        def tarOutput = new TarArchiveOutputStream(output, "utf-8")
+        def content = "origin".bytes
+        def entry = new TarArchiveEntry("METADATA", true)
+        entry.size = content.length
+        tarOutput.putArchiveEntry(entry)
+        tarOutput.write(content)
+        tarOutput.closeArchiveEntry()
+        tarOutput.close()
+        return output.toByteArray()
+    }
+
+    private File entry(byte[] archive) {
+        def file = temporaryFolder.file("entry.tgz")
+        file.withOutputStream { new GZIPOutputStream(it).withStream { it.write(archive) } }
+        return file
+    }
 }
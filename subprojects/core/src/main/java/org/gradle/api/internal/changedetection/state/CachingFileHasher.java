@@ -21,6 +21,8 @@ import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.hash.ContentHasherFactory;
+import org.gradle.internal.hash.DefaultContentHasherFactory;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -46,6 +48,14 @@ public class CachingFileHasher implements FileHasher {
         this.timestampInspector = timestampInspector;
     }
 
+    /**
+     * Returns the name of the file hash cache for the given hash function, so that hashes created by different hash functions are never mixed.
+     */
+    public static String cacheNameFor(String baseName, ContentHasherFactory contentHasherFactory) {
+        String hashFunctionName = contentHasherFactory.getHashFunctionName();
+        return DefaultContentHasherFactory.MD5.equals(hashFunctionName) ? baseName : baseName + "-" + hashFunctionName;
+    }
+
     @Override
     public String toString() {
         return "{hasher cache: " + cache + "}";
@@ -16,22 +16,55 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.api.internal.tasks.execution.TaskOutputChangesListener;
 import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.file.DefaultFileHierarchySet;
 import org.gradle.internal.file.FileHierarchySet;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
- * See {@link DefaultFileSystemSnapshotter} for some more details
+ * See {@link DefaultFileSystemSnapshotter} for some more details.
+ *
+ * <p>When a {@link FileWatcherFactory} is provided, state about files that do not live in an append-only cache is retained between builds.
+ * A location is watched as soon as it is looked up without result, that is before it is snapshotted, and file system change notifications invalidate
+ * the affected entries. A snapshot is not kept when a change to its location was notified while it was being taken. At the start of each build,
+ * a marker file is written to a watched directory and the notifications are waited for until the one for the marker arrives, so that changes made
+ * between builds are applied before any retained state is used. Whenever the watcher is not able to deliver reliable or timely notifications,
+ * all state is discarded, as is the case when no watcher is used.</p>
  */
-public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChangesListener, RootBuildLifecycleListener {
+public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChangesListener, RootBuildLifecycleListener, Stoppable {
+    /**
+     * Opt-in, as change notifications are delivered asynchronously and may arrive late on some platforms.
+     */
+    public static final String RETAIN_STATE_PROPERTY = "org.gradle.internal.vfs.retain";
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileSystemMirror.class);
+    private static final long FLUSH_TIMEOUT_MILLIS = 1000;
+
     // Maps from interned absolute path for a file to known details for the file.
     private final Map<String, FileSnapshot> files = new ConcurrentHashMap<String, FileSnapshot>();
     private final Map<String, FileSnapshot> cacheFiles = new ConcurrentHashMap<String, FileSnapshot>();
@@ -42,15 +75,46 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
     private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
     private final Map<String, Snapshot> cacheSnapshots = new ConcurrentHashMap<String, Snapshot>();
     private final FileHierarchySet cachedDirectories;
+    @Nullable
+    private final FileWatcherFactory fileWatcherFactory;
+    @Nullable
+    private final File flushMarkerDir;
+
+    private final Object watcherLock = new Object();
+    // Locations that are known to be watched, guarded by watcherLock
+    private FileHierarchySet watchedTrees = DefaultFileHierarchySet.of();
+    private final Set<String> watchedFiles = new HashSet<String>();
+    private FileWatcher fileWatcher;
+    private volatile boolean watching;
+    private volatile boolean retainingSupported = true;
+    private volatile String flushMarkerPath;
+    private volatile CountDownLatch flushMarkerSeen;
+
+    // Guards the retained state against notifications for locations that are being snapshotted
+    private final Object stateLock = new Object();
+    // Maps from the path of a location that is being snapshotted to whether a change to it was notified since, guarded by stateLock
+    private final Map<String, Boolean> snapshotsInProgress = new HashMap<String, Boolean>();
 
     public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores) {
+        this.fileWatcherFactory = null;
+        this.flushMarkerDir = null;
+        this.cachedDirectories = cachedDirectoriesOf(fileStores);
+    }
+
+    public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores, FileWatcherFactory fileWatcherFactory, File flushMarkerDir) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.flushMarkerDir = flushMarkerDir;
+        this.cachedDirectories = cachedDirectoriesOf(fileStores);
+    }
+
+    private static FileHierarchySet cachedDirectoriesOf(List<CachedJarFileStore> fileStores) {
         FileHierarchySet cachedDirectories = DefaultFileHierarchySet.of();
         for (CachedJarFileStore fileStore : fileStores) {
             for (File file : fileStore.getFileStoreRoots()) {
                 cachedDirectories = cachedDirectories.plus(file);
             }
         }
-        this.cachedDirectories = cachedDirectories;
+        return cachedDirectories;
     }
 
     @Nullable
@@ -61,7 +125,11 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(path)) {
             return cacheFiles.get(path);
         } else {
-            return files.get(path);
+            FileSnapshot snapshot = files.get(path);
+            if (snapshot == null) {
+                beforeSnapshot(path, false);
+            }
+            return snapshot;
         }
     }
 
@@ -70,7 +138,12 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(file.getPath())) {
             cacheFiles.put(file.getPath(), file);
         } else {
-            files.put(file.getPath(), file);
+            watch(file.getPath(), false);
+            synchronized (stateLock) {
+                if (afterSnapshot(file.getPath())) {
+                    files.put(file.getPath(), file);
+                }
+            }
         }
     }
 
@@ -80,7 +153,12 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(path)) {
             return cacheSnapshots.get(path);
         } else {
-            return snapshots.get(path);
+            Snapshot snapshot = snapshots.get(path);
+            if (snapshot == null) {
+                // The content may be that of a directory
+                beforeSnapshot(path, true);
+            }
+            return snapshot;
         }
     }
 
@@ -89,7 +167,12 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(path)) {
             cacheSnapshots.put(path, snapshot);
         } else {
-            snapshots.put(path, snapshot);
+            watch(path, true);
+            synchronized (stateLock) {
+                if (afterSnapshot(path)) {
+                    snapshots.put(path, snapshot);
+                }
+            }
         }
     }
 
@@ -101,7 +184,11 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(path)) {
             return cacheTrees.get(path);
         } else {
-            return trees.get(path);
+            FileTreeSnapshot snapshot = trees.get(path);
+            if (snapshot == null) {
+                beforeSnapshot(path, true);
+            }
+            return snapshot;
         }
     }
 
@@ -110,7 +197,12 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(directory.getPath())) {
             cacheTrees.put(directory.getPath(), directory);
         } else {
-            trees.put(directory.getPath(), directory);
+            watch(directory.getPath(), true);
+            synchronized (stateLock) {
+                if (afterSnapshot(directory.getPath())) {
+                    trees.put(directory.getPath(), directory);
+                }
+            }
         }
     }
 
@@ -118,23 +210,237 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
     public void beforeTaskOutputChanged() {
         // When the task outputs are generated, throw away all state for files that do not live in an append-only cache.
         // This is intentionally very simple, to be improved later
-        files.clear();
-        trees.clear();
-        snapshots.clear();
+        clearWatchedState();
     }
 
     @Override
     public void afterStart() {
+        if (fileWatcherFactory != null && retainingSupported) {
+            if (startWatching()) {
+                flushPendingChanges();
+            }
+        }
     }
 
     @Override
     public void beforeComplete() {
-        // We throw away all state between builds
-        files.clear();
         cacheFiles.clear();
-        trees.clear();
         cacheTrees.clear();
-        snapshots.clear();
         cacheSnapshots.clear();
+        if (!watching) {
+            // We throw away all state between builds, unless the file system is watched for changes
+            clearWatchedState();
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (watcherLock) {
+            stopWatching();
+        }
+    }
+
+    /**
+     * Starts watching, unless already watching. Returns true when state may have been retained from a previous build.
+     */
+    private boolean startWatching() {
+        synchronized (watcherLock) {
+            if (watching && fileWatcher != null && fileWatcher.isRunning()) {
+                return true;
+            }
+            // Any retained state is stale when the watcher is not running or has missed events
+            stopWatching();
+            try {
+                fileWatcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                    @Override
+                    public void execute(Throwable throwable) {
+                        LOGGER.info("Problem watching the file system, file system state will not be retained.", throwable);
+                        invalidateAll();
+                    }
+                }, new FileWatcherListener() {
+                    @Override
+                    public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                        if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null) {
+                            // Events may have been lost
+                            invalidateAll();
+                            return;
+                        }
+                        File file = event.getFile();
+                        if (flushMarkerDir.equals(file.getParentFile())) {
+                            if (file.getAbsolutePath().equals(flushMarkerPath)) {
+                                flushMarkerSeen.countDown();
+                            }
+                        } else {
+                            invalidate(file.getAbsolutePath());
+                        }
+                    }
+                });
+                GFileUtils.mkdirs(flushMarkerDir);
+                fileWatcher.watch(FileSystemSubset.builder().add(flushMarkerDir).build());
+                watching = true;
+            } catch (Exception e) {
+                LOGGER.info("Could not start watching the file system, file system state will not be retained.", e);
+                stopWatching();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the notifications about the changes made before the build started to be delivered, by making a change
+     * and waiting for its notification. When it does not arrive in time, notifications cannot be relied upon and state is not retained anymore.
+     */
+    private void flushPendingChanges() {
+        // Other daemons may use the same directory
+        File marker = new File(flushMarkerDir, "flush-" + UUID.randomUUID());
+        CountDownLatch markerSeen = new CountDownLatch(1);
+        flushMarkerSeen = markerSeen;
+        flushMarkerPath = marker.getAbsolutePath();
+        try {
+            GFileUtils.touch(marker);
+            if (!markerSeen.await(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOGGER.info("File system change notifications are not delivered in time, file system state will not be retained.");
+                retainingSupported = false;
+                stop();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            flushMarkerPath = null;
+            GFileUtils.deleteQuietly(marker);
+        }
+    }
+
+    // Called with watcherLock held
+    private void stopWatching() {
+        watching = false;
+        if (fileWatcher != null) {
+            fileWatcher.stop();
+            fileWatcher = null;
+        }
+        watchedTrees = DefaultFileHierarchySet.of();
+        watchedFiles.clear();
+        clearWatchedState();
+    }
+
+    /**
+     * Watches the given location, before it is snapshotted, and records that it is being snapshotted.
+     */
+    private void beforeSnapshot(String path, boolean tree) {
+        if (!watching) {
+            return;
+        }
+        watch(path, tree);
+        synchronized (stateLock) {
+            if (!snapshotsInProgress.containsKey(path)) {
+                snapshotsInProgress.put(path, Boolean.FALSE);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the snapshot of the given location can be kept, that is when no change to it was notified while it was being taken. Called with stateLock held.
+     */
+    private boolean afterSnapshot(String path) {
+        Boolean changed = snapshotsInProgress.remove(path);
+        // When the location was not looked up before being snapshotted, it has only been watched afterwards
+        return changed == null || !changed;
+    }
+
+    private void watch(String path, boolean tree) {
+        if (!watching) {
+            return;
+        }
+        if (tree) {
+            watchTree(path);
+        } else {
+            watchFile(path);
+        }
+    }
+
+    private void watchFile(String path) {
+        synchronized (watcherLock) {
+            if (!watching || watchedFiles.contains(path) || watchedTrees.contains(path)) {
+                return;
+            }
+            // Watches the directory containing the file, without its subdirectories.
+            if (watch(FileSystemSubset.builder().add(new File(path)).build())) {
+                watchedFiles.add(path);
+            }
+        }
+    }
+
+    private void watchTree(String path) {
+        synchronized (watcherLock) {
+            if (!watching || watchedTrees.contains(path)) {
+                return;
+            }
+            File root = new File(path);
+            if (watch(FileSystemSubset.builder().add(root).build())) {
+                watchedTrees = watchedTrees.plus(root);
+            }
+        }
+    }
+
+    // Called with watcherLock held
+    private boolean watch(FileSystemSubset subset) {
+        try {
+            fileWatcher.watch(subset);
+            return true;
+        } catch (IOException e) {
+            LOGGER.info("Could not watch " + subset + ", file system state will not be retained.", e);
+            invalidateAll();
+            return false;
+        }
+    }
+
+    private void invalidate(String path) {
+        synchronized (stateLock) {
+            files.remove(path);
+            trees.remove(path);
+            snapshots.remove(path);
+            // Any tree that contains the path is out of date
+            for (File ancestor = new File(path).getParentFile(); ancestor != null; ancestor = ancestor.getParentFile()) {
+                String ancestorPath = ancestor.getPath();
+                trees.remove(ancestorPath);
+                snapshots.remove(ancestorPath);
+            }
+            // When a directory has been created or removed, anything below it may have changed as well
+            String prefix = path + File.separatorChar;
+            removeDescendants(files, prefix);
+            removeDescendants(trees, prefix);
+            removeDescendants(snapshots, prefix);
+            // Snapshots that are being taken of the path, of a tree containing it, or of anything below it may be out of date
+            for (Map.Entry<String, Boolean> entry : snapshotsInProgress.entrySet()) {
+                String snapshotPath = entry.getKey();
+                if (snapshotPath.equals(path) || snapshotPath.startsWith(prefix) || path.startsWith(snapshotPath + File.separatorChar)) {
+                    entry.setValue(Boolean.TRUE);
+                }
+            }
+        }
+    }
+
+    private static void removeDescendants(Map<String, ?> map, String prefix) {
+        for (Iterator<String> iterator = map.keySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void invalidateAll() {
+        watching = false;
+        clearWatchedState();
+    }
+
+    private void clearWatchedState() {
+        synchronized (stateLock) {
+            files.clear();
+            trees.clear();
+            snapshots.clear();
+            for (Map.Entry<String, Boolean> entry : snapshotsInProgress.entrySet()) {
+                entry.setValue(Boolean.TRUE);
+            }
+        }
     }
 }
@@ -42,6 +42,7 @@ import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.normalization.internal.InputNormalizationStrategy;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
 import java.util.List;
@@ -58,6 +59,11 @@ import java.util.List;
  * The implementations are currently intentionally very, very simple, and so there are a number of ways in which they can be made much more efficient. This can happen over time.
  */
 public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
+    /**
+     * Trees with at least this many files have their files hashed in parallel, when a {@link ParallelFileHasher} is available.
+     */
+    static final int PARALLEL_HASHING_THRESHOLD = 128;
+
     private final FileHasher hasher;
     private final StringInterner stringInterner;
     private final FileSystem fileSystem;
@@ -67,9 +73,15 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
     private final ProducerGuard<String> producingTrees = ProducerGuard.striped();
     private final ProducerGuard<String> producingAllSnapshots = ProducerGuard.striped();
     private final DefaultGenericFileCollectionSnapshotter snapshotter;
+    private final ParallelFileHasher parallelFileHasher;
 
     public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+        this(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, null);
+    }
+
+    public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, @Nullable ParallelFileHasher parallelFileHasher) {
         this.hasher = hasher;
+        this.parallelFileHasher = parallelFileHasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
@@ -188,9 +200,7 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
 
     private FileTreeSnapshot snapshotAndCache(DirectoryFileTree directoryTree) {
         String path = internPath(directoryTree.getDir());
-        List<FileSnapshot> elements = Lists.newArrayList();
-        directoryTree.visit(new FileVisitorImpl(elements));
-        ImmutableList<FileSnapshot> descendants = ImmutableList.copyOf(elements);
+        ImmutableList<FileSnapshot> descendants = ImmutableList.copyOf(snapshotDescendants(directoryTree));
         DirectoryTreeDetails snapshot = new DirectoryTreeDetails(path, descendants);
         fileSystemMirror.putDirectory(snapshot);
         return snapshot;
@@ -202,9 +212,17 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
      */
     private FileTreeSnapshot snapshotWithoutCaching(DirectoryFileTree directoryTree) {
         String path = directoryTree.getDir().getAbsolutePath();
-        List<FileSnapshot> elements = Lists.newArrayList();
-        directoryTree.visit(new FileVisitorImpl(elements));
-        return new DirectoryTreeDetails(path, elements);
+        return new DirectoryTreeDetails(path, snapshotDescendants(directoryTree));
+    }
+
+    /*
+     * Walks the tree on the calling thread, so that the snapshots are in the same order as they are visited,
+     * and then hashes the regular files, in parallel when there are enough of them.
+     */
+    private List<FileSnapshot> snapshotDescendants(DirectoryFileTree directoryTree) {
+        DeferredHashingFileVisitor visitor = new DeferredHashingFileVisitor();
+        directoryTree.visit(visitor);
+        return visitor.getSnapshots();
     }
 
     private FileTreeSnapshot filterSnapshot(FileTreeSnapshot snapshot, PatternSet patterns) {
@@ -297,4 +315,41 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
             fileTreeElements.add(new RegularFileSnapshot(internPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, fileSnapshot(fileDetails)));
         }
     }
+
+    /**
+     * Collects the snapshots of a directory tree, leaving a placeholder for each regular file until all files have been visited.
+     */
+    private class DeferredHashingFileVisitor implements FileVisitor {
+        private final List<FileSnapshot> snapshots = Lists.newArrayList();
+        private final List<Integer> fileIndexes = Lists.newArrayList();
+        private final List<FileVisitDetails> files = Lists.newArrayList();
+
+        @Override
+        public void visitDir(FileVisitDetails dirDetails) {
+            snapshots.add(new DirectoryFileSnapshot(internPath(dirDetails.getFile()), dirDetails.getRelativePath(), false));
+        }
+
+        @Override
+        public void visitFile(FileVisitDetails fileDetails) {
+            fileIndexes.add(snapshots.size());
+            files.add(fileDetails);
+            snapshots.add(null);
+        }
+
+        List<FileSnapshot> getSnapshots() {
+            if (parallelFileHasher != null && files.size() >= PARALLEL_HASHING_THRESHOLD) {
+                HashCode[] hashes = parallelFileHasher.hash(hasher, files);
+                for (int i = 0; i < files.size(); i++) {
+                    FileVisitDetails fileDetails = files.get(i);
+                    snapshots.set(fileIndexes.get(i), new RegularFileSnapshot(internPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, new FileHashSnapshot(hashes[i], fileDetails.getLastModified())));
+                }
+            } else {
+                for (int i = 0; i < files.size(); i++) {
+                    FileVisitDetails fileDetails = files.get(i);
+                    snapshots.set(fileIndexes.get(i), new RegularFileSnapshot(internPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, fileSnapshot(fileDetails)));
+                }
+            }
+            return snapshots;
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.concurrent.ParallelismConfiguration;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.ParallelismConfigurationListener;
+import org.gradle.internal.concurrent.ParallelismConfigurationManager;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hashes batches of files on a shared pool of threads, so that snapshotting a large directory tree can use more than one core.
+ * The calling thread takes part in the hashing, and the pool is sized by the max worker count of the build.
+ *
+ * <p>Only used by the file system snapshotters when the {@value #ENABLED_PROPERTY} system property is set to true.</p>
+ */
+public class ParallelFileHasher implements Stoppable, ParallelismConfigurationListener {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.snapshotting.parallel-hashing";
+
+    private static final int FILES_PER_BATCH = 32;
+
+    private final ManagedExecutor executor;
+    private final ParallelismConfigurationManager parallelismConfigurationManager;
+    private volatile int maxWorkerCount;
+
+    public ParallelFileHasher(ExecutorFactory executorFactory, ParallelismConfigurationManager parallelismConfigurationManager) {
+        this.parallelismConfigurationManager = parallelismConfigurationManager;
+        this.maxWorkerCount = parallelismConfigurationManager.getParallelismConfiguration().getMaxWorkerCount();
+        this.executor = executorFactory.create("File hasher", maxWorkerCount);
+        parallelismConfigurationManager.addListener(this);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Override
+    public void onParallelismConfigurationChange(ParallelismConfiguration parallelismConfiguration) {
+        maxWorkerCount = parallelismConfiguration.getMaxWorkerCount();
+        executor.setFixedPoolSize(maxWorkerCount);
+    }
+
+    /**
+     * Hashes the given files using the given hasher, returning the hashes in the same order as the files.
+     */
+    public HashCode[] hash(FileHasher hasher, List<? extends FileTreeElement> files) {
+        HashFilesJob job = new HashFilesJob(hasher, files);
+        int helpers = Math.min(maxWorkerCount, job.batchCount) - 1;
+        for (int i = 0; i < helpers; i++) {
+            executor.execute(job);
+        }
+        job.run();
+        return job.awaitHashes();
+    }
+
+    @Override
+    public void stop() {
+        parallelismConfigurationManager.removeListener(this);
+        executor.stop();
+    }
+
+    /**
+     * Hashes the files in batches, taking the next batch until there are none left. Can be run by several threads at the same time.
+     */
+    private static class HashFilesJob implements Runnable {
+        private final FileHasher hasher;
+        private final List<? extends FileTreeElement> files;
+        private final HashCode[] hashes;
+        private final int batchCount;
+        private final AtomicInteger nextBatch = new AtomicInteger();
+        private final CountDownLatch remainingBatches;
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        HashFilesJob(FileHasher hasher, List<? extends FileTreeElement> files) {
+            this.hasher = hasher;
+            this.files = files;
+            this.hashes = new HashCode[files.size()];
+            this.batchCount = (files.size() + FILES_PER_BATCH - 1) / FILES_PER_BATCH;
+            this.remainingBatches = new CountDownLatch(batchCount);
+        }
+
+        @Override
+        public void run() {
+            int batch;
+            while ((batch = nextBatch.getAndIncrement()) < batchCount) {
+                try {
+                    if (failure.get() == null) {
+                        int end = Math.min(files.size(), (batch + 1) * FILES_PER_BATCH);
+                        for (int i = batch * FILES_PER_BATCH; i < end; i++) {
+                            hashes[i] = hasher.hash(files.get(i));
+                        }
+                    }
+                } catch (Throwable t) {
+                    // Reported to the thread that requested the hashes, rather than to the executor
+                    failure.compareAndSet(null, t);
+                } finally {
+                    remainingBatches.countDown();
+                }
+            }
+        }
+
+        /**
+         * Waits for the batches taken by other threads, which does not wait for helpers that have not started yet.
+         */
+        HashCode[] awaitHashes() {
+            try {
+                remainingBatches.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            Throwable failure = this.failure.get();
+            if (failure != null) {
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
+            return hashes;
+        }
+    }
+}
@@ -22,6 +22,11 @@ import org.gradle.internal.serialize.Serializer;
  * Provides access to the persistent task history store.
  */
 public interface TaskHistoryStore {
+    /**
+     * When set to true, the caches of the store are backed by memory-mapped files instead of B-trees.
+     */
+    String MEMORY_MAPPED_PROPERTY = "org.gradle.internal.cache.memory-mapped";
+
     /**
      * See {@link org.gradle.cache.PersistentStore#createCache(String, Class, Serializer)} for more details.
      *
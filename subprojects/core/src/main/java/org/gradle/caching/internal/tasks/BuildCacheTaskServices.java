@@ -28,10 +28,13 @@ import org.gradle.caching.internal.controller.BuildCacheController;
 import org.gradle.caching.internal.controller.BuildCacheControllerFactory;
 import org.gradle.caching.internal.controller.BuildCacheControllerFactory.BuildCacheMode;
 import org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteAccessMode;
+import org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteLoadMode;
+import org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteStoreMode;
 import org.gradle.caching.internal.controller.RootBuildCacheControllerRef;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory;
 import org.gradle.initialization.buildsrc.BuildSourceBuilder;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -49,11 +52,17 @@ import static org.gradle.caching.internal.controller.BuildCacheControllerFactory
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.BuildCacheMode.ENABLED;
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteAccessMode.OFFLINE;
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteAccessMode.ONLINE;
+import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteLoadMode.ON_DEMAND;
+import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteLoadMode.STREAMING;
+import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteStoreMode.ASYNC;
+import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteStoreMode.SYNC;
 
 @NonNullApi
 public class BuildCacheTaskServices {
 
     private static final Path ROOT_BUILD_SRC_PATH = Path.path(":" + BuildSourceBuilder.BUILD_SRC);
+    private static final String ASYNC_REMOTE_STORE_PROPERTY = "org.gradle.caching.internal.async-remote-store";
+    private static final String STREAMING_REMOTE_LOAD_PROPERTY = "org.gradle.caching.internal.streaming-remote-load";
 
     TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner) {
         return new GZipTaskOutputPacker(new TarTaskOutputPacker(fileSystem, fileHasher, stringInterner));
@@ -84,10 +93,11 @@ public class BuildCacheTaskServices {
         BuildOperationExecutor buildOperationExecutor,
         InstantiatorFactory instantiatorFactory,
         GradleInternal gradle,
-        RootBuildCacheControllerRef rootControllerRef
+        RootBuildCacheControllerRef rootControllerRef,
+        ExecutorFactory executorFactory
     ) {
         if (isRoot(gradle) || isRootBuildSrc(gradle) || isGradleBuildTaskRoot(rootControllerRef)) {
-            return doCreateBuildCacheController(serviceRegistry, buildCacheConfiguration, buildOperationExecutor, instantiatorFactory, gradle);
+            return doCreateBuildCacheController(serviceRegistry, buildCacheConfiguration, buildOperationExecutor, instantiatorFactory, gradle, executorFactory);
         } else {
             // must be an included build
             return rootControllerRef.getForNonRootBuild();
@@ -111,12 +121,14 @@ public class BuildCacheTaskServices {
         return gradle.getParent() == null;
     }
 
-    private BuildCacheController doCreateBuildCacheController(ServiceRegistry serviceRegistry, BuildCacheConfigurationInternal buildCacheConfiguration, BuildOperationExecutor buildOperationExecutor, InstantiatorFactory instantiatorFactory, GradleInternal gradle) {
+    private BuildCacheController doCreateBuildCacheController(ServiceRegistry serviceRegistry, BuildCacheConfigurationInternal buildCacheConfiguration, BuildOperationExecutor buildOperationExecutor, InstantiatorFactory instantiatorFactory, GradleInternal gradle, ExecutorFactory executorFactory) {
         StartParameter startParameter = gradle.getStartParameter();
         Path buildIdentityPath = gradle.getIdentityPath();
         File gradleUserHomeDir = gradle.getGradleUserHomeDir();
         BuildCacheMode buildCacheMode = startParameter.isBuildCacheEnabled() ? ENABLED : DISABLED;
         RemoteAccessMode remoteAccessMode = startParameter.isOffline() ? OFFLINE : ONLINE;
+        RemoteStoreMode remoteStoreMode = Boolean.getBoolean(ASYNC_REMOTE_STORE_PROPERTY) ? ASYNC : SYNC;
+        RemoteLoadMode remoteLoadMode = Boolean.getBoolean(STREAMING_REMOTE_LOAD_PROPERTY) ? STREAMING : ON_DEMAND;
         boolean logStackTraces = startParameter.getShowStacktrace() != ShowStacktrace.INTERNAL_EXCEPTIONS;
         boolean emitDebugLogging = startParameter.isBuildCacheDebugLogging();
 
@@ -127,9 +139,12 @@ public class BuildCacheTaskServices {
             buildCacheConfiguration,
             buildCacheMode,
             remoteAccessMode,
+            remoteStoreMode,
+            remoteLoadMode,
             logStackTraces,
             emitDebugLogging,
-            instantiatorFactory.inject(serviceRegistry)
+            instantiatorFactory.inject(serviceRegistry),
+            executorFactory
         );
     }
 
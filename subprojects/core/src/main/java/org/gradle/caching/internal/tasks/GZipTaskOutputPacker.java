@@ -16,6 +16,7 @@
 
 package org.gradle.caching.internal.tasks;
 
+import com.google.common.io.ByteStreams;
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.changedetection.state.FileContentSnapshot;
@@ -63,12 +64,20 @@ public class GZipTaskOutputPacker implements TaskOutputPacker {
     public UnpackResult unpack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, InputStream input, TaskOutputOriginReader readOrigin) throws IOException {
         GZIPInputStream gzipInput = createGzipInputStream(input);
         try {
-            return delegate.unpack(propertySpecs, gzipInput, readOrigin);
+            UnpackResult result = delegate.unpack(propertySpecs, gzipInput, readOrigin);
+            // Read up to the end of the compressed stream, so that its checksum is verified
+            ByteStreams.exhaust(gzipInput);
+            return result;
         } finally {
             IOUtils.closeQuietly(gzipInput);
         }
     }
 
+    @Override
+    public UnpackResult unpackUncompressed(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, InputStream input, TaskOutputOriginReader readOrigin) throws IOException {
+        return delegate.unpack(propertySpecs, input, readOrigin);
+    }
+
     private GZIPInputStream createGzipInputStream(InputStream input) {
         try {
             return new GZIPInputStream(input);
@@ -237,6 +237,11 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         tarOutput.putArchiveEntry(entry);
     }
 
+    @Override
+    public UnpackResult unpackUncompressed(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, InputStream input, TaskOutputOriginReader readOrigin) throws IOException {
+        return unpack(propertySpecs, input, readOrigin);
+    }
+
     @Override
     public UnpackResult unpack(final SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, final InputStream input, final TaskOutputOriginReader readOrigin) throws IOException {
         TarArchiveInputStream tarInput = new TarArchiveInputStream(input);
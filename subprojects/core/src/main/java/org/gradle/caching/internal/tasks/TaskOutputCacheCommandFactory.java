@@ -47,6 +47,7 @@ import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.internal.controller.BuildCacheLoadCommand;
 import org.gradle.caching.internal.controller.BuildCacheStoreCommand;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory;
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.internal.file.FileType;
 
 import java.io.File;
@@ -115,10 +116,22 @@ public class TaskOutputCacheCommandFactory {
 
         @Override
         public BuildCacheLoadCommand.Result<OriginTaskExecutionMetadata> load(InputStream input) {
+            return load(input, false);
+        }
+
+        @Override
+        public BuildCacheLoadCommand.Result<OriginTaskExecutionMetadata> loadUncompressed(InputStream input) {
+            return load(input, true);
+        }
+
+        private BuildCacheLoadCommand.Result<OriginTaskExecutionMetadata> load(InputStream input, boolean uncompressed) {
             taskOutputChangesListener.beforeTaskOutputChanged();
             final TaskOutputPacker.UnpackResult unpackResult;
             try {
-                unpackResult = packer.unpack(outputProperties, input, taskOutputOriginFactory.createReader(task));
+                TaskOutputOriginReader readOrigin = taskOutputOriginFactory.createReader(task);
+                unpackResult = uncompressed
+                    ? packer.unpackUncompressed(outputProperties, input, readOrigin)
+                    : packer.unpack(outputProperties, input, readOrigin);
                 updateSnapshots(unpackResult.getSnapshots(), unpackResult.getOriginMetadata());
             } catch (Exception e) {
                 LOGGER.warn("Cleaning outputs for {} after failed load from cache.", task);
@@ -55,6 +55,11 @@ public interface TaskOutputPacker {
 
     UnpackResult unpack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, InputStream input, TaskOutputOriginReader readOrigin) throws IOException;
 
+    /**
+     * Unpacks an entry whose archive is not compressed, as provided by a deduplicating local build cache.
+     */
+    UnpackResult unpackUncompressed(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, InputStream input, TaskOutputOriginReader readOrigin) throws IOException;
+
     class UnpackResult {
         private final OriginTaskExecutionMetadata originMetadata;
         private final long entries;
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The longest chain of dependent tasks in an execution plan, weighted by task duration.
+ */
+class CriticalPath {
+    static final CriticalPath EMPTY = new CriticalPath(0, Collections.<TaskInfo>emptyList());
+
+    private final long duration;
+    private final List<TaskInfo> tasks;
+
+    private CriticalPath(long duration, List<TaskInfo> tasks) {
+        this.duration = duration;
+        this.tasks = tasks;
+    }
+
+    /**
+     * The sum of the durations of the tasks on the path, in milliseconds.
+     */
+    long getDuration() {
+        return duration;
+    }
+
+    /**
+     * The tasks on the path, in execution order.
+     */
+    List<TaskInfo> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Calculates, for each task, the duration of the longest chain of tasks that starts with the task and continues through the tasks that depend on it or finalize it.
+     * The tasks must be given in execution plan order, so that every task comes before the tasks that depend on it. Tasks without a duration count as zero.
+     */
+    static Map<TaskInfo, Long> remainingDurations(List<TaskInfo> tasksInPlanOrder, Map<TaskInfo, Long> durations) {
+        Map<TaskInfo, Long> remainingDurations = Maps.newIdentityHashMap();
+        for (TaskInfo task : Lists.reverse(tasksInPlanOrder)) {
+            Long next = longestRemaining(task, remainingDurations);
+            remainingDurations.put(task, durationOf(task, durations) + (next == null ? 0 : next));
+        }
+        return remainingDurations;
+    }
+
+    /**
+     * Finds the critical path of the given tasks, which must be in execution plan order.
+     */
+    static CriticalPath of(List<TaskInfo> tasksInPlanOrder, Map<TaskInfo, Long> durations) {
+        Map<TaskInfo, Long> remainingDurations = remainingDurations(tasksInPlanOrder, durations);
+        TaskInfo current = null;
+        long longest = -1;
+        for (TaskInfo task : tasksInPlanOrder) {
+            long remaining = remainingDurations.get(task);
+            if (remaining > longest) {
+                current = task;
+                longest = remaining;
+            }
+        }
+        if (current == null) {
+            return EMPTY;
+        }
+        ImmutableList.Builder<TaskInfo> path = ImmutableList.builder();
+        while (current != null) {
+            path.add(current);
+            current = nextOnPath(current, remainingDurations);
+        }
+        return new CriticalPath(longest, path.build());
+    }
+
+    private static Long longestRemaining(TaskInfo task, Map<TaskInfo, Long> remainingDurations) {
+        TaskInfo next = nextOnPath(task, remainingDurations);
+        return next == null ? null : remainingDurations.get(next);
+    }
+
+    private static TaskInfo nextOnPath(TaskInfo task, Map<TaskInfo, Long> remainingDurations) {
+        TaskInfo next = null;
+        long longest = -1;
+        for (TaskInfo dependent : Iterables.concat(task.getDependencyPredecessors(), task.getFinalizers())) {
+            Long remaining = remainingDurations.get(dependent);
+            if (remaining != null && remaining > longest) {
+                next = dependent;
+                longest = remaining;
+            }
+        }
+        return next;
+    }
+
+    private static long durationOf(TaskInfo task, Map<TaskInfo, Long> durations) {
+        Long duration = durations.get(task);
+        return duration == null ? 0 : duration;
+    }
+}
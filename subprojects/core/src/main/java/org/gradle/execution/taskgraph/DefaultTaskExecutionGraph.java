@@ -41,11 +41,15 @@ import org.gradle.internal.Cast;
 import org.gradle.internal.Factory;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationRef;
 import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.resources.ResourceLockState;
+import org.gradle.internal.taskgraph.CriticalPathBuildOperationType;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
 import org.gradle.internal.work.WorkerLeaseService;
@@ -53,6 +57,7 @@ import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -74,6 +79,9 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final DefaultTaskExecutionPlan taskExecutionPlan;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final GradleInternal gradleInternal;
+    @Nullable
+    private final TaskDurationHistory taskDurationHistory;
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
     private List<Task> allTasks;
 
@@ -81,13 +89,22 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
     private Spec<? super Task> filter = Specs.SATISFIES_ALL;
 
     public DefaultTaskExecutionGraph(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildOperationExecutor buildOperationExecutor, WorkerLeaseService workerLeaseService, ResourceLockCoordinationService coordinationService, GradleInternal gradleInternal) {
+        this(listenerManager, taskPlanExecutor, taskExecuter, buildOperationExecutor, workerLeaseService, coordinationService, gradleInternal, null);
+    }
+
+    /**
+     * @param taskDurationHistory When not null, tasks are scheduled by their estimated critical path and the critical path is reported as a build operation.
+     */
+    public DefaultTaskExecutionGraph(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildOperationExecutor buildOperationExecutor, WorkerLeaseService workerLeaseService, ResourceLockCoordinationService coordinationService, GradleInternal gradleInternal, @Nullable TaskDurationHistory taskDurationHistory) {
         this.taskPlanExecutor = taskPlanExecutor;
         this.taskExecuter = taskExecuter;
         this.buildOperationExecutor = buildOperationExecutor;
         this.coordinationService = coordinationService;
+        this.gradleInternal = gradleInternal;
+        this.taskDurationHistory = taskDurationHistory;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
-        taskExecutionPlan = new DefaultTaskExecutionPlan(workerLeaseService, gradleInternal);
+        taskExecutionPlan = new DefaultTaskExecutionPlan(workerLeaseService, gradleInternal, taskDurationHistory);
     }
 
     @Override
@@ -132,6 +149,10 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         try {
             taskPlanExecutor.process(taskExecutionPlan, new ExecuteTaskAction(taskExecuter.create(), buildOperationExecutor.getCurrentOperation()), taskFailures);
             LOGGER.debug("Timing: Executing the DAG took " + clock.getElapsed());
+            if (taskDurationHistory != null) {
+                taskDurationHistory.recordDurations(taskExecutionPlan.getExecutedTaskDurations());
+                reportCriticalPath();
+            }
         } finally {
             coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
                 @Override
@@ -143,6 +164,57 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         }
     }
 
+    private void reportCriticalPath() {
+        final CriticalPath estimated = taskExecutionPlan.getEstimatedCriticalPath();
+        final CriticalPath actual = taskExecutionPlan.getActualCriticalPath();
+        LOGGER.info("Estimated critical path took {}ms, actual critical path took {}ms.", estimated.getDuration(), actual.getDuration());
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                context.setResult(new CriticalPathBuildOperationType.Result() {
+                    @Override
+                    public long getEstimatedDurationMillis() {
+                        return estimated.getDuration();
+                    }
+
+                    @Override
+                    public List<String> getEstimatedTaskPaths() {
+                        return toTaskPaths(estimated);
+                    }
+
+                    @Override
+                    public long getActualDurationMillis() {
+                        return actual.getDuration();
+                    }
+
+                    @Override
+                    public List<String> getActualTaskPaths() {
+                        return toTaskPaths(actual);
+                    }
+                });
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Report critical path")
+                    .details(new CriticalPathBuildOperationType.Details() {
+                        @Override
+                        public String getBuildPath() {
+                            return gradleInternal.getIdentityPath().getPath();
+                        }
+                    });
+            }
+        });
+    }
+
+    private static List<String> toTaskPaths(CriticalPath criticalPath) {
+        ImmutableList.Builder<String> taskPaths = ImmutableList.builder();
+        for (TaskInfo taskInfo : criticalPath.getTasks()) {
+            taskPaths.add(taskInfo.getTask().getIdentityPath().getPath());
+        }
+        return taskPaths.build();
+    }
+
     public void addTaskExecutionGraphListener(TaskExecutionGraphListener listener) {
         graphListeners.add(listener);
     }
@@ -19,11 +19,14 @@ package org.gradle.execution.taskgraph;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
 import org.gradle.api.BuildCancelledException;
 import org.gradle.api.CircularReferenceException;
 import org.gradle.api.NonNullApi;
@@ -37,6 +40,7 @@ import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.CachingTaskDependencyResolveContext;
 import org.gradle.api.internal.tasks.TaskContainerInternal;
+import org.gradle.api.internal.tasks.TaskExecutionOutcome;
 import org.gradle.api.internal.tasks.execution.DefaultTaskProperties;
 import org.gradle.api.internal.tasks.execution.TaskProperties;
 import org.gradle.api.internal.tasks.properties.PropertyWalker;
@@ -53,6 +57,8 @@ import org.gradle.internal.resources.ResourceDeadlockException;
 import org.gradle.internal.resources.ResourceLock;
 import org.gradle.internal.resources.ResourceLockState;
 import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.util.CollectionUtils;
@@ -66,6 +72,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -101,14 +108,30 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Map<File, String> canonicalizedFileCache = Maps.newIdentityHashMap();
     private final Map<Pair<TaskInfo, TaskInfo>, Boolean> reachableCache = Maps.newHashMap();
     private final Set<TaskInfo> dependenciesCompleteCache = Sets.newHashSet();
+    // The last incomplete dependency seen for each waiting task, so that a blocked task can be skipped without checking all of its dependencies again
+    private final Map<TaskInfo, TaskInfo> incompleteDependencyCache = Maps.newIdentityHashMap();
     private final WorkerLeaseService workerLeaseService;
     private final GradleInternal gradle;
+    @Nullable
+    private final TaskDurationHistory taskDurationHistory;
+    private final Map<TaskInfo, Timer> runningTaskTimers = Maps.newIdentityHashMap();
+    private final Map<TaskInfo, Long> actualDurations = Maps.newIdentityHashMap();
+    private final Map<String, Long> executedTaskDurations = Maps.newLinkedHashMap();
+    private CriticalPath estimatedCriticalPath = CriticalPath.EMPTY;
 
     private boolean tasksCancelled;
 
     public DefaultTaskExecutionPlan(WorkerLeaseService workerLeaseService, GradleInternal gradle) {
+        this(workerLeaseService, gradle, null);
+    }
+
+    /**
+     * @param taskDurationHistory When not null, ready tasks are started in order of their estimated remaining critical path, based on the durations in the history.
+     */
+    public DefaultTaskExecutionPlan(WorkerLeaseService workerLeaseService, GradleInternal gradle, @Nullable TaskDurationHistory taskDurationHistory) {
         this.workerLeaseService = workerLeaseService;
         this.gradle = gradle;
+        this.taskDurationHistory = taskDurationHistory;
     }
 
     @Override
@@ -346,7 +369,66 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         executionQueue.clear();
         executionQueue.addAll(executionPlan.values());
+        if (taskDurationHistory != null) {
+            prioritizeByCriticalPath(taskDurationHistory);
+        }
+    }
 
+    /**
+     * Orders the execution queue by the estimated duration of the longest chain of tasks that each task gates, longest first.
+     * The sort is stable, and tasks are still only started once their dependencies are complete, so this only changes which of the ready tasks is started first.
+     */
+    private void prioritizeByCriticalPath(TaskDurationHistory taskDurationHistory) {
+        Map<TaskInfo, Long> expectedDurations = Maps.newIdentityHashMap();
+        List<TaskInfo> tasksWithoutHistory = Lists.newArrayList();
+        long totalExpectedDuration = 0;
+        for (TaskInfo taskInfo : executionQueue) {
+            Long expectedDuration = taskDurationHistory.getExpectedDuration(taskInfo.getTask().getIdentityPath().getPath());
+            if (expectedDuration == null) {
+                tasksWithoutHistory.add(taskInfo);
+            } else {
+                expectedDurations.put(taskInfo, expectedDuration);
+                totalExpectedDuration += expectedDuration;
+            }
+        }
+        // Assume that tasks that have not run before take as long as an average task
+        if (!expectedDurations.isEmpty()) {
+            long averageDuration = totalExpectedDuration / expectedDurations.size();
+            for (TaskInfo taskInfo : tasksWithoutHistory) {
+                expectedDurations.put(taskInfo, averageDuration);
+            }
+        }
+
+        List<TaskInfo> tasksInPlanOrder = ImmutableList.copyOf(executionQueue);
+        final Map<TaskInfo, Long> remainingDurations = CriticalPath.remainingDurations(tasksInPlanOrder, expectedDurations);
+        estimatedCriticalPath = CriticalPath.of(tasksInPlanOrder, expectedDurations);
+        Collections.sort(executionQueue, new Comparator<TaskInfo>() {
+            @Override
+            public int compare(TaskInfo first, TaskInfo second) {
+                return Longs.compare(remainingDurations.get(second), remainingDurations.get(first));
+            }
+        });
+    }
+
+    /**
+     * The critical path estimated from previous builds when the plan was determined. Empty when critical path scheduling is not enabled.
+     */
+    CriticalPath getEstimatedCriticalPath() {
+        return estimatedCriticalPath;
+    }
+
+    /**
+     * The critical path of the tasks executed so far, based on their actual durations. Empty when critical path scheduling is not enabled.
+     */
+    CriticalPath getActualCriticalPath() {
+        return CriticalPath.of(ImmutableList.copyOf(executionPlan.values()), actualDurations);
+    }
+
+    /**
+     * The durations of the tasks that executed their actions successfully so far, keyed by task identity path. Up-to-date, cached and skipped tasks are not included.
+     */
+    Map<String, Long> getExecutedTaskDurations() {
+        return ImmutableMap.copyOf(executedTaskDurations);
     }
 
     @Override
@@ -520,12 +602,17 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         entryTasks.clear();
         executionPlan.clear();
         executionQueue.clear();
+        runningTaskTimers.clear();
+        actualDurations.clear();
+        executedTaskDurations.clear();
+        estimatedCriticalPath = CriticalPath.EMPTY;
         projectLocks.clear();
         failureCollector.clearFailures();
         taskMutations.clear();
         canonicalizedFileCache.clear();
         reachableCache.clear();
         dependenciesCompleteCache.clear();
+        incompleteDependencyCache.clear();
         runningTasks.clear();
     }
 
@@ -617,12 +704,20 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             return true;
         }
 
-        boolean dependenciesComplete = taskInfo.allDependenciesComplete();
-        if (dependenciesComplete) {
-            dependenciesCompleteCache.add(taskInfo);
+        TaskInfo incompleteDependency = incompleteDependencyCache.get(taskInfo);
+        if (incompleteDependency != null && !incompleteDependency.isComplete()) {
+            return false;
         }
 
-        return dependenciesComplete;
+        incompleteDependency = taskInfo.getFirstIncompleteDependency();
+        if (incompleteDependency != null) {
+            incompleteDependencyCache.put(taskInfo, incompleteDependency);
+            return false;
+        }
+
+        incompleteDependencyCache.remove(taskInfo);
+        dependenciesCompleteCache.add(taskInfo);
+        return true;
     }
 
     private boolean allProjectsLocked() {
@@ -801,6 +896,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private void recordTaskStarted(TaskInfo taskInfo) {
         runningTasks.add(taskInfo);
+        if (taskDurationHistory != null) {
+            runningTaskTimers.put(taskInfo, Time.startTimer());
+        }
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
@@ -833,12 +931,26 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
                 taskInfo.finishExecution();
                 recordTaskCompleted(taskInfo);
+                recordTaskDuration(taskInfo);
             }
         } finally {
             getProjectLock(taskInfo).unlock();
         }
     }
 
+    private void recordTaskDuration(TaskInfo taskInfo) {
+        Timer timer = runningTaskTimers.remove(taskInfo);
+        if (timer == null || taskDurationHistory == null) {
+            return;
+        }
+        long duration = timer.getElapsedMillis();
+        actualDurations.put(taskInfo, duration);
+        // Only tasks that ran their actions say anything about how long the task takes to execute. The history is written once execution has finished, outside the coordination lock.
+        if (taskInfo.isSuccessful() && taskInfo.getTask().getState().getOutcome() == TaskExecutionOutcome.EXECUTED) {
+            executedTaskDurations.put(taskInfo.getTask().getIdentityPath().getPath(), duration);
+        }
+    }
+
     private static void enforceFinalizerTasks(TaskInfo taskInfo) {
         for (TaskInfo finalizerNode : taskInfo.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
@@ -938,6 +1050,16 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return true;
     }
 
+    @Override
+    public boolean hasReadyTasks() {
+        for (TaskInfo taskInfo : executionQueue) {
+            if (taskInfo.isReady() && allDependenciesComplete(taskInfo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean hasWorkRemaining() {
         for (TaskInfo taskInfo : executionQueue) {
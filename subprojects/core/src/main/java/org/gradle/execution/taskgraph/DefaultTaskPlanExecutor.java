@@ -34,9 +34,9 @@ import org.gradle.internal.time.Timer;
 import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease;
 import org.gradle.internal.work.WorkerLeaseService;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -125,23 +125,30 @@ public class DefaultTaskPlanExecutor implements TaskPlanExecutor {
             Timer totalTimer = Time.startTimer();
             final Timer taskTimer = Time.startTimer();
 
-            WorkerLease childLease = parentWorkerLease.createChild();
-            boolean moreTasksToExecute = true;
-            while (moreTasksToExecute) {
-                moreTasksToExecute = executeWithTask(childLease, new Action<TaskInternal>() {
-                    @Override
-                    public void execute(TaskInternal task) {
-                        final String taskPath = task.getPath();
-                        LOGGER.info("{} ({}) started.", taskPath, Thread.currentThread());
-                        taskTimer.reset();
-                        taskWorker.execute(task);
-                        long taskDuration = taskTimer.getElapsedMillis();
-                        busy.addAndGet(taskDuration);
-                        if (LOGGER.isInfoEnabled()) {
-                            LOGGER.info("{} ({}) completed. Took {}.", taskPath, Thread.currentThread(), TimeFormatting.formatDurationVerbose(taskDuration));
-                        }
+            Action<TaskInternal> taskExecution = new Action<TaskInternal>() {
+                @Override
+                public void execute(TaskInternal task) {
+                    final String taskPath = task.getPath();
+                    LOGGER.info("{} ({}) started.", taskPath, Thread.currentThread());
+                    taskTimer.reset();
+                    taskWorker.execute(task);
+                    long taskDuration = taskTimer.getElapsedMillis();
+                    busy.addAndGet(taskDuration);
+                    if (LOGGER.isInfoEnabled()) {
+                        LOGGER.info("{} ({}) completed. Took {}.", taskPath, Thread.currentThread(), TimeFormatting.formatDurationVerbose(taskDuration));
                     }
-                });
+                }
+            };
+
+            WorkerLease childLease = parentWorkerLease.createChild();
+            TaskInfo completedTask = null;
+            while (true) {
+                TaskInfo selectedTask = completeAndSelectNextTask(completedTask, childLease);
+                if (selectedTask == null) {
+                    break;
+                }
+                execute(selectedTask, taskExecution);
+                completedTask = selectedTask;
             }
 
             long total = totalTimer.getElapsedMillis();
@@ -152,23 +159,31 @@ public class DefaultTaskPlanExecutor implements TaskPlanExecutor {
         }
 
         /**
-         * Selects a task that's ready to execute and executes the provided action against it.  If no tasks are ready, blocks until one
-         * can be executed.  If all tasks have been executed, returns false.
+         * Marks the given task as complete, if any, then selects a task that's ready to execute. Both happen while holding the state lock once, so a worker
+         * moving from one task to the next does not have to take the lock twice. If no tasks are ready, blocks until one can be executed.
+         *
+         * <p>Other workers are only woken up when this worker releases a lock or when another task is ready to start.</p>
          *
-         * @return true if there are more tasks waiting to execute, false if all tasks have executed.
+         * @return the selected task, or null if all tasks have executed.
          */
-        private boolean executeWithTask(final WorkerLease workerLease, final Action<TaskInternal> taskExecution) {
+        @Nullable
+        private TaskInfo completeAndSelectNextTask(@Nullable final TaskInfo completedTask, final WorkerLease workerLease) {
             final AtomicReference<TaskInfo> selected = new AtomicReference<TaskInfo>();
-            final AtomicBoolean workRemaining = new AtomicBoolean();
+            final AtomicReference<TaskInfo> toComplete = new AtomicReference<TaskInfo>(completedTask);
             coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
                 @Override
                 public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                    TaskInfo justCompleted = toComplete.getAndSet(null);
+                    if (justCompleted != null) {
+                        taskExecutionPlan.taskComplete(justCompleted);
+                        unlock(workerLease).transform(resourceLockState);
+                    }
+
                     if (cancellationToken.isCancellationRequested()) {
                         taskExecutionPlan.cancelExecution();
                     }
 
-                    workRemaining.set(taskExecutionPlan.hasWorkRemaining());
-                    if (!workRemaining.get()) {
+                    if (!taskExecutionPlan.hasWorkRemaining()) {
                         return FINISHED;
                     }
 
@@ -177,41 +192,33 @@ public class DefaultTaskPlanExecutor implements TaskPlanExecutor {
                     } catch (Throwable t) {
                         resourceLockState.releaseLocks();
                         taskExecutionPlan.abortAllAndFail(t);
-                        workRemaining.set(false);
+                        return FINISHED;
                     }
 
-                    if (selected.get() == null && workRemaining.get()) {
+                    if (selected.get() == null) {
+                        if (justCompleted != null) {
+                            // The locks released by the completed task are not announced when waiting, so wake up the other workers explicitly
+                            coordinationService.notifyStateChange();
+                        }
                         return RETRY;
-                    } else {
-                        return FINISHED;
                     }
+                    if (justCompleted != null && taskExecutionPlan.hasReadyTasks()) {
+                        // Completing the task may have unblocked more work than this worker can take on
+                        coordinationService.notifyStateChange();
+                    }
+                    return FINISHED;
                 }
             });
-
-            TaskInfo selectedTask = selected.get();
-            if (selectedTask != null) {
-                execute(selectedTask, workerLease, taskExecution);
-            }
-            return workRemaining.get();
+            return selected.get();
         }
 
-        private void execute(final TaskInfo selectedTask, final WorkerLease workerLease, Action<TaskInternal> taskExecution) {
-            try {
-                if (!selectedTask.isComplete()) {
-                    try {
-                        taskExecution.execute(selectedTask.getTask());
-                    } catch (Throwable e) {
-                        selectedTask.setExecutionFailure(e);
-                    }
+        private void execute(TaskInfo selectedTask, Action<TaskInternal> taskExecution) {
+            if (!selectedTask.isComplete()) {
+                try {
+                    taskExecution.execute(selectedTask.getTask());
+                } catch (Throwable e) {
+                    selectedTask.setExecutionFailure(e);
                 }
-            } finally {
-                coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
-                    @Override
-                    public ResourceLockState.Disposition transform(ResourceLockState state) {
-                        taskExecutionPlan.taskComplete(selectedTask);
-                        return unlock(workerLease).transform(state);
-                    }
-                });
             }
         }
     }
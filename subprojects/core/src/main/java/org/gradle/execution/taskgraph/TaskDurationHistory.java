@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.internal.changedetection.state.TaskHistoryStore;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Remembers how long tasks took to execute in previous builds, keyed by task identity path.
+ */
+public class TaskDurationHistory {
+    /**
+     * When set to true, ready tasks are started in order of the estimated remaining critical path, rather than in plan order.
+     */
+    public static final String CRITICAL_PATH_SCHEDULING_PROPERTY = "org.gradle.internal.critical-path-scheduling";
+
+    private final PersistentIndexedCache<String, Long> durations;
+
+    public TaskDurationHistory(TaskHistoryStore taskHistoryStore) {
+        this.durations = taskHistoryStore.createCache("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER, 10000, true);
+    }
+
+    /**
+     * Returns the expected duration of the given task in milliseconds, or null when the task has not been executed before.
+     */
+    @Nullable
+    public Long getExpectedDuration(String taskPath) {
+        return durations.get(taskPath);
+    }
+
+    /**
+     * Records the durations of the tasks that executed in a build, keyed by task identity path. The expected duration of each task moves halfway towards its new duration, so that a single outlier does not dominate.
+     */
+    public void recordDurations(Map<String, Long> durationsMillis) {
+        for (Map.Entry<String, Long> entry : durationsMillis.entrySet()) {
+            Long previous = durations.get(entry.getKey());
+            long duration = entry.getValue();
+            durations.put(entry.getKey(), previous == null ? duration : (previous + duration) / 2);
+        }
+    }
+}
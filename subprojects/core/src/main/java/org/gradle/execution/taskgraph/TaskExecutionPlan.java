@@ -69,4 +69,9 @@ public interface TaskExecutionPlan extends Describable {
 
     boolean hasWorkRemaining();
 
+    /**
+     * Returns true when there is a task waiting to be executed whose dependencies are all complete. The task may still be unable to start because of the locks it needs.
+     */
+    boolean hasReadyTasks();
+
 }
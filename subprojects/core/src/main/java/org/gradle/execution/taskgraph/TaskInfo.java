@@ -19,6 +19,7 @@ package org.gradle.execution.taskgraph;
 import org.gradle.api.internal.TaskInternal;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.TreeSet;
 
 public class TaskInfo implements Comparable<TaskInfo> {
@@ -136,25 +137,33 @@ public class TaskInfo implements Comparable<TaskInfo> {
     }
 
     public boolean allDependenciesComplete() {
+        return getFirstIncompleteDependency() == null;
+    }
+
+    /**
+     * Returns a task that must complete before this task can start, or null when there is no such task.
+     */
+    @Nullable
+    public TaskInfo getFirstIncompleteDependency() {
         for (TaskInfo dependency : mustSuccessors) {
             if (!dependency.isComplete()) {
-                return false;
+                return dependency;
             }
         }
 
         for (TaskInfo dependency : dependencySuccessors) {
             if (!dependency.isComplete()) {
-                return false;
+                return dependency;
             }
         }
 
         for (TaskInfo dependency : finalizingSuccessors) {
             if (!dependency.isComplete()) {
-                return false;
+                return dependency;
             }
         }
 
-        return true;
+        return null;
     }
 
     public boolean allDependenciesSuccessful() {
@@ -16,13 +16,50 @@
 
 package org.gradle.internal.hash;
 
+/**
+ * Creates the hashers used to hash file content. Uses MD5 by default, or MurmurHash3 when {@value #HASH_FUNCTION_PROPERTY} is set to {@code murmur3}.
+ */
 public class DefaultContentHasherFactory implements ContentHasherFactory {
-    private static final HashCode SIGNATURE = Hashing.md5().hashString(DefaultContentHasherFactory.class.getName());
+    public static final String HASH_FUNCTION_PROPERTY = "org.gradle.internal.hash.content";
+    public static final String MD5 = "md5";
+    public static final String MURMUR3 = "murmur3";
+
+    private final String hashFunctionName;
+    private final HashFunction hashFunction;
+    private final HashCode signature;
+
+    public DefaultContentHasherFactory() {
+        this(MD5);
+    }
+
+    public DefaultContentHasherFactory(String hashFunctionName) {
+        if (MD5.equals(hashFunctionName)) {
+            this.hashFunction = Hashing.md5();
+            // Keep the signature used before the hash function was configurable, so existing caches stay valid
+            this.signature = hashFunction.hashString(DefaultContentHasherFactory.class.getName());
+        } else if (MURMUR3.equals(hashFunctionName)) {
+            this.hashFunction = Hashing.murmur3_128();
+            this.signature = hashFunction.hashString(DefaultContentHasherFactory.class.getName() + ":" + MURMUR3);
+        } else {
+            throw new IllegalArgumentException(String.format("Unknown content hash function '%s'. Supported values are '%s' and '%s'.", hashFunctionName, MD5, MURMUR3));
+        }
+        this.hashFunctionName = hashFunctionName;
+    }
+
+    public static DefaultContentHasherFactory fromSystemProperties() {
+        String hashFunctionName = System.getProperty(HASH_FUNCTION_PROPERTY);
+        return new DefaultContentHasherFactory(hashFunctionName == null ? MD5 : hashFunctionName);
+    }
+
+    @Override
+    public String getHashFunctionName() {
+        return hashFunctionName;
+    }
 
     @Override
     public Hasher create() {
-        Hasher hasher = Hashing.md5().newHasher();
-        hasher.putHash(SIGNATURE);
+        Hasher hasher = hashFunction.newHasher();
+        hasher.putHash(signature);
         return hasher;
     }
 }
@@ -354,7 +354,7 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
     }
 
     ContentHasherFactory createHasherFactory() {
-        return new DefaultContentHasherFactory();
+        return DefaultContentHasherFactory.fromSystemProperties();
     }
 
     StreamHasher createStreamHasher(ContentHasherFactory hasherFactory) {
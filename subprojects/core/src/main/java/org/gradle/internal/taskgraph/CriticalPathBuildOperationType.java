@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.taskgraph;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+import java.util.List;
+
+/**
+ * Reports the critical path of the task graph, as estimated from previous builds before execution and as observed during execution.
+ * Only emitted when critical path scheduling is enabled.
+ */
+public final class CriticalPathBuildOperationType implements BuildOperationType<CriticalPathBuildOperationType.Details, CriticalPathBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The build path of the executed task graph.
+         * Never null.
+         */
+        String getBuildPath();
+    }
+
+    public interface Result {
+
+        /**
+         * The sum of the expected durations of the tasks on the estimated critical path, in milliseconds.
+         */
+        long getEstimatedDurationMillis();
+
+        /**
+         * The paths of the tasks on the estimated critical path, in execution order.
+         * Never null.
+         */
+        List<String> getEstimatedTaskPaths();
+
+        /**
+         * The sum of the actual durations of the tasks on the critical path of this execution, in milliseconds.
+         */
+        long getActualDurationMillis();
+
+        /**
+         * The paths of the tasks on the critical path of this execution, in execution order.
+         * Never null.
+         */
+        List<String> getActualTaskPaths();
+    }
+
+    private CriticalPathBuildOperationType() {
+    }
+
+}
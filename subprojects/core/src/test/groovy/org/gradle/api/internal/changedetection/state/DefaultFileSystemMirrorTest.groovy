@@ -19,6 +19,10 @@ package org.gradle.api.internal.changedetection.state
 import org.gradle.BuildResult
 import org.gradle.api.internal.GradleInternal
 import org.gradle.internal.classpath.CachedJarFileStore
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -141,4 +145,151 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getDirectoryTree(file.path) == null
         mirror.getContent(file.path) == null
     }
+
+    def "retains state about a file between builds while the file system is watched"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def fileWatcher = Mock(FileWatcher)
+        def watchingMirror = watchingMirror(fileWatcherFactory)
+        def file = tmpDir.file("a")
+        def other = tmpDir.file("b")
+        def fileSnapshot = Stub(FileSnapshot)
+        def otherSnapshot = Stub(FileSnapshot)
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+        FileWatcherListener listener = null
+
+        given:
+        _ * fileSnapshot.path >> file.path
+        _ * otherSnapshot.path >> other.path
+        _ * fileTreeSnapshot.path >> tmpDir.testDirectory.path
+        _ * fileWatcher.isRunning() >> true
+
+        when:
+        watchingMirror.afterStart()
+
+        then:
+        1 * fileWatcherFactory.watch(_, _) >> { onError, l ->
+            listener = l
+            fileWatcher
+        }
+        1 * fileWatcher.watch(_)
+
+        when:
+        watchingMirror.putFile(fileSnapshot)
+        watchingMirror.putFile(otherSnapshot)
+        watchingMirror.putDirectory(fileTreeSnapshot)
+        watchingMirror.beforeComplete()
+        deliverFlushMarkerEvent(listener, fileWatcher)
+        watchingMirror.afterStart()
+
+        then:
+        3 * fileWatcher.watch(_)
+        0 * fileWatcherFactory._
+        0 * fileWatcher.stop()
+        watchingMirror.getFile(file.path) == fileSnapshot
+        watchingMirror.getFile(other.path) == otherSnapshot
+        watchingMirror.getDirectoryTree(tmpDir.testDirectory.path) == fileTreeSnapshot
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(file))
+
+        then:
+        watchingMirror.getFile(file.path) == null
+        watchingMirror.getFile(other.path) == otherSnapshot
+        watchingMirror.getDirectoryTree(tmpDir.testDirectory.path) == null
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.undefined())
+        watchingMirror.beforeComplete()
+
+        then:
+        watchingMirror.getFile(other.path) == null
+    }
+
+    def "watches a location before it is snapshotted and does not keep the snapshot when the location changes while being snapshotted"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def fileWatcher = Mock(FileWatcher)
+        def watchingMirror = watchingMirror(fileWatcherFactory)
+        def file = tmpDir.file("a")
+        def fileSnapshot = Stub(FileSnapshot)
+        FileWatcherListener listener = null
+
+        given:
+        _ * fileSnapshot.path >> file.path
+        _ * fileWatcherFactory.watch(_, _) >> { onError, l ->
+            listener = l
+            fileWatcher
+        }
+        watchingMirror.afterStart()
+
+        when:
+        def result = watchingMirror.getFile(file.path)
+
+        then:
+        result == null
+        1 * fileWatcher.watch(_)
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(file))
+        watchingMirror.putFile(fileSnapshot)
+
+        then:
+        0 * fileWatcher.watch(_)
+        watchingMirror.getFile(file.path) == null
+
+        when:
+        watchingMirror.putFile(fileSnapshot)
+
+        then:
+        watchingMirror.getFile(file.path) == fileSnapshot
+    }
+
+    def "discards retained state and stops watching when change notifications are not delivered in time at the start of a build"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def fileWatcher = Mock(FileWatcher)
+        def watchingMirror = watchingMirror(fileWatcherFactory)
+        def file = tmpDir.file("a")
+        def fileSnapshot = Stub(FileSnapshot)
+
+        given:
+        _ * fileSnapshot.path >> file.path
+        _ * fileWatcher.isRunning() >> true
+        _ * fileWatcherFactory.watch(_, _) >> fileWatcher
+        watchingMirror.afterStart()
+        watchingMirror.putFile(fileSnapshot)
+        watchingMirror.beforeComplete()
+
+        when:
+        watchingMirror.afterStart()
+
+        then:
+        1 * fileWatcher.stop()
+        watchingMirror.getFile(file.path) == null
+
+        when:
+        watchingMirror.beforeComplete()
+        watchingMirror.afterStart()
+
+        then:
+        0 * fileWatcherFactory._
+    }
+
+    private DefaultFileSystemMirror watchingMirror(FileWatcherFactory fileWatcherFactory) {
+        def fileStore = Stub(CachedJarFileStore)
+        fileStore.fileStoreRoots >> [cacheDir]
+        return new DefaultFileSystemMirror([fileStore], fileWatcherFactory, tmpDir.file("vfs"))
+    }
+
+    private void deliverFlushMarkerEvent(FileWatcherListener listener, FileWatcher fileWatcher) {
+        Thread.start {
+            def deadline = System.currentTimeMillis() + 5000
+            while (System.currentTimeMillis() < deadline) {
+                def markers = tmpDir.file("vfs").listFiles()
+                if (markers) {
+                    listener.onChange(fileWatcher, FileWatcherEvent.create(markers[0]))
+                    return
+                }
+                Thread.sleep(10)
+            }
+        }
+    }
 }
@@ -20,6 +20,9 @@ import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.DirectoryFileTree
 import org.gradle.caching.internal.DefaultBuildCacheHasher
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration
+import org.gradle.internal.concurrent.ParallelismConfigurationManager
 import org.gradle.internal.file.FileType
 import org.gradle.internal.hash.TestFileHasher
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -95,6 +98,29 @@ class DefaultFileSystemSnapshotterTest extends Specification {
         snapshot2.is(snapshot)
     }
 
+    def "hashes files of a large directory tree in parallel and produces the same snapshot"() {
+        def d = tmpDir.createDir("d")
+        (1..DefaultFileSystemSnapshotter.PARALLEL_HASHING_THRESHOLD * 2).each { i ->
+            d.createFile("d${i % 7}/sub${i % 3}/f${i}").text = "content ${i}"
+        }
+        def parallelismConfigurationManager = Stub(ParallelismConfigurationManager) {
+            getParallelismConfiguration() >> new DefaultParallelismConfiguration(false, 4)
+        }
+        def parallelFileHasher = new ParallelFileHasher(new DefaultExecutorFactory(), parallelismConfigurationManager)
+        def parallelSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror([]), parallelFileHasher)
+
+        when:
+        def snapshot = snapshotter.snapshotDirectoryTree(d)
+        def parallelSnapshot = parallelSnapshotter.snapshotDirectoryTree(d)
+
+        then:
+        parallelSnapshot.path == snapshot.path
+        parallelSnapshot.descendants.collect { details(it) } == snapshot.descendants.collect { details(it) }
+
+        cleanup:
+        parallelFileHasher.stop()
+    }
+
     def "fetches details of an empty directory and caches the result"() {
         def d = tmpDir.createDir("d")
 
@@ -255,4 +281,8 @@ class DefaultFileSystemSnapshotterTest extends Specification {
         snapshot.appendToHasher(builder)
         return builder.hash()
     }
+
+    private static List<Object> details(FileSnapshot snapshot) {
+        [snapshot.path, snapshot.relativePath.toString(), snapshot.type, snapshot.content]
+    }
 }
@@ -26,6 +26,7 @@ import org.gradle.api.internal.TaskOutputsInternal
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.tasks.TaskDestroyablesInternal
 import org.gradle.api.internal.tasks.TaskLocalStateInternal
+import org.gradle.api.internal.tasks.TaskExecutionOutcome
 import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.specs.Spec
 import org.gradle.api.tasks.TaskDependency
@@ -847,6 +848,75 @@ class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
         filtered(b)
     }
 
+    def "has ready tasks only while a waiting task has all of its dependencies complete"() {
+        given:
+        Task a = task("a")
+        Task b = task("b", dependsOn: [a])
+        addToGraphAndPopulate([b])
+
+        expect:
+        executionPlan.hasReadyTasks()
+
+        when:
+        def selected = executionPlan.selectNextTask(workerLease, Mock(ResourceLockState))
+
+        then:
+        selected.task == a
+        !executionPlan.hasReadyTasks()
+
+        when:
+        executionPlan.taskComplete(selected)
+
+        then:
+        executionPlan.hasReadyTasks()
+        executionPlan.selectNextTask(workerLease, Mock(ResourceLockState)).task == b
+    }
+
+    def "starts ready task with longest estimated critical path first when scheduling by critical path"() {
+        given:
+        def taskDurationHistory = Stub(TaskDurationHistory) {
+            getExpectedDuration(":a") >> 1L
+            getExpectedDuration(":b") >> 100L
+            getExpectedDuration(":c") >> 100L
+            getExpectedDuration(":d") >> 1L
+        }
+        executionPlan = new DefaultTaskExecutionPlan(workerLeaseService, Mock(GradleInternal), taskDurationHistory)
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d", dependsOn: [a, c])
+
+        when:
+        addToGraphAndPopulate([d])
+
+        then:
+        executionPlan.estimatedCriticalPath.tasks*.task == [b, c, d]
+        executionPlan.estimatedCriticalPath.duration == 201
+        executedTasks == [b, c, a, d]
+    }
+
+    def "collects durations of tasks that executed their actions when scheduling by critical path"() {
+        given:
+        def taskDurationHistory = Mock(TaskDurationHistory)
+        executionPlan = new DefaultTaskExecutionPlan(workerLeaseService, Mock(GradleInternal), taskDurationHistory)
+        Task a = task("a")
+        Task b = task("b", dependsOn: [a])
+        Task c = task("c", dependsOn: [b])
+        a.state.outcome >> TaskExecutionOutcome.EXECUTED
+        b.state.outcome >> TaskExecutionOutcome.UP_TO_DATE
+        c.state.outcome >> TaskExecutionOutcome.FROM_CACHE
+
+        when:
+        addToGraphAndPopulate([c])
+        def executed = executedTasks
+
+        then:
+        executed == [a, b, c]
+        executionPlan.executedTaskDurations.keySet() == [":a"] as Set
+        executionPlan.actualCriticalPath.tasks*.task == [a, b, c]
+        0 * taskDurationHistory.recordDurations(_)
+    }
+
     private void addToGraphAndPopulate(List tasks) {
         executionPlan.addToTaskGraph(tasks)
         executionPlan.determineExecutionPlan()
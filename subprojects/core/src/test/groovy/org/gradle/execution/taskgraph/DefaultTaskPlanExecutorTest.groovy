@@ -29,13 +29,14 @@ import org.gradle.internal.resources.ResourceLockCoordinationService
 import org.gradle.internal.resources.ResourceLockState
 import org.gradle.internal.work.WorkerLeaseService
 import spock.lang.Specification
+import spock.lang.Unroll
 
 class DefaultTaskPlanExecutorTest extends Specification {
     def taskPlan = Mock(TaskExecutionPlan)
     def worker = Mock(Action)
     def executorFactory = Mock(ExecutorFactory)
     def cancellationHandler = Mock(BuildCancellationToken)
-    def coordinationService = Stub(ResourceLockCoordinationService) {
+    def coordinationService = Mock(ResourceLockCoordinationService) {
         withStateLock(_) >> { transformer ->
             transformer[0].transform(Stub(ResourceLockState))
         }
@@ -101,4 +102,38 @@ class DefaultTaskPlanExecutorTest extends Specification {
         1 * taskPlan.collectFailures([])
         0 * taskPlan._
     }
+
+    @Unroll
+    def "completes a task and selects the next one while holding the state lock once (more tasks ready: #moreTasksReady)"() {
+        def first = Mock(TaskInfo)
+        def second = Mock(TaskInfo)
+
+        when:
+        executor.process(taskPlan, worker, [])
+
+        then:
+        1 * executorFactory.create(_) >> Mock(ManagedExecutor)
+        1 * taskPlan.hasWorkRemaining() >> true
+        1 * taskPlan.selectNextTask(_, _) >> first
+        1 * first.task >> Mock(TaskInternal)
+        1 * worker.execute(_)
+
+        then:
+        1 * taskPlan.taskComplete(first)
+        1 * taskPlan.hasWorkRemaining() >> true
+        1 * taskPlan.selectNextTask(_, _) >> second
+        1 * taskPlan.hasReadyTasks() >> moreTasksReady
+        (moreTasksReady ? 1 : 0) * coordinationService.notifyStateChange()
+        1 * second.task >> Mock(TaskInternal)
+        1 * worker.execute(_)
+
+        then:
+        1 * taskPlan.taskComplete(second)
+        1 * taskPlan.hasWorkRemaining() >> false
+        1 * taskPlan.allTasksComplete() >> true
+        0 * coordinationService.notifyStateChange()
+
+        where:
+        moreTasksReady << [true, false]
+    }
 }
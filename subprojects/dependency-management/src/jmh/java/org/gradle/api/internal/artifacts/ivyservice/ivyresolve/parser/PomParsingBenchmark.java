@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.resource.local.LocalFileStandInExternalResource;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses a corpus of real POMs, either from scratch or with the parsed documents retained as they are for parent and imported POMs.
+ */
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class PomParsingBenchmark {
+    private static final String[] CORPUS = {"junit-4.12.pom", "ant-parent-1.10.13.pom", "ant-1.10.13.pom"};
+
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory();
+    private final List<LocallyAvailableExternalResource> poms = new ArrayList<LocallyAvailableExternalResource>();
+    private PomDocumentCache documentCache;
+    private File tempDir;
+
+    @Setup(Level.Trial)
+    public void setupCorpus() throws IOException {
+        tempDir = Files.createTempDirectory("pom-corpus").toFile();
+        for (String name : CORPUS) {
+            File pomFile = new File(tempDir, name);
+            InputStream inputStream = PomParsingBenchmark.class.getResourceAsStream("corpus/" + name);
+            try {
+                FileUtils.copyInputStreamToFile(inputStream, pomFile);
+            } finally {
+                inputStream.close();
+            }
+            poms.add(new LocalFileStandInExternalResource(pomFile, FileSystems.getDefault()));
+        }
+        documentCache = new PomDocumentCache();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public void parseDocuments(Blackhole blackhole) throws Exception {
+        for (LocallyAvailableExternalResource pom : poms) {
+            InputStream inputStream = new FileInputStream(pom.getFile());
+            try {
+                blackhole.consume(PomDomParser.parse(inputStream, pom.getFile().toURI().toASCIIString()));
+            } finally {
+                inputStream.close();
+            }
+        }
+    }
+
+    @Benchmark
+    public void readPoms(Blackhole blackhole) throws Exception {
+        for (LocallyAvailableExternalResource pom : poms) {
+            read(new PomReader(pom, moduleIdentifierFactory, Collections.<String, String>emptyMap(), null), blackhole);
+        }
+    }
+
+    @Benchmark
+    public void readPomsWithDocumentCache(Blackhole blackhole) throws Exception {
+        for (LocallyAvailableExternalResource pom : poms) {
+            read(new PomReader(pom, moduleIdentifierFactory, Collections.<String, String>emptyMap(), documentCache), blackhole);
+        }
+    }
+
+    private static void read(PomReader pomReader, Blackhole blackhole) {
+        blackhole.consume(pomReader.getPackaging());
+        blackhole.consume(pomReader.getDependencyMgt());
+        blackhole.consume(pomReader.getDependencies());
+    }
+}
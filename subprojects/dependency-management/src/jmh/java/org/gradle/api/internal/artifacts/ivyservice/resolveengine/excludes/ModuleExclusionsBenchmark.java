@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Combines and evaluates exclusions the way the dependency graph builder does for a graph with many exclude rules:
+ * most rules exclude a single module, with some group, module name, artifact and regular expression excludes mixed in.
+ */
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class ModuleExclusionsBenchmark {
+    private static final int GROUPS = 60;
+    private static final int MODULES = 3000;
+    private static final int EXCLUDE_LISTS = 400;
+    private static final int EDGES = 5000;
+    private static final String[] NO_CONFIGURATIONS = new String[0];
+
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory();
+    private final List<ModuleIdentifier> modules = new ArrayList<ModuleIdentifier>();
+    private final List<ImmutableList<ExcludeMetadata>> excludeLists = new ArrayList<ImmutableList<ExcludeMetadata>>();
+    private final IvyArtifactName artifact = new DefaultIvyArtifactName("a0", "jar", "jar");
+
+    @Setup(Level.Trial)
+    public void createExcludes() {
+        Random random = new Random(42);
+        for (int i = 0; i < MODULES; i++) {
+            modules.add(moduleIdentifierFactory.module("group" + (i % GROUPS), "module" + i));
+        }
+        for (int i = 0; i < EXCLUDE_LISTS; i++) {
+            ImmutableList.Builder<ExcludeMetadata> excludes = ImmutableList.builder();
+            int count = 1 + random.nextInt(40);
+            for (int j = 0; j < count; j++) {
+                ModuleIdentifier module = modules.get(random.nextInt(MODULES));
+                int kind = random.nextInt(100);
+                if (kind < 80) {
+                    excludes.add(new DefaultExclude(module));
+                } else if (kind < 88) {
+                    excludes.add(new DefaultExclude(moduleIdentifierFactory.module(module.getGroup(), "*")));
+                } else if (kind < 94) {
+                    excludes.add(new DefaultExclude(moduleIdentifierFactory.module("*", module.getName())));
+                } else if (kind < 98) {
+                    excludes.add(new DefaultExclude(module, new DefaultIvyArtifactName("a" + random.nextInt(5), "jar", "jar"), NO_CONFIGURATIONS, PatternMatchers.EXACT));
+                } else {
+                    excludes.add(new DefaultExclude(moduleIdentifierFactory.module(module.getGroup(), "module1.*"), NO_CONFIGURATIONS, "regexp"));
+                }
+            }
+            excludeLists.add(excludes.build());
+        }
+    }
+
+    @Benchmark
+    public void combineAndEvaluate(Blackhole blackhole) {
+        // A new instance per invocation, as each build starts with empty caches
+        ModuleExclusions moduleExclusions = new ModuleExclusions(moduleIdentifierFactory);
+        Random random = new Random(42);
+        List<ModuleExclusion> paths = new ArrayList<ModuleExclusion>();
+        for (int i = 0; i < EDGES; i++) {
+            ModuleExclusion exclusion = moduleExclusions.excludeAny(excludeLists.get(random.nextInt(EXCLUDE_LISTS)));
+            if (!paths.isEmpty() && random.nextBoolean()) {
+                exclusion = moduleExclusions.intersect(paths.get(random.nextInt(paths.size())), exclusion);
+            }
+            if (!paths.isEmpty() && random.nextInt(3) == 0) {
+                exclusion = moduleExclusions.union(paths.get(random.nextInt(paths.size())), exclusion);
+            }
+            paths.add(exclusion);
+            for (int j = 0; j < 50; j++) {
+                ModuleIdentifier module = modules.get(random.nextInt(MODULES));
+                blackhole.consume(exclusion.excludeModule(module));
+                blackhole.consume(exclusion.excludeArtifact(module, artifact));
+            }
+            blackhole.consume(exclusion.excludesSameModulesAs(paths.get(random.nextInt(paths.size()))));
+        }
+    }
+}
@@ -55,6 +55,11 @@ public interface ResolutionStrategyInternal extends ResolutionStrategy {
      */
     boolean resolveGraphToDetermineTaskDependencies();
 
+    /**
+     * Does this strategy, or the global rules, declare rules that may substitute a dependency with another one?
+     */
+    boolean hasDependencySubstitutionRules();
+
     SortOrder getSortOrder();
 
     DependencySubstitutionsInternal getDependencySubstitution();
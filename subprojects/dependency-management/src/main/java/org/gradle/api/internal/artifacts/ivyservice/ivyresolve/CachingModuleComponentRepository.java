@@ -27,6 +27,7 @@ import org.gradle.api.internal.artifacts.ComponentMetadataProcessor;
 import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier;
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
 import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleListingIndex;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetadataCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleRepositoryCaches;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts.ArtifactAtRepositoryKey;
@@ -38,13 +39,16 @@ import org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions.
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvableArtifact;
 import org.gradle.api.internal.artifacts.repositories.resolver.MetadataFetchingCost;
 import org.gradle.api.internal.component.ArtifactType;
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector;
 import org.gradle.internal.component.external.model.FixedComponentArtifacts;
+import org.gradle.internal.component.external.model.GradleDependencyMetadata;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
 import org.gradle.internal.component.external.model.ModuleDependencyMetadata;
 import org.gradle.internal.component.model.ComponentArtifactMetadata;
 import org.gradle.internal.component.model.ComponentOverrideMetadata;
 import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ExcludeMetadata;
 import org.gradle.internal.component.model.ModuleSource;
 import org.gradle.internal.resolve.ArtifactNotFoundException;
 import org.gradle.internal.resolve.ArtifactResolveException;
@@ -54,13 +58,16 @@ import org.gradle.internal.resolve.result.BuildableComponentArtifactsResolveResu
 import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult;
 import org.gradle.internal.resolve.result.BuildableModuleVersionListingResolveResult;
 import org.gradle.internal.resolve.result.DefaultBuildableArtifactSetResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableModuleVersionListingResolveResult;
 import org.gradle.util.BuildCommencedTimeProvider;
 import org.gradle.util.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -80,6 +87,8 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
     private final ModuleMetadataCache moduleMetadataCache;
     private final ModuleArtifactsCache moduleArtifactsCache;
     private final ModuleArtifactCache moduleArtifactCache;
+    @Nullable
+    private final ModuleListingIndex moduleListingIndex;
 
     private final CachePolicy cachePolicy;
 
@@ -99,6 +108,7 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
         this.moduleVersionsCache = caches.moduleVersionsCache;
         this.moduleArtifactsCache = caches.moduleArtifactsCache;
         this.moduleArtifactCache = caches.moduleArtifactCache;
+        this.moduleListingIndex = caches.moduleListingIndex;
         this.timeProvider = timeProvider;
         this.cachePolicy = cachePolicy;
         this.metadataProcessor = metadataProcessor;
@@ -139,6 +149,14 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
         return moduleIdentifierFactory.module(requested.getGroup(), requested.getModule());
     }
 
+    private boolean isKnownAbsentFromListing(ModuleComponentIdentifier moduleComponentIdentifier) {
+        if (moduleListingIndex == null) {
+            return false;
+        }
+        ModuleIdentifier moduleId = moduleIdentifierFactory.module(moduleComponentIdentifier.getGroup(), moduleComponentIdentifier.getModule());
+        return moduleListingIndex.isKnownAbsent(delegate, moduleId, moduleComponentIdentifier, cachePolicy);
+    }
+
     private class LocateInCacheRepositoryAccess implements ModuleComponentRepositoryAccess {
         @Override
         public String toString() {
@@ -190,6 +208,13 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
 
         private void resolveComponentMetaDataFromCache(ModuleComponentIdentifier moduleComponentIdentifier, ComponentOverrideMetadata requestMetaData, BuildableModuleComponentMetaDataResolveResult result) {
             ModuleMetadataCache.CachedMetadata cachedMetadata = moduleMetadataCache.getCachedModuleDescriptor(delegate, moduleComponentIdentifier);
+            if ((cachedMetadata == null || cachedMetadata.isMissing()) && isKnownAbsentFromListing(moduleComponentIdentifier)) {
+                LOGGER.debug("Detected non-existence of module '{}' in module listing of '{}'", moduleComponentIdentifier, delegate.getName());
+                result.missing();
+                // The repository does not host any version of the module, so there is no point in searching it remotely
+                result.setAuthoritative(true);
+                return;
+            }
             if (cachedMetadata == null) {
                 return;
             }
@@ -296,6 +321,9 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
         @Override
         public MetadataFetchingCost estimateMetadataFetchingCost(ModuleComponentIdentifier moduleComponentIdentifier) {
             ModuleMetadataCache.CachedMetadata cachedMetadata = moduleMetadataCache.getCachedModuleDescriptor(delegate, moduleComponentIdentifier);
+            if ((cachedMetadata == null || cachedMetadata.isMissing()) && isKnownAbsentFromListing(moduleComponentIdentifier)) {
+                return MetadataFetchingCost.CHEAP;
+            }
             if (cachedMetadata == null) {
                 return estimateCostViaRemoteAccess(moduleComponentIdentifier);
             }
@@ -362,6 +390,9 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
                     ModuleIdentifier moduleId = getCacheKey(dependency.getSelector());
                     Set<String> versionList = result.getVersions();
                     moduleVersionsCache.cacheModuleVersionList(delegate, moduleId, versionList);
+                    if (moduleListingIndex != null) {
+                        moduleListingIndex.recordListing(delegate, moduleId, result);
+                    }
                     break;
                 case Failed:
                     break;
@@ -378,6 +409,9 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
             switch (result.getState()) {
                 case Missing:
                     moduleMetadataCache.cacheMissing(delegate, moduleComponentIdentifier);
+                    if (moduleListingIndex != null) {
+                        updateModuleListing(moduleComponentIdentifier);
+                    }
                     break;
                 case Resolved:
                     ModuleComponentResolveMetadata resolvedMetadata = result.getMetaData();
@@ -395,6 +429,28 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
             }
         }
 
+        /**
+         * Lists the versions of a module that could not be found, unless an up-to-date listing is already known. When the listing is trusted
+         * and empty, the lookups of other versions of the module can skip this repository.
+         */
+        private void updateModuleListing(ModuleComponentIdentifier moduleComponentIdentifier) {
+            ModuleIdentifier moduleId = moduleIdentifierFactory.module(moduleComponentIdentifier.getGroup(), moduleComponentIdentifier.getModule());
+            if (!moduleListingIndex.requiresListing(delegate, moduleId, moduleComponentIdentifier, cachePolicy)) {
+                return;
+            }
+            ModuleComponentSelector selector = DefaultModuleComponentSelector.newSelector(moduleComponentIdentifier.getGroup(), moduleComponentIdentifier.getModule(), moduleComponentIdentifier.getVersion());
+            ModuleDependencyMetadata dependency = new GradleDependencyMetadata(selector, Collections.<ExcludeMetadata>emptyList(), false, null);
+            BuildableModuleVersionListingResolveResult listing = new DefaultBuildableModuleVersionListingResolveResult();
+            try {
+                delegate.getRemoteAccess().listModuleVersions(dependency, listing);
+            } catch (RuntimeException e) {
+                // The module is missing regardless, so only the index misses out
+                LOGGER.debug("Could not list versions of module '{}' in '{}'", moduleId, delegate.getName(), e);
+                return;
+            }
+            moduleListingIndex.recordListing(delegate, moduleId, listing);
+        }
+
         @Override
         public void resolveArtifactsWithType(ComponentResolveMetadata component, ArtifactType artifactType, BuildableArtifactSetResolveResult result) {
             final CachingModuleSource moduleSource = (CachingModuleSource) component.getSource();
@@ -43,7 +43,7 @@ import java.util.Map;
  * This allows other repository implementations to throw exceptions on failure.
  *
  * This implementation will also blacklist any repository that throws a critical failure, failing-fast with that
- * repository for any subsequent requests.
+ * repository for any subsequent requests. Failures of {@link SpeculativeResolution speculative} requests do not blacklist the repository.
  */
 public class ErrorHandlingModuleComponentRepository implements ModuleComponentRepository {
 
@@ -118,7 +118,7 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.listModuleVersions(dependency, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                blacklistRepository(throwable);
                 ModuleComponentSelector selector = dependency.getSelector();
                 String message = "Failed to list versions for " + selector.getGroup() + ":" + selector.getModule() + ".";
                 result.failed(new ModuleVersionResolveException(selector, message, throwable));
@@ -135,7 +135,7 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                blacklistRepository(throwable);
                 result.failed(new ModuleVersionResolveException(moduleComponentIdentifier, throwable));
             }
         }
@@ -150,7 +150,7 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.resolveArtifactsWithType(component, artifactType, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                blacklistRepository(throwable);
                 result.failed(new ArtifactResolveException(component.getId(), throwable));
             }
         }
@@ -165,7 +165,7 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.resolveArtifacts(component, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                blacklistRepository(throwable);
                 result.failed(new ArtifactResolveException(component.getId(), throwable));
             }
         }
@@ -180,11 +180,17 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.resolveArtifact(artifact, moduleSource, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                blacklistRepository(throwable);
                 result.failed(new ArtifactResolveException(artifact.getId(), throwable));
             }
         }
 
+        private void blacklistRepository(Throwable throwable) {
+            if (!SpeculativeResolution.isSpeculative()) {
+                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+            }
+        }
+
         @Override
         public MetadataFetchingCost estimateMetadataFetchingCost(ModuleComponentIdentifier moduleComponentIdentifier) {
             return delegate.estimateMetadataFetchingCost(moduleComponentIdentifier);
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+
+/**
+ * Retains the parsed content of parent and imported POMs, which are typically shared by many of the modules resolved in a build.
+ *
+ * <p>POM files are kept in the content addressed file store, so an entry is keyed by the file. The length and modification time of the file
+ * are checked as well, so that a POM that has been replaced is parsed again.</p>
+ */
+public class PomDocumentCache {
+    private static final int MAX_DOCUMENTS = 2000;
+
+    private final Cache<File, CachedDocument> documents = CacheBuilder.newBuilder().maximumSize(MAX_DOCUMENTS).build();
+
+    @Nullable
+    public PomElement get(File pomFile) {
+        CachedDocument document = documents.getIfPresent(pomFile);
+        if (document == null || !document.isUpToDate(pomFile)) {
+            return null;
+        }
+        return document.rootElement;
+    }
+
+    public void put(File pomFile, PomElement rootElement) {
+        documents.put(pomFile, new CachedDocument(pomFile.length(), pomFile.lastModified(), rootElement));
+    }
+
+    private static class CachedDocument {
+        private final long length;
+        private final long lastModified;
+        private final PomElement rootElement;
+
+        CachedDocument(long length, long lastModified, PomElement rootElement) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.rootElement = rootElement;
+        }
+
+        boolean isUpToDate(File pomFile) {
+            return pomFile.length() == length && pomFile.lastModified() == lastModified;
+        }
+    }
+}
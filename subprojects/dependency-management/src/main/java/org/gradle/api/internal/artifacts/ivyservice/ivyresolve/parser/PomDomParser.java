@@ -16,39 +16,90 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
-import java.io.*;
-import java.util.LinkedList;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
+/**
+ * Parses POMs into a tree of {@link PomElement}s, using a streaming SAX parser rather than building a full DOM.
+ */
 public final class PomDomParser {
-    private PomDomParser() {}
+    private static final byte[] M2_ENTITIES_RESOURCE;
+    private static final SAXParserFactory SAX_PARSER_FACTORY;
+    // Element names and values are repeated heavily between POMs, in particular in the parent POMs that are retained
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+    static {
+        byte[] bytes;
+        try {
+            bytes = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        M2_ENTITIES_RESOURCE = bytes;
 
-    public static String getTextContent(Element element) {
-        StringBuilder result = new StringBuilder();
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            SAX_PARSER_FACTORY = SAXParserFactory.newInstance();
+            SAX_PARSER_FACTORY.setValidating(false);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
 
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node child = childNodes.item(i);
+    private PomDomParser() {}
 
-            switch (child.getNodeType()) {
-                case Node.CDATA_SECTION_NODE:
-                case Node.TEXT_NODE:
-                    result.append(child.getNodeValue());
-                    break;
-                default:
-                    break;
-            }
+    /**
+     * Parses the given POM content and returns its root element.
+     */
+    public static PomElement parse(InputStream stream, String systemId) throws IOException, SAXException {
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            InputSource source = new InputSource(new AddDTDFilterInputStream(stream));
+            source.setSystemId(systemId);
+            PomElementHandler handler = new PomElementHandler();
+            SAX_PARSER_FACTORY.newSAXParser().parse(source, handler);
+            return handler.root;
+        } catch (ParserConfigurationException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
         }
+    }
 
-        return result.toString();
+    public static String getTextContent(PomElement element) {
+        return element.getText();
     }
 
-    public static String getFirstChildText(Element parentElem, String name) {
-        Element node = getFirstChildElement(parentElem, name);
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
         if (node != null) {
             return getTextContent(node);
         } else {
@@ -56,32 +107,74 @@ public final class PomDomParser {
         }
     }
 
-    public static Element getFirstChildElement(Element parentElem, String name) {
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
         if (parentElem == null) {
             return null;
         }
-        NodeList childs = parentElem.getChildNodes();
-        for (int i = 0; i < childs.getLength(); i++) {
-            Node node = childs.item(i);
-            if (node instanceof Element && name.equals(node.getNodeName())) {
-                return (Element) node;
+        for (PomElement child : parentElem.getChildren()) {
+            if (name.equals(child.getName())) {
+                return child;
             }
         }
         return null;
     }
 
-    public static List<Element> getAllChilds(Element parent) {
-        List<Element> r = new LinkedList<Element>();
-        if (parent != null) {
-            NodeList childs = parent.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element) {
-                    r.add((Element) node);
-                }
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.getChildren();
+    }
+
+    private static class PomElementHandler extends DefaultHandler {
+        private final Deque<ElementBuilder> elements = new ArrayDeque<ElementBuilder>();
+        private PomElement root;
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new InputSource(new ByteArrayInputStream(M2_ENTITIES_RESOURCE));
+            }
+            return null;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            elements.push(new ElementBuilder(STRINGS.intern(qName)));
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (!elements.isEmpty()) {
+                elements.peek().text.append(ch, start, length);
             }
         }
-        return r;
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            characters(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            ElementBuilder builder = elements.pop();
+            PomElement element = new PomElement(builder.name, STRINGS.intern(builder.text.toString()), builder.children);
+            if (elements.isEmpty()) {
+                root = element;
+            } else {
+                elements.peek().children.add(element);
+            }
+        }
+    }
+
+    private static class ElementBuilder {
+        private final String name;
+        private final StringBuilder text = new StringBuilder();
+        private final List<PomElement> children = new ArrayList<PomElement>();
+
+        ElementBuilder(String name) {
+            this.name = name;
+        }
     }
 
     public static final class AddDTDFilterInputStream extends FilterInputStream {
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.cache.internal.CrossBuildInMemoryCache;
+import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
+import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
+
+import javax.annotation.Nullable;
+
+/**
+ * Retains the module metadata read from the persistent module metadata cache across the builds run by this process, so that a warm
+ * daemon does not need to deserialize the descriptor of every module again in each build.
+ *
+ * <p>A retained value is only reused while the persistent cache still holds the entry it was read from. Whenever a module is refreshed,
+ * for example because it is changing or because dependencies are refreshed, a new entry is written and the retained value is discarded.</p>
+ */
+public class CrossBuildModuleMetadataCache {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.dependency.cross-build-metadata-cache";
+
+    private final CrossBuildInMemoryCache<ModuleComponentAtRepositoryKey, RetainedMetadata> cache;
+
+    public CrossBuildModuleMetadataCache(CrossBuildInMemoryCacheFactory cacheFactory) {
+        this.cache = cacheFactory.newCache();
+    }
+
+    /**
+     * Returns the metadata previously read for the given persistent cache entry, or {@code null} when it is not available.
+     *
+     * @param improvedPomSupport whether the metadata is read with improved POM support enabled, which changes its content.
+     */
+    @Nullable
+    ModuleComponentResolveMetadata get(ModuleComponentAtRepositoryKey key, ModuleMetadataCacheEntry entry, boolean improvedPomSupport) {
+        RetainedMetadata retained = cache.get(key);
+        if (retained == null || !retained.matches(entry, improvedPomSupport)) {
+            return null;
+        }
+        return retained.metadata;
+    }
+
+    void put(ModuleComponentAtRepositoryKey key, ModuleMetadataCacheEntry entry, boolean improvedPomSupport, ModuleComponentResolveMetadata metadata) {
+        cache.put(key, new RetainedMetadata(entry.createTimestamp, entry.isChanging, improvedPomSupport, metadata));
+    }
+
+    private static class RetainedMetadata {
+        private final long createTimestamp;
+        private final boolean changing;
+        private final boolean improvedPomSupport;
+        private final ModuleComponentResolveMetadata metadata;
+
+        RetainedMetadata(long createTimestamp, boolean changing, boolean improvedPomSupport, ModuleComponentResolveMetadata metadata) {
+            this.createTimestamp = createTimestamp;
+            this.changing = changing;
+            this.improvedPomSupport = improvedPomSupport;
+            this.metadata = metadata;
+        }
+
+        boolean matches(ModuleMetadataCacheEntry entry, boolean improvedPomSupport) {
+            return !entry.isMissing()
+                && entry.createTimestamp == createTimestamp
+                && entry.isChanging == changing
+                && this.improvedPomSupport == improvedPomSupport;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 import com.google.common.base.Objects;
 import com.google.common.collect.Interner;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.FeaturePreviews;
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetadata;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
@@ -35,11 +36,17 @@ import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.util.BuildCommencedTimeProvider;
 
+import javax.annotation.Nullable;
+
+import static org.gradle.api.internal.FeaturePreviews.Feature.IMPROVED_POM_SUPPORT;
+
 public class DefaultModuleMetadataCache extends InMemoryModuleMetadataCache {
 
     private PersistentIndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> cache;
     private final ModuleMetadataStore moduleMetadataStore;
     private final CacheLockingManager cacheLockingManager;
+    private final CrossBuildModuleMetadataCache crossBuildCache;
+    private final FeaturePreviews featurePreviews;
 
     public DefaultModuleMetadataCache(BuildCommencedTimeProvider timeProvider,
                                       CacheLockingManager cacheLockingManager,
@@ -49,9 +56,27 @@ public class DefaultModuleMetadataCache extends InMemoryModuleMetadataCache {
                                       MavenMutableModuleMetadataFactory mavenMetadataFactory,
                                       IvyMutableModuleMetadataFactory ivyMetadataFactory,
                                       Interner<String> stringInterner) {
+        this(timeProvider, cacheLockingManager, artifactCacheMetadata, moduleIdentifierFactory, attributeContainerSerializer, mavenMetadataFactory, ivyMetadataFactory, stringInterner, null, null);
+    }
+
+    /**
+     * @param crossBuildCache retains the metadata read from the persistent cache across builds, when not null.
+     */
+    public DefaultModuleMetadataCache(BuildCommencedTimeProvider timeProvider,
+                                      CacheLockingManager cacheLockingManager,
+                                      ArtifactCacheMetadata artifactCacheMetadata,
+                                      ImmutableModuleIdentifierFactory moduleIdentifierFactory,
+                                      AttributeContainerSerializer attributeContainerSerializer,
+                                      MavenMutableModuleMetadataFactory mavenMetadataFactory,
+                                      IvyMutableModuleMetadataFactory ivyMetadataFactory,
+                                      Interner<String> stringInterner,
+                                      @Nullable CrossBuildModuleMetadataCache crossBuildCache,
+                                      @Nullable FeaturePreviews featurePreviews) {
         super(timeProvider);
         moduleMetadataStore = new ModuleMetadataStore(new DefaultPathKeyFileStore(artifactCacheMetadata.getMetaDataStoreDirectory()), new ModuleMetadataSerializer(attributeContainerSerializer, mavenMetadataFactory, ivyMetadataFactory), moduleIdentifierFactory, stringInterner);
         this.cacheLockingManager = cacheLockingManager;
+        this.crossBuildCache = crossBuildCache;
+        this.featurePreviews = featurePreviews;
     }
 
     private PersistentIndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> getCache() {
@@ -94,17 +119,35 @@ public class DefaultModuleMetadataCache extends InMemoryModuleMetadataCache {
                 if (entry.isMissing()) {
                     return new DefaultCachedMetadata(entry, null, timeProvider);
                 }
+                if (crossBuildCache != null) {
+                    ModuleComponentResolveMetadata retained = crossBuildCache.get(key, entry, isImprovedPomSupportEnabled());
+                    if (retained != null) {
+                        return new DefaultCachedMetadata(entry, retained, timeProvider);
+                    }
+                }
                 MutableModuleComponentResolveMetadata metadata = moduleMetadataStore.getModuleDescriptor(key);
                 if (metadata == null) {
                     // Descriptor file has been deleted - ignore the entry
                     cache.remove(key);
                     return null;
                 }
-                return new DefaultCachedMetadata(entry, entry.configure(metadata), timeProvider);
+                ModuleComponentResolveMetadata configured = entry.configure(metadata);
+                retainAcrossBuilds(key, entry, configured);
+                return new DefaultCachedMetadata(entry, configured, timeProvider);
             }
         });
     }
 
+    private void retainAcrossBuilds(ModuleComponentAtRepositoryKey key, ModuleMetadataCacheEntry entry, ModuleComponentResolveMetadata metadata) {
+        if (crossBuildCache != null) {
+            crossBuildCache.put(key, entry, isImprovedPomSupportEnabled(), metadata);
+        }
+    }
+
+    private boolean isImprovedPomSupportEnabled() {
+        return featurePreviews != null && featurePreviews.isFeatureEnabled(IMPROVED_POM_SUPPORT);
+    }
+
     @Override
     protected void store(final ModuleComponentAtRepositoryKey key, final ModuleMetadataCacheEntry entry, final CachedMetadata cachedMetadata) {
         super.store(key, entry, cachedMetadata);
@@ -118,6 +161,7 @@ public class DefaultModuleMetadataCache extends InMemoryModuleMetadataCache {
                     final ModuleComponentResolveMetadata metadata = cachedMetadata.getMetadata();
                     moduleMetadataStore.putModuleDescriptor(key, metadata);
                     getCache().put(key, entry);
+                    retainAcrossBuilds(key, entry, metadata);
                 }
             });
         }
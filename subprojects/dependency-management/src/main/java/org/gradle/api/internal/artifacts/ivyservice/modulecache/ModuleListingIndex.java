@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions.ModuleVersionsCache;
+import org.gradle.internal.resolve.result.BuildableModuleVersionListingResolveResult;
+
+/**
+ * An index of the modules hosted by each repository, built from trusted version listings.
+ *
+ * <p>A listing is trusted when it comes from the `maven-metadata.xml` of a module or from a directory listing, which is when the
+ * listing result is authoritative. The empty listing produced when no source could list the versions of a module is not trusted,
+ * so it is never recorded: it means the repository could not be listed, not that it has no version of the module. The trusted
+ * listings are kept in their own store rather than the {@link ModuleVersionsCache} used for dynamic versions, which also holds
+ * the untrusted ones.</p>
+ *
+ * <p>When a repository provides a trusted empty listing for a module, it does not host any version of that module, so the lookup
+ * of any version of the module can skip the repository rather than requesting descriptors and artifacts that are bound to be
+ * missing. An absent module is remembered for as long as a missing module would be, as decided by the {@link CachePolicy} in use.</p>
+ */
+public class ModuleListingIndex {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.dependency.module-listing-index";
+
+    private final ModuleVersionsCache trustedListings;
+
+    public ModuleListingIndex(ModuleVersionsCache trustedListings) {
+        this.trustedListings = trustedListings;
+    }
+
+    /**
+     * Returns true when the repository is known not to host any version of the module of the given component.
+     */
+    public boolean isKnownAbsent(ModuleComponentRepository repository, ModuleIdentifier moduleId, ModuleComponentIdentifier component, CachePolicy cachePolicy) {
+        ModuleVersionsCache.CachedModuleVersionList listing = trustedListings.getCachedModuleResolution(repository, moduleId);
+        return listing != null
+            && listing.getModuleVersions().isEmpty()
+            && !cachePolicy.mustRefreshMissingModule(component, listing.getAgeMillis());
+    }
+
+    /**
+     * Returns true when the index does not hold an up-to-date listing of the module in the repository.
+     */
+    public boolean requiresListing(ModuleComponentRepository repository, ModuleIdentifier moduleId, ModuleComponentIdentifier component, CachePolicy cachePolicy) {
+        ModuleVersionsCache.CachedModuleVersionList listing = trustedListings.getCachedModuleResolution(repository, moduleId);
+        return listing == null || cachePolicy.mustRefreshMissingModule(component, listing.getAgeMillis());
+    }
+
+    /**
+     * Records the versions of the module listed by the repository, when the listing can be trusted.
+     */
+    public void recordListing(ModuleComponentRepository repository, ModuleIdentifier moduleId, BuildableModuleVersionListingResolveResult listing) {
+        if (listing.getState() == BuildableModuleVersionListingResolveResult.State.Listed && listing.isAuthoritative()) {
+            trustedListings.cacheModuleVersionList(repository, moduleId, listing.getVersions());
+        }
+    }
+}
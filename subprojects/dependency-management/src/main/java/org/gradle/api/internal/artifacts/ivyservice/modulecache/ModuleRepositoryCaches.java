@@ -19,16 +19,25 @@ import org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts.Module
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts.ModuleArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions.ModuleVersionsCache;
 
+import javax.annotation.Nullable;
+
 public class ModuleRepositoryCaches {
     public final ModuleVersionsCache moduleVersionsCache;
     public final ModuleMetadataCache moduleMetadataCache;
     public final ModuleArtifactsCache moduleArtifactsCache;
     public final ModuleArtifactCache moduleArtifactCache;
+    @Nullable
+    public final ModuleListingIndex moduleListingIndex;
 
     public ModuleRepositoryCaches(ModuleVersionsCache moduleVersionsCache, ModuleMetadataCache moduleMetadataCache, ModuleArtifactsCache moduleArtifactsCache, ModuleArtifactCache moduleArtifactCache) {
+        this(moduleVersionsCache, moduleMetadataCache, moduleArtifactsCache, moduleArtifactCache, null);
+    }
+
+    public ModuleRepositoryCaches(ModuleVersionsCache moduleVersionsCache, ModuleMetadataCache moduleMetadataCache, ModuleArtifactsCache moduleArtifactsCache, ModuleArtifactCache moduleArtifactCache, @Nullable ModuleListingIndex moduleListingIndex) {
         this.moduleVersionsCache = moduleVersionsCache;
         this.moduleMetadataCache = moduleMetadataCache;
         this.moduleArtifactsCache = moduleArtifactsCache;
         this.moduleArtifactCache = moduleArtifactCache;
+        this.moduleListingIndex = moduleListingIndex;
     }
 }
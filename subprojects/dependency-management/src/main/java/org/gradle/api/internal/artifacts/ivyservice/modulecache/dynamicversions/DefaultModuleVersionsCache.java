@@ -30,13 +30,19 @@ public class DefaultModuleVersionsCache extends InMemoryModuleVersionsCache {
 
     private final CacheLockingManager cacheLockingManager;
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    private final String cacheName;
 
     private PersistentIndexedCache<ModuleAtRepositoryKey, ModuleVersionsCacheEntry> cache;
 
     public DefaultModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
+        this(timeProvider, cacheLockingManager, moduleIdentifierFactory, "module-versions");
+    }
+
+    public DefaultModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, ImmutableModuleIdentifierFactory moduleIdentifierFactory, String cacheName) {
         super(timeProvider);
         this.cacheLockingManager = cacheLockingManager;
         this.moduleIdentifierFactory = moduleIdentifierFactory;
+        this.cacheName = cacheName;
     }
 
     private PersistentIndexedCache<ModuleAtRepositoryKey, ModuleVersionsCacheEntry> getCache() {
@@ -47,7 +53,7 @@ public class DefaultModuleVersionsCache extends InMemoryModuleVersionsCache {
     }
 
     private PersistentIndexedCache<ModuleAtRepositoryKey, ModuleVersionsCacheEntry> initCache() {
-        return cacheLockingManager.createCache("module-versions", new ModuleKeySerializer(moduleIdentifierFactory), new ModuleVersionsCacheEntrySerializer());
+        return cacheLockingManager.createCache(cacheName, new ModuleKeySerializer(moduleIdentifierFactory), new ModuleVersionsCacheEntrySerializer());
     }
 
     @Override
@@ -157,7 +157,12 @@ public class DefaultResolutionStrategy implements ResolutionStrategyInternal {
     }
 
     public boolean resolveGraphToDetermineTaskDependencies() {
-        return assumeFluidDependencies || dependencySubstitutions.hasRules() || globalDependencySubstitutionRules.hasRules() || vcsResolver.hasRules();
+        return assumeFluidDependencies || hasDependencySubstitutionRules();
+    }
+
+    @Override
+    public boolean hasDependencySubstitutionRules() {
+        return dependencySubstitutions.hasRules() || globalDependencySubstitutionRules.hasRules() || vcsResolver.hasRules();
     }
 
 
@@ -40,6 +40,7 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.Modul
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.DependencyGraphBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.MetadataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultCapabilitiesConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.LastCandidateCapabilityResolver;
@@ -51,6 +52,7 @@ import org.gradle.api.internal.attributes.AttributesSchemaInternal;
 import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
 import org.gradle.api.specs.Spec;
 import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
@@ -59,6 +61,7 @@ import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 public class DefaultArtifactDependencyResolver implements ArtifactDependencyResolver {
@@ -73,6 +76,7 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
     private final ImmutableAttributesFactory attributesFactory;
     private final VersionSelectorScheme versionSelectorScheme;
     private final VersionParser versionParser;
+    private final ExecutorFactory executorFactory;
 
     public DefaultArtifactDependencyResolver(BuildOperationExecutor buildOperationExecutor,
                                              List<ResolverProviderFactory> resolverFactories,
@@ -83,7 +87,8 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
                                              ComponentSelectorConverter componentSelectorConverter,
                                              ImmutableAttributesFactory attributesFactory,
                                              VersionSelectorScheme versionSelectorScheme,
-                                             VersionParser versionParser) {
+                                             VersionParser versionParser,
+                                             ExecutorFactory executorFactory) {
         this.resolverFactories = resolverFactories;
         this.ivyFactory = ivyFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
@@ -94,6 +99,7 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
         this.attributesFactory = attributesFactory;
         this.versionSelectorScheme = versionSelectorScheme;
         this.versionParser = versionParser;
+        this.executorFactory = executorFactory;
     }
 
     @Override
@@ -120,7 +126,19 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
         DependencySubstitutionApplicator applicator =
             new CachingDependencySubstitutionApplicator(new DefaultDependencySubstitutionApplicator(resolutionStrategy.getDependencySubstitutionRule()));
 
-        return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, conflictHandler, capabilitiesConflictHandler, edgeFilter, attributesSchema, moduleExclusions, buildOperationExecutor, globalRules.getModuleMetadataProcessor().getModuleReplacements(), applicator, componentSelectorConverter, attributesFactory, versionSelectorScheme);
+        MetadataPrefetcher metadataPrefetcher = createMetadataPrefetcher(componentMetaDataResolver, resolutionStrategy, edgeFilter, moduleExclusions, buildOperationExecutor);
+
+        return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, conflictHandler, capabilitiesConflictHandler, edgeFilter, attributesSchema, moduleExclusions, buildOperationExecutor, globalRules.getModuleMetadataProcessor().getModuleReplacements(), applicator, componentSelectorConverter, attributesFactory, versionSelectorScheme, metadataPrefetcher);
+    }
+
+    @Nullable
+    private MetadataPrefetcher createMetadataPrefetcher(ComponentMetaDataResolver componentMetaDataResolver, ResolutionStrategyInternal resolutionStrategy, Spec<? super DependencyMetadata> edgeFilter, ModuleExclusions moduleExclusions, BuildOperationExecutor buildOperationExecutor) {
+        int depth = MetadataPrefetcher.configuredDepth();
+        // The prefetcher does not apply substitution rules, which may be arbitrary user code and cannot run outside of the traversal
+        if (depth == 0 || resolutionStrategy.hasDependencySubstitutionRules()) {
+            return null;
+        }
+        return new MetadataPrefetcher(componentMetaDataResolver, edgeFilter, versionSelectorScheme, moduleExclusions, buildOperationExecutor, executorFactory, depth);
     }
 
     private ComponentResolversChain createResolvers(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler, ArtifactTypeRegistry artifactTypeRegistry, AttributesSchema consumerSchema) {
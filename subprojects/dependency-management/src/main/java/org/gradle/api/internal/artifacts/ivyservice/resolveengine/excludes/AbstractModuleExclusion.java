@@ -23,6 +23,12 @@ import java.util.Collection;
 abstract class AbstractModuleExclusion implements ModuleExclusion {
     private int hashCode = -1;
     private ModuleExclusion lastCheck;
+    /**
+     * The handle assigned to this exclusion by the {@link ModuleExclusions} instance that interned it, or -1 when not interned.
+     * Exclusions interned by the same instance that are equal are the same instance, so share the same handle. Handles are
+     * assigned per instance, so handles of exclusions interned by different instances cannot be compared.
+     */
+    int index = -1;
     private boolean lastCheckResult;
 
     protected static boolean isWildcard(String attribute) {
@@ -92,6 +98,13 @@ abstract class AbstractModuleExclusion implements ModuleExclusion {
         specs.add(this);
     }
 
+    /**
+     * Returns an exclusion that is equal to this one but has not been interned. Used when an exclusion interned by another {@link ModuleExclusions} instance is interned.
+     */
+    protected AbstractModuleExclusion copy() {
+        throw new UnsupportedOperationException("Cannot copy " + this);
+    }
+
     @Override
     public final boolean equals(Object obj) {
         if (obj == this) {
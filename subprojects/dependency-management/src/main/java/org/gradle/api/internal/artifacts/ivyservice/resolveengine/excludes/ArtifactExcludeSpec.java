@@ -32,6 +32,11 @@ class ArtifactExcludeSpec extends AbstractModuleExclusion {
         this.ivyArtifactName = artifact;
     }
 
+    @Override
+    protected AbstractModuleExclusion copy() {
+        return new ArtifactExcludeSpec(moduleId, ivyArtifactName);
+    }
+
     @Override
     public String toString() {
         return "{artifact " + moduleId + ":" + ivyArtifactName + "}";
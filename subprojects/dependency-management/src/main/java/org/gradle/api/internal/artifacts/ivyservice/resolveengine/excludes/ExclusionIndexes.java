@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
+
+import java.util.Arrays;
+
+/**
+ * The sorted, distinct handles of a set of interned exclusions. Used as a compact identity for a set of exclusions.
+ */
+final class ExclusionIndexes {
+    private final int[] indexes;
+    private final int hashCode;
+
+    private ExclusionIndexes(int[] indexes) {
+        this.indexes = indexes;
+        this.hashCode = Arrays.hashCode(indexes);
+    }
+
+    /**
+     * Creates the handles for the given distinct, interned exclusions.
+     */
+    static ExclusionIndexes of(AbstractModuleExclusion[] exclusions) {
+        int[] indexes = new int[exclusions.length];
+        for (int i = 0; i < exclusions.length; i++) {
+            int index = exclusions[i].index;
+            if (index < 0) {
+                throw new IllegalArgumentException("Exclusion " + exclusions[i] + " has not been interned.");
+            }
+            indexes[i] = index;
+        }
+        Arrays.sort(indexes);
+        return new ExclusionIndexes(indexes);
+    }
+
+    boolean contains(int index) {
+        return Arrays.binarySearch(indexes, index) >= 0;
+    }
+
+    int size() {
+        return indexes.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ExclusionIndexes that = (ExclusionIndexes) o;
+        return hashCode == that.hashCode && Arrays.equals(indexes, that.indexes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -29,6 +29,11 @@ class GroupNameExcludeSpec extends AbstractModuleExclusion {
         this.group = group;
     }
 
+    @Override
+    protected AbstractModuleExclusion copy() {
+        return new GroupNameExcludeSpec(group);
+    }
+
     @Override
     public String toString() {
         return "{group " + group + "}";
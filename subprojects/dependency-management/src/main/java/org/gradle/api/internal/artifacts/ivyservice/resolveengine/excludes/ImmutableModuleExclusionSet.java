@@ -15,71 +15,85 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.internal.Cast;
 import org.gradle.internal.component.model.IvyArtifactName;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
+/**
+ * An immutable set of interned exclusions. Membership and equality are determined using the handles of the exclusions,
+ * rather than by hashing the exclusions themselves, so sets are only compared with sets and exclusions interned by the same
+ * {@link ModuleExclusions} instance.
+ */
 final class ImmutableModuleExclusionSet implements Set<AbstractModuleExclusion> {
-    private final Set<AbstractModuleExclusion> delegate;
+    private static final AbstractModuleExclusion[] NO_EXCLUSIONS = new AbstractModuleExclusion[0];
 
     final AbstractModuleExclusion[] elements;
+    private final ExclusionIndexes indexes;
     private final int hashCode;
 
     // the following fields are used as optimizations, to avoid iterating on the whole set of exclusions
-    private ImmutableSet<ModuleIdentifier> excludedModules;
-    private ImmutableList<AbstractModuleExclusion> moduleExcludes;
-    private ImmutableList<AbstractModuleExclusion> artifactExcludes;
+    private volatile ModuleExcludes moduleExcludes;
 
-    ImmutableModuleExclusionSet(ImmutableSet<AbstractModuleExclusion> delegate) {
-        this.delegate = delegate;
-        this.elements = delegate.toArray(new AbstractModuleExclusion[0]);
-        this.hashCode = delegate.hashCode();
+    /**
+     * @param elements distinct, interned exclusions
+     */
+    ImmutableModuleExclusionSet(AbstractModuleExclusion[] elements, ExclusionIndexes indexes) {
+        this.elements = elements;
+        this.indexes = indexes;
+        int hashCode = 0;
+        for (AbstractModuleExclusion element : elements) {
+            hashCode += element.hashCode();
+        }
+        this.hashCode = hashCode;
     }
 
-    private synchronized void precomputeCaches() {
-        if (excludedModules != null) {
-            return;
-        }
-        ImmutableSet.Builder<ModuleIdentifier> moduleIds = ImmutableSet.builder();
-        ImmutableList.Builder<AbstractModuleExclusion> modules = ImmutableList.builder();
-        ImmutableList.Builder<AbstractModuleExclusion> artifacts = ImmutableList.builder();
-        for (AbstractModuleExclusion exclusion : delegate) {
-            if (exclusion instanceof ModuleIdExcludeSpec) {
-                moduleIds.add(((ModuleIdExcludeSpec) exclusion).moduleId);
-            } else {
-                if (!exclusion.excludesNoModules()) {
-                    modules.add(exclusion);
-                }
-                if (exclusion.mayExcludeArtifacts()) {
-                    artifacts.add(exclusion);
-                }
-            }
+    ExclusionIndexes getIndexes() {
+        return indexes;
+    }
+
+    private ModuleExcludes moduleExcludes() {
+        ModuleExcludes moduleExcludes = this.moduleExcludes;
+        if (moduleExcludes == null) {
+            moduleExcludes = new ModuleExcludes(elements);
+            this.moduleExcludes = moduleExcludes;
         }
-        excludedModules = moduleIds.build();
-        moduleExcludes = modules.build();
-        artifactExcludes = artifacts.build();
+        return moduleExcludes;
     }
 
     @Override
     public int size() {
-        return delegate.size();
+        return elements.length;
     }
 
     @Override
     public boolean isEmpty() {
-        return delegate.isEmpty();
+        return elements.length == 0;
     }
 
     @Override
     public boolean contains(Object o) {
-        return delegate.contains(o);
+        if (!(o instanceof AbstractModuleExclusion)) {
+            return false;
+        }
+        int index = ((AbstractModuleExclusion) o).index;
+        if (index >= 0) {
+            return indexes.contains(index);
+        }
+        for (AbstractModuleExclusion element : elements) {
+            if (element.equals(o)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -95,12 +109,13 @@ final class ImmutableModuleExclusionSet implements Set<AbstractModuleExclusion>
      * @return true if it's excluded
      */
     boolean excludesModule(ModuleIdentifier id) {
-        precomputeCaches();
-        if (excludedModules.contains(id)) {
+        ModuleExcludes moduleExcludes = moduleExcludes();
+        if (moduleExcludes.excludedModules.contains(id)) {
             return true;
         }
-        for (AbstractModuleExclusion excludeSpec : moduleExcludes) {
-            if (excludeSpec.excludeModule(id)) {
+        AbstractModuleExclusion[] excludes = moduleExcludes.moduleExcludes;
+        for (int i = 0; i < excludes.length; i++) {
+            if (excludes[i].excludeModule(id)) {
                 return true;
             }
         }
@@ -108,9 +123,9 @@ final class ImmutableModuleExclusionSet implements Set<AbstractModuleExclusion>
     }
 
     boolean excludesArtifact(ModuleIdentifier module, IvyArtifactName artifact) {
-        precomputeCaches();
-        for (AbstractModuleExclusion excludeSpec : artifactExcludes) {
-            if (excludeSpec.excludeArtifact(module, artifact)) {
+        AbstractModuleExclusion[] excludes = moduleExcludes().artifactExcludes;
+        for (int i = 0; i < excludes.length; i++) {
+            if (excludes[i].excludeArtifact(module, artifact)) {
                 return true;
             }
         }
@@ -139,7 +154,12 @@ final class ImmutableModuleExclusionSet implements Set<AbstractModuleExclusion>
 
     @Override
     public boolean containsAll(Collection<?> c) {
-        return delegate.containsAll(c);
+        for (Object o : c) {
+            if (!contains(o)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -177,11 +197,41 @@ final class ImmutableModuleExclusionSet implements Set<AbstractModuleExclusion>
             return false;
         }
 
-        return delegate.equals(that.delegate);
+        return indexes.equals(that.indexes) || (elements.length == that.elements.length && containsAll(Arrays.asList(that.elements)));
     }
 
     @Override
     public int hashCode() {
         return hashCode;
     }
+
+    /**
+     * The exclusions of a set, partitioned by what they can exclude.
+     */
+    private static final class ModuleExcludes {
+        private final ImmutableSet<ModuleIdentifier> excludedModules;
+        private final AbstractModuleExclusion[] moduleExcludes;
+        private final AbstractModuleExclusion[] artifactExcludes;
+
+        ModuleExcludes(AbstractModuleExclusion[] elements) {
+            ImmutableSet.Builder<ModuleIdentifier> moduleIds = ImmutableSet.builder();
+            List<AbstractModuleExclusion> modules = Lists.newArrayList();
+            List<AbstractModuleExclusion> artifacts = Lists.newArrayList();
+            for (AbstractModuleExclusion exclusion : elements) {
+                if (exclusion instanceof ModuleIdExcludeSpec) {
+                    moduleIds.add(((ModuleIdExcludeSpec) exclusion).moduleId);
+                } else {
+                    if (!exclusion.excludesNoModules()) {
+                        modules.add(exclusion);
+                    }
+                    if (exclusion.mayExcludeArtifacts()) {
+                        artifacts.add(exclusion);
+                    }
+                }
+            }
+            excludedModules = moduleIds.build();
+            moduleExcludes = modules.isEmpty() ? NO_EXCLUSIONS : modules.toArray(NO_EXCLUSIONS);
+            artifactExcludes = artifacts.isEmpty() ? NO_EXCLUSIONS : artifacts.toArray(NO_EXCLUSIONS);
+        }
+    }
 }
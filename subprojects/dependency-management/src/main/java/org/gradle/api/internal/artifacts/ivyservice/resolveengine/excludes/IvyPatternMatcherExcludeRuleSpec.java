@@ -38,6 +38,18 @@ class IvyPatternMatcherExcludeRuleSpec extends AbstractModuleExclusion {
         isArtifactExclude = ivyArtifactName != null;
     }
 
+    private IvyPatternMatcherExcludeRuleSpec(ModuleIdentifier moduleId, IvyArtifactName ivyArtifactName, PatternMatcher matcher) {
+        this.moduleId = moduleId;
+        this.ivyArtifactName = ivyArtifactName;
+        this.matcher = matcher;
+        isArtifactExclude = ivyArtifactName != null;
+    }
+
+    @Override
+    protected AbstractModuleExclusion copy() {
+        return new IvyPatternMatcherExcludeRuleSpec(moduleId, ivyArtifactName, matcher);
+    }
+
     @Override
     public String toString() {
         return "{exclude-rule " + moduleId + ":" + ivyArtifactName + " with matcher " + matcher.getName() + "}";
@@ -17,22 +17,25 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.DependencyGraphBuilder;
+import org.gradle.internal.Cast;
 import org.gradle.internal.component.model.ExcludeMetadata;
 import org.gradle.internal.component.model.IvyArtifactName;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.AbstractModuleExclusion.isWildcard;
 
@@ -50,25 +53,31 @@ import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.exclude
  * <ul> <li>When a module dependency has multiple exclusions, then the resulting exclusion is the _intersection_ of those exclusions (module is excluded if excluded by _any_).</li> <li>When a module
  * is depended on via a transitive path, then the resulting exclusion is the _intersection_ of the exclusions on each leg of the path (module is excluded if excluded by _any_).</li> <li>When a module
  * is depended on via multiple paths in the graph, then the resulting exclusion is the _union_ of the exclusions on each of those paths (module is excluded if excluded by _all_).</li> </ul>
+ *
+ * <p>The exclusions used to build intersections are interned, and each is assigned an integer handle. Sets of exclusions are identified by their sorted handles, and the result of merging
+ * 2 intersections is cached using the pair of handles of the intersections, which keeps the caches small in graphs with many exclude rules. Handles are assigned per instance, so they are
+ * only compared for exclusions created by the same instance. Exclusions created by another instance are replaced with equivalent ones owned by this instance before being combined.</p>
  */
 public class ModuleExclusions {
     private static final ExcludeNone EXCLUDE_NONE = new ExcludeNone();
     private static final ExcludeAllModulesSpec EXCLUDE_ALL_MODULES_SPEC = new ExcludeAllModulesSpec();
 
-    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    static {
+        // Shared by all instances, so it has the same reserved handle in each of them
+        EXCLUDE_ALL_MODULES_SPEC.index = 0;
+    }
 
-    private final Map<MergeOperation, AbstractModuleExclusion> mergeCache = Maps.newConcurrentMap();
-    private final Map<ImmutableList<ExcludeMetadata>, AbstractModuleExclusion> excludeAnyCache = Maps.newConcurrentMap();
-    private final Map<ImmutableSet<AbstractModuleExclusion>, IntersectionExclusion> intersectionCache = Maps.newConcurrentMap();
-    private final Map<AbstractModuleExclusion[], Map<AbstractModuleExclusion[], MergeOperation>> mergeOperationCache = Maps.newIdentityHashMap();
-    private final Map<ModuleIdentifier, ModuleIdExcludeSpec> moduleIdSpecs = Maps.newConcurrentMap();
-    private final Map<String, ModuleNameExcludeSpec> moduleNameSpecs = Maps.newConcurrentMap();
-    private final Map<String, GroupNameExcludeSpec> groupNameSpecs = Maps.newConcurrentMap();
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    private final AtomicInteger nextIndex = new AtomicInteger(1);
 
-    private final Object mergeOperationLock = new Object();
+    private final ConcurrentMap<Long, AbstractModuleExclusion> mergeCache = Maps.newConcurrentMap();
+    private final ConcurrentMap<ImmutableList<ExcludeMetadata>, AbstractModuleExclusion> excludeAnyCache = Maps.newConcurrentMap();
+    private final ConcurrentMap<ExclusionIndexes, IntersectionExclusion> intersectionCache = Maps.newConcurrentMap();
+    private final ConcurrentMap<AbstractModuleExclusion, AbstractModuleExclusion> interned = Maps.newConcurrentMap();
 
     public ModuleExclusions(ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
         this.moduleIdentifierFactory = moduleIdentifierFactory;
+        interned.put(EXCLUDE_ALL_MODULES_SPEC, EXCLUDE_ALL_MODULES_SPEC);
     }
 
     /**
@@ -99,11 +108,11 @@ public class ModuleExclusions {
         if (exclusion != null) {
             return exclusion;
         }
-        ImmutableSet.Builder<AbstractModuleExclusion> exclusions = ImmutableSet.builder();
+        List<AbstractModuleExclusion> exclusions = Lists.newArrayListWithCapacity(excludes.size());
         for (ExcludeMetadata exclude : excludes) {
             exclusions.add(forExclude(exclude));
         }
-        exclusion = asIntersection(exclusions.build());
+        exclusion = asIntersection(exclusions);
         excludeAnyCache.put(excludes, exclusion);
         return exclusion;
     }
@@ -111,7 +120,7 @@ public class ModuleExclusions {
     private AbstractModuleExclusion forExclude(ExcludeMetadata rule) {
         // For custom ivy pattern matchers, don't inspect the rule any more deeply: this prevents us from doing smart merging later
         if (!PatternMatchers.isExactMatcher(rule.getMatcher())) {
-            return new IvyPatternMatcherExcludeRuleSpec(rule);
+            return intern(new IvyPatternMatcherExcludeRuleSpec(rule));
         }
 
         ModuleIdentifier moduleId = rule.getModuleId();
@@ -124,42 +133,81 @@ public class ModuleExclusions {
             if (!anyOrganisation && !anyModule) {
                 return moduleIdExcludeSpec(moduleId);
             } else if (!anyModule) {
-                return moduleNameExcludeSpec(moduleId.getName());
+                return intern(new ModuleNameExcludeSpec(moduleId.getName()));
             } else if (!anyOrganisation) {
-                return groupNameExcludeSpec(moduleId.getGroup());
+                return intern(new GroupNameExcludeSpec(moduleId.getGroup()));
             } else {
                 return EXCLUDE_ALL_MODULES_SPEC;
             }
         } else {
-            return new ArtifactExcludeSpec(moduleId, artifact);
+            return intern(new ArtifactExcludeSpec(moduleId, artifact));
         }
     }
 
     private ModuleIdExcludeSpec moduleIdExcludeSpec(ModuleIdentifier id) {
-        ModuleIdExcludeSpec spec = moduleIdSpecs.get(id);
-        if (spec == null) {
-            spec = new ModuleIdExcludeSpec(id);
-            moduleIdSpecs.put(id, spec);
+        return intern(new ModuleIdExcludeSpec(id));
+    }
+
+    /**
+     * Returns the canonical instance of the given exclusion, assigning it a handle if it is the first of its kind.
+     */
+    private <T extends AbstractModuleExclusion> T intern(T exclusion) {
+        if (exclusion instanceof UnionExclusion) {
+            // A union is looked up by its members, so they must be owned by this instance first
+            exclusion = Cast.uncheckedCast(owned((UnionExclusion) exclusion));
+        }
+        AbstractModuleExclusion existing = interned.get(exclusion);
+        if (existing != null) {
+            return Cast.uncheckedCast(existing);
+        }
+        if (exclusion.index >= 0) {
+            // Interned by another instance, so its handle means nothing here and must be left alone
+            exclusion = Cast.uncheckedCast(exclusion.copy());
+        }
+        exclusion.index = nextIndex.getAndIncrement();
+        existing = interned.putIfAbsent(exclusion, exclusion);
+        if (existing == null) {
+            return exclusion;
         }
-        return spec;
+        return Cast.uncheckedCast(existing);
     }
 
-    private ModuleNameExcludeSpec moduleNameExcludeSpec(String id) {
-        ModuleNameExcludeSpec spec = moduleNameSpecs.get(id);
-        if (spec == null) {
-            spec = new ModuleNameExcludeSpec(id);
-            moduleNameSpecs.put(id, spec);
+    /**
+     * Returns the given exclusion if it was created by this instance, otherwise an equivalent exclusion created by this instance.
+     */
+    private AbstractModuleExclusion owned(ModuleExclusion exclusion) {
+        if (exclusion == EXCLUDE_NONE) {
+            return EXCLUDE_NONE;
+        }
+        if (exclusion instanceof IntersectionExclusion) {
+            IntersectionExclusion intersection = (IntersectionExclusion) exclusion;
+            if (intersectionCache.get(intersection.getFilters().getIndexes()) == intersection) {
+                return intersection;
+            }
+            return asIntersection(intersection.getFilters());
+        }
+        if (exclusion instanceof UnionExclusion) {
+            return owned((UnionExclusion) exclusion);
         }
-        return spec;
+        return intern((AbstractModuleExclusion) exclusion);
     }
 
-    private GroupNameExcludeSpec groupNameExcludeSpec(String id) {
-        GroupNameExcludeSpec spec = groupNameSpecs.get(id);
-        if (spec == null) {
-            spec = new GroupNameExcludeSpec(id);
-            groupNameSpecs.put(id, spec);
+    private UnionExclusion owned(UnionExclusion union) {
+        Collection<AbstractModuleExclusion> filters = union.getFilters();
+        List<AbstractModuleExclusion> ownedFilters = null;
+        int count = 0;
+        for (AbstractModuleExclusion filter : filters) {
+            AbstractModuleExclusion ownedFilter = owned(filter);
+            if (ownedFilters == null && ownedFilter != filter) {
+                // Only copy the members once one of them is not owned, which is rare
+                ownedFilters = Lists.newArrayList(Iterables.limit(filters, count));
+            }
+            if (ownedFilters != null) {
+                ownedFilters.add(ownedFilter);
+            }
+            count++;
         }
-        return spec;
+        return ownedFilters == null ? union : new UnionExclusion(ownedFilters);
     }
 
     /**
@@ -175,25 +223,24 @@ public class ModuleExclusions {
         if (two == EXCLUDE_NONE) {
             return one;
         }
-        if (one.equals(two)) {
-            return one;
+        AbstractModuleExclusion aOne = owned(one);
+        AbstractModuleExclusion aTwo = owned(two);
+        if (aOne.equals(aTwo)) {
+            return aOne;
         }
 
-        if (one instanceof IntersectionExclusion && ((IntersectionExclusion) one).getFilters().contains(two)) {
-            return one;
-        } else if (two instanceof IntersectionExclusion && ((IntersectionExclusion) two).getFilters().contains(one)) {
-            return two;
+        if (aOne instanceof IntersectionExclusion && ((IntersectionExclusion) aOne).getFilters().contains(aTwo)) {
+            return aOne;
+        } else if (aTwo instanceof IntersectionExclusion && ((IntersectionExclusion) aTwo).getFilters().contains(aOne)) {
+            return aTwo;
         }
 
-        AbstractModuleExclusion aOne = (AbstractModuleExclusion) one;
-        AbstractModuleExclusion aTwo = (AbstractModuleExclusion) two;
-
         List<AbstractModuleExclusion> builder = Lists.newArrayListWithExpectedSize(estimateSize(aOne) + estimateSize(aTwo));
 
         aOne.unpackIntersection(builder);
         aTwo.unpackIntersection(builder);
 
-        return asIntersection(ImmutableSet.copyOf(builder));
+        return asIntersection(builder);
     }
 
     private static int estimateSize(AbstractModuleExclusion ex) {
@@ -213,13 +260,15 @@ public class ModuleExclusions {
         if (one == EXCLUDE_NONE || two == EXCLUDE_NONE) {
             return EXCLUDE_NONE;
         }
-        if (one.equals(two)) {
-            return one;
+        AbstractModuleExclusion aOne = owned(one);
+        AbstractModuleExclusion aTwo = owned(two);
+        if (aOne.equals(aTwo)) {
+            return aOne;
         }
 
         List<AbstractModuleExclusion> specs = new ArrayList<AbstractModuleExclusion>();
-        ((AbstractModuleExclusion) one).unpackUnion(specs);
-        ((AbstractModuleExclusion) two).unpackUnion(specs);
+        aOne.unpackUnion(specs);
+        aTwo.unpackUnion(specs);
         for (int i = 0; i < specs.size();) {
             AbstractModuleExclusion spec = specs.get(i);
             AbstractModuleExclusion merged = null;
@@ -263,42 +312,19 @@ public class ModuleExclusions {
             return one;
         }
         if (one.canMerge() && other.canMerge()) {
-            AbstractModuleExclusion[] oneFilters = one.getFilters().elements;
-            AbstractModuleExclusion[] otherFilters = other.getFilters().elements;
-            if (Arrays.equals(oneFilters, otherFilters)) {
-                return one;
-            }
-
-            MergeOperation merge = mergeOperation(oneFilters, otherFilters);
-            AbstractModuleExclusion exclusion = mergeCache.get(merge);
-            if (exclusion != null) {
-                return exclusion;
+            Long key = ((long) one.index << 32) | (other.index & 0xFFFFFFFFL);
+            AbstractModuleExclusion exclusion = mergeCache.get(key);
+            if (exclusion == null) {
+                exclusion = merge(one.getFilters().elements, other.getFilters().elements);
+                mergeCache.put(key, exclusion);
             }
-            return mergeAndCacheResult(merge, oneFilters, otherFilters);
+            return exclusion;
         }
         return null;
     }
 
-    private MergeOperation mergeOperation(AbstractModuleExclusion[] one, AbstractModuleExclusion[] two) {
-        synchronized (mergeOperationLock) {
-            Map<AbstractModuleExclusion[], MergeOperation> oneMap = mergeOperationCache.get(one);
-            if (oneMap == null) {
-                oneMap = Maps.newIdentityHashMap();
-                mergeOperationCache.put(one, oneMap);
-
-            }
-            MergeOperation mergeOperation = oneMap.get(two);
-            if (mergeOperation != null) {
-                return mergeOperation;
-            }
-            mergeOperation = new MergeOperation(one, two);
-            oneMap.put(two, mergeOperation);
-            return mergeOperation;
-        }
-    }
-
-    private AbstractModuleExclusion mergeAndCacheResult(MergeOperation merge, AbstractModuleExclusion[] oneFilters, AbstractModuleExclusion[] otherFilters) {
-        AbstractModuleExclusion exclusion; // Merge the exclude rules from both specs into a single union spec.
+    private AbstractModuleExclusion merge(AbstractModuleExclusion[] oneFilters, AbstractModuleExclusion[] otherFilters) {
+        // Merge the exclude rules from both specs into a single union spec.
         final BitSet remaining = new BitSet(otherFilters.length);
         remaining.set(0, otherFilters.length, true);
         MergeSet merged = new MergeSet(remaining, oneFilters.length + otherFilters.length);
@@ -313,19 +339,31 @@ public class ModuleExclusions {
             }
         }
         if (merged.isEmpty()) {
-            exclusion = ModuleExclusions.EXCLUDE_NONE;
-        } else {
-            exclusion = asIntersection(ImmutableSet.copyOf(merged));
+            return ModuleExclusions.EXCLUDE_NONE;
         }
-        mergeCache.put(merge, exclusion);
-        return exclusion;
+        return asIntersection(merged);
     }
 
-    private IntersectionExclusion asIntersection(ImmutableSet<AbstractModuleExclusion> excludes) {
-        IntersectionExclusion cached = intersectionCache.get(excludes);
+    private IntersectionExclusion asIntersection(Collection<AbstractModuleExclusion> excludes) {
+        // Interned exclusions are equal only when they are the same instance, so duplicates can be removed by identity
+        Set<AbstractModuleExclusion> distinct = Sets.newIdentityHashSet();
+        List<AbstractModuleExclusion> elements = Lists.newArrayListWithCapacity(excludes.size());
+        for (AbstractModuleExclusion exclude : excludes) {
+            AbstractModuleExclusion exclusion = intern(exclude);
+            if (distinct.add(exclusion)) {
+                elements.add(exclusion);
+            }
+        }
+        AbstractModuleExclusion[] elementArray = elements.toArray(new AbstractModuleExclusion[0]);
+        ExclusionIndexes indexes = ExclusionIndexes.of(elementArray);
+        IntersectionExclusion cached = intersectionCache.get(indexes);
         if (cached == null) {
-            cached = new IntersectionExclusion(new ImmutableModuleExclusionSet(excludes));
-            intersectionCache.put(excludes, cached);
+            IntersectionExclusion intersection = new IntersectionExclusion(new ImmutableModuleExclusionSet(elementArray, indexes));
+            intersection.index = nextIndex.getAndIncrement();
+            cached = intersectionCache.putIfAbsent(indexes, intersection);
+            if (cached == null) {
+                cached = intersection;
+            }
         }
         return cached;
     }
@@ -413,37 +451,6 @@ public class ModuleExclusions {
         }
     }
 
-    private static final class MergeOperation {
-        private final AbstractModuleExclusion[] one;
-        private final AbstractModuleExclusion[] two;
-        private final int hashCode;
-
-
-        private MergeOperation(AbstractModuleExclusion[] one, AbstractModuleExclusion[] two) {
-            this.one = one;
-            this.two = two;
-            this.hashCode = 31 * Arrays.hashCode(one) + Arrays.hashCode(two);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-
-            MergeOperation that = (MergeOperation) o;
-            return Arrays.equals(one, that.one) && Arrays.equals(two, that.two);
-        }
-
-        @Override
-        public int hashCode() {
-            return hashCode;
-        }
-    }
-
     private static final class MergeSet extends HashSet<AbstractModuleExclusion> {
         private final BitSet remaining;
         private int idx;
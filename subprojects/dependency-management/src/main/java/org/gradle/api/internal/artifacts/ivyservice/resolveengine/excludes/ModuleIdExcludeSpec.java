@@ -29,6 +29,11 @@ class ModuleIdExcludeSpec extends AbstractModuleExclusion {
         this.moduleId = id;
     }
 
+    @Override
+    protected AbstractModuleExclusion copy() {
+        return new ModuleIdExcludeSpec(moduleId);
+    }
+
     @Override
     public String toString() {
         return "{module-id " + moduleId + "}";
@@ -29,6 +29,11 @@ class ModuleNameExcludeSpec extends AbstractModuleExclusion {
         this.module = module;
     }
 
+    @Override
+    protected AbstractModuleExclusion copy() {
+        return new ModuleNameExcludeSpec(module);
+    }
+
     @Override
     public String toString() {
         return "{module " + module + "}";
@@ -54,6 +54,7 @@ import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -76,6 +77,7 @@ public class DependencyGraphBuilder {
     private final ImmutableAttributesFactory attributesFactory;
     private final CapabilitiesConflictHandler capabilitiesConflictHandler;
     private final VersionSelectorScheme versionSelectorScheme;
+    private final MetadataPrefetcher metadataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver,
@@ -87,6 +89,20 @@ public class DependencyGraphBuilder {
                                   BuildOperationExecutor buildOperationExecutor, ModuleReplacementsData moduleReplacementsData,
                                   DependencySubstitutionApplicator dependencySubstitutionApplicator, ComponentSelectorConverter componentSelectorConverter,
                                   ImmutableAttributesFactory attributesFactory, VersionSelectorScheme versionSelectorScheme) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, moduleConflictHandler, capabilitiesConflictHandler, edgeFilter, attributesSchema, moduleExclusions, buildOperationExecutor, moduleReplacementsData, dependencySubstitutionApplicator, componentSelectorConverter, attributesFactory, versionSelectorScheme, null);
+    }
+
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver,
+                                  ModuleConflictHandler moduleConflictHandler,
+                                  CapabilitiesConflictHandler capabilitiesConflictHandler,
+                                  Spec<? super DependencyMetadata> edgeFilter,
+                                  AttributesSchemaInternal attributesSchema,
+                                  ModuleExclusions moduleExclusions,
+                                  BuildOperationExecutor buildOperationExecutor, ModuleReplacementsData moduleReplacementsData,
+                                  DependencySubstitutionApplicator dependencySubstitutionApplicator, ComponentSelectorConverter componentSelectorConverter,
+                                  ImmutableAttributesFactory attributesFactory, VersionSelectorScheme versionSelectorScheme,
+                                  @Nullable MetadataPrefetcher metadataPrefetcher) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
@@ -101,6 +117,7 @@ public class DependencyGraphBuilder {
         this.attributesFactory = attributesFactory;
         this.capabilitiesConflictHandler = capabilitiesConflictHandler;
         this.versionSelectorScheme = versionSelectorScheme;
+        this.metadataPrefetcher = metadataPrefetcher;
     }
 
     public void resolve(final ResolveContext resolveContext, final DependencyGraphVisitor modelVisitor) {
@@ -111,7 +128,13 @@ public class DependencyGraphBuilder {
 
         final ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, edgeFilter, attributesSchema, moduleExclusions, moduleReplacementsData, componentSelectorConverter, attributesFactory, dependencySubstitutionApplicator, versionSelectorScheme);
 
-        traverseGraph(resolveState);
+        try {
+            traverseGraph(resolveState);
+        } finally {
+            if (metadataPrefetcher != null) {
+                metadataPrefetcher.stop();
+            }
+        }
 
         validateGraph(resolveState);
 
@@ -188,6 +211,9 @@ public class DependencyGraphBuilder {
         performSelectionSerially(dependencies, resolveState);
         maybeDownloadMetadataInParallel(node, componentIdentifierCache, dependencies);
         attachToTargetRevisionsSerially(dependencies);
+        if (metadataPrefetcher != null) {
+            metadataPrefetcher.prefetchAhead(dependencies);
+        }
 
     }
 
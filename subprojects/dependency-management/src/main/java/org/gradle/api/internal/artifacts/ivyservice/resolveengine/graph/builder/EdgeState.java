@@ -103,6 +103,10 @@ class EdgeState implements DependencyGraphEdge {
         return isTransitive;
     }
 
+    List<NodeState> getTargetNodes() {
+        return targetNodes;
+    }
+
     public void attachToTargetConfigurations() {
         ComponentState targetComponent = getTargetComponent();
         if (targetComponent == null) {
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.SpeculativeResolution;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusion;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Speculatively resolves the metadata of components that are likely to be reached by the graph traversal, a configurable
+ * number of levels below the components the traversal has just attached.
+ *
+ * Prefetching runs in the background and the traversal never waits for it. The results are discarded: prefetching only warms
+ * the repository caches, so that the traversal later finds the metadata without going over the network. Prefetch failures are
+ * resolved as {@link SpeculativeResolution speculative}, so they never blacklist a repository, and are otherwise ignored: the
+ * traversal resolves the component again and reports its own failure, if any.
+ *
+ * Only fixed-version module dependencies are prefetched, and the exclusions accumulated along the path are applied. A component is
+ * skipped once the traversal has selected another version of its module. Dependency substitution is not applied, so the prefetcher
+ * must not be used when the resolution declares substitution rules.
+ */
+public class MetadataPrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataPrefetcher.class);
+
+    /**
+     * The number of levels to prefetch below the components attached by the traversal. Prefetching is disabled when not set or 0.
+     */
+    public static final String PREFETCH_DEPTH_PROPERTY = "org.gradle.internal.resolution.prefetch-depth";
+
+    private static final int MAX_CONCURRENT_PREFETCHES = 4;
+
+    private final ComponentMetaDataResolver metaDataResolver;
+    private final Spec<? super DependencyMetadata> edgeFilter;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ModuleExclusions moduleExclusions;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final ExecutorFactory executorFactory;
+    private final int depth;
+    private final Set<ModuleComponentIdentifier> requested = Sets.newConcurrentHashSet();
+    private final ConcurrentMap<ModuleIdentifier, String> selectedVersions = Maps.newConcurrentMap();
+    private final Object lock = new Object();
+    private ManagedExecutor executor;
+    private volatile boolean stopping;
+
+    public MetadataPrefetcher(ComponentMetaDataResolver metaDataResolver, Spec<? super DependencyMetadata> edgeFilter, VersionSelectorScheme versionSelectorScheme, ModuleExclusions moduleExclusions, BuildOperationExecutor buildOperationExecutor, ExecutorFactory executorFactory, int depth) {
+        this.metaDataResolver = metaDataResolver;
+        this.edgeFilter = edgeFilter;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleExclusions = moduleExclusions;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.executorFactory = executorFactory;
+        this.depth = depth;
+    }
+
+    public static int configuredDepth() {
+        return Math.max(0, Integer.getInteger(PREFETCH_DEPTH_PROPERTY, 0));
+    }
+
+    /**
+     * Schedules the prefetch of the dependencies of the targets of the given edges, which have just been attached by the traversal.
+     * Must be called from the traversal thread: the graph state is only read here and never from prefetch operations.
+     */
+    void prefetchAhead(List<EdgeState> edges) {
+        for (EdgeState edge : edges) {
+            ComponentState target = edge.getTargetComponent();
+            if (target == null) {
+                continue;
+            }
+            markSelected(target);
+            if (!edge.isTransitive()) {
+                continue;
+            }
+            ModuleExclusion exclusions = edge.getExclusions();
+            for (NodeState node : edge.getTargetNodes()) {
+                prefetchDependencies(node.getMetadata(), exclusions);
+            }
+        }
+    }
+
+    /**
+     * Records the version of a module selected by the traversal: prefetches of other versions of this module are skipped.
+     */
+    void markSelected(ComponentState component) {
+        selectedVersions.put(component.getId().getModule(), component.getId().getVersion());
+        if (component.getComponentId() instanceof ModuleComponentIdentifier) {
+            requested.add((ModuleComponentIdentifier) component.getComponentId());
+        }
+    }
+
+    /**
+     * Schedules the prefetch of the dependencies of the given node configuration, which the traversal is going to visit.
+     */
+    void prefetchDependencies(ConfigurationMetadata configuration, ModuleExclusion exclusions) {
+        BuildOperationRef parent = null;
+        for (DependencyMetadata dependency : configuration.getDependencies()) {
+            if (parent == null) {
+                parent = buildOperationExecutor.getCurrentOperation();
+            }
+            maybePrefetch(dependency, exclusions, 1, parent);
+        }
+    }
+
+    /**
+     * Cancels the prefetches that have not started yet and waits for the running ones to complete.
+     */
+    void stop() {
+        ManagedExecutor executor;
+        synchronized (lock) {
+            executor = this.executor;
+            this.executor = null;
+            stopping = true;
+        }
+        try {
+            if (executor != null) {
+                executor.stop();
+            }
+        } finally {
+            stopping = false;
+            requested.clear();
+            selectedVersions.clear();
+        }
+    }
+
+    private void maybePrefetch(DependencyMetadata dependency, ModuleExclusion exclusions, int level, BuildOperationRef parent) {
+        if (level > depth || dependency.isPending() || !edgeFilter.isSatisfiedBy(dependency)) {
+            return;
+        }
+        ModuleComponentIdentifier componentId = toFixedVersionId(dependency.getSelector());
+        if (componentId == null || exclusions.excludeModule(moduleOf(componentId))) {
+            return;
+        }
+        if (metaDataResolver.isFetchingMetadataCheap(componentId) || !requested.add(componentId)) {
+            return;
+        }
+        ModuleExclusion dependencyExclusions = exclusions;
+        List<ExcludeMetadata> excludes = dependency.getExcludes();
+        if (!excludes.isEmpty()) {
+            dependencyExclusions = moduleExclusions.intersect(moduleExclusions.excludeAny(ImmutableList.copyOf(excludes)), exclusions);
+        }
+        submit(new PrefetchMetadataOperation(componentId, dependency, dependencyExclusions, level, parent));
+    }
+
+    private void submit(final PrefetchMetadataOperation operation) {
+        synchronized (lock) {
+            if (stopping) {
+                return;
+            }
+            if (executor == null) {
+                executor = executorFactory.create("Dependency metadata prefetch", MAX_CONCURRENT_PREFETCHES);
+            }
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!stopping && !isSuperseded(operation.componentId)) {
+                            buildOperationExecutor.run(operation);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Stopping
+            }
+        }
+    }
+
+    private boolean isSuperseded(ModuleComponentIdentifier componentId) {
+        String selectedVersion = selectedVersions.get(moduleOf(componentId));
+        return selectedVersion != null && !selectedVersion.equals(componentId.getVersion());
+    }
+
+    private static ModuleIdentifier moduleOf(ModuleComponentIdentifier componentId) {
+        return DefaultModuleIdentifier.newId(componentId.getGroup(), componentId.getModule());
+    }
+
+    @Nullable
+    private ModuleComponentIdentifier toFixedVersionId(ComponentSelector selector) {
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return null;
+        }
+        ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+        String version = moduleSelector.getVersionConstraint().getPreferredVersion();
+        if (version == null || version.isEmpty() || versionSelectorScheme.parseSelector(version).isDynamic()) {
+            return null;
+        }
+        return DefaultModuleComponentIdentifier.newId(moduleSelector.getGroup(), moduleSelector.getModule(), version);
+    }
+
+    private class PrefetchMetadataOperation implements RunnableBuildOperation {
+        private final ModuleComponentIdentifier componentId;
+        private final DependencyMetadata dependency;
+        private final ModuleExclusion exclusions;
+        private final int level;
+        private final BuildOperationRef parent;
+
+        PrefetchMetadataOperation(ModuleComponentIdentifier componentId, DependencyMetadata dependency, ModuleExclusion exclusions, int level, BuildOperationRef parent) {
+            this.componentId = componentId;
+            this.dependency = dependency;
+            this.exclusions = exclusions;
+            this.level = level;
+            this.parent = parent;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            final DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+            try {
+                SpeculativeResolution.run(new Runnable() {
+                    @Override
+                    public void run() {
+                        metaDataResolver.resolve(componentId, DefaultComponentOverrideMetadata.forDependency(dependency), result);
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOGGER.debug("Could not prefetch metadata for {}.", componentId, e);
+                return;
+            }
+            if (!result.hasResult() || result.getFailure() != null || !dependency.isTransitive()) {
+                return;
+            }
+            // The resolver returns a metadata instance of its own, so reading its configurations here does not race with the traversal
+            ComponentResolveMetadata metadata = result.getMetadata();
+            for (ConfigurationMetadata configuration : configurationsOf(metadata)) {
+                for (DependencyMetadata next : configuration.getDependencies()) {
+                    maybePrefetch(next, exclusions, level + 1, parent);
+                }
+            }
+        }
+
+        private List<? extends ConfigurationMetadata> configurationsOf(ComponentResolveMetadata metadata) {
+            if (metadata.getVariantsForGraphTraversal().isPresent() && !metadata.getVariantsForGraphTraversal().get().isEmpty()) {
+                return metadata.getVariantsForGraphTraversal().get();
+            }
+            ConfigurationMetadata configuration = metadata.getConfiguration(Dependency.DEFAULT_CONFIGURATION);
+            return configuration == null ? ImmutableList.<ConfigurationMetadata>of() : ImmutableList.of(configuration);
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Prefetch metadata for " + componentId).parent(parent);
+        }
+    }
+}
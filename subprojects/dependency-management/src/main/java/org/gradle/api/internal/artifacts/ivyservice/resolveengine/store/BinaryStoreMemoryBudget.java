@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the number of bytes of resolution results that binary stores may keep in memory instead of writing them to their backing file.
+ */
+class BinaryStoreMemoryBudget {
+    static final BinaryStoreMemoryBudget NONE = new BinaryStoreMemoryBudget(0);
+
+    private final long maxBytes;
+    private final AtomicLong reserved = new AtomicLong();
+
+    BinaryStoreMemoryBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reserves the given number of bytes, if they fit in the budget.
+     */
+    boolean reserve(long bytes) {
+        while (true) {
+            long current = reserved.get();
+            long updated = current + bytes;
+            if (updated > maxBytes) {
+                return false;
+            }
+            if (reserved.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long bytes) {
+        reserved.addAndGet(-bytes);
+    }
+
+    long getReserved() {
+        return reserved.get();
+    }
+}
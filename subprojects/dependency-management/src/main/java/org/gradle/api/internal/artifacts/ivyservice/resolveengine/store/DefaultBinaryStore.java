@@ -22,37 +22,43 @@ import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.util.Arrays;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
+/**
+ * Stores each batch of data in memory while the {@link BinaryStoreMemoryBudget} allows it, and in the backing file otherwise.
+ * Data that is kept in memory is read back without any file I/O.
+ */
 class DefaultBinaryStore implements BinaryStore, Closeable {
+    private final BinaryStoreMemoryBudget memoryBudget;
     private File file;
+    private FileOutputStream fileOutput;
+    private SegmentOutputStream segment;
     private KryoBackedEncoder encoder;
-    private int offset = -1;
+    private long inMemoryBytes;
 
     public DefaultBinaryStore(File file) {
+        this(file, BinaryStoreMemoryBudget.NONE);
+    }
+
+    public DefaultBinaryStore(File file, BinaryStoreMemoryBudget memoryBudget) {
         this.file = file;
+        this.memoryBudget = memoryBudget;
     }
 
     public void write(WriteAction write) {
         if (encoder == null) {
-            try {
-                encoder = new KryoBackedEncoder(new FileOutputStream(file));
-            } catch (FileNotFoundException e) {
-                throw throwAsUncheckedException(e);
-            }
-        }
-        if (offset == -1) {
-            offset = encoder.getWritePosition();
-            if (offset == Integer.MAX_VALUE) {
-                throw new IllegalStateException("Unable to write to binary store. "
-                        + "The bytes offset has reached a point where using it is unsafe. Please report this error.");
-            }
+            segment = new SegmentOutputStream();
+            encoder = new KryoBackedEncoder(segment);
         }
         try {
             write.write(encoder);
@@ -70,26 +76,34 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
     }
 
     public BinaryData done() {
+        if (encoder == null) {
+            return new InMemoryBinaryData(new byte[0], toString());
+        }
         try {
-            if (encoder != null) {
-                encoder.flush();
-            }
-            return new SimpleBinaryData(file, offset, diagnose());
+            encoder.flush();
+            return segment.finish();
         } finally {
-            offset = -1;
+            encoder = null;
+            segment = null;
         }
     }
 
     public void close() {
         try {
-            if (encoder != null) {
-                encoder.close();
+            if (fileOutput != null) {
+                fileOutput.close();
             }
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
         } finally {
             if (file != null) {
                 file.delete();
             }
+            memoryBudget.release(inMemoryBytes);
+            inMemoryBytes = 0;
+            fileOutput = null;
             encoder = null;
+            segment = null;
             file = null;
         }
     }
@@ -102,7 +116,101 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
         return file.length();
     }
 
-    private static class SimpleBinaryData implements BinaryStore.BinaryData {
+    long getInMemorySize() {
+        return inMemoryBytes;
+    }
+
+    private FileOutputStream getFileOutput() throws FileNotFoundException {
+        if (fileOutput == null) {
+            fileOutput = new FileOutputStream(file);
+        }
+        return fileOutput;
+    }
+
+    /**
+     * Receives the bytes of a single batch of data. The bytes are buffered in memory until the memory budget is exhausted,
+     * after which the batch is moved to the end of the backing file.
+     */
+    private class SegmentOutputStream extends OutputStream {
+        private byte[] buffer = new byte[256];
+        private int count;
+        private int fileOffset = -1;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            if (buffer != null) {
+                if (memoryBudget.reserve(len)) {
+                    if (count + len > buffer.length) {
+                        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + len));
+                    }
+                    System.arraycopy(bytes, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                moveToFile();
+            }
+            getFileOutput().write(bytes, off, len);
+        }
+
+        private void moveToFile() throws IOException {
+            FileOutputStream output = getFileOutput();
+            long position = output.getChannel().position();
+            if (position >= Integer.MAX_VALUE) {
+                throw new IllegalStateException("Unable to write to binary store. "
+                        + "The bytes offset has reached a point where using it is unsafe. Please report this error.");
+            }
+            fileOffset = (int) position;
+            output.write(buffer, 0, count);
+            memoryBudget.release(count);
+            buffer = null;
+        }
+
+        BinaryData finish() {
+            if (buffer == null) {
+                return new FileBinaryData(file, fileOffset, diagnose());
+            }
+            inMemoryBytes += count;
+            return new InMemoryBinaryData(Arrays.copyOf(buffer, count), DefaultBinaryStore.this.toString());
+        }
+    }
+
+    private static class InMemoryBinaryData implements BinaryStore.BinaryData {
+        private final byte[] bytes;
+        private final String sourceDescription;
+
+        private Decoder decoder;
+
+        public InMemoryBinaryData(byte[] bytes, String sourceDescription) {
+            this.bytes = bytes;
+            this.sourceDescription = sourceDescription;
+        }
+
+        public <T> T read(BinaryStore.ReadAction<T> readAction) {
+            try {
+                if (decoder == null) {
+                    decoder = new KryoBackedDecoder(new ByteArrayInputStream(bytes));
+                }
+                return readAction.read(decoder);
+            } catch (Exception e) {
+                throw new RuntimeException("Problems reading data from " + sourceDescription, e);
+            }
+        }
+
+        public void close() {
+            decoder = null;
+        }
+
+        public String toString() {
+            return sourceDescription + " (in memory, " + bytes.length + " bytes)";
+        }
+    }
+
+    private static class FileBinaryData implements BinaryStore.BinaryData {
         private final int offset;
         private final File inputFile;
         private final String sourceDescription;
@@ -110,7 +218,7 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
         private Decoder decoder;
         private CompositeStoppable resources;
 
-        public SimpleBinaryData(File inputFile, int offset, String sourceDescription) {
+        public FileBinaryData(File inputFile, int offset, String sourceDescription) {
             this.inputFile = inputFile;
             this.offset = offset;
             this.sourceDescription = sourceDescription;
@@ -35,9 +35,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class ResolutionResultsStoreFactory implements Closeable {
     private final static Logger LOG = Logging.getLogger(ResolutionResultsStoreFactory.class);
     private static final int DEFAULT_MAX_SIZE = 2000000000; //2 gigs
+    private static final long DEFAULT_MAX_IN_MEMORY_SIZE = Long.getLong("org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.maxInMemorySize", Runtime.getRuntime().maxMemory() / 16);
 
     private final TemporaryFileProvider temp;
     private int maxSize;
+    private final long maxInMemorySize;
+    private BinaryStoreMemoryBudget memoryBudget;
 
     private CachedStoreFactory<TransientConfigurationResults> oldModelCache;
     private CachedStoreFactory<ResolvedComponentResult> newModelCache;
@@ -45,16 +48,22 @@ public class ResolutionResultsStoreFactory implements Closeable {
     private AtomicInteger storeSetBaseId = new AtomicInteger(0);
 
     public ResolutionResultsStoreFactory(TemporaryFileProvider temp) {
-        this(temp, DEFAULT_MAX_SIZE);
+        this(temp, DEFAULT_MAX_SIZE, DEFAULT_MAX_IN_MEMORY_SIZE);
+    }
+
+    ResolutionResultsStoreFactory(TemporaryFileProvider temp, int maxSize) {
+        this(temp, maxSize, 0);
     }
 
     /**
      * @param temp - Provider of temporary files.
      * @param maxSize - indicates the approx. maximum size of the binary store that will trigger rolling of the file
+     * @param maxInMemorySize - the maximum number of bytes of results kept in memory across all binary stores, before falling back to the files
      */
-    ResolutionResultsStoreFactory(TemporaryFileProvider temp, int maxSize) {
+    ResolutionResultsStoreFactory(TemporaryFileProvider temp, int maxSize, long maxInMemorySize) {
         this.temp = temp;
         this.maxSize = maxSize;
+        this.maxInMemorySize = maxInMemorySize;
     }
 
     private final Map<String, DefaultBinaryStore> stores = new HashMap<String, DefaultBinaryStore>();
@@ -65,13 +74,20 @@ public class ResolutionResultsStoreFactory implements Closeable {
         if (store == null || isFull(store)) {
             File storeFile = temp.createTemporaryFile("gradle", ".bin");
             storeFile.deleteOnExit();
-            store = new DefaultBinaryStore(storeFile);
+            store = new DefaultBinaryStore(storeFile, getMemoryBudget());
             stores.put(storeKey, store);
             cleanUpLater.add(store);
         }
         return store;
     }
 
+    private BinaryStoreMemoryBudget getMemoryBudget() {
+        if (memoryBudget == null) {
+            memoryBudget = new BinaryStoreMemoryBudget(maxInMemorySize);
+        }
+        return memoryBudget;
+    }
+
     private synchronized CachedStoreFactory<TransientConfigurationResults> getOldModelCache() {
         if (oldModelCache == null) {
             oldModelCache = new CachedStoreFactory<TransientConfigurationResults>("Resolution result");
@@ -122,6 +138,7 @@ public class ResolutionResultsStoreFactory implements Closeable {
             cleanUpLater.stop();
             LOG.debug("Deleted {} resolution results binary files in {}", stores.size(), clock.getElapsed());
         } finally {
+            memoryBudget = null;
             oldModelCache = null;
             newModelCache = null;
             stores.clear();
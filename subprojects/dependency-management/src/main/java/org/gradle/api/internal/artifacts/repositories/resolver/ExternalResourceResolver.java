@@ -195,7 +195,9 @@ public abstract class ExternalResourceResolver<T extends ModuleComponentResolveM
             }
         }
 
+        // No source could list the versions, which is not the same as a listing without versions
         result.listed(ImmutableSet.<String>of());
+        result.setAuthoritative(false);
     }
 
     /**
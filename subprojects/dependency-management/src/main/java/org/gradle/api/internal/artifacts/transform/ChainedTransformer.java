@@ -16,6 +16,8 @@
 
 package org.gradle.api.internal.artifacts.transform;
 
+import com.google.common.collect.ImmutableList;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -56,4 +58,23 @@ class ChainedTransformer implements ArtifactTransformer {
     public String getDisplayName() {
         return first.getDisplayName() + " -> " + second.getDisplayName();
     }
+
+    /**
+     * Returns the individual transforms that make up the given transformer, in the order they are applied.
+     */
+    static List<ArtifactTransformer> stepsOf(ArtifactTransformer transformer) {
+        ImmutableList.Builder<ArtifactTransformer> steps = ImmutableList.builder();
+        collectSteps(transformer, steps);
+        return steps.build();
+    }
+
+    private static void collectSteps(ArtifactTransformer transformer, ImmutableList.Builder<ArtifactTransformer> steps) {
+        if (transformer instanceof ChainedTransformer) {
+            ChainedTransformer chain = (ChainedTransformer) transformer;
+            collectSteps(chain.first, steps);
+            collectSteps(chain.second, steps);
+        } else {
+            steps.add(transformer);
+        }
+    }
 }
@@ -18,16 +18,20 @@ package org.gradle.api.internal.artifacts.transform;
 
 import com.google.common.collect.ImmutableList;
 import org.gradle.api.Action;
+import org.gradle.api.Describable;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetadata;
 import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.api.internal.changedetection.state.Snapshot;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.CleanupActionFactory;
 import org.gradle.cache.internal.ProducerGuard;
 import org.gradle.caching.internal.DefaultBuildCacheHasher;
 import org.gradle.initialization.RootBuildLifecycleListener;
@@ -41,36 +45,72 @@ import org.gradle.internal.resource.local.FileStoreAddActionException;
 import org.gradle.internal.serialize.BaseSerializerFactory;
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.ListSerializer;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.time.TimeFormatting;
+import org.gradle.internal.time.Timer;
 import org.gradle.internal.util.BiFunction;
+import org.gradle.util.BuildCommencedTimeProvider;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.gradle.api.internal.artifacts.ivyservice.CacheLayout.TRANSFORMS_META_DATA;
 import static org.gradle.api.internal.artifacts.ivyservice.CacheLayout.TRANSFORMS_STORE;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTransformedFileCache implements TransformedFileCache, Stoppable, RootBuildLifecycleListener {
+    private static final Logger LOGGER = Logging.getLogger(DefaultTransformedFileCache.class);
+
+    /**
+     * Results of transforms that have not been used for this number of days are removed from the transforms store. Defaults to 7 days.
+     */
+    public static final String MAX_AGE_IN_DAYS_PROPERTY = "org.gradle.internal.transforms.store.max-age-days";
+
+    /**
+     * When set, the least recently used results of transforms are removed until the transforms store is smaller than this number of megabytes.
+     */
+    public static final String MAX_SIZE_IN_MB_PROPERTY = "org.gradle.internal.transforms.store.max-size-mb";
+    private static final long DEFAULT_MAX_AGE_IN_DAYS = 7;
+
     private final PersistentCache cache;
     private final PersistentIndexedCache<HashCode, List<File>> indexedCache;
     private final FileStore<String> fileStore;
+    private final File filesOutputDirectory;
     private final ProducerGuard<CacheKey> producing = ProducerGuard.adaptive();
     private final Map<CacheKey, List<File>> resultHashToResult = new ConcurrentHashMap<CacheKey, List<File>>();
     private final FileSystemSnapshotter fileSystemSnapshotter;
+    private final ConcurrentMap<String, TransformStatistics> statistics = new ConcurrentHashMap<String, TransformStatistics>();
+    private final TransformsStoreCleanup storeCleanup;
 
     public DefaultTransformedFileCache(ArtifactCacheMetadata artifactCacheMetadata, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory cacheDecoratorFactory, FileSystemSnapshotter fileSystemSnapshotter) {
+        this(artifactCacheMetadata, cacheRepository, cacheDecoratorFactory, fileSystemSnapshotter, null);
+    }
+
+    public DefaultTransformedFileCache(ArtifactCacheMetadata artifactCacheMetadata, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory cacheDecoratorFactory, FileSystemSnapshotter fileSystemSnapshotter, @Nullable CleanupActionFactory cleanupActionFactory) {
         this.fileSystemSnapshotter = fileSystemSnapshotter;
         File transformsStoreDirectory = artifactCacheMetadata.getTransformsStoreDirectory();
-        File filesOutputDirectory = new File(transformsStoreDirectory, TRANSFORMS_STORE.getKey());
+        filesOutputDirectory = new File(transformsStoreDirectory, TRANSFORMS_STORE.getKey());
         fileStore = new DefaultPathKeyFileStore(filesOutputDirectory);
-        cache = cacheRepository
+        CacheBuilder cacheBuilder = cacheRepository
             .cache(transformsStoreDirectory)
             .withCrossVersionCache(CacheBuilder.LockTarget.DefaultTarget)
             .withDisplayName("Artifact transforms cache")
-            .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
-            .open();
+            .withLockOptions(mode(FileLockManager.LockMode.None)); // Lock on demand
+        if (cleanupActionFactory != null) {
+            long maxAgeInDays = Long.getLong(MAX_AGE_IN_DAYS_PROPERTY, DEFAULT_MAX_AGE_IN_DAYS);
+            Long maxSizeInMb = Long.getLong(MAX_SIZE_IN_MB_PROPERTY);
+            long maxSizeInBytes = maxSizeInMb == null ? Long.MAX_VALUE : maxSizeInMb * 1024 * 1024;
+            storeCleanup = new TransformsStoreCleanup(filesOutputDirectory, maxAgeInDays, maxSizeInBytes, new BuildCommencedTimeProvider());
+            cacheBuilder.withCleanup(cleanupActionFactory.create(storeCleanup));
+        } else {
+            storeCleanup = null;
+        }
+        cache = cacheBuilder.open();
         String cacheName = TRANSFORMS_META_DATA.getKey() + "/results";
         PersistentIndexedCacheParameters<HashCode, List<File>> cacheParameters = new PersistentIndexedCacheParameters<HashCode, List<File>>(cacheName, new HashCodeSerializer(), new ListSerializer<File>(BaseSerializerFactory.FILE_SERIALIZER))
             .cacheDecorator(cacheDecoratorFactory.decorator(1000, true));
@@ -84,12 +124,22 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
 
     @Override
     public void afterStart() {
+        if (storeCleanup != null) {
+            // Keep the results used by this build
+            storeCleanup.buildCommenced(new BuildCommencedTimeProvider());
+        }
     }
 
     @Override
     public void beforeComplete() {
         // Discard cached results between builds
         resultHashToResult.clear();
+        for (Map.Entry<String, TransformStatistics> entry : statistics.entrySet()) {
+            TransformStatistics stats = entry.getValue();
+            LOGGER.info("Artifact transform {}: {} executions, {} cache loads, total execution time {}.",
+                entry.getKey(), stats.executions.get(), stats.cacheLoads.get(), TimeFormatting.formatDurationVerbose(stats.executionTimeMs.get()));
+        }
+        statistics.clear();
     }
 
     @Override
@@ -124,6 +174,7 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
                     public List<File> create() {
                         HashCode persistentCacheKey = cacheKey.getPersistentCacheKey();
                         List<File> files = indexedCache.get(persistentCacheKey);
+                        TransformStatistics stats = statisticsFor(transformer);
                         if (files != null) {
                             boolean allExist = true;
                             for (File file : files) {
@@ -133,16 +184,22 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
                                 }
                             }
                             if (allExist) {
+                                stats.cacheLoads.incrementAndGet();
+                                markAsUsed(inputFile, persistentCacheKey);
                                 return files;
                             }
                         }
 
                         String key = inputFile.getName() + "/" + persistentCacheKey;
                         TransformAction action = new TransformAction(transformer, inputFile);
+                        Timer timer = Time.startTimer();
                         try {
                             fileStore.add(key, action);
                         } catch (FileStoreAddActionException e) {
                             throw UncheckedException.throwAsUncheckedException(e.getCause());
+                        } finally {
+                            stats.executions.incrementAndGet();
+                            stats.executionTimeMs.addAndGet(timer.getElapsedMillis());
                         }
 
                         indexedCache.put(persistentCacheKey, action.result);
@@ -156,6 +213,30 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
         });
     }
 
+    /**
+     * Records the use of a result for the cleanup of the transforms store. This happens at most once per result and build,
+     * as the result is then held in memory.
+     */
+    private void markAsUsed(File inputFile, HashCode persistentCacheKey) {
+        File resultDir = new File(new File(filesOutputDirectory, inputFile.getName()), persistentCacheKey.toString());
+        if (!resultDir.setLastModified(System.currentTimeMillis())) {
+            LOGGER.debug("Could not update the last access time of {}.", resultDir);
+        }
+    }
+
+    private TransformStatistics statisticsFor(BiFunction<List<File>, File, File> transformer) {
+        String transformType = transformer instanceof Describable ? ((Describable) transformer).getDisplayName() : transformer.getClass().getName();
+        TransformStatistics stats = statistics.get(transformType);
+        if (stats == null) {
+            stats = new TransformStatistics();
+            TransformStatistics existing = statistics.putIfAbsent(transformType, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
     private CacheKey getCacheKey(File inputFile, HashCode inputsHash) {
         Snapshot inputFileSnapshot = fileSystemSnapshotter.snapshotAll(inputFile);
         return new CacheKey(inputFileSnapshot, inputsHash);
@@ -208,6 +289,12 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
         }
     }
 
+    private static class TransformStatistics {
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong cacheLoads = new AtomicLong();
+        private final AtomicLong executionTimeMs = new AtomicLong();
+    }
+
     private static class TransformAction implements Action<File> {
         private final BiFunction<List<File>, File, File> transformer;
         private final File inputFile;
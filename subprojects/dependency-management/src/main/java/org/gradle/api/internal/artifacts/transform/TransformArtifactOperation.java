@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.transform;
 
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvableArtifact;
 import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationQueue;
 import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 
@@ -27,21 +28,27 @@ import java.util.List;
 class TransformArtifactOperation implements RunnableBuildOperation {
     private final ResolvableArtifact artifact;
     private final ArtifactTransformer transform;
+    private final BuildOperationQueue<RunnableBuildOperation> queue;
     private Throwable failure;
-    private List<File> result;
+    private TransformStepOperation firstStep;
 
-    TransformArtifactOperation(ResolvableArtifact artifact, ArtifactTransformer transform) {
+    TransformArtifactOperation(ResolvableArtifact artifact, ArtifactTransformer transform, BuildOperationQueue<RunnableBuildOperation> queue) {
         this.artifact = artifact;
         this.transform = transform;
+        this.queue = queue;
     }
 
     @Override
     public void run(BuildOperationContext context) {
+        File file;
         try {
-            result = transform.transform(artifact.getFile());
+            file = artifact.getFile();
         } catch (Throwable t) {
             failure = t;
+            return;
         }
+        firstStep = new TransformStepOperation(file, ChainedTransformer.stepsOf(transform), 0, queue);
+        firstStep.run(context);
     }
 
     @Override
@@ -50,10 +57,10 @@ class TransformArtifactOperation implements RunnableBuildOperation {
     }
 
     public Throwable getFailure() {
-        return failure;
+        return failure != null ? failure : firstStep.getFailure();
     }
 
     public List<File> getResult() {
-        return result;
+        return firstStep.getResult();
     }
 }
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.artifacts.transform;
 
 import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationQueue;
 import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 
@@ -26,21 +27,17 @@ import java.util.List;
 class TransformFileOperation implements RunnableBuildOperation {
     private final File file;
     private final ArtifactTransformer transform;
-    private Throwable failure;
-    private List<File> result;
+    private final TransformStepOperation firstStep;
 
-    TransformFileOperation(File file, ArtifactTransformer transform) {
+    TransformFileOperation(File file, ArtifactTransformer transform, BuildOperationQueue<RunnableBuildOperation> queue) {
         this.file = file;
         this.transform = transform;
+        this.firstStep = new TransformStepOperation(file, ChainedTransformer.stepsOf(transform), 0, queue);
     }
 
     @Override
     public void run(BuildOperationContext context) {
-        try {
-            result = transform.transform(file);
-        } catch (Throwable t) {
-            failure = t;
-        }
+        firstStep.run(context);
     }
 
     @Override
@@ -49,10 +46,10 @@ class TransformFileOperation implements RunnableBuildOperation {
     }
 
     public Throwable getFailure() {
-        return failure;
+        return firstStep.getFailure();
     }
 
     public List<File> getResult() {
-        return result;
+        return firstStep.getResult();
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.transform;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies one step of a chain of transforms to a file. The next step is applied to each of the outputs as a separate operation,
+ * so that the outputs of a step that produces many files are transformed in parallel rather than one after the other.
+ * The results are available once the queue has completed.
+ */
+class TransformStepOperation implements RunnableBuildOperation {
+    private final File input;
+    private final List<ArtifactTransformer> steps;
+    private final int step;
+    private final BuildOperationQueue<RunnableBuildOperation> queue;
+    private Throwable failure;
+    private List<File> result;
+    private List<TransformStepOperation> next;
+
+    TransformStepOperation(File input, List<ArtifactTransformer> steps, int step, BuildOperationQueue<RunnableBuildOperation> queue) {
+        this.input = input;
+        this.steps = steps;
+        this.step = step;
+        this.queue = queue;
+    }
+
+    @Override
+    public void run(@Nullable BuildOperationContext context) {
+        List<File> outputs;
+        try {
+            outputs = steps.get(step).transform(input);
+        } catch (Throwable t) {
+            failure = t;
+            return;
+        }
+        if (step == steps.size() - 1) {
+            result = outputs;
+            return;
+        }
+        ArtifactTransformer nextStep = steps.get(step + 1);
+        List<TransformStepOperation> operations = new ArrayList<TransformStepOperation>(outputs.size());
+        for (File output : outputs) {
+            TransformStepOperation operation = new TransformStepOperation(output, steps, step + 1, queue);
+            operations.add(operation);
+        }
+        next = operations;
+        for (TransformStepOperation operation : operations) {
+            if (nextStep.hasCachedResult(operation.input)) {
+                operation.run(null);
+            } else {
+                queue.add(operation);
+            }
+        }
+    }
+
+    @Override
+    public BuildOperationDescriptor.Builder description() {
+        return BuildOperationDescriptor.displayName("Apply " + steps.get(step).getDisplayName() + " to " + input);
+    }
+
+    public Throwable getFailure() {
+        if (failure != null || next == null) {
+            return failure;
+        }
+        for (TransformStepOperation operation : next) {
+            Throwable nextFailure = operation.getFailure();
+            if (nextFailure != null) {
+                return nextFailure;
+            }
+        }
+        return null;
+    }
+
+    public List<File> getResult() {
+        if (next == null) {
+            return result;
+        }
+        ImmutableList.Builder<File> builder = ImmutableList.builder();
+        for (TransformStepOperation operation : next) {
+            builder.addAll(operation.getResult());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.transform;
+
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Removes the least recently used transform results from the transforms store. Each result is a directory
+ * {@code <input file name>/<cache key>} below the store directory, whose last modified time is updated when the result is used.
+ * Results used since the current build commenced are kept. As the transforms store is locked on demand, the results are removed
+ * while holding the cross-process lock of the cache.
+ */
+class TransformsStoreCleanup extends LeastRecentlyUsedCacheCleanup {
+    private static final FileFilter DIRECTORIES = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return file.isDirectory();
+        }
+    };
+
+    private final File filesOutputDirectory;
+    private volatile BuildCommencedTimeProvider currentBuild;
+
+    TransformsStoreCleanup(File filesOutputDirectory, long ageInDays, long maxSizeInBytes, BuildCommencedTimeProvider currentBuild) {
+        super(ageInDays, maxSizeInBytes);
+        this.filesOutputDirectory = filesOutputDirectory;
+        this.currentBuild = currentBuild;
+    }
+
+    void buildCommenced(BuildCommencedTimeProvider currentBuild) {
+        this.currentBuild = currentBuild;
+    }
+
+    @Override
+    protected long getInUseSince() {
+        return currentBuild.getCurrentTime();
+    }
+
+    @Override
+    public void clean(final PersistentCache persistentCache) {
+        persistentCache.withFileLock(new Runnable() {
+            @Override
+            public void run() {
+                TransformsStoreCleanup.super.clean(persistentCache);
+                removeEmptyInputDirectories();
+            }
+        });
+    }
+
+    @Override
+    protected List<File> findFilesToDelete(PersistentCache persistentCache, File[] filesEligibleForCleanup) {
+        List<File> resultDirs = new ArrayList<File>();
+        for (File file : filesEligibleForCleanup) {
+            if (file.equals(filesOutputDirectory)) {
+                File[] inputDirs = file.listFiles(DIRECTORIES);
+                if (inputDirs != null) {
+                    for (File inputDir : inputDirs) {
+                        File[] resultDirsForInput = inputDir.listFiles(DIRECTORIES);
+                        if (resultDirsForInput != null) {
+                            Collections.addAll(resultDirs, resultDirsForInput);
+                        }
+                    }
+                }
+            }
+        }
+        if (resultDirs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return super.findFilesToDelete(persistentCache, resultDirs.toArray(new File[0]));
+    }
+
+    private void removeEmptyInputDirectories() {
+        File[] inputDirs = filesOutputDirectory.listFiles(DIRECTORIES);
+        if (inputDirs != null) {
+            for (File inputDir : inputDirs) {
+                String[] children = inputDir.list();
+                if (children != null && children.length == 0) {
+                    GFileUtils.deleteQuietly(inputDir);
+                }
+            }
+        }
+    }
+}
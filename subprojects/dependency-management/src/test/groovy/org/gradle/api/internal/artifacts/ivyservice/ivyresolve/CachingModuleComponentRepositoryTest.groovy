@@ -20,6 +20,7 @@ import org.gradle.api.artifacts.component.ModuleComponentIdentifier
 import org.gradle.api.internal.artifacts.ComponentMetadataProcessor
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory
 import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleListingIndex
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetadataCache
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleRepositoryCaches
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts.ArtifactAtRepositoryKey
@@ -38,6 +39,7 @@ import org.gradle.internal.component.model.ComponentOverrideMetadata
 import org.gradle.internal.component.model.ComponentResolveMetadata
 import org.gradle.internal.component.model.ModuleSource
 import org.gradle.internal.resolve.result.BuildableArtifactResolveResult
+import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableArtifactSetResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableComponentArtifactsResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableModuleComponentMetaDataResolveResult
@@ -258,4 +260,134 @@ class CachingModuleComponentRepositoryTest extends Specification {
         true              | MetadataFetchingCost.FAST      | MetadataFetchingCost.FAST
         true              | MetadataFetchingCost.EXPENSIVE | MetadataFetchingCost.EXPENSIVE
     }
+
+    def "module known to be absent from repository listing is missing without searching remotely"() {
+        def trustedListings = Mock(ModuleVersionsCache)
+        def repo = indexedRepository(trustedListings)
+        def componentId = Stub(ModuleComponentIdentifier)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+
+        when:
+        repo.localAccess.resolveComponentMetaData(componentId, Stub(ComponentOverrideMetadata), result)
+
+        then:
+        1 * trustedListings.getCachedModuleResolution(realRepo, _) >> cachedListing([] as Set)
+        cachePolicy.mustRefreshMissingModule(componentId, 1000) >> false
+
+        and:
+        result.state == BuildableModuleComponentMetaDataResolveResult.State.Missing
+        result.authoritative
+    }
+
+    def "module listed by repository is searched for as usual"() {
+        def trustedListings = Mock(ModuleVersionsCache)
+        def repo = indexedRepository(trustedListings)
+        def componentId = Stub(ModuleComponentIdentifier)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+
+        when:
+        repo.localAccess.resolveComponentMetaData(componentId, Stub(ComponentOverrideMetadata), result)
+
+        then:
+        1 * trustedListings.getCachedModuleResolution(realRepo, _) >> cachedListing(['1.0'] as Set)
+
+        and:
+        !result.hasResult()
+    }
+
+    def "lists versions of module that is missing from repository"() {
+        def trustedListings = Mock(ModuleVersionsCache)
+        def repo = indexedRepository(trustedListings)
+        def componentId = missingComponent()
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+
+        when:
+        repo.remoteAccess.resolveComponentMetaData(componentId, Stub(ComponentOverrideMetadata), result)
+
+        then:
+        1 * realRemoteAccess.resolveComponentMetaData(componentId, _, result) >> { result.missing() }
+        1 * moduleDescriptorCache.cacheMissing(realRepo, componentId)
+        1 * trustedListings.getCachedModuleResolution(realRepo, _) >> null
+        1 * realRemoteAccess.listModuleVersions({ it.selector.group == "org" && it.selector.module == "foo" }, _) >> { dependency, listing -> listing.listed([]) }
+        1 * trustedListings.cacheModuleVersionList(realRepo, _, [] as Set)
+    }
+
+    def "does not record listing of module when no source could list its versions"() {
+        def trustedListings = Mock(ModuleVersionsCache)
+        def repo = indexedRepository(trustedListings)
+        def componentId = missingComponent()
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+
+        when:
+        repo.remoteAccess.resolveComponentMetaData(componentId, Stub(ComponentOverrideMetadata), result)
+
+        then:
+        1 * realRemoteAccess.resolveComponentMetaData(componentId, _, result) >> { result.missing() }
+        1 * trustedListings.getCachedModuleResolution(realRepo, _) >> null
+        1 * realRemoteAccess.listModuleVersions(_, _) >> { dependency, listing ->
+            listing.listed([])
+            listing.authoritative = false
+        }
+        0 * trustedListings.cacheModuleVersionList(_, _, _)
+    }
+
+    @Unroll
+    def "records listing of module versions only when authoritative is #authoritative"() {
+        def trustedListings = Mock(ModuleVersionsCache)
+        def repo = indexedRepository(trustedListings)
+        def dependency = Stub(ModuleDependencyMetadata)
+        def result = new DefaultBuildableModuleVersionListingResolveResult()
+
+        when:
+        repo.remoteAccess.listModuleVersions(dependency, result)
+
+        then:
+        1 * realRemoteAccess.listModuleVersions(dependency, result) >> {
+            result.listed([])
+            result.authoritative = authoritative
+        }
+        recorded * trustedListings.cacheModuleVersionList(realRepo, _, [] as Set)
+
+        where:
+        authoritative | recorded
+        true          | 1
+        false         | 0
+    }
+
+    def "does not list versions of missing module again while listing is up to date"() {
+        def trustedListings = Mock(ModuleVersionsCache)
+        def repo = indexedRepository(trustedListings)
+        def componentId = Stub(ModuleComponentIdentifier)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+        cachePolicy.mustRefreshMissingModule(componentId, 1000) >> false
+
+        when:
+        repo.remoteAccess.resolveComponentMetaData(componentId, Stub(ComponentOverrideMetadata), result)
+
+        then:
+        1 * realRemoteAccess.resolveComponentMetaData(componentId, _, result) >> { result.missing() }
+        1 * trustedListings.getCachedModuleResolution(realRepo, _) >> cachedListing(['1.0'] as Set)
+        0 * realRemoteAccess.listModuleVersions(_, _)
+        0 * trustedListings.cacheModuleVersionList(_, _, _)
+    }
+
+    private CachingModuleComponentRepository indexedRepository(ModuleVersionsCache trustedListings) {
+        def caches = new ModuleRepositoryCaches(moduleResolutionCache, moduleDescriptorCache, moduleArtifactsCache, artifactAtRepositoryCache, new ModuleListingIndex(trustedListings))
+        return new CachingModuleComponentRepository(realRepo, caches, cachePolicy, new BuildCommencedTimeProvider(), metadataProcessor, moduleIdentifierFactory)
+    }
+
+    private ModuleComponentIdentifier missingComponent() {
+        return Stub(ModuleComponentIdentifier) {
+            getGroup() >> "org"
+            getModule() >> "foo"
+            getVersion() >> "1.0"
+        }
+    }
+
+    private ModuleVersionsCache.CachedModuleVersionList cachedListing(Set<String> versions) {
+        return Stub(ModuleVersionsCache.CachedModuleVersionList) {
+            getModuleVersions() >> versions
+            getAgeMillis() >> 1000
+        }
+    }
 }
@@ -199,4 +199,23 @@ class ErrorHandlingModuleComponentRepositoryTest extends Specification {
         1 * result.failed(_ as ArtifactResolveException)
         0 * delegate._
     }
+
+    def "does not blacklist repo when speculative resolution fails"() {
+        given:
+        def moduleComponentIdentifier = new DefaultModuleComponentIdentifier('a', 'b', '1.0')
+        def requestMetaData = Mock(ComponentOverrideMetadata)
+        def result = Mock(BuildableModuleComponentMetaDataResolveResult)
+        repositoryBlacklister.isBlacklisted(REPOSITORY_ID) >> false
+        delegate.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result) >> { throw someException }
+
+        when:
+        SpeculativeResolution.run {
+            access.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result)
+        }
+
+        then: 'resolution fails but repo is not blacklisted'
+        0 * repositoryBlacklister.blacklistRepository(_, _)
+        1 * result.failed(_ as ModuleVersionResolveException)
+        !SpeculativeResolution.speculative
+    }
 }
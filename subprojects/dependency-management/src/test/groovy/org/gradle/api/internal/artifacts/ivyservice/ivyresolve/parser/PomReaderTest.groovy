@@ -1016,4 +1016,58 @@ class PomReaderTest extends AbstractPomReaderTest {
         then:
         def excluded = pomReader.dependencies[keyGroupTwo].excludedModules
         excluded == [DefaultModuleIdentifier.newId('*', '*')]
-    }}
+    }
+
+    def "reads text and entities of POM elements"() {
+        when:
+        pomFile << """
+<project>
+    <!-- comment -->
+    <groupId>group<!-- comment -->-one</groupId>
+    <artifactId><![CDATA[artifact-one]]></artifactId>
+    <version>version&#45;one</version>
+    <properties>
+        <copyright>&copy; someone</copyright>
+    </properties>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.artifactId == 'artifact-one'
+        pomReader.version == 'version-one'
+        pomReader.properties['copyright'] == '\u00a9 someone'
+    }
+
+    def "reuses parsed POM from document cache until the file changes"() {
+        given:
+        def documentCache = new PomDocumentCache()
+        pomFile << """
+<project>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+</project>
+"""
+
+        when:
+        def first = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory, [:], documentCache)
+        def cached = documentCache.get(pomFile)
+        def second = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory, [:], documentCache)
+
+        then:
+        cached != null
+        documentCache.get(pomFile).is(cached)
+        first.version == 'version-one'
+        second.version == 'version-one'
+
+        when:
+        pomFile.text = pomFile.text.replace('version-one', 'version-three')
+        def third = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory, [:], documentCache)
+
+        then:
+        third.version == 'version-three'
+        !documentCache.get(pomFile).is(cached)
+    }
+}
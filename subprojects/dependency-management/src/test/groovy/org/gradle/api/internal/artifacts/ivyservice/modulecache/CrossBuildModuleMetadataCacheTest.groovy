@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata
+import org.gradle.internal.event.DefaultListenerManager
+import spock.lang.Specification
+
+class CrossBuildModuleMetadataCacheTest extends Specification {
+    def cache = new CrossBuildModuleMetadataCache(new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()))
+    def key = new ModuleComponentAtRepositoryKey("repo", DefaultModuleComponentIdentifier.newId("org.test", "module", "1.0"))
+    def metadata = Stub(ModuleComponentResolveMetadata)
+
+    def "returns metadata retained for the same persistent entry"() {
+        def entry = new ModuleMetadataCacheEntry(ModuleMetadataCacheEntry.TYPE_PRESENT, false, 100, null)
+
+        when:
+        cache.put(key, entry, false, metadata)
+
+        then:
+        cache.get(key, entry, false) == metadata
+        cache.get(key, new ModuleMetadataCacheEntry(ModuleMetadataCacheEntry.TYPE_PRESENT, false, 100, null), false) == metadata
+    }
+
+    def "discards metadata when the persistent entry has been rewritten"() {
+        def entry = new ModuleMetadataCacheEntry(ModuleMetadataCacheEntry.TYPE_PRESENT, false, 100, null)
+        cache.put(key, entry, false, metadata)
+
+        expect:
+        cache.get(key, new ModuleMetadataCacheEntry(ModuleMetadataCacheEntry.TYPE_PRESENT, false, 200, null), false) == null
+        cache.get(key, new ModuleMetadataCacheEntry(ModuleMetadataCacheEntry.TYPE_PRESENT, true, 100, null), false) == null
+        cache.get(key, ModuleMetadataCacheEntry.forMissingModule(100), false) == null
+    }
+
+    def "discards metadata read with different improved POM support"() {
+        def entry = new ModuleMetadataCacheEntry(ModuleMetadataCacheEntry.TYPE_PRESENT, false, 100, null)
+        cache.put(key, entry, false, metadata)
+
+        expect:
+        cache.get(key, entry, true) == null
+    }
+
+    def "returns null for unknown module"() {
+        expect:
+        cache.get(key, new ModuleMetadataCacheEntry(ModuleMetadataCacheEntry.TYPE_PRESENT, false, 100, null), false) == null
+    }
+}
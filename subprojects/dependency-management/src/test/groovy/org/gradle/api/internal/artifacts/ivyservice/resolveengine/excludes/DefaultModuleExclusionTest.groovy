@@ -720,6 +720,57 @@ class DefaultModuleExclusionTest extends Specification {
         !intersect(spec1, spec2).excludesSameModulesAs(intersect(spec1, spec3))
     }
 
+    def "intersection of the same exclude rules is the same instance however it is built"() {
+        def rule1 = excludeRule("org", "module")
+        def rule2 = excludeGroupRule("org2")
+        def rule3 = excludeArtifactRule("b", "jar", "jar")
+        def spec = excludeAny(rule1, rule2, rule3)
+
+        expect:
+        intersect(excludeAny(rule3, rule1), excludeAny(excludeGroupRule("org2"))).is(spec)
+        intersect(excludeAny(excludeRule("org", "module")), excludeAny(rule2, rule3)).is(spec)
+    }
+
+    def "reuses the result of merging the same intersections"() {
+        def spec1 = excludeAny(excludeRule("org", "module"), excludeRule("org", "module2"))
+        def spec2 = excludeAny(excludeRule("org", "module2"), excludeRule("org", "module3"))
+
+        when:
+        def merged = union(spec1, spec2)
+
+        then:
+        merged == excludeAny(excludeRule("org", "module2"))
+        union(spec1, spec2).is(merged)
+    }
+
+    def "reuses the result of merging intersections that exclude all modules"() {
+        def spec1 = excludeAny(excludeRule("*", "*"), excludeRule("org", "module"))
+        def spec2 = excludeAny(excludeRule("org", "module2"))
+
+        when:
+        def merged = union(spec1, spec2)
+
+        then:
+        merged.is(excludeAny(excludeRule("org", "module2")))
+        union(spec1, spec2).is(merged)
+    }
+
+    def "can combine exclusions created by another instance"() {
+        def other = new ModuleExclusions(Stub(ImmutableModuleIdentifierFactory))
+        def foreign = other.excludeAny(excludeRule("org", "module2"), excludeRule("org", "module3"))
+        def spec = excludeAny(excludeRule("org", "module"), excludeRule("org", "module2"))
+
+        when:
+        def intersection = intersect(spec, foreign)
+        def merged = union(spec, foreign)
+
+        then:
+        intersection.is(excludeAny(excludeRule("org", "module"), excludeRule("org", "module2"), excludeRule("org", "module3")))
+        merged.is(excludeAny(excludeRule("org", "module2")))
+        union(spec, foreign).is(merged)
+        other.excludeAny(excludeRule("org", "module3"), excludeRule("org", "module2")).is(foreign)
+    }
+
     def "does not accept artifact that matches specific exclude rule"() {
         def rule1 = excludeArtifactRule("a", "jar", "jar")
         def rule2 = excludeArtifactRule("b", "jar", "jar")
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import com.google.common.base.Optional
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.SpeculativeResolution
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions
+import org.gradle.api.specs.Specs
+import org.gradle.internal.component.external.descriptor.DefaultExclude
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ComponentResolveMetadata
+import org.gradle.internal.component.model.ConfigurationMetadata
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.operations.BuildOperationRef
+import org.gradle.internal.operations.RunnableBuildOperation
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import spock.lang.Specification
+
+class MetadataPrefetcherTest extends Specification {
+    def metaDataResolver = Mock(ComponentMetaDataResolver)
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator())
+    def moduleExclusions = new ModuleExclusions(new DefaultImmutableModuleIdentifierFactory())
+    def buildOperationExecutor = Stub(BuildOperationExecutor) {
+        getCurrentOperation() >> Stub(BuildOperationRef)
+        run(_) >> { RunnableBuildOperation operation -> operation.run(null) }
+    }
+    def submitted = []
+    def executor = Stub(ManagedExecutor) {
+        execute(_) >> { Runnable action -> submitted << action }
+        stop() >> { runSubmitted() }
+    }
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_, _) >> executor
+    }
+
+    def "prefetches fixed version dependencies up to the configured depth in the background"() {
+        def prefetcher = prefetcher(2)
+        def b = component(dependency("c", "1.0"))
+        def c = component(dependency("d", "1.0"))
+
+        when:
+        prefetcher.prefetchDependencies(configuration(dependency("b", "1.0")), ModuleExclusions.excludeNone())
+
+        then:
+        0 * metaDataResolver.resolve(_, _, _)
+        submitted.size() == 1
+
+        when:
+        runSubmitted()
+
+        then:
+        1 * metaDataResolver.resolve(id("b", "1.0"), _, _) >> { args -> ((BuildableComponentResolveResult) args[2]).resolved(b) }
+        1 * metaDataResolver.resolve(id("c", "1.0"), _, _) >> { args -> ((BuildableComponentResolveResult) args[2]).resolved(c) }
+        0 * metaDataResolver.resolve(id("d", "1.0"), _, _)
+    }
+
+    def "does not prefetch dynamic versions, pending, excluded, cheap or already requested components"() {
+        def prefetcher = prefetcher(3)
+        def root = configuration(dependency("b", "1.+"), dependency("c", "1.0", true), dependency("d", "1.0"), dependency("e", "1.0"), dependency("f", "1.0"))
+        def exclusions = moduleExclusions.excludeAny(new DefaultExclude(DefaultModuleIdentifier.newId("org", "f")))
+        metaDataResolver.isFetchingMetadataCheap(id("d", "1.0")) >> true
+        prefetcher.markSelected(selected("e", "1.0"))
+
+        when:
+        prefetcher.prefetchDependencies(root, exclusions)
+        runSubmitted()
+
+        then:
+        0 * metaDataResolver.resolve(_, _, _)
+    }
+
+    def "applies the excludes of prefetched dependencies to their own dependencies"() {
+        def prefetcher = prefetcher(3)
+        def b = component(dependency("c", "1.0"), dependency("d", "1.0"))
+        def dependencyOnB = dependency("b", "1.0", false, [new DefaultExclude(DefaultModuleIdentifier.newId("org", "c"))])
+
+        when:
+        prefetcher.prefetchDependencies(configuration(dependencyOnB), ModuleExclusions.excludeNone())
+        runSubmitted()
+
+        then:
+        1 * metaDataResolver.resolve(id("b", "1.0"), _, _) >> { args -> ((BuildableComponentResolveResult) args[2]).resolved(b) }
+        1 * metaDataResolver.resolve(id("d", "1.0"), _, _)
+        0 * metaDataResolver.resolve(id("c", "1.0"), _, _)
+    }
+
+    def "skips components whose module has another version selected by the traversal"() {
+        def prefetcher = prefetcher(3)
+
+        when:
+        prefetcher.prefetchDependencies(configuration(dependency("b", "1.0")), ModuleExclusions.excludeNone())
+        prefetcher.markSelected(selected("b", "2.0"))
+        runSubmitted()
+
+        then:
+        0 * metaDataResolver.resolve(_, _, _)
+    }
+
+    def "resolves speculatively, prefetches each component once and ignores failures"() {
+        def prefetcher = prefetcher(3)
+        def c = component(dependency("b", "1.0"))
+
+        when:
+        prefetcher.prefetchDependencies(configuration(dependency("b", "1.0"), dependency("c", "1.0")), ModuleExclusions.excludeNone())
+        runSubmitted()
+
+        then:
+        1 * metaDataResolver.resolve(id("b", "1.0"), _, _) >> { args ->
+            assert SpeculativeResolution.speculative
+            ((BuildableComponentResolveResult) args[2]).failed(new ModuleVersionResolveException(id("b", "1.0"), "broken"))
+        }
+        1 * metaDataResolver.resolve(id("c", "1.0"), _, _) >> { args -> ((BuildableComponentResolveResult) args[2]).resolved(c) }
+        !SpeculativeResolution.speculative
+    }
+
+    def "does not run pending prefetches once stopped"() {
+        def prefetcher = prefetcher(3)
+
+        when:
+        prefetcher.prefetchDependencies(configuration(dependency("b", "1.0")), ModuleExclusions.excludeNone())
+        prefetcher.stop()
+        runSubmitted()
+
+        then:
+        0 * metaDataResolver.resolve(_, _, _)
+    }
+
+    def prefetcher(int depth) {
+        new MetadataPrefetcher(metaDataResolver, Specs.satisfyAll(), versionSelectorScheme, moduleExclusions, buildOperationExecutor, executorFactory, depth)
+    }
+
+    def runSubmitted() {
+        while (!submitted.empty) {
+            submitted.remove(0).run()
+        }
+    }
+
+    def id(String name, String version) {
+        DefaultModuleComponentIdentifier.newId("org", name, version)
+    }
+
+    def selected(String name, String version) {
+        Stub(ComponentState) {
+            getId() >> DefaultModuleVersionIdentifier.newId("org", name, version)
+            getComponentId() >> id(name, version)
+        }
+    }
+
+    def dependency(String name, String version, boolean pending = false, List excludes = []) {
+        def selector = DefaultModuleComponentSelector.newSelector("org", name, version)
+        Stub(DependencyMetadata) {
+            getSelector() >> selector
+            isPending() >> pending
+            isTransitive() >> true
+            getExcludes() >> excludes
+        }
+    }
+
+    def configuration(DependencyMetadata... dependencies) {
+        Stub(ConfigurationMetadata) {
+            getDependencies() >> (dependencies as List)
+        }
+    }
+
+    def component(DependencyMetadata... dependencies) {
+        def configuration = configuration(dependencies)
+        Stub(ComponentResolveMetadata) {
+            getVariantsForGraphTraversal() >> Optional.absent()
+            getConfiguration("default") >> configuration
+        }
+    }
+}
@@ -113,4 +113,31 @@ class DefaultBinaryStoreTest extends Specification {
         then:
         data.close()
     }
+
+    def "keeps data in memory while it fits in the memory budget"() {
+        def budget = new BinaryStoreMemoryBudget(10)
+        def store = new DefaultBinaryStore(temp.file("foo.bin"), budget)
+
+        when:
+        store.write({ it.writeInt(10) } as BinaryStore.WriteAction)
+        def data1 = store.done()
+        store.write({ it.writeInt(20); it.writeInt(30) } as BinaryStore.WriteAction)
+        def data2 = store.done()
+
+        then:
+        store.inMemorySize == 4
+        budget.reserved == 4
+        store.size == 8
+        data1.read({ it.readInt() } as BinaryStore.ReadAction) == 10
+        data1.close()
+        data2.read({ it.readInt() } as BinaryStore.ReadAction) == 20
+        data2.read({ it.readInt() } as BinaryStore.ReadAction) == 30
+        data2.close()
+
+        when:
+        store.close()
+
+        then:
+        budget.reserved == 0
+    }
 }
@@ -53,6 +53,17 @@ class ChainedTransformerTest extends Specification {
         chain.transform(new File("foo")) == [new File("foo/cached/non-cached")]
     }
 
+    def "flattens nested chains into their steps"() {
+        given:
+        def first = new CachingTransformer()
+        def second = new NonCachingTransformer()
+        def third = new CachingTransformer()
+
+        expect:
+        ChainedTransformer.stepsOf(new ChainedTransformer(new ChainedTransformer(first, second), third)) == [first, second, third]
+        ChainedTransformer.stepsOf(first) == [first]
+    }
+
     class CachingTransformer implements ArtifactTransformer {
 
         @Override
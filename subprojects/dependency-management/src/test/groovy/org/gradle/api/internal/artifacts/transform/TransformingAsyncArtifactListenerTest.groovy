@@ -19,6 +19,7 @@ package org.gradle.api.internal.artifacts.transform
 import com.google.common.collect.Maps
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvableArtifact
 import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
 import org.gradle.testing.internal.util.Specification
 
 class TransformingAsyncArtifactListenerTest extends Specification {
@@ -49,4 +50,32 @@ class TransformingAsyncArtifactListenerTest extends Specification {
         then:
         2 * transformer.transform(_)
     }
+
+    def "transforms each output of a chained transform step as a separate operation"() {
+        def first = Mock(ArtifactTransformer)
+        def second = Mock(ArtifactTransformer)
+        def fileResults = Maps.newHashMap()
+        def queue = Mock(BuildOperationQueue)
+        def chainListener = new TransformingAsyncArtifactListener(new ChainedTransformer(first, second), null, queue, Maps.newHashMap(), fileResults)
+        def input = new File("foo")
+        def outputs = [new File("foo1"), new File("foo2")]
+
+        given:
+        first.hasCachedResult(_) >> false
+        second.hasCachedResult(_) >> false
+
+        when:
+        chainListener.fileAvailable(input)
+
+        then:
+        1 * queue.add(_) >> { RunnableBuildOperation operation -> operation.run(null) }
+        1 * first.transform(input) >> outputs
+        2 * queue.add(_) >> { RunnableBuildOperation operation -> operation.run(null) }
+        1 * second.transform(outputs[0]) >> [new File("bar1")]
+        1 * second.transform(outputs[1]) >> [new File("bar2")]
+
+        and:
+        fileResults[input].failure == null
+        fileResults[input].result == [new File("bar1"), new File("bar2")]
+    }
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the file managers of completed compilations, so that later compilations in the same build can use the jars they have already opened and indexed.
+ *
+ * <p>A file manager is only reused when none of the jars it has opened has changed since, based on their length and last modified time. The locations
+ * of a file manager are reset before it is reused, so that only the options of the compilation that uses it apply. The boot and extension class path
+ * options cannot be reset, so a file manager is only reused by compilations with the same boot and extension class path options. Compilations that use
+ * the module system or {@code --release} configure the file manager in ways that cannot be reset, so they always use a new file manager.</p>
+ *
+ * <p>The number of jars kept open by the idle file managers is limited. The file managers that have been idle for the longest time are closed first
+ * when there are more. All idle file managers are closed when the pool is closed at the end of the build.</p>
+ */
+public class JavaFileManagerPool implements Closeable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.java.compile.reuse-file-managers";
+    private static final Logger LOGGER = LoggerFactory.getLogger(JavaFileManagerPool.class);
+    private static final StandardLocation[] RESETTABLE_LOCATIONS = {
+        StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_OUTPUT, StandardLocation.CLASS_PATH,
+        StandardLocation.SOURCE_PATH, StandardLocation.ANNOTATION_PROCESSOR_PATH
+    };
+    private static final StandardLocation[] ARCHIVE_LOCATIONS = {
+        StandardLocation.CLASS_PATH, StandardLocation.ANNOTATION_PROCESSOR_PATH, StandardLocation.PLATFORM_CLASS_PATH
+    };
+    private static final List<String> PLATFORM_OPTIONS_WITH_VALUE = ImmutableList.of(
+        "-bootclasspath", "--boot-class-path", "-extdirs", "--extension-directories", "-endorseddirs", "--endorsed-dirs"
+    );
+    private static final List<String> PLATFORM_OPTION_PREFIXES = ImmutableList.of(
+        "-Xbootclasspath", "-Djava.ext.dirs=", "-Djava.endorsed.dirs="
+    );
+
+    private final int maxIdlePerKey;
+    private final int maxOpenArchives;
+    private final Map<Key, Deque<PooledFileManager>> idle = new HashMap<Key, Deque<PooledFileManager>>();
+    private final Deque<PooledFileManager> idleByAge = new ArrayDeque<PooledFileManager>();
+    private int idleArchives;
+    private boolean closed;
+
+    public JavaFileManagerPool(int maxIdlePerKey, int maxOpenArchives) {
+        this.maxIdlePerKey = maxIdlePerKey;
+        this.maxOpenArchives = maxOpenArchives;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns whether a compilation with the given options can use a file manager from this pool.
+     */
+    public static boolean canReuseFor(List<String> options) {
+        for (String option : options) {
+            if (option.equals("--release") || option.equals("-p") || option.equals("--system")
+                || option.startsWith("--module") || option.startsWith("--patch-module") || option.startsWith("--upgrade-module-path")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns an up-to-date file manager created by the given compiler for a compilation with the given options, creating a new one when there is none.
+     * It needs to be given back using {@link #release(PooledFileManager)} or {@link #discard(PooledFileManager)} when the compilation has completed.
+     */
+    public PooledFileManager acquire(JavaCompiler compiler, @Nullable Charset charset, List<String> options) {
+        Key key = new Key(compiler.getClass(), charset, platformOptionsIn(options));
+        while (true) {
+            PooledFileManager fileManager;
+            synchronized (idle) {
+                Deque<PooledFileManager> fileManagers = idle.get(key);
+                fileManager = fileManagers == null ? null : fileManagers.pollFirst();
+                if (fileManager != null) {
+                    removeIdle(fileManager);
+                }
+            }
+            if (fileManager == null) {
+                return new PooledFileManager(key, compiler.getStandardFileManager(null, null, charset));
+            }
+            if (fileManager.isUpToDate() && fileManager.resetLocations()) {
+                return fileManager;
+            }
+            close(fileManager);
+        }
+    }
+
+    /**
+     * Gives back a file manager after a compilation has completed, whether or not the compilation succeeded.
+     */
+    public void release(PooledFileManager fileManager) {
+        fileManager.recordArchives();
+        List<PooledFileManager> evicted = new ArrayList<PooledFileManager>();
+        synchronized (idle) {
+            Deque<PooledFileManager> fileManagers = idle.get(fileManager.key);
+            if (fileManagers == null) {
+                fileManagers = new ArrayDeque<PooledFileManager>();
+                idle.put(fileManager.key, fileManagers);
+            }
+            if (closed || fileManagers.size() >= maxIdlePerKey) {
+                evicted.add(fileManager);
+            } else {
+                fileManagers.addFirst(fileManager);
+                idleByAge.addFirst(fileManager);
+                idleArchives += fileManager.archives.size();
+                while (idleArchives > maxOpenArchives) {
+                    PooledFileManager oldest = idleByAge.getLast();
+                    idle.get(oldest.key).remove(oldest);
+                    removeIdle(oldest);
+                    evicted.add(oldest);
+                }
+            }
+        }
+        for (PooledFileManager evictedFileManager : evicted) {
+            close(evictedFileManager);
+        }
+    }
+
+    /**
+     * Closes a file manager that cannot be used again, for example because the compilation that used it failed unexpectedly.
+     */
+    public void discard(PooledFileManager fileManager) {
+        close(fileManager);
+    }
+
+    /**
+     * Closes the idle file managers. File managers that are in use are closed when they are given back.
+     */
+    @Override
+    public void close() {
+        List<PooledFileManager> evicted;
+        synchronized (idle) {
+            closed = true;
+            evicted = new ArrayList<PooledFileManager>(idleByAge);
+            idle.clear();
+            idleByAge.clear();
+            idleArchives = 0;
+        }
+        for (PooledFileManager fileManager : evicted) {
+            close(fileManager);
+        }
+    }
+
+    int getIdleCount() {
+        synchronized (idle) {
+            return idleByAge.size();
+        }
+    }
+
+    private void removeIdle(PooledFileManager fileManager) {
+        idleByAge.remove(fileManager);
+        idleArchives -= fileManager.archives.size();
+    }
+
+    private static List<String> platformOptionsIn(List<String> options) {
+        List<String> platformOptions = new ArrayList<String>();
+        Iterator<String> optionsIter = options.iterator();
+        while (optionsIter.hasNext()) {
+            String option = optionsIter.next();
+            if (PLATFORM_OPTIONS_WITH_VALUE.contains(option)) {
+                platformOptions.add(option);
+                if (optionsIter.hasNext()) {
+                    platformOptions.add(optionsIter.next());
+                }
+            } else {
+                for (String prefix : PLATFORM_OPTION_PREFIXES) {
+                    if (option.startsWith(prefix)) {
+                        platformOptions.add(option);
+                        break;
+                    }
+                }
+            }
+        }
+        return platformOptions;
+    }
+
+    private static void close(PooledFileManager fileManager) {
+        try {
+            fileManager.getFileManager().close();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close Java file manager.", e);
+        }
+    }
+
+    public static class PooledFileManager {
+        private final Key key;
+        private final StandardJavaFileManager fileManager;
+        private final Map<File, ArchiveState> archives = new HashMap<File, ArchiveState>();
+
+        private PooledFileManager(Key key, StandardJavaFileManager fileManager) {
+            this.key = key;
+            this.fileManager = fileManager;
+        }
+
+        public StandardJavaFileManager getFileManager() {
+            return fileManager;
+        }
+
+        private boolean isUpToDate() {
+            for (Map.Entry<File, ArchiveState> entry : archives.entrySet()) {
+                if (!entry.getValue().equals(ArchiveState.of(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean resetLocations() {
+            try {
+                for (StandardLocation location : RESETTABLE_LOCATIONS) {
+                    fileManager.setLocation(location, null);
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Records the state of the jars the file manager may have opened, unless already known. A jar that changed while it was in use
+         * keeps its previous state, so that the file manager is not reused.
+         */
+        private void recordArchives() {
+            for (StandardLocation location : ARCHIVE_LOCATIONS) {
+                Iterable<? extends File> files = fileManager.getLocation(location);
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (!archives.containsKey(file) && file.isFile()) {
+                        archives.put(file, ArchiveState.of(file));
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Key {
+        private final Class<?> compilerType;
+        private final Charset charset;
+        private final List<String> platformOptions;
+
+        Key(Class<?> compilerType, @Nullable Charset charset, List<String> platformOptions) {
+            this.compilerType = compilerType;
+            this.charset = charset;
+            this.platformOptions = platformOptions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return compilerType.equals(key.compilerType) && Objects.equal(charset, key.charset) && platformOptions.equals(key.platformOptions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(compilerType, charset, platformOptions);
+        }
+    }
+
+    private static class ArchiveState {
+        private final long length;
+        private final long lastModified;
+
+        private ArchiveState(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        static ArchiveState of(File file) {
+            return new ArchiveState(file.length(), file.lastModified());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ArchiveState that = (ArchiveState) o;
+            return length == that.length && lastModified == that.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (length ^ lastModified);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.gradle.language.base.internal.compile.Compiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
@@ -36,9 +37,16 @@ import java.util.Set;
 public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdkJavaCompiler.class);
     private final Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory;
+    // Not sent to a compiler daemon, which always uses a new file manager
+    private final transient JavaFileManagerPool fileManagerPool;
 
     public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory) {
+        this(javaHomeBasedJavaCompilerFactory, null);
+    }
+
+    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, @Nullable JavaFileManagerPool fileManagerPool) {
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
+        this.fileManagerPool = fileManagerPool;
     }
 
     @Override
@@ -46,19 +54,43 @@ public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable
         LOGGER.info("Compiling with JDK Java compiler API.");
 
         JdkJavaCompilerResult result = new JdkJavaCompilerResult();
-        JavaCompiler.CompilationTask task = createCompileTask(spec, result);
+        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
+        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
+        MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
+        Charset charset = compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null;
+
+        if (fileManagerPool == null || !JavaFileManagerPool.canReuseFor(options)) {
+            execute(spec, result, options, compiler, compiler.getStandardFileManager(null, null, charset));
+            return result;
+        }
+
+        JavaFileManagerPool.PooledFileManager pooledFileManager = fileManagerPool.acquire(compiler, charset, options);
+        boolean completed = false;
+        try {
+            execute(spec, result, options, compiler, pooledFileManager.getFileManager());
+            completed = true;
+        } catch (CompilationFailedException e) {
+            completed = true;
+            throw e;
+        } finally {
+            if (completed) {
+                fileManagerPool.release(pooledFileManager);
+            } else {
+                fileManagerPool.discard(pooledFileManager);
+            }
+        }
+        return result;
+    }
+
+    private void execute(JavaCompileSpec spec, JdkJavaCompilerResult result, List<String> options, JavaCompiler compiler, StandardJavaFileManager standardFileManager) {
+        JavaCompiler.CompilationTask task = createCompileTask(spec, result, options, compiler, standardFileManager);
         boolean success = task.call();
         if (!success) {
             throw new CompilationFailedException();
         }
-        return result;
     }
 
-    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, JdkJavaCompilerResult result) {
-        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
-        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
-        MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
-        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null);
+    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, JdkJavaCompilerResult result, List<String> options, JavaCompiler compiler, StandardJavaFileManager standardFileManager) {
         Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(spec.getSourceFiles());
         StandardJavaFileManager fileManager = standardFileManager;
         if (JavaVersion.current().isJava9Compatible() && emptySourcepathIn(options)) {
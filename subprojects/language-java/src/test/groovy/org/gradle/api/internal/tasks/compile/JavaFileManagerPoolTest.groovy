@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import javax.tools.JavaCompiler
+import javax.tools.StandardJavaFileManager
+import javax.tools.StandardLocation
+import java.nio.charset.Charset
+
+class JavaFileManagerPoolTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def compiler = Mock(JavaCompiler)
+    def pool = new JavaFileManagerPool(2, 10)
+
+    def "reuses released file manager after resetting its locations"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        compiler.getStandardFileManager(null, null, null) >> fileManager
+
+        when:
+        def first = pool.acquire(compiler, null, [])
+        pool.release(first)
+        def second = pool.acquire(compiler, null, [])
+
+        then:
+        second.is(first)
+        1 * fileManager.setLocation(StandardLocation.CLASS_PATH, null)
+        1 * fileManager.setLocation(StandardLocation.ANNOTATION_PROCESSOR_PATH, null)
+        1 * fileManager.setLocation(StandardLocation.CLASS_OUTPUT, null)
+        0 * fileManager.close()
+    }
+
+    def "does not share file managers between charsets"() {
+        compiler.getStandardFileManager(null, null, null) >> Mock(StandardJavaFileManager)
+        compiler.getStandardFileManager(null, null, Charset.forName("UTF-8")) >> Mock(StandardJavaFileManager)
+
+        when:
+        def first = pool.acquire(compiler, null, [])
+        pool.release(first)
+        def second = pool.acquire(compiler, Charset.forName("UTF-8"), [])
+
+        then:
+        !second.is(first)
+        pool.idleCount == 1
+    }
+
+    def "closes file manager instead of reusing it when a jar it has opened has changed"() {
+        def jar = tmpDir.file("lib.jar").createFile()
+        def staleFileManager = Mock(StandardJavaFileManager)
+        def newFileManager = Mock(StandardJavaFileManager)
+        compiler.getStandardFileManager(null, null, null) >>> [staleFileManager, newFileManager]
+        staleFileManager.getLocation(StandardLocation.CLASS_PATH) >> [jar, tmpDir.file("classes").createDir()]
+
+        when:
+        pool.release(pool.acquire(compiler, null, []))
+        jar.text = "changed"
+        def acquired = pool.acquire(compiler, null, [])
+
+        then:
+        acquired.fileManager == newFileManager
+        1 * staleFileManager.close()
+    }
+
+    def "reuses file manager when the jars it has opened have not changed"() {
+        def jar = tmpDir.file("lib.jar").createFile()
+        def fileManager = Mock(StandardJavaFileManager)
+        compiler.getStandardFileManager(null, null, null) >> fileManager
+        fileManager.getLocation(StandardLocation.CLASS_PATH) >> [jar]
+
+        when:
+        def first = pool.acquire(compiler, null, [])
+        pool.release(first)
+
+        then:
+        pool.acquire(compiler, null, []).is(first)
+    }
+
+    def "closes discarded file managers and file managers beyond the maximum number of idle file managers"() {
+        def fileManagers = (1..4).collect { Mock(StandardJavaFileManager) }
+        compiler.getStandardFileManager(null, null, null) >>> fileManagers
+
+        when:
+        def acquired = (1..4).collect { pool.acquire(compiler, null, []) }
+        pool.discard(acquired[0])
+        acquired[1..3].each { pool.release(it) }
+
+        then:
+        1 * fileManagers[0].close()
+        0 * fileManagers[1].close()
+        0 * fileManagers[2].close()
+        1 * fileManagers[3].close()
+        pool.idleCount == 2
+    }
+
+    def "does not share file managers between boot and extension class path options"() {
+        def fileManagers = (1..4).collect { Mock(StandardJavaFileManager) }
+        compiler.getStandardFileManager(null, null, null) >>> fileManagers
+
+        when:
+        pool.release(pool.acquire(compiler, null, ["-bootclasspath", "rt.jar", "-d", "classes"]))
+
+        then:
+        pool.acquire(compiler, null, []).fileManager != fileManagers[0]
+        pool.acquire(compiler, null, ["-bootclasspath", "other-rt.jar"]).fileManager != fileManagers[0]
+        pool.acquire(compiler, null, ["-bootclasspath", "rt.jar", "-Xbootclasspath/p:patch.jar"]).fileManager != fileManagers[0]
+        pool.acquire(compiler, null, ["-bootclasspath", "rt.jar", "-d", "other-classes"]).fileManager == fileManagers[0]
+    }
+
+    def "closes the file managers that have been idle for the longest time when the idle file managers have too many jars open"() {
+        def jars = (1..11).collect { tmpDir.file("lib${it}.jar").createFile() }
+        def fileManagers = (1..3).collect { Mock(StandardJavaFileManager) }
+        compiler.getStandardFileManager(null, null, null) >>> fileManagers[0..1]
+        compiler.getStandardFileManager(null, null, Charset.forName("UTF-8")) >> fileManagers[2]
+        fileManagers[0].getLocation(StandardLocation.CLASS_PATH) >> jars[0..6]
+        fileManagers[1].getLocation(StandardLocation.CLASS_PATH) >> jars[7..8]
+        fileManagers[2].getLocation(StandardLocation.CLASS_PATH) >> jars[9..10]
+        def acquired = [pool.acquire(compiler, null, []), pool.acquire(compiler, null, []), pool.acquire(compiler, Charset.forName("UTF-8"), [])]
+
+        when:
+        pool.release(acquired[0])
+        pool.release(acquired[1])
+
+        then:
+        0 * _.close()
+        pool.idleCount == 2
+
+        when:
+        pool.release(acquired[2])
+
+        then:
+        1 * fileManagers[0].close()
+        0 * _.close()
+        pool.idleCount == 2
+    }
+
+    def "closes idle file managers and file managers released later when closed"() {
+        def fileManagers = (1..2).collect { Mock(StandardJavaFileManager) }
+        compiler.getStandardFileManager(null, null, null) >>> fileManagers
+        def acquired = (1..2).collect { pool.acquire(compiler, null, []) }
+        pool.release(acquired[0])
+
+        when:
+        pool.close()
+
+        then:
+        1 * fileManagers[0].close()
+        pool.idleCount == 0
+
+        when:
+        pool.release(acquired[1])
+
+        then:
+        1 * fileManagers[1].close()
+        pool.idleCount == 0
+    }
+
+    def "does not reuse file managers for compilations that use the module system or a release"() {
+        expect:
+        JavaFileManagerPool.canReuseFor(["-classpath", "lib.jar", "-d", "classes"])
+        !JavaFileManagerPool.canReuseFor(["--release", "8"])
+        !JavaFileManagerPool.canReuseFor(["--module-path", "lib.jar"])
+        !JavaFileManagerPool.canReuseFor(["-p", "lib.jar"])
+        !JavaFileManagerPool.canReuseFor(["--patch-module", "foo=src"])
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance.regression.corefeature
+
+import org.gradle.performance.AbstractCrossVersionPerformanceTest
+import spock.lang.Unroll
+
+class TaskSchedulingPerformanceTest extends AbstractCrossVersionPerformanceTest {
+
+    @Unroll
+    def "execute many tiny tasks with #workers workers"() {
+        given:
+        runner.testProject = "manyTinyTasks"
+        runner.tasksToRun = ['all']
+        runner.args = ['--parallel', "--max-workers=${workers}"]
+        runner.gradleOpts = ["-Xms1g", "-Xmx1g"]
+        runner.targetVersions = ["4.9-20180516235936+0000"]
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        workers << [4, 32]
+    }
+}
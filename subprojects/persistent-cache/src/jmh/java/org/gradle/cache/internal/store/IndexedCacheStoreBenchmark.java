@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.store;
+
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the B-tree and memory-mapped stores backing persistent indexed caches.
+ * Access to the B-tree is synchronized, as it is not thread-safe and is only ever used by a single thread at a time.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class IndexedCacheStoreBenchmark {
+    private static final int ENTRY_COUNT = 50000;
+    private static final Serializer<String> STRING_SERIALIZER = new BaseSerializerFactory().getSerializerFor(String.class);
+
+    @Param({"btree", "mapped"})
+    String storeType;
+
+    File cacheDir;
+    IndexedCacheStore<String, String> store;
+    String[] keys;
+    String value;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cacheDir = Files.createTempDirectory("indexed-cache-benchmark").toFile();
+        File cacheFile = new File(cacheDir, "cache.bin");
+        if (storeType.equals("btree")) {
+            store = new SynchronizedStore<String, String>(new BTreePersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER));
+        } else {
+            store = new MappedPersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER);
+        }
+        Random random = new Random(1234L);
+        char[] chars = new char[80];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        value = new String(chars);
+        keys = new String[ENTRY_COUNT];
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            keys[i] = "/home/user/project/src/main/java/org/example/File" + i + ".java";
+            store.put(keys[i], value);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+        for (File file : cacheDir.listFiles()) {
+            file.delete();
+        }
+        cacheDir.delete();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String get() {
+        return store.get(randomKey());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getConcurrently() {
+        return store.get(randomKey());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void put() {
+        store.put(randomKey(), value);
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(ENTRY_COUNT)];
+    }
+
+    private static class SynchronizedStore<K, V> implements IndexedCacheStore<K, V> {
+        private final IndexedCacheStore<K, V> delegate;
+
+        SynchronizedStore(IndexedCacheStore<K, V> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized V get(K key) {
+            return delegate.get(key);
+        }
+
+        @Override
+        public synchronized void put(K key, V value) {
+            delegate.put(key, value);
+        }
+
+        @Override
+        public synchronized void remove(K key) {
+            delegate.remove(key);
+        }
+
+        @Override
+        public synchronized void close() {
+            delegate.close();
+        }
+    }
+}
@@ -26,6 +26,22 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private StoreType storeType = StoreType.BTREE;
+
+    /**
+     * The on-disk layout used to store the entries of the cache.
+     */
+    public enum StoreType {
+        /**
+         * A B-tree in a single file. Suitable for most caches.
+         */
+        BTREE,
+        /**
+         * An append-only log that is accessed through memory-mapped segments, with an index held in memory. The store stays open between units of work and its entries can be read without waiting for the cache access worker.
+         * Suitable for large caches that are read from many threads.
+         */
+        MEMORY_MAPPED
+    }
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +83,14 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
+
+    public StoreType getStoreType() {
+        return storeType;
+    }
+
+    public PersistentIndexedCacheParameters<K, V> storeType(StoreType storeType) {
+        assert storeType != null;
+        this.storeType = storeType;
+        return this;
+    }
 }
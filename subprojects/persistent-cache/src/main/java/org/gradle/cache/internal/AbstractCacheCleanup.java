@@ -72,7 +72,7 @@ public abstract class AbstractCacheCleanup implements CleanupAction {
         long removedSize = 0;
         for (File file : files) {
             try {
-                long size = file.length();
+                long size = sizeOf(file);
                 if (GFileUtils.deleteQuietly(file)) {
                     removedSize += size;
                 }
@@ -82,4 +82,8 @@ public abstract class AbstractCacheCleanup implements CleanupAction {
         }
         return removedSize;
     }
+
+    protected static long sizeOf(File file) {
+        return file.isDirectory() ? FileUtils.sizeOfDirectory(file) : file.length();
+    }
 }
@@ -20,13 +20,18 @@ import org.gradle.api.Transformer;
 import org.gradle.cache.AsyncCacheAccess;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
+import org.gradle.cache.internal.store.SharedIndexedCacheStore;
 import org.gradle.internal.Factory;
 
 import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
     private final AsyncCacheAccess asyncCacheAccess;
     private final MultiProcessSafePersistentIndexedCache<K, V> persistentCache;
+    // Updates that have been submitted but not yet applied, so that reads that do not go through the worker still see them
+    private final ConcurrentMap<K, PendingUpdate<V>> pendingUpdates = new ConcurrentHashMap<K, PendingUpdate<V>>();
 
     public AsyncCacheAccessDecoratedCache(AsyncCacheAccess asyncCacheAccess, MultiProcessSafePersistentIndexedCache<K, V> persistentCache) {
         this.asyncCacheAccess = asyncCacheAccess;
@@ -41,6 +46,16 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     @Nullable
     @Override
     public V get(final K key) {
+        if (persistentCache instanceof ConcurrentlyReadablePersistentIndexedCache) {
+            SharedIndexedCacheStore<K, V> store = ((ConcurrentlyReadablePersistentIndexedCache<K, V>) persistentCache).getConcurrentlyReadableStore();
+            if (store != null) {
+                PendingUpdate<V> pendingUpdate = pendingUpdates.get(key);
+                if (pendingUpdate != null) {
+                    return pendingUpdate.value;
+                }
+                return store.get(key);
+            }
+        }
         return asyncCacheAccess.read(new Factory<V>() {
             @Override
             public V create() {
@@ -56,12 +71,15 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
 
     @Override
     public void putLater(final K key, final V value, final Runnable completion) {
+        final PendingUpdate<V> pendingUpdate = new PendingUpdate<V>(value);
+        pendingUpdates.put(key, pendingUpdate);
         asyncCacheAccess.enqueue(new Runnable() {
             @Override
             public void run() {
                 try {
                     persistentCache.put(key, value);
                 } finally {
+                    pendingUpdates.remove(key, pendingUpdate);
                     completion.run();
                 }
             }
@@ -70,12 +88,15 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
 
     @Override
     public void removeLater(final K key, final Runnable completion) {
+        final PendingUpdate<V> pendingUpdate = new PendingUpdate<V>(null);
+        pendingUpdates.put(key, pendingUpdate);
         asyncCacheAccess.enqueue(new Runnable() {
             @Override
             public void run() {
                 try {
                     persistentCache.remove(key);
                 } finally {
+                    pendingUpdates.remove(key, pendingUpdate);
                     completion.run();
                 }
             }
@@ -96,4 +117,13 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     public void beforeLockRelease(FileLock.State currentCacheState) {
         persistentCache.beforeLockRelease(currentCacheState);
     }
+
+    private static class PendingUpdate<V> {
+        @Nullable
+        final V value;
+
+        PendingUpdate(@Nullable V value) {
+            this.value = value;
+        }
+    }
 }
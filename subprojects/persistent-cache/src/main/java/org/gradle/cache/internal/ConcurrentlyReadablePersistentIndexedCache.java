@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
+import org.gradle.cache.internal.store.SharedIndexedCacheStore;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MultiProcessSafePersistentIndexedCache} whose entries can sometimes be read by any thread, without taking ownership of the cache.
+ */
+public interface ConcurrentlyReadablePersistentIndexedCache<K, V> extends MultiProcessSafePersistentIndexedCache<K, V> {
+    /**
+     * Returns the store to read entries from on the calling thread, or null when they need to be read while owning the cache. The store can only be
+     * read concurrently when it supports concurrent reads, is open, and this process holds the file lock.
+     */
+    @Nullable
+    SharedIndexedCacheStore<K, V> getConcurrentlyReadableStore();
+}
@@ -30,6 +30,8 @@ import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
+import org.gradle.cache.internal.store.IndexedCacheStore;
+import org.gradle.cache.internal.store.MappedPersistentIndexedCache;
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
@@ -174,10 +176,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
                     LOG.debug("Cache {} could not run cleanup action {}", cacheDisplayName, cleanupAction);
                 }
             }
+            cleanupIndexedCaches();
             if (fileLockHeldByOwner != null) {
                 fileLockHeldByOwner.run();
             }
             crossProcessCacheAccess.close();
+            for (IndexedCacheEntry<?, ?> entry : caches.values()) {
+                entry.getStore().close();
+            }
             if (cacheClosedCount != 1) {
                 LOG.debug("Cache {} was closed {} times.", cacheDisplayName, cacheClosedCount);
             }
@@ -188,6 +194,34 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
     }
 
+    /**
+     * Removes garbage from the stores that are kept open between units of work, taking the file lock only when some store needs it.
+     */
+    private void cleanupIndexedCaches() {
+        final List<DefaultMultiProcessSafePersistentIndexedCache<?, ?>> stores = new ArrayList<DefaultMultiProcessSafePersistentIndexedCache<?, ?>>();
+        for (IndexedCacheEntry<?, ?> entry : caches.values()) {
+            if (entry.getStore().requiresCleanup()) {
+                stores.add(entry.getStore());
+            }
+        }
+        if (stores.isEmpty()) {
+            return;
+        }
+        try {
+            crossProcessCacheAccess.withFileLock(new Factory<Void>() {
+                @Override
+                public Void create() {
+                    for (DefaultMultiProcessSafePersistentIndexedCache<?, ?> store : stores) {
+                        store.cleanup();
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            LOG.debug("Cache {} could not clean up indexed caches.", cacheDisplayName, e);
+        }
+    }
+
     @Override
     public <T> T withFileLock(Factory<? extends T> action) {
         return crossProcessCacheAccess.withFileLock(action);
@@ -282,15 +316,20 @@ public class DefaultCacheAccess implements CacheCoordinator {
         IndexedCacheEntry<K, V> entry = Cast.uncheckedCast(caches.get(parameters.getCacheName()));
         try {
             if (entry == null) {
-                final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+                final boolean memoryMapped = parameters.getStoreType() == PersistentIndexedCacheParameters.StoreType.MEMORY_MAPPED;
+                final File cacheFile = new File(baseDir, parameters.getCacheName() + (memoryMapped ? ".map" : ".bin"));
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-                    public BTreePersistentIndexedCache<K, V> create() {
+                Factory<IndexedCacheStore<K, V>> indexedCacheFactory = new Factory<IndexedCacheStore<K, V>>() {
+                    public IndexedCacheStore<K, V> create() {
+                        if (memoryMapped) {
+                            return new MappedPersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                        }
                         return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
                     }
                 };
 
-                MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+                DefaultMultiProcessSafePersistentIndexedCache<K, V> store = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+                MultiProcessSafePersistentIndexedCache<K, V> indexedCache = store;
                 CacheDecorator decorator = parameters.getCacheDecorator();
                 if (decorator != null) {
                     indexedCache = decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache, crossProcessCacheAccess, getCacheAccessWorker());
@@ -298,7 +337,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         useCache(NO_OP);
                     }
                 }
-                entry = new IndexedCacheEntry<K, V>(parameters, indexedCache);
+                entry = new IndexedCacheEntry<K, V>(parameters, indexedCache, store);
                 caches.put(parameters.getCacheName(), entry);
                 if (fileLock != null) {
                     indexedCache.afterLockAcquire(stateAtOpen);
@@ -422,17 +461,23 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
     private static class IndexedCacheEntry<K, V> {
         private final MultiProcessSafePersistentIndexedCache<K, V> cache;
+        private final DefaultMultiProcessSafePersistentIndexedCache<K, V> store;
         private final PersistentIndexedCacheParameters<K, V> parameters;
 
-        IndexedCacheEntry(PersistentIndexedCacheParameters<K, V> parameters, MultiProcessSafePersistentIndexedCache<K, V> cache) {
+        IndexedCacheEntry(PersistentIndexedCacheParameters<K, V> parameters, MultiProcessSafePersistentIndexedCache<K, V> cache, DefaultMultiProcessSafePersistentIndexedCache<K, V> store) {
             this.parameters = parameters;
             this.cache = cache;
+            this.store = store;
         }
 
         public MultiProcessSafePersistentIndexedCache<K, V> getCache() {
             return cache;
         }
 
+        public DefaultMultiProcessSafePersistentIndexedCache<K, V> getStore() {
+            return store;
+        }
+
         public PersistentIndexedCacheParameters<K, V> getParameters() {
             return parameters;
         }
@@ -444,6 +489,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
             checkCompatibleKeySerializer(faultMessages, parameters.getKeySerializer());
             checkCompatibleValueSerializer(faultMessages, parameters.getValueSerializer());
             checkCompatibleCacheDecorator(faultMessages, parameters.getCacheDecorator());
+            checkCompatibleStoreType(faultMessages, parameters.getStoreType());
 
             if (!faultMessages.isEmpty()) {
                 String lineSeparator = SystemProperties.getInstance().getLineSeparator();
@@ -486,6 +532,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         cacheDecorator, parameters.getCacheDecorator()));
             }
         }
+
+        private void checkCompatibleStoreType(Collection<String> faultMessages, PersistentIndexedCacheParameters.StoreType storeType) {
+            if (storeType != parameters.getStoreType()) {
+                faultMessages.add(
+                    String.format(" * Requested store type (%s) doesn't match current store type (%s)",
+                        storeType, parameters.getStoreType()));
+            }
+        }
     }
 
     private static class InvalidCacheReuseException extends GradleException {
@@ -20,15 +20,19 @@ import org.gradle.cache.FileAccess;
 import org.gradle.cache.FileIntegrityViolationException;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.store.IndexedCacheStore;
+import org.gradle.cache.internal.store.SharedIndexedCacheStore;
 import org.gradle.internal.Factory;
 
-public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
+import javax.annotation.Nullable;
+
+public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements ConcurrentlyReadablePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
-    private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Factory<? extends IndexedCacheStore<K, V>> factory;
+    private volatile IndexedCacheStore<K, V> cache;
+    private volatile boolean lockHeld;
 
-    public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<? extends IndexedCacheStore<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
         this.fileAccess = fileAccess;
     }
@@ -40,7 +44,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public V get(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final IndexedCacheStore<K, V> cache = getCache();
         try {
             return fileAccess.readFile(new Factory<V>() {
                 public V create() {
@@ -52,6 +56,17 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         }
     }
 
+    @Nullable
+    @Override
+    public SharedIndexedCacheStore<K, V> getConcurrentlyReadableStore() {
+        // Read the field once, as the store can be closed concurrently
+        IndexedCacheStore<K, V> cache = this.cache;
+        if (lockHeld && cache instanceof SharedIndexedCacheStore) {
+            return (SharedIndexedCacheStore<K, V>) cache;
+        }
+        return null;
+    }
+
     @Override
     public V get(K key, Transformer<? extends V, ? super K> producer) {
         V value = get(key);
@@ -64,7 +79,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void put(final K key, final V value) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final IndexedCacheStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -76,7 +91,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void remove(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final IndexedCacheStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -88,11 +103,16 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void afterLockAcquire(FileLock.State currentCacheState) {
+        if (cache instanceof SharedIndexedCacheStore) {
+            ((SharedIndexedCacheStore<K, V>) cache).refresh();
+        }
+        lockHeld = true;
     }
 
     @Override
     public void finishWork() {
-        if (cache != null) {
+        lockHeld = false;
+        if (cache != null && !(cache instanceof SharedIndexedCacheStore)) {
             try {
                 fileAccess.writeFile(new Runnable() {
                     public void run() {
@@ -109,7 +129,41 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
     public void beforeLockRelease(FileLock.State currentCacheState) {
     }
 
-    private BTreePersistentIndexedCache<K, V> getCache() {
+    /**
+     * Returns true when the store is kept open between units of work and contains enough garbage to be worth cleaning up.
+     */
+    public boolean requiresCleanup() {
+        IndexedCacheStore<K, V> cache = this.cache;
+        return cache instanceof SharedIndexedCacheStore && ((SharedIndexedCacheStore<K, V>) cache).requiresCleanup();
+    }
+
+    /**
+     * Removes garbage from a store that is kept open between units of work. Must be called while holding the file lock.
+     */
+    public void cleanup() {
+        if (cache instanceof SharedIndexedCacheStore) {
+            final SharedIndexedCacheStore<K, V> cache = (SharedIndexedCacheStore<K, V>) this.cache;
+            fileAccess.writeFile(new Runnable() {
+                public void run() {
+                    cache.cleanup();
+                }
+            });
+        }
+    }
+
+    /**
+     * Closes a store that is kept open between units of work. Stores that are not are closed at the end of each unit of work.
+     */
+    public void close() {
+        IndexedCacheStore<K, V> cache = this.cache;
+        if (cache instanceof SharedIndexedCacheStore) {
+            // Stop handing out the store for concurrent reads before closing it
+            this.cache = null;
+            cache.close();
+        }
+    }
+
+    private IndexedCacheStore<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
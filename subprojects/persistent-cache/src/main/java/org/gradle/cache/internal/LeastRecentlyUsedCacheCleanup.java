@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.PersistentCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes any cache entries older than a given age and, when the remaining entries are larger than a given size,
+ * the least recently used entries until the cache fits. Entries used since {@link #getInUseSince()} are not deleted to make the cache fit.
+ * The last modified time of an entry is used as its last access time.
+ */
+public class LeastRecentlyUsedCacheCleanup extends AbstractCacheCleanup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeastRecentlyUsedCacheCleanup.class);
+
+    private final long createdTime;
+    private final long minimumTimestamp;
+    private final long maxSizeInBytes;
+
+    /**
+     * @param ageInDays entries not used for this number of days are deleted
+     * @param maxSizeInBytes the maximum size of the entries that are kept, or {@link Long#MAX_VALUE} for no limit
+     */
+    public LeastRecentlyUsedCacheCleanup(long ageInDays, long maxSizeInBytes) {
+        this.createdTime = System.currentTimeMillis();
+        this.minimumTimestamp = Math.max(0, createdTime - TimeUnit.DAYS.toMillis(ageInDays));
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    @Override
+    protected List<File> findFilesToDelete(PersistentCache persistentCache, File[] filesEligibleForCleanup) {
+        LOGGER.info("{} remove files older than {} or exceeding {}.", persistentCache, new Date(minimumTimestamp), maxSizeInBytes == Long.MAX_VALUE ? "no size limit" : FileUtils.byteCountToDisplaySize(maxSizeInBytes));
+
+        // Most recently used first
+        List<EntryAccess> entries = Lists.newArrayListWithCapacity(filesEligibleForCleanup.length);
+        for (File file : filesEligibleForCleanup) {
+            entries.add(new EntryAccess(file, file.lastModified()));
+        }
+        Collections.sort(entries, Collections.reverseOrder(EntryAccess.BY_LAST_ACCESS));
+
+        List<File> filesForDeletion = Lists.newArrayList();
+        long inUseSince = getInUseSince();
+        long retainedSize = 0;
+        boolean full = false;
+        for (EntryAccess entry : entries) {
+            if (entry.lastAccess < minimumTimestamp) {
+                filesForDeletion.add(entry.file);
+                continue;
+            }
+            if (maxSizeInBytes == Long.MAX_VALUE) {
+                continue;
+            }
+            boolean inUse = entry.lastAccess >= inUseSince;
+            if (full && !inUse) {
+                filesForDeletion.add(entry.file);
+                continue;
+            }
+            long size = sizeOf(entry.file);
+            if (!inUse && retainedSize + size > maxSizeInBytes) {
+                // Everything used less recently than this entry goes as well
+                full = true;
+                filesForDeletion.add(entry.file);
+                continue;
+            }
+            retainedSize += size;
+        }
+        return filesForDeletion;
+    }
+
+    /**
+     * Returns the time since which entries may be in use, such as the start of the current build. Defaults to the time this cleanup was created.
+     */
+    protected long getInUseSince() {
+        return createdTime;
+    }
+
+    private static class EntryAccess {
+        private static final Comparator<EntryAccess> BY_LAST_ACCESS = new Comparator<EntryAccess>() {
+            @Override
+            public int compare(EntryAccess o1, EntryAccess o2) {
+                return o1.lastAccess < o2.lastAccess ? -1 : (o1.lastAccess == o2.lastAccess ? 0 : 1);
+            }
+        };
+
+        private final File file;
+        private final long lastAccess;
+
+        EntryAccess(File file, long lastAccess) {
+            this.file = file;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
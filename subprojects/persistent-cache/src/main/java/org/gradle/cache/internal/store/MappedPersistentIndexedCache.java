@@ -0,0 +1,507 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.store;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An {@link IndexedCacheStore} that appends entries to a log file, which is read and written through memory-mapped segments.
+ *
+ * <p>The location of the most recent record for each key is held in an in-memory index, which is built by reading the file when the store is opened.
+ * The store stays open while the file lock is released, and only reads the records that other processes appended in the meantime when it is refreshed.
+ * Any number of threads can read concurrently with each other and with a single writer. Writes are serialized.</p>
+ *
+ * <p>Replacing or removing an entry leaves the previous record behind as garbage. Cleaning up the store writes the live records to a new file,
+ * which replaces the cache file, and marks the previous file as obsolete so that other processes that still have it mapped reopen the store when refreshed.
+ * The file is never truncated in place, as other processes may have it mapped.</p>
+ *
+ * <p>Each record consists of a type byte, the length of the serialized key and value, and the serialized key and value. The type byte is written last,
+ * and every record is followed by an end marker, so that a partially written record is never read back.</p>
+ */
+public class MappedPersistentIndexedCache<K, V> implements SharedIndexedCacheStore<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedPersistentIndexedCache.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    private static final int MAGIC = 0x474d4943;
+    private static final int VERSION = 2;
+    private static final int LIVE = 0;
+    private static final int OBSOLETE = 1;
+    private static final int STATE_OFFSET = 8;
+    private static final int FILE_HEADER_SIZE = 12;
+    private static final int RECORD_HEADER_SIZE = 9;
+    private static final byte END = 0;
+    private static final byte ENTRY = 1;
+    private static final byte REMOVED = 2;
+
+    private final File cacheFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int segmentSize;
+    private final ConcurrentMap<Long, Long> index = new ConcurrentHashMap<Long, Long>();
+    // Held by writers and while refreshing
+    private final Lock writeLock = new ReentrantLock();
+    // Held for reading while the segments are accessed, and for writing while they are unmapped
+    private final ReadWriteLock mappingLock = new ReentrantReadWriteLock();
+    private volatile MappedByteBuffer[] segments;
+    private RandomAccessFile file;
+    private volatile long writePosition;
+    private volatile long garbageBytes;
+
+    public MappedPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(cacheFile, keySerializer, valueSerializer, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, int segmentSize) {
+        this.cacheFile = cacheFile;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.segmentSize = segmentSize;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + cacheFile.getName() + " (" + cacheFile + ")";
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        file = new RandomAccessFile(cacheFile, "rw");
+        if (!hasValidHeader()) {
+            if (file.length() > 0) {
+                LOGGER.warn("{} is corrupt. Discarding.", this);
+            }
+            // Write an end marker after the header rather than truncating, so that any previous content is never read back
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE + 1);
+            header.putInt(MAGIC).putInt(VERSION).putInt(LIVE).put(END);
+            file.seek(0);
+            file.write(header.array());
+        }
+        index.clear();
+        garbageBytes = 0;
+        writePosition = FILE_HEADER_SIZE;
+        segments = new MappedByteBuffer[0];
+        readRecords();
+    }
+
+    private boolean hasValidHeader() throws IOException {
+        if (file.length() < FILE_HEADER_SIZE) {
+            return false;
+        }
+        file.seek(0);
+        return file.readInt() == MAGIC && file.readInt() == VERSION && file.readInt() == LIVE;
+    }
+
+    /**
+     * Adds the records from the current write position up to the end marker to the index, mapping the whole file first.
+     */
+    private void readRecords() throws IOException {
+        ensureCapacity(Math.max(file.getChannel().size(), writePosition + 1));
+        MappedByteBuffer[] segments = getSegments();
+        long limit = (long) segments.length * segmentSize;
+        long position = writePosition;
+        byte[] header = new byte[RECORD_HEADER_SIZE];
+        while (position + RECORD_HEADER_SIZE < limit) {
+            read(segments, position, header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            byte type = headerBuffer.get(0);
+            if (type != ENTRY && type != REMOVED) {
+                if (type != END) {
+                    LOGGER.warn("{} is corrupt. Discarding entries from offset {}.", this, position);
+                }
+                break;
+            }
+            int keyLength = headerBuffer.getInt(1);
+            int valueLength = headerBuffer.getInt(5);
+            long recordSize = RECORD_HEADER_SIZE + (long) keyLength + valueLength;
+            if (keyLength < 0 || valueLength < 0 || position + recordSize >= limit) {
+                LOGGER.warn("{} is corrupt. Discarding entries from offset {}.", this, position);
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            read(segments, position + RECORD_HEADER_SIZE, keyBytes);
+            updateIndex(type, hash(keyBytes), position, recordSize);
+            position += recordSize;
+        }
+        writePosition = position;
+    }
+
+    private void updateIndex(byte type, long keyHash, long position, long recordSize) {
+        Long previous = type == ENTRY ? index.put(keyHash, position) : index.remove(keyHash);
+        long garbage = garbageBytes;
+        if (previous != null) {
+            garbage += recordSize(previous);
+        }
+        if (type == REMOVED) {
+            garbage += recordSize;
+        }
+        garbageBytes = garbage;
+    }
+
+    @Override
+    public void refresh() {
+        writeLock.lock();
+        try {
+            MappedByteBuffer[] segments = getSegments();
+            byte[] state = new byte[4];
+            read(segments, STATE_OFFSET, state);
+            if (ByteBuffer.wrap(state).getInt() == OBSOLETE) {
+                LOGGER.debug("{} has been replaced by another process. Reopening.", this);
+                reopen();
+            } else {
+                readRecords();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not refresh %s.", this), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean requiresCleanup() {
+        long garbage = garbageBytes;
+        return garbage > segmentSize && garbage > writePosition - FILE_HEADER_SIZE - garbage;
+    }
+
+    /**
+     * Copies the live records into a new file, replaces the cache file with it and marks the previous file as obsolete.
+     */
+    @Override
+    public void cleanup() {
+        writeLock.lock();
+        try {
+            if (!requiresCleanup()) {
+                return;
+            }
+            LOGGER.debug("Compacting {}", this);
+            MappedByteBuffer[] segments = getSegments();
+            List<Long> positions = new ArrayList<Long>(index.values());
+            Collections.sort(positions);
+            File compactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact");
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedFile)));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(LIVE);
+                for (Long position : positions) {
+                    byte[] record = new byte[(int) recordSize(position)];
+                    read(segments, position, record);
+                    output.write(record);
+                }
+                output.write(END);
+            } finally {
+                output.close();
+            }
+            if (!compactedFile.renameTo(cacheFile)) {
+                // The file cannot be replaced while it is mapped on some platforms
+                LOGGER.debug("Could not replace {} with compacted file.", this);
+                compactedFile.delete();
+                return;
+            }
+            write(segments, STATE_OFFSET, ByteBuffer.allocate(4).putInt(OBSOLETE).array());
+            reopen();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not compact %s.", this), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            long keyHash = hash(keyBytes);
+            mappingLock.readLock().lock();
+            try {
+                // Look up the position before reading the segments, as the segments are extended before a record is added to the index
+                Long position = index.get(keyHash);
+                if (position == null) {
+                    return null;
+                }
+                MappedByteBuffer[] segments = getSegments();
+                if (position + RECORD_HEADER_SIZE > (long) segments.length * segmentSize) {
+                    segments = getSegments();
+                }
+                byte[] header = new byte[RECORD_HEADER_SIZE];
+                read(segments, position, header);
+                ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+                byte[] storedKeyBytes = new byte[headerBuffer.getInt(1)];
+                read(segments, position + RECORD_HEADER_SIZE, storedKeyBytes);
+                if (!Arrays.equals(keyBytes, storedKeyBytes)) {
+                    // Hash collision with another key
+                    return null;
+                }
+                byte[] valueBytes = new byte[headerBuffer.getInt(5)];
+                read(segments, position + RECORD_HEADER_SIZE + storedKeyBytes.length, valueBytes);
+                return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(valueBytes)));
+            } finally {
+                mappingLock.readLock().unlock();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            writeLock.lock();
+            try {
+                append(ENTRY, keyBytes, valueBytes);
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            writeLock.lock();
+            try {
+                if (index.containsKey(hash(keyBytes))) {
+                    append(REMOVED, keyBytes, new byte[0]);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        writeLock.lock();
+        try {
+            unmap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Unmaps the segments and maps the file again as one step, so that readers never see the store without segments.
+     */
+    private void reopen() throws IOException {
+        mappingLock.writeLock().lock();
+        try {
+            unmapSegments();
+            open();
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Unmaps the segments once no thread is reading them, as accessing an unmapped buffer crashes the JVM, and closes the file.
+     */
+    private void unmap() throws IOException {
+        mappingLock.writeLock().lock();
+        try {
+            unmapSegments();
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
+    private void unmapSegments() throws IOException {
+        MappedByteBuffer[] segments = this.segments;
+        this.segments = null;
+        index.clear();
+        if (segments != null) {
+            for (MappedByteBuffer segment : segments) {
+                BufferUnmapper.unmap(segment);
+            }
+        }
+        if (file != null) {
+            file.close();
+            file = null;
+        }
+    }
+
+    private void append(byte type, byte[] keyBytes, byte[] valueBytes) throws IOException {
+        long position = writePosition;
+        int recordSize = RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length;
+        ensureCapacity(position + recordSize + 1);
+        MappedByteBuffer[] segments = getSegments();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.put(END).putInt(keyBytes.length).putInt(valueBytes.length);
+        write(segments, position, header.array());
+        write(segments, position + RECORD_HEADER_SIZE, keyBytes);
+        write(segments, position + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+        write(segments, position + recordSize, new byte[]{END});
+        write(segments, position, new byte[]{type});
+        writePosition = position + recordSize;
+        updateIndex(type, hash(keyBytes), position, recordSize);
+    }
+
+    private long recordSize(long position) {
+        byte[] header = new byte[RECORD_HEADER_SIZE];
+        read(getSegments(), position, header);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        return RECORD_HEADER_SIZE + (long) headerBuffer.getInt(1) + headerBuffer.getInt(5);
+    }
+
+    private void ensureCapacity(long capacity) throws IOException {
+        MappedByteBuffer[] current = getSegments();
+        int required = (int) ((capacity + segmentSize - 1) / segmentSize);
+        if (required <= current.length) {
+            return;
+        }
+        MappedByteBuffer[] extended = Arrays.copyOf(current, required);
+        FileChannel channel = file.getChannel();
+        for (int i = current.length; i < required; i++) {
+            extended[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+        }
+        segments = extended;
+    }
+
+    private MappedByteBuffer[] getSegments() {
+        MappedByteBuffer[] segments = this.segments;
+        if (segments == null) {
+            throw new IllegalStateException(String.format("%s has been closed.", this));
+        }
+        return segments;
+    }
+
+    private void read(MappedByteBuffer[] segments, long position, byte[] destination) {
+        int offset = 0;
+        while (offset < destination.length) {
+            int segmentOffset = (int) (position % segmentSize);
+            int count = Math.min(destination.length - offset, segmentSize - segmentOffset);
+            ByteBuffer buffer = segments[(int) (position / segmentSize)].duplicate();
+            buffer.position(segmentOffset);
+            buffer.get(destination, offset, count);
+            offset += count;
+            position += count;
+        }
+    }
+
+    private void write(MappedByteBuffer[] segments, long position, byte[] source) {
+        int offset = 0;
+        while (offset < source.length) {
+            int segmentOffset = (int) (position % segmentSize);
+            int count = Math.min(source.length - offset, segmentSize - segmentOffset);
+            ByteBuffer buffer = segments[(int) (position / segmentSize)].duplicate();
+            buffer.position(segmentOffset);
+            buffer.put(source, offset, count);
+            offset += count;
+            position += count;
+        }
+    }
+
+    private static <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(bytes);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return bytes.toByteArray();
+    }
+
+    private static long hash(byte[] keyBytes) {
+        return ByteBuffer.wrap(Hashing.murmur3_128().hashBytes(keyBytes).toByteArray()).getLong();
+    }
+
+    /**
+     * Releases the memory of a mapped buffer without waiting for it to be garbage collected, which otherwise keeps the file open and locked on some platforms.
+     */
+    private static class BufferUnmapper {
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafe = theUnsafe.get(null);
+            } catch (Exception e) {
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        static void unmap(MappedByteBuffer buffer) {
+            try {
+                if (INVOKE_CLEANER != null) {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                } else {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                }
+            } catch (Exception e) {
+                // Leave the buffer to be released when it is garbage collected
+                LOGGER.debug("Could not unmap buffer.", e);
+            }
+        }
+    }
+}
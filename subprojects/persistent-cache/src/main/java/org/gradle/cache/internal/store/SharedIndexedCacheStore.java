@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.store;
+
+/**
+ * An {@link IndexedCacheStore} that can stay open while the file lock is not held, and whose entries can be read by any number of threads concurrently.
+ */
+public interface SharedIndexedCacheStore<K, V> extends IndexedCacheStore<K, V> {
+    /**
+     * Reads the changes that other processes made to the store since it was last used. Called after the file lock has been acquired.
+     */
+    void refresh();
+
+    /**
+     * Returns true when the store contains enough garbage to be worth cleaning up.
+     */
+    boolean requiresCleanup();
+
+    /**
+     * Removes garbage from the store. Called while holding the file lock.
+     */
+    void cleanup();
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import org.gradle.cache.PersistentCache
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.util.concurrent.TimeUnit
+
+@Subject(LeastRecentlyUsedCacheCleanup)
+class LeastRecentlyUsedCacheCleanupTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheDir = temporaryFolder.file("cache-dir").createDir()
+    def persistentCache = Mock(PersistentCache)
+
+    def "finds files to delete when files are old"() {
+        def cleanupAction = new LeastRecentlyUsedCacheCleanup(1, Long.MAX_VALUE)
+        long now = System.currentTimeMillis()
+        def cacheEntries = [
+            createCacheEntry(1024, now),
+            createCacheEntry(1024, now - TimeUnit.DAYS.toMillis(5)),
+            createCacheEntry(1024, now - TimeUnit.HOURS.toMillis(5)),
+        ]
+
+        expect:
+        def filesToDelete = cleanupAction.findFilesToDelete(persistentCache, cacheEntries as File[])
+        filesToDelete == [cacheEntries[1]]
+    }
+
+    def "deletes least recently used files when cache is too large"() {
+        def cleanupAction = new LeastRecentlyUsedCacheCleanup(7, 2500)
+        long now = System.currentTimeMillis()
+        def cacheEntries = [
+            createCacheEntry(1024, now - TimeUnit.HOURS.toMillis(3)),
+            createCacheEntry(1024, now),
+            createCacheEntry(1024, now - TimeUnit.HOURS.toMillis(1)),
+            createCacheEntry(1024, now - TimeUnit.HOURS.toMillis(2)),
+        ]
+
+        expect:
+        def filesToDelete = cleanupAction.findFilesToDelete(persistentCache, cacheEntries as File[])
+        filesToDelete as Set == [cacheEntries[0], cacheEntries[3]] as Set
+    }
+
+    def "counts the contents of directory entries towards the cache size"() {
+        def cleanupAction = new LeastRecentlyUsedCacheCleanup(7, 1500)
+        long now = System.currentTimeMillis()
+        def newer = createDirectoryEntry(1024, now)
+        def older = createDirectoryEntry(1024, now - TimeUnit.HOURS.toMillis(1))
+
+        expect:
+        cleanupAction.findFilesToDelete(persistentCache, [older, newer] as File[]) == [older]
+    }
+
+    def "keeps files that may be in use when cache is too large"() {
+        long now = System.currentTimeMillis()
+        def cleanupAction = new LeastRecentlyUsedCacheCleanup(7, 1500) {
+            @Override
+            protected long getInUseSince() {
+                return now - TimeUnit.HOURS.toMillis(2)
+            }
+        }
+        def cacheEntries = [
+            createCacheEntry(1024, now),
+            createCacheEntry(1024, now - TimeUnit.HOURS.toMillis(1)),
+            createCacheEntry(1024, now - TimeUnit.HOURS.toMillis(3)),
+        ]
+
+        expect:
+        cleanupAction.findFilesToDelete(persistentCache, cacheEntries as File[]) == [cacheEntries[2]]
+    }
+
+    def "finds no files to delete when files are new and cache is small enough"() {
+        def cleanupAction = new LeastRecentlyUsedCacheCleanup(1, 4096)
+        long now = System.currentTimeMillis()
+        def cacheEntries = [
+            createCacheEntry(1024, now),
+            createCacheEntry(1024, now - TimeUnit.MINUTES.toMillis(15)),
+            createCacheEntry(1024, now - TimeUnit.HOURS.toMillis(5)),
+        ]
+
+        expect:
+        cleanupAction.findFilesToDelete(persistentCache, cacheEntries as File[]).empty
+    }
+
+    private Random r = new Random()
+    def createCacheEntry(int size=1024, long timestamp=0) {
+        def cacheEntry = cacheDir.file(String.format("%032x", r.nextInt()))
+        def data = new byte[size]
+        r.nextBytes(data)
+        cacheEntry.bytes = data
+        cacheEntry.lastModified = timestamp
+        return cacheEntry
+    }
+
+    def createDirectoryEntry(int size, long timestamp) {
+        def cacheEntry = cacheDir.file(String.format("%032x", r.nextInt())).createDir()
+        def data = new byte[size]
+        r.nextBytes(data)
+        cacheEntry.file("content").bytes = data
+        cacheEntry.lastModified = timestamp
+        return cacheEntry
+    }
+}
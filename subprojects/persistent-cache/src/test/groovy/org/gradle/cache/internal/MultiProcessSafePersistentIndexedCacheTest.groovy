@@ -17,6 +17,7 @@ package org.gradle.cache.internal
 
 import org.gradle.cache.FileAccess
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
+import org.gradle.cache.internal.store.SharedIndexedCacheStore
 import org.gradle.internal.Factory
 import spock.lang.Specification
 
@@ -129,6 +130,87 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "keeps shared store open at the end of unit of work and refreshes it when lock is acquired"() {
+        given:
+        def sharedCache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
+        SharedIndexedCacheStore<String, String> sharedStore = Mock()
+        2 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * factory.create() >> sharedStore
+        sharedCache.put("key", "value")
+
+        when:
+        sharedCache.finishWork()
+        sharedCache.beforeLockRelease(null)
+
+        then:
+        0 * sharedStore.close()
+
+        when:
+        sharedCache.afterLockAcquire(null)
+
+        then:
+        1 * sharedStore.refresh()
+        0 * sharedStore.close()
+
+        when:
+        sharedCache.close()
+
+        then:
+        1 * sharedStore.close()
+    }
+
+    def "can read shared store concurrently only while lock is held"() {
+        given:
+        def sharedCache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
+        SharedIndexedCacheStore<String, String> sharedStore = Mock()
+        2 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * factory.create() >> sharedStore
+
+        expect:
+        sharedCache.concurrentlyReadableStore == null
+
+        when:
+        sharedCache.afterLockAcquire(null)
+        sharedCache.put("key", "value")
+
+        then:
+        sharedCache.concurrentlyReadableStore == sharedStore
+
+        when:
+        sharedCache.finishWork()
+
+        then:
+        sharedCache.concurrentlyReadableStore == null
+    }
+
+    def "cannot read shared store concurrently once closed"() {
+        given:
+        def sharedCache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
+        SharedIndexedCacheStore<String, String> sharedStore = Mock()
+        2 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * factory.create() >> sharedStore
+        sharedCache.afterLockAcquire(null)
+        sharedCache.put("key", "value")
+
+        when:
+        sharedCache.close()
+
+        then:
+        1 * sharedStore.close()
+        sharedCache.concurrentlyReadableStore == null
+    }
+
+    def "cannot read B-tree store concurrently"() {
+        given:
+        cacheOpened()
+
+        when:
+        cache.afterLockAcquire(null)
+
+        then:
+        cache.concurrentlyReadableStore == null
+    }
+
     def cacheOpened() {
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * factory.create() >> backingCache
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.store
+
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+class MappedPersistentIndexedCacheTest extends ConcurrentSpec {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def serializerFactory = new BaseSerializerFactory()
+    def cacheFile = tmpDir.file("cache.map")
+    MappedPersistentIndexedCache<String, String> cache
+
+    def setup() {
+        openCache()
+    }
+
+    def cleanup() {
+        cache.close()
+    }
+
+    def "returns null for unknown key"() {
+        expect:
+        cache.get("unknown") == null
+    }
+
+    def "can add, replace and remove entries"() {
+        when:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.put("a", "3")
+        cache.remove("b")
+
+        then:
+        cache.get("a") == "3"
+        cache.get("b") == null
+    }
+
+    def "entries survive reopening the cache"() {
+        given:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.remove("b")
+        cache.put("c", "3")
+
+        when:
+        reopenCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == null
+        cache.get("c") == "3"
+    }
+
+    def "entries can span multiple segments"() {
+        given:
+        def value = "x" * 1000
+        (1..20).each { cache.put("key" + it, value + it) }
+
+        when:
+        reopenCache()
+
+        then:
+        (1..20).each { assert cache.get("key" + it) == value + it }
+    }
+
+    def "cleanup compacts file with more garbage than live entries"() {
+        given:
+        (1..100).each { cache.put("key", "value" * 10 + it) }
+        cache.put("other", "value")
+        def sizeBefore = cacheFile.length()
+
+        expect:
+        cache.requiresCleanup()
+
+        when:
+        cache.cleanup()
+
+        then:
+        cacheFile.length() < sizeBefore
+        !cache.requiresCleanup()
+        cache.get("key") == "value" * 10 + 100
+        cache.get("other") == "value"
+
+        when:
+        cache.put("new", "value")
+        reopenCache()
+
+        then:
+        cache.get("key") == "value" * 10 + 100
+        cache.get("new") == "value"
+    }
+
+    def "does not compact file when opened"() {
+        given:
+        (1..100).each { cache.put("key", "value" * 10 + it) }
+        cache.close()
+        def sizeBefore = cacheFile.length()
+
+        when:
+        openCache()
+
+        then:
+        cacheFile.length() == sizeBefore
+        cache.requiresCleanup()
+    }
+
+    def "refresh reads entries written by another instance since it was last used"() {
+        given:
+        cache.put("a", "1")
+        def other = newCache()
+
+        when:
+        other.put("b", "2")
+        other.remove("a")
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == null
+
+        when:
+        cache.refresh()
+
+        then:
+        cache.get("a") == null
+        cache.get("b") == "2"
+
+        cleanup:
+        other?.close()
+    }
+
+    def "refresh reopens file after another instance compacted it"() {
+        given:
+        (1..100).each { cache.put("key", "value" * 10 + it) }
+        def other = newCache()
+        other.cleanup()
+        other.put("other", "value")
+
+        when:
+        cache.refresh()
+
+        then:
+        cache.get("key") == "value" * 10 + 100
+        cache.get("other") == "value"
+
+        when:
+        cache.put("new", "value")
+        other.refresh()
+
+        then:
+        other.get("new") == "value"
+
+        cleanup:
+        other?.close()
+    }
+
+    def "discards partially written entries at end of file"() {
+        given:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.close()
+        def raf = new RandomAccessFile(cacheFile, "rw")
+        raf.length = 12 + 9 + 2 + 2 + 5
+        raf.close()
+
+        when:
+        openCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == null
+
+        when:
+        cache.put("c", "3")
+        reopenCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("c") == "3"
+    }
+
+    def "discards file with unknown format"() {
+        given:
+        cache.close()
+        cacheFile.text = "not a cache file"
+
+        when:
+        openCache()
+        cache.put("a", "1")
+        reopenCache()
+
+        then:
+        cache.get("a") == "1"
+    }
+
+    def "can read concurrently while writing"() {
+        given:
+        (1..100).each { cache.put("key" + it, "value" + it) }
+
+        when:
+        async {
+            start {
+                (101..1000).each { cache.put("key" + it, "value" + it) }
+            }
+            4.times {
+                start {
+                    1000.times { i ->
+                        def key = (i % 100) + 1
+                        assert cache.get("key" + key) == "value" + key
+                    }
+                }
+            }
+        }
+        reopenCache()
+
+        then:
+        (1..1000).each { assert cache.get("key" + it) == "value" + it }
+    }
+
+    def "can read entries while they are added in new segments"() {
+        when:
+        async {
+            start {
+                (1..1000).each { cache.put("key" + it, "value" + it) }
+            }
+            4.times {
+                start {
+                    def key = 1
+                    while (key <= 1000) {
+                        def value = cache.get("key" + key)
+                        if (value != null) {
+                            assert value == "value" + key
+                            key++
+                        }
+                    }
+                }
+            }
+        }
+
+        then:
+        (1..1000).each { assert cache.get("key" + it) == "value" + it }
+    }
+
+    def "can read concurrently while reopening after another instance compacted the file"() {
+        given:
+        (1..100).each { cache.put("key", "value" * 10 + it) }
+        cache.put("other", "value")
+        def other = newCache()
+        other.cleanup()
+
+        when:
+        async {
+            start {
+                cache.refresh()
+            }
+            4.times {
+                start {
+                    1000.times {
+                        assert cache.get("other") == "value"
+                    }
+                }
+            }
+        }
+
+        then:
+        cache.get("key") == "value" * 10 + 100
+
+        cleanup:
+        other?.close()
+    }
+
+    def "cannot be used after it has been closed"() {
+        given:
+        cache.put("a", "1")
+        cache.close()
+
+        when:
+        cache.get("a")
+
+        then:
+        def e = thrown(Exception)
+        e.cause instanceof IllegalStateException
+
+        cleanup:
+        openCache()
+    }
+
+    private void reopenCache() {
+        cache.close()
+        openCache()
+    }
+
+    private void openCache() {
+        cache = newCache()
+    }
+
+    private MappedPersistentIndexedCache<String, String> newCache() {
+        return new MappedPersistentIndexedCache<String, String>(cacheFile, serializerFactory.getSerializerFor(String), serializerFactory.getSerializerFor(String), 256)
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.CallableBuildOperation;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Runs each new connection as a {@link HttpConnectBuildOperationType} build operation, so that the number of connections made to a host and the time taken to make them is visible.
+ */
+class BuildOperationFiringConnectionSocketFactory implements ConnectionSocketFactory {
+    private static final HttpConnectBuildOperationType.Result RESULT = new HttpConnectBuildOperationType.Result() {
+    };
+
+    private final ConnectionSocketFactory delegate;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final boolean secure;
+
+    private BuildOperationFiringConnectionSocketFactory(ConnectionSocketFactory delegate, BuildOperationExecutor buildOperationExecutor, boolean secure) {
+        this.delegate = delegate;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.secure = secure;
+    }
+
+    static ConnectionSocketFactory plain(ConnectionSocketFactory delegate, BuildOperationExecutor buildOperationExecutor) {
+        return new BuildOperationFiringConnectionSocketFactory(delegate, buildOperationExecutor, false);
+    }
+
+    static LayeredConnectionSocketFactory secure(LayeredConnectionSocketFactory delegate, BuildOperationExecutor buildOperationExecutor) {
+        return new Layered(delegate, buildOperationExecutor);
+    }
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(final int connectTimeout, final Socket sock, final HttpHost host, final InetSocketAddress remoteAddress, final InetSocketAddress localAddress, final HttpContext context) throws IOException {
+        try {
+            return buildOperationExecutor.call(new CallableBuildOperation<Socket>() {
+                @Override
+                public Socket call(BuildOperationContext buildOperationContext) {
+                    try {
+                        Socket socket = delegate.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+                        buildOperationContext.setResult(RESULT);
+                        return socket;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public BuildOperationDescriptor.Builder description() {
+                    return BuildOperationDescriptor.displayName("Connect to " + host.toURI())
+                        .details(new ConnectDetails(host.getHostName(), remoteAddress.getPort(), secure));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    private static class Layered extends BuildOperationFiringConnectionSocketFactory implements LayeredConnectionSocketFactory {
+        private final LayeredConnectionSocketFactory delegate;
+
+        Layered(LayeredConnectionSocketFactory delegate, BuildOperationExecutor buildOperationExecutor) {
+            super(delegate, buildOperationExecutor, true);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            return delegate.createLayeredSocket(socket, target, port, context);
+        }
+    }
+
+    private static class ConnectDetails implements HttpConnectBuildOperationType.Details {
+        private final String host;
+        private final int port;
+        private final boolean secure;
+
+        ConnectDetails(String host, int port, boolean secure) {
+            this.host = host;
+            this.port = port;
+            this.secure = secure;
+        }
+
+        @Override
+        public String getHost() {
+            return host;
+        }
+
+        @Override
+        public int getPort() {
+            return port;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return secure;
+        }
+    }
+}
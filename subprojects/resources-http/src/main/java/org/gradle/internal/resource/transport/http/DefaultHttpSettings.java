@@ -41,13 +41,15 @@ public class DefaultHttpSettings implements HttpSettings {
     private HttpProxySettings proxySettings;
     private HttpProxySettings secureProxySettings;
     private HttpTimeoutSettings timeoutSettings;
+    private HttpConnectionPoolSettings connectionPoolSettings;
 
     public static Builder builder() {
         return new Builder();
     }
 
-    private DefaultHttpSettings(Collection<Authentication> authenticationSettings, SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier, boolean followRedirects) {
+    private DefaultHttpSettings(Collection<Authentication> authenticationSettings, SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier, boolean followRedirects, HttpConnectionPoolSettings connectionPoolSettings) {
         this.followRedirects = followRedirects;
+        this.connectionPoolSettings = connectionPoolSettings;
         Preconditions.checkNotNull(authenticationSettings, "authenticationSettings");
         Preconditions.checkNotNull(sslContextFactory, "sslContextFactory");
         Preconditions.checkNotNull(hostnameVerifier, "hostnameVerifier");
@@ -81,6 +83,14 @@ public class DefaultHttpSettings implements HttpSettings {
         return timeoutSettings;
     }
 
+    @Override
+    public HttpConnectionPoolSettings getConnectionPoolSettings() {
+        if (connectionPoolSettings == null) {
+            connectionPoolSettings = new JavaSystemPropertiesHttpConnectionPoolSettings();
+        }
+        return connectionPoolSettings;
+    }
+
     @Override
     public boolean isFollowRedirects() {
         return followRedirects;
@@ -106,6 +116,7 @@ public class DefaultHttpSettings implements HttpSettings {
         private SslContextFactory sslContextFactory;
         private HostnameVerifier hostnameVerifier;
         private boolean followRedirects = true;
+        private HttpConnectionPoolSettings connectionPoolSettings;
 
         public Builder withAuthenticationSettings(Collection<Authentication> authenticationSettings) {
             this.authenticationSettings = authenticationSettings;
@@ -129,8 +140,13 @@ public class DefaultHttpSettings implements HttpSettings {
             return this;
         }
 
+        public Builder withConnectionPoolSettings(HttpConnectionPoolSettings connectionPoolSettings) {
+            this.connectionPoolSettings = connectionPoolSettings;
+            return this;
+        }
+
         public HttpSettings build() {
-            return new DefaultHttpSettings(authenticationSettings, sslContextFactory, hostnameVerifier, followRedirects);
+            return new DefaultHttpSettings(authenticationSettings, sslContextFactory, hostnameVerifier, followRedirects, connectionPoolSettings);
         }
     }
 
@@ -20,6 +20,7 @@ import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScheme;
 import org.apache.http.auth.AuthSchemeProvider;
 import org.apache.http.auth.AuthScope;
@@ -37,6 +38,10 @@ import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.DateUtils;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.util.PublicSuffixMatcher;
 import org.apache.http.conn.util.PublicSuffixMatcherLoader;
@@ -46,8 +51,10 @@ import org.apache.http.impl.auth.BasicSchemeFactory;
 import org.apache.http.impl.auth.DigestSchemeFactory;
 import org.apache.http.impl.auth.KerberosSchemeFactory;
 import org.apache.http.impl.auth.SPNegoSchemeFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.SystemDefaultCredentialsProvider;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
 import org.apache.http.impl.cookie.DefaultCookieSpecProvider;
 import org.apache.http.impl.cookie.IgnoreSpecProvider;
@@ -63,6 +70,7 @@ import org.gradle.authentication.http.DigestAuthentication;
 import org.gradle.internal.Cast;
 import org.gradle.internal.authentication.AllSchemesAuthentication;
 import org.gradle.internal.authentication.AuthenticationInternal;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.resource.UriTextResource;
 import org.gradle.internal.resource.transport.http.ntlm.NTLMCredentials;
 import org.gradle.internal.resource.transport.http.ntlm.NTLMSchemeFactory;
@@ -70,6 +78,7 @@ import org.gradle.util.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.net.ssl.HostnameVerifier;
 import java.io.IOException;
 import java.net.ProxySelector;
@@ -78,31 +87,64 @@ import java.util.Collections;
 
 public class HttpClientConfigurer {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientConfigurer.class);
-    private static final int MAX_HTTP_CONNECTIONS = 20;
     private final HttpSettings httpSettings;
+    private final BuildOperationExecutor buildOperationExecutor;
 
     public HttpClientConfigurer(HttpSettings httpSettings) {
+        this(httpSettings, null);
+    }
+
+    /**
+     * @param buildOperationExecutor when not null, each new connection is run as a {@link HttpConnectBuildOperationType} build operation.
+     */
+    public HttpClientConfigurer(HttpSettings httpSettings, @Nullable BuildOperationExecutor buildOperationExecutor) {
         this.httpSettings = httpSettings;
+        this.buildOperationExecutor = buildOperationExecutor;
     }
 
     public void configure(HttpClientBuilder builder) {
         SystemDefaultCredentialsProvider credentialsProvider = new SystemDefaultCredentialsProvider();
-        configureSslSocketConnectionFactory(builder, httpSettings.getSslContextFactory(), httpSettings.getHostnameVerifier());
+        configureConnectionManager(builder, httpSettings.getSslContextFactory(), httpSettings.getHostnameVerifier());
+        configureKeepAliveStrategy(builder);
         configureAuthSchemeRegistry(builder);
         configureCredentials(builder, credentialsProvider, httpSettings.getAuthenticationSettings());
         configureProxy(builder, credentialsProvider, httpSettings);
         configureUserAgent(builder);
         configureCookieSpecRegistry(builder);
         configureRequestConfig(builder);
-        configureSocketConfig(builder);
         configureRedirectStrategy(builder);
         builder.setDefaultCredentialsProvider(credentialsProvider);
-        builder.setMaxConnTotal(MAX_HTTP_CONNECTIONS);
-        builder.setMaxConnPerRoute(MAX_HTTP_CONNECTIONS);
     }
 
-    private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier) {
-        builder.setSSLSocketFactory(new SSLConnectionSocketFactory(sslContextFactory.createSslContext(), hostnameVerifier));
+    private void configureConnectionManager(HttpClientBuilder builder, SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier) {
+        ConnectionSocketFactory plainSocketFactory = PlainConnectionSocketFactory.getSocketFactory();
+        LayeredConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContextFactory.createSslContext(), hostnameVerifier);
+        if (buildOperationExecutor != null) {
+            plainSocketFactory = BuildOperationFiringConnectionSocketFactory.plain(plainSocketFactory, buildOperationExecutor);
+            sslSocketFactory = BuildOperationFiringConnectionSocketFactory.secure(sslSocketFactory, buildOperationExecutor);
+        }
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", plainSocketFactory)
+            .register("https", sslSocketFactory)
+            .build()
+        );
+        HttpConnectionPoolSettings poolSettings = httpSettings.getConnectionPoolSettings();
+        connectionManager.setMaxTotal(poolSettings.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(poolSettings.getMaxConnectionsPerRoute());
+        configureSocketConfig(connectionManager);
+        builder.setConnectionManager(connectionManager);
+    }
+
+    private void configureKeepAliveStrategy(HttpClientBuilder builder) {
+        final long keepAliveMs = httpSettings.getConnectionPoolSettings().getKeepAliveMs();
+        builder.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                // Use the keep alive advertised by the server when it is shorter, as the server will close the connection after that
+                long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return keepAlive > 0 ? Math.min(keepAlive, keepAliveMs) : keepAliveMs;
+            }
+        });
     }
 
     private void configureAuthSchemeRegistry(HttpClientBuilder builder) {
@@ -208,9 +250,9 @@ public class HttpClientConfigurer {
         builder.setDefaultRequestConfig(config);
     }
 
-    private void configureSocketConfig(HttpClientBuilder builder) {
+    private void configureSocketConfig(PoolingHttpClientConnectionManager connectionManager) {
         HttpTimeoutSettings timeoutSettings = httpSettings.getTimeoutSettings();
-        builder.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(timeoutSettings.getSocketTimeoutMs()).build());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(timeoutSettings.getSocketTimeoutMs()).build());
     }
 
     private PasswordCredentials getPasswordCredentials(Authentication authentication) {
@@ -33,9 +33,11 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Locale;
@@ -49,6 +51,7 @@ public class HttpClientHelper implements Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private CloseableHttpClient client;
     private final HttpSettings settings;
+    private final BuildOperationExecutor buildOperationExecutor;
 
     /**
      * Maintains a queue of contexts which are shared between threads when authentication
@@ -60,7 +63,15 @@ public class HttpClientHelper implements Closeable {
     private final ConcurrentLinkedQueue<HttpContext> sharedContext;
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * @param buildOperationExecutor when not null, each new connection is run as a {@link HttpConnectBuildOperationType} build operation.
+     */
+    public HttpClientHelper(HttpSettings settings, @Nullable BuildOperationExecutor buildOperationExecutor) {
         this.settings = settings;
+        this.buildOperationExecutor = buildOperationExecutor;
         if (!settings.getAuthenticationSettings().isEmpty()) {
             sharedContext = new ConcurrentLinkedQueue<HttpContext>();
         } else {
@@ -164,7 +175,7 @@ public class HttpClientHelper implements Closeable {
     private synchronized CloseableHttpClient getClient() {
         if (client == null) {
             HttpClientBuilder builder = HttpClientBuilder.create();
-            new HttpClientConfigurer(settings).configure(builder);
+            new HttpClientConfigurer(settings, buildOperationExecutor).configure(builder);
             this.client = builder.build();
         }
         return client;
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Opening a new connection to an HTTP server, including the TLS handshake for secure connections.
+ *
+ * Requests made over an existing, pooled connection are not included.
+ *
+ * @since 4.9
+ */
+public final class HttpConnectBuildOperationType implements BuildOperationType<HttpConnectBuildOperationType.Details, HttpConnectBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The host that is connected to.
+         */
+        String getHost();
+
+        /**
+         * The port that is connected to.
+         */
+        int getPort();
+
+        /**
+         * Whether the connection is secured using TLS.
+         */
+        boolean isSecure();
+
+    }
+
+    public interface Result {
+
+    }
+
+    private HttpConnectBuildOperationType() {
+    }
+
+}
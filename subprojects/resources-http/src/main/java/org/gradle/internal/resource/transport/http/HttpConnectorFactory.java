@@ -21,6 +21,8 @@ import org.gradle.authentication.Authentication;
 import org.gradle.authentication.http.BasicAuthentication;
 import org.gradle.authentication.http.DigestAuthentication;
 import org.gradle.internal.authentication.AllSchemesAuthentication;
+import org.gradle.internal.concurrent.ParallelismConfigurationManager;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
 import org.gradle.internal.resource.connector.ResourceConnectorSpecification;
 import org.gradle.internal.resource.transfer.DefaultExternalResourceConnector;
@@ -36,10 +38,14 @@ public class HttpConnectorFactory implements ResourceConnectorFactory {
         AllSchemesAuthentication.class
     );
 
-    private SslContextFactory sslContextFactory;
+    private final SslContextFactory sslContextFactory;
+    private final ParallelismConfigurationManager parallelismConfigurationManager;
+    private final BuildOperationExecutor buildOperationExecutor;
 
-    public HttpConnectorFactory(SslContextFactory sslContextFactory) {
+    public HttpConnectorFactory(SslContextFactory sslContextFactory, ParallelismConfigurationManager parallelismConfigurationManager, BuildOperationExecutor buildOperationExecutor) {
         this.sslContextFactory = sslContextFactory;
+        this.parallelismConfigurationManager = parallelismConfigurationManager;
+        this.buildOperationExecutor = buildOperationExecutor;
     }
 
     @Override
@@ -54,10 +60,14 @@ public class HttpConnectorFactory implements ResourceConnectorFactory {
 
     @Override
     public ExternalResourceConnector createResourceConnector(ResourceConnectorSpecification connectionDetails) {
+        // Size the connection pool for the workers that may download from the repository in parallel
+        int maxWorkerCount = parallelismConfigurationManager.getParallelismConfiguration().getMaxWorkerCount();
         HttpClientHelper http = new HttpClientHelper(DefaultHttpSettings.builder()
             .withAuthenticationSettings(connectionDetails.getAuthentications())
             .withSslContextFactory(sslContextFactory)
-            .build()
+            .withConnectionPoolSettings(new JavaSystemPropertiesHttpConnectionPoolSettings(maxWorkerCount))
+            .build(),
+            buildOperationExecutor
         );
         HttpResourceAccessor accessor = new HttpResourceAccessor(http);
         HttpResourceLister lister = new HttpResourceLister(accessor);
@@ -21,6 +21,8 @@ import org.gradle.authentication.http.DigestAuthentication;
 import org.gradle.internal.authentication.AuthenticationSchemeRegistry;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
 import org.gradle.internal.authentication.DefaultDigestAuthentication;
+import org.gradle.internal.concurrent.ParallelismConfigurationManager;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
@@ -30,6 +32,10 @@ public class HttpResourcesPluginServiceRegistry extends AbstractPluginServiceReg
         registration.addProvider(new GlobalScopeServices());
     }
 
+    public void registerBuildSessionServices(ServiceRegistration registration) {
+        registration.addProvider(new BuildSessionScopeServices());
+    }
+
     public void registerBuildServices(ServiceRegistration registration) {
         registration.addProvider(new AuthenticationSchemeAction());
     }
@@ -38,9 +44,11 @@ public class HttpResourcesPluginServiceRegistry extends AbstractPluginServiceReg
         SslContextFactory createSslContextFactory() {
             return new DefaultSslContextFactory();
         }
+    }
 
-        ResourceConnectorFactory createHttpConnectorFactory(SslContextFactory sslContextFactory) {
-            return new HttpConnectorFactory(sslContextFactory);
+    private static class BuildSessionScopeServices {
+        ResourceConnectorFactory createHttpConnectorFactory(SslContextFactory sslContextFactory, ParallelismConfigurationManager parallelismConfigurationManager, BuildOperationExecutor buildOperationExecutor) {
+            return new HttpConnectorFactory(sslContextFactory, parallelismConfigurationManager, buildOperationExecutor);
         }
     }
 
@@ -28,6 +28,8 @@ public interface HttpSettings {
 
     HttpTimeoutSettings getTimeoutSettings();
 
+    HttpConnectionPoolSettings getConnectionPoolSettings();
+
     boolean isFollowRedirects();
 
     Collection<Authentication> getAuthenticationSettings();
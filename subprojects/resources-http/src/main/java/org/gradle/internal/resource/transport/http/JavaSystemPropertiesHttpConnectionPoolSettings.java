@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection pool settings sized for the number of workers that may access a repository concurrently, which can be overridden using system properties.
+ */
+public class JavaSystemPropertiesHttpConnectionPoolSettings implements HttpConnectionPoolSettings {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JavaSystemPropertiesHttpConnectionPoolSettings.class);
+    public static final String MAX_CONNECTIONS_PER_ROUTE_SYSTEM_PROPERTY = "org.gradle.internal.http.maxConnectionsPerRoute";
+    public static final String MAX_CONNECTIONS_TOTAL_SYSTEM_PROPERTY = "org.gradle.internal.http.maxConnections";
+    public static final String KEEP_ALIVE_SYSTEM_PROPERTY = "org.gradle.internal.http.keepAlive";
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final int DEFAULT_KEEP_ALIVE = 30000;
+    private final int maxConnectionsPerRoute;
+    private final int maxConnectionsTotal;
+    private final long keepAliveMs;
+
+    public JavaSystemPropertiesHttpConnectionPoolSettings() {
+        this(1);
+    }
+
+    /**
+     * @param maxWorkerCount the maximum number of workers, each of which may download a resource and some of its metadata at the same time.
+     */
+    public JavaSystemPropertiesHttpConnectionPoolSettings(int maxWorkerCount) {
+        this.maxConnectionsPerRoute = initValue(MAX_CONNECTIONS_PER_ROUTE_SYSTEM_PROPERTY, Math.max(DEFAULT_MAX_CONNECTIONS_PER_ROUTE, 2 * maxWorkerCount));
+        // Leave room for redirects to other hosts
+        this.maxConnectionsTotal = initValue(MAX_CONNECTIONS_TOTAL_SYSTEM_PROPERTY, 2 * maxConnectionsPerRoute);
+        this.keepAliveMs = initValue(KEEP_ALIVE_SYSTEM_PROPERTY, DEFAULT_KEEP_ALIVE);
+    }
+
+    @Override
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    @Override
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    @Override
+    public long getKeepAliveMs() {
+        return keepAliveMs;
+    }
+
+    private int initValue(String propertyName, int defaultValue) {
+        String systemProperty = System.getProperty(propertyName);
+
+        if (!StringUtils.isBlank(systemProperty)) {
+            try {
+                int value = Integer.parseInt(systemProperty);
+                if (value > 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through
+            }
+            LOGGER.warn("Invalid value for java system property '{}': {}. Default value '{}' will be used.",
+                propertyName, systemProperty, defaultValue);
+        }
+
+        return defaultValue;
+    }
+}
@@ -15,8 +15,12 @@
  */
 package org.gradle.internal.resource.transport.http
 
+import org.apache.http.HttpVersion
 import org.apache.http.auth.AuthScope
 import org.apache.http.impl.client.HttpClientBuilder
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager
+import org.apache.http.message.BasicHttpResponse
+import org.apache.http.protocol.BasicHttpContext
 import org.apache.http.ssl.SSLContexts
 import org.gradle.api.artifacts.repositories.PasswordCredentials
 import org.gradle.internal.authentication.AllSchemesAuthentication
@@ -32,10 +36,12 @@ public class HttpClientConfigurerTest extends Specification {
     HttpProxySettings proxySettings = Mock()
     HttpProxySettings secureProxySettings = Mock()
     HttpTimeoutSettings timeoutSettings = Mock()
+    HttpConnectionPoolSettings connectionPoolSettings = new JavaSystemPropertiesHttpConnectionPoolSettings()
     HttpSettings httpSettings = Mock() {
         getProxySettings() >> proxySettings
         getSecureProxySettings() >> secureProxySettings
         getTimeoutSettings() >> timeoutSettings
+        getConnectionPoolSettings() >> { connectionPoolSettings }
     }
     SslContextFactory sslContextFactory = Mock() {
         createSslContext() >> SSLContexts.createDefault()
@@ -126,4 +132,39 @@ public class HttpClientConfigurerTest extends Specification {
         httpClientBuilder.defaultRequestConfig.connectTimeout == 10000
         httpClientBuilder.defaultRequestConfig.socketTimeout == 30000
     }
+
+    def "configures http client connection pool"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+        connectionPoolSettings = new JavaSystemPropertiesHttpConnectionPoolSettings(16)
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        def connectionManager = httpClientBuilder.connManager as PoolingHttpClientConnectionManager
+        connectionManager.defaultMaxPerRoute == 32
+        connectionManager.maxTotal == 64
+    }
+
+    def "keeps connections alive for configured time unless server specifies a shorter time"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+        def response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK")
+        if (keepAliveHeader) {
+            response.addHeader("Keep-Alive", keepAliveHeader)
+        }
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        httpClientBuilder.keepAliveStrategy.getKeepAliveDuration(response, new BasicHttpContext()) == keepAlive
+
+        where:
+        keepAliveHeader | keepAlive
+        null            | JavaSystemPropertiesHttpConnectionPoolSettings.DEFAULT_KEEP_ALIVE
+        "timeout=5"     | 5000
+        "timeout=300"   | JavaSystemPropertiesHttpConnectionPoolSettings.DEFAULT_KEEP_ALIVE
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.apache.http.ssl.SSLContexts
+import org.apache.http.util.EntityUtils
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.junit.Rule
+import org.junit.rules.ExternalResource
+import org.mortbay.jetty.Request
+import org.mortbay.jetty.Server
+import org.mortbay.jetty.handler.AbstractHandler
+import spock.lang.Specification
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+class HttpClientHelperConnectionTest extends Specification {
+
+    @Rule HttpServer httpServer = new HttpServer()
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def client = new HttpClientHelper(httpSettings, buildOperationExecutor)
+
+    def cleanup() {
+        client.close()
+    }
+
+    def "runs each new connection as a build operation"() {
+        when:
+        3.times {
+            def response = client.performGet(httpServer.uri.toString(), false)
+            EntityUtils.consume(response.entity)
+            response.close()
+        }
+
+        then:
+        buildOperationExecutor.log.all(HttpConnectBuildOperationType).size() == 1
+        def details = buildOperationExecutor.log.mostRecentDetails(HttpConnectBuildOperationType)
+        details.host == "localhost"
+        details.port == httpServer.uri.port
+        !details.secure
+    }
+
+    def "connection failure fails the build operation"() {
+        def port = httpServer.uri.port
+        httpServer.stop()
+
+        when:
+        client.performGet("http://localhost:${port}/", false)
+
+        then:
+        def e = thrown(HttpRequestException)
+        e.cause instanceof ConnectException
+        buildOperationExecutor.log.mostRecentFailure(HttpConnectBuildOperationType) instanceof ConnectException
+    }
+
+    static class HttpServer extends ExternalResource {
+        private final Server server = new Server(0)
+        private URI uri
+
+        @Override
+        protected void before() {
+            server.addHandler(new AbstractHandler() {
+                void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch) {
+                    response.status = 200
+                    response.writer.write("content")
+                    ((Request) request).handled = true
+                }
+            })
+            server.start()
+            uri = new URI("http://localhost:${server.connectors[0].localPort}/")
+        }
+
+        @Override
+        protected void after() {
+            stop()
+        }
+
+        void stop() {
+            server.stop()
+        }
+
+        URI getUri() {
+            uri
+        }
+    }
+
+    private HttpSettings getHttpSettings() {
+        Stub(HttpSettings) {
+            getProxySettings() >> Mock(HttpProxySettings)
+            getSecureProxySettings() >> Mock(HttpProxySettings)
+            getTimeoutSettings() >> new JavaSystemPropertiesHttpTimeoutSettings()
+            getConnectionPoolSettings() >> new JavaSystemPropertiesHttpConnectionPoolSettings()
+            getSslContextFactory() >> Mock(SslContextFactory) {
+                createSslContext() >> SSLContexts.createDefault()
+            }
+        }
+    }
+}
@@ -79,6 +79,7 @@ class HttpClientHelperTest extends AbstractHttpClientTest {
         return Stub(HttpSettings) {
             getProxySettings() >> Mock(HttpProxySettings)
             getSecureProxySettings() >> Mock(HttpProxySettings)
+            getConnectionPoolSettings() >> new JavaSystemPropertiesHttpConnectionPoolSettings()
             getSslContextFactory() >> Mock(SslContextFactory) {
                 createSslContext() >> SSLContexts.createDefault()
             }
@@ -77,6 +77,7 @@ class HttpClientHelperTimeoutTest extends Specification {
         Stub(HttpSettings) {
             getProxySettings() >> Mock(HttpProxySettings)
             getSecureProxySettings() >> Mock(HttpProxySettings)
+            getConnectionPoolSettings() >> new JavaSystemPropertiesHttpConnectionPoolSettings()
             getTimeoutSettings() >> new JavaSystemPropertiesHttpTimeoutSettings()
             getSslContextFactory() >> Mock(SslContextFactory) {
                 createSslContext() >> SSLContexts.createDefault()
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.gradle.testing.internal.util.Specification
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+
+import static org.gradle.internal.resource.transport.http.JavaSystemPropertiesHttpConnectionPoolSettings.*
+
+class JavaSystemPropertiesHttpConnectionPoolSettingsTest extends Specification {
+
+    @Rule SetSystemProperties setSystemProperties = new SetSystemProperties()
+
+    def "can retrieve default values"() {
+        JavaSystemPropertiesHttpConnectionPoolSettings settings = new JavaSystemPropertiesHttpConnectionPoolSettings()
+
+        expect:
+        settings.maxConnectionsPerRoute == DEFAULT_MAX_CONNECTIONS_PER_ROUTE
+        settings.maxConnectionsTotal == 2 * DEFAULT_MAX_CONNECTIONS_PER_ROUTE
+        settings.keepAliveMs == DEFAULT_KEEP_ALIVE
+    }
+
+    def "sizes pool for max worker count"() {
+        JavaSystemPropertiesHttpConnectionPoolSettings settings = new JavaSystemPropertiesHttpConnectionPoolSettings(maxWorkers)
+
+        expect:
+        settings.maxConnectionsPerRoute == perRoute
+        settings.maxConnectionsTotal == 2 * perRoute
+
+        where:
+        maxWorkers | perRoute
+        1          | DEFAULT_MAX_CONNECTIONS_PER_ROUTE
+        10         | DEFAULT_MAX_CONNECTIONS_PER_ROUTE
+        16         | 32
+    }
+
+    def "can parse custom value from system property"() {
+        System.setProperty(MAX_CONNECTIONS_PER_ROUTE_SYSTEM_PROPERTY, "111")
+        System.setProperty(MAX_CONNECTIONS_TOTAL_SYSTEM_PROPERTY, "222")
+        System.setProperty(KEEP_ALIVE_SYSTEM_PROPERTY, "333")
+        JavaSystemPropertiesHttpConnectionPoolSettings settings = new JavaSystemPropertiesHttpConnectionPoolSettings(16)
+
+        expect:
+        settings.maxConnectionsPerRoute == 111
+        settings.maxConnectionsTotal == 222
+        settings.keepAliveMs == 333
+    }
+
+    def "uses default value if provided value is not valid"() {
+        System.setProperty(MAX_CONNECTIONS_PER_ROUTE_SYSTEM_PROPERTY, value)
+        System.setProperty(KEEP_ALIVE_SYSTEM_PROPERTY, value)
+        JavaSystemPropertiesHttpConnectionPoolSettings settings = new JavaSystemPropertiesHttpConnectionPoolSettings()
+
+        expect:
+        settings.maxConnectionsPerRoute == DEFAULT_MAX_CONNECTIONS_PER_ROUTE
+        settings.keepAliveMs == DEFAULT_KEEP_ALIVE
+
+        where:
+        value << ["", "abc", "0", "-1"]
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestListener;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.api.tasks.testing.TestOutputListener;
+import org.gradle.api.tasks.testing.TestResult;
+import org.gradle.internal.FileUtils;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the JUnit XML result file of each test class as soon as the class has completed, instead of once all tests have run.
+ *
+ * <p>A digest of the results and output of each class is kept with the binary test results. A file is not written again when its
+ * class has the same results and output as when the file was written, for example when the results of the class were carried over
+ * from the previous execution.</p>
+ *
+ * <p>The files are written by a background thread, so that test events are not held up by file I/O.</p>
+ */
+public class IncrementalJUnitXmlReportGenerator implements TestListener, TestOutputListener, Stoppable {
+    private static final String DIGESTS_FILE_NAME = "xml-report-digests.bin";
+    private static final int DIGESTS_VERSION = 1;
+    private final static Logger LOG = Logging.getLogger(IncrementalJUnitXmlReportGenerator.class);
+
+    private final File testResultsDir;
+    private final File binaryResultsDir;
+    private final Map<String, TestClassResult> results;
+    private final TestOutputStore outputStore;
+    private final TestOutputStore.Writer outputWriter;
+    private final TestOutputAssociation outputAssociation;
+    private final String hostName;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final ManagedExecutor writeExecutor;
+    private final Map<String, HashCode> fileDigests;
+    private final Set<String> upToDateClasses = new HashSet<String>();
+
+    /**
+     * @param previousDigests the digests recorded by the previous execution, as returned by {@link #readDigests(File, File)}.
+     */
+    public IncrementalJUnitXmlReportGenerator(File testResultsDir, File binaryResultsDir, Map<String, TestClassResult> results, TestOutputStore outputStore, TestOutputStore.Writer outputWriter,
+                                              TestOutputAssociation outputAssociation, String hostName, BuildOperationExecutor buildOperationExecutor, ExecutorFactory executorFactory,
+                                              Map<String, HashCode> previousDigests) {
+        this.testResultsDir = testResultsDir;
+        this.binaryResultsDir = binaryResultsDir;
+        this.results = results;
+        this.outputStore = outputStore;
+        this.outputWriter = outputWriter;
+        this.outputAssociation = outputAssociation;
+        this.hostName = hostName;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.writeExecutor = executorFactory.create("JUnit XML test report writer", 1);
+        this.fileDigests = new ConcurrentHashMap<String, HashCode>(previousDigests);
+    }
+
+    @Override
+    public void beforeSuite(TestDescriptor suite) {
+    }
+
+    @Override
+    public void afterSuite(TestDescriptor suite, TestResult result) {
+        String className = suite.getClassName();
+        if (className == null) {
+            return;
+        }
+        TestClassResult classResult = results.get(className);
+        if (classResult == null) {
+            return;
+        }
+        // The output index and the results are only read on this thread, later test events may still change them
+        final TestClassResult completedResult = copyOf(classResult);
+        final TestOutputStore.Reader reader = outputStore.reader(outputWriter, classResult.getId());
+        upToDateClasses.add(className);
+        writeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    HashCode digest = digest(completedResult, reader);
+                    if (!isWritten(completedResult.getClassName(), digest)) {
+                        write(completedResult, new JUnitXmlResultWriter(hostName, new ReaderBackedTestResultsProvider(completedResult, reader), outputAssociation));
+                        fileDigests.put(completedResult.getClassName(), digest);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(reader);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void beforeTest(TestDescriptor testDescriptor) {
+    }
+
+    @Override
+    public void afterTest(TestDescriptor testDescriptor, TestResult result) {
+        classChanged(testDescriptor.getClassName());
+    }
+
+    @Override
+    public void onOutput(TestDescriptor testDescriptor, TestOutputEvent outputEvent) {
+        classChanged(testDescriptor.getClassName());
+    }
+
+    private void classChanged(@Nullable String className) {
+        if (className != null) {
+            upToDateClasses.remove(className);
+        }
+    }
+
+    /**
+     * Waits for the files of completed classes to be written. Then writes the files of the classes that have changed since their file was
+     * written, and removes the files of classes without results. Must be called once all tests have run and the output writer has been closed.
+     */
+    public void complete() {
+        Timer clock = Time.startTimer();
+        writeExecutor.stop();
+        deleteStaleFiles();
+
+        final List<TestClassResult> changedResults = new ArrayList<TestClassResult>();
+        TestOutputStore.Reader reader = outputStore.reader();
+        try {
+            for (TestClassResult classResult : results.values()) {
+                String className = classResult.getClassName();
+                if (upToDateClasses.contains(className)) {
+                    continue;
+                }
+                HashCode digest = digest(classResult, reader);
+                if (!isWritten(className, digest)) {
+                    changedResults.add(classResult);
+                    fileDigests.put(className, digest);
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+
+        if (!changedResults.isEmpty()) {
+            final TestResultsProvider resultsProvider = new InMemoryTestResultsProvider(changedResults, outputStore);
+            try {
+                final JUnitXmlResultWriter xmlWriter = new JUnitXmlResultWriter(hostName, resultsProvider, outputAssociation);
+                buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+                    @Override
+                    public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                        for (final TestClassResult classResult : changedResults) {
+                            queue.add(new RunnableBuildOperation() {
+                                @Override
+                                public void run(BuildOperationContext context) {
+                                    write(classResult, xmlWriter);
+                                }
+
+                                @Override
+                                public BuildOperationDescriptor.Builder description() {
+                                    return BuildOperationDescriptor.displayName("Generate junit XML test report for ".concat(classResult.getClassName()));
+                                }
+                            });
+                        }
+                    }
+                });
+            } finally {
+                CompositeStoppable.stoppable(resultsProvider).stop();
+            }
+        }
+
+        writeDigests();
+        LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
+    }
+
+    /**
+     * Waits for the files being written by the background thread, for when the test execution is not completed.
+     */
+    @Override
+    public void stop() {
+        writeExecutor.stop();
+    }
+
+    private static TestClassResult copyOf(TestClassResult classResult) {
+        TestClassResult copy = new TestClassResult(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), classResult.getStartTime());
+        for (TestMethodResult methodResult : classResult.getResults()) {
+            copy.add(methodResult);
+        }
+        return copy;
+    }
+
+    private boolean isWritten(String className, HashCode digest) {
+        return digest.equals(fileDigests.get(className)) && getReportFile(className).isFile();
+    }
+
+    private void write(TestClassResult classResult, JUnitXmlResultWriter xmlWriter) {
+        File reportFile = getReportFile(classResult.getClassName());
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(reportFile);
+            xmlWriter.write(classResult, output);
+            output.close();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write XML test results for %s to file %s.", classResult.getClassName(), reportFile), e);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    private File getReportFile(String className) {
+        return new File(testResultsDir, "TEST-" + FileUtils.toSafeFileName(className) + ".xml");
+    }
+
+    private void deleteStaleFiles() {
+        final Set<String> reportFileNames = new HashSet<String>();
+        for (String className : results.keySet()) {
+            reportFileNames.add(getReportFile(className).getName());
+        }
+        File[] staleFiles = testResultsDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("TEST") && name.endsWith(".xml") && !reportFileNames.contains(name);
+            }
+        });
+        if (staleFiles != null) {
+            for (File staleFile : staleFiles) {
+                GFileUtils.deleteQuietly(staleFile);
+            }
+        }
+    }
+
+    /**
+     * The digest covers everything that {@link JUnitXmlResultWriter} writes for the class, except for the internal ids of the results.
+     */
+    private HashCode digest(TestClassResult classResult, TestOutputStore.Reader reader) {
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putString(hostName);
+        hasher.putString(outputAssociation.name());
+        hasher.putString(classResult.getClassName());
+        hasher.putLong(classResult.getStartTime());
+        hasher.putLong(classResult.getDuration());
+        boolean outputPerTestCase = outputAssociation == TestOutputAssociation.WITH_TESTCASE;
+        hasher.putInt(classResult.getResults().size());
+        for (TestMethodResult methodResult : classResult.getResults()) {
+            hasher.putString(methodResult.getName());
+            hasher.putString(methodResult.getResultType().name());
+            hasher.putLong(methodResult.getDuration());
+            hasher.putInt(methodResult.getFailures().size());
+            for (TestFailure failure : methodResult.getFailures()) {
+                hasher.putString(String.valueOf(failure.getMessage()));
+                hasher.putString(String.valueOf(failure.getExceptionType()));
+                hasher.putString(String.valueOf(failure.getStackTrace()));
+            }
+            if (outputPerTestCase) {
+                for (TestOutputEvent.Destination destination : TestOutputEvent.Destination.values()) {
+                    reader.hashTestOutput(classResult.getId(), methodResult.getId(), destination, hasher);
+                }
+            }
+        }
+        for (TestOutputEvent.Destination destination : TestOutputEvent.Destination.values()) {
+            if (outputPerTestCase) {
+                reader.hashNonTestOutput(classResult.getId(), destination, hasher);
+            } else {
+                reader.hashAllOutput(classResult.getId(), destination, hasher);
+            }
+        }
+        return hasher.hash();
+    }
+
+    private void writeDigests() {
+        try {
+            OutputStream outputStream = new FileOutputStream(new File(binaryResultsDir, DIGESTS_FILE_NAME));
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(DIGESTS_VERSION);
+                encoder.writeString(testResultsDir.getAbsolutePath());
+                encoder.writeSmallInt(results.size());
+                for (String className : results.keySet()) {
+                    encoder.writeString(className);
+                    encoder.writeBinary(fileDigests.get(className).toByteArray());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the digests recorded by the previous execution. This needs to happen before the binary results of that execution are removed.
+     */
+    public static Map<String, HashCode> readDigests(File binaryResultsDir, File testResultsDir) {
+        File digestsFile = new File(binaryResultsDir, DIGESTS_FILE_NAME);
+        if (!digestsFile.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            InputStream inputStream = new FileInputStream(digestsFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != DIGESTS_VERSION || !decoder.readString().equals(testResultsDir.getAbsolutePath())) {
+                    return Collections.emptyMap();
+                }
+                int classCount = decoder.readSmallInt();
+                Map<String, HashCode> digests = new HashMap<String, HashCode>(classCount);
+                for (int i = 0; i < classCount; i++) {
+                    digests.put(decoder.readString(), HashCode.fromBytes(decoder.readBinary()));
+                }
+                return digests;
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Provides the results and output of a single test class to {@link JUnitXmlResultWriter} while the tests are running.
+     */
+    private static class ReaderBackedTestResultsProvider implements TestResultsProvider {
+        private final TestClassResult classResult;
+        private final TestOutputStore.Reader reader;
+
+        ReaderBackedTestResultsProvider(TestClassResult classResult, TestOutputStore.Reader reader) {
+            this.classResult = classResult;
+            this.reader = reader;
+        }
+
+        @Override
+        public void writeAllOutput(long id, TestOutputEvent.Destination destination, Writer writer) {
+            reader.writeAllOutput(id, destination, writer);
+        }
+
+        @Override
+        public void writeNonTestOutput(long id, TestOutputEvent.Destination destination, Writer writer) {
+            reader.writeNonTestOutput(id, destination, writer);
+        }
+
+        @Override
+        public void writeTestOutput(long classId, long testId, TestOutputEvent.Destination destination, Writer writer) {
+            reader.writeTestOutput(classId, testId, destination, writer);
+        }
+
+        @Override
+        public void visitClasses(Action<? super TestClassResult> visitor) {
+            visitor.execute(classResult);
+        }
+
+        @Override
+        public boolean hasOutput(long id, TestOutputEvent.Destination destination) {
+            return reader.hasOutput(id, destination);
+        }
+
+        @Override
+        public boolean isHasResults() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -21,13 +21,19 @@ import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.hash.Hasher;
 import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -88,6 +94,13 @@ public class TestOutputStore {
             writeIndex();
         }
 
+        /**
+         * Makes the output written so far visible to readers.
+         */
+        public void flush() {
+            output.flush();
+        }
+
         public void onOutput(long classId, TestOutputEvent outputEvent) {
             onOutput(classId, 0, outputEvent);
         }
@@ -217,9 +230,51 @@ public class TestOutputStore {
         }
     }
 
+    private static Index buildIndex(Map<Long, Map<Long, TestCaseRegion>> regions) {
+        IndexBuilder rootBuilder = new IndexBuilder();
+        for (Map.Entry<Long, Map<Long, TestCaseRegion>> classEntry : regions.entrySet()) {
+            IndexBuilder classBuilder = new IndexBuilder();
+            for (Map.Entry<Long, TestCaseRegion> testCaseEntry : classEntry.getValue().entrySet()) {
+                TestCaseRegion region = testCaseEntry.getValue();
+                classBuilder.add(testCaseEntry.getKey(), new Index(copyOf(region.stdOutRegion), copyOf(region.stdErrRegion)));
+            }
+            rootBuilder.add(classEntry.getKey(), classBuilder.build());
+        }
+        return rootBuilder.build();
+    }
+
+    private static Region copyOf(Region region) {
+        return new Region(region.start, region.stop);
+    }
+
+    /**
+     * Receives the messages of the records read from the output file.
+     */
+    private interface MessageVisitor {
+        void visitMessage(byte[] message, int length) throws IOException;
+    }
+
     public class Reader implements Closeable {
         private final Index index;
         private final RandomAccessFile dataFile;
+        private final CharsetDecoder messageDecoder = messageStorageCharset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private byte[] messageBuffer = new byte[1024];
+        private CharBuffer charBuffer = CharBuffer.allocate(1024);
+
+        private Reader(Writer writer, long classId) {
+            writer.flush();
+            Map<Long, TestCaseRegion> classRegions = writer.index.get(classId);
+            index = buildIndex(classRegions == null
+                ? Collections.<Long, Map<Long, TestCaseRegion>>emptyMap()
+                : Collections.singletonMap(classId, classRegions));
+            try {
+                dataFile = new RandomAccessFile(getOutputsFile(), "r");
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -299,18 +354,66 @@ public class TestOutputStore {
         }
 
         public void writeAllOutput(long classId, TestOutputEvent.Destination destination, java.io.Writer writer) {
-            doRead(classId, 0, true, destination, writer);
+            doRead(classId, 0, true, destination, decodingVisitor(writer));
         }
 
         public void writeNonTestOutput(long classId, TestOutputEvent.Destination destination, java.io.Writer writer) {
-            doRead(classId, 0, false, destination, writer);
+            doRead(classId, 0, false, destination, decodingVisitor(writer));
         }
 
         public void writeTestOutput(long classId, long testId, TestOutputEvent.Destination destination, java.io.Writer writer) {
-            doRead(classId, testId, false, destination, writer);
+            doRead(classId, testId, false, destination, decodingVisitor(writer));
+        }
+
+        /**
+         * Adds the output that {@link #writeAllOutput(long, TestOutputEvent.Destination, java.io.Writer)} would write to the given hasher, without decoding it.
+         */
+        public void hashAllOutput(long classId, TestOutputEvent.Destination destination, Hasher hasher) {
+            doRead(classId, 0, true, destination, hashingVisitor(hasher));
+        }
+
+        /**
+         * Adds the output that {@link #writeNonTestOutput(long, TestOutputEvent.Destination, java.io.Writer)} would write to the given hasher, without decoding it.
+         */
+        public void hashNonTestOutput(long classId, TestOutputEvent.Destination destination, Hasher hasher) {
+            doRead(classId, 0, false, destination, hashingVisitor(hasher));
+        }
+
+        /**
+         * Adds the output that {@link #writeTestOutput(long, long, TestOutputEvent.Destination, java.io.Writer)} would write to the given hasher, without decoding it.
+         */
+        public void hashTestOutput(long classId, long testId, TestOutputEvent.Destination destination, Hasher hasher) {
+            doRead(classId, testId, false, destination, hashingVisitor(hasher));
+        }
+
+        private MessageVisitor decodingVisitor(final java.io.Writer writer) {
+            return new MessageVisitor() {
+                @Override
+                public void visitMessage(byte[] message, int length) throws IOException {
+                    // Decode into a reused buffer rather than creating a String for each message
+                    if (charBuffer.capacity() < length) {
+                        charBuffer = CharBuffer.allocate(length);
+                    }
+                    charBuffer.clear();
+                    messageDecoder.reset();
+                    messageDecoder.decode(ByteBuffer.wrap(message, 0, length), charBuffer, true);
+                    messageDecoder.flush(charBuffer);
+                    writer.write(charBuffer.array(), 0, charBuffer.position());
+                }
+            };
+        }
+
+        private MessageVisitor hashingVisitor(final Hasher hasher) {
+            return new MessageVisitor() {
+                @Override
+                public void visitMessage(byte[] message, int length) {
+                    hasher.putInt(length);
+                    hasher.putBytes(message, 0, length);
+                }
+            };
         }
 
-        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
+        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, MessageVisitor visitor) {
             if (dataFile == null) {
                 return;
             }
@@ -362,17 +465,11 @@ public class TestOutputStore {
                     }
 
                     if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        decoder.readBytes(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
+                        if (messageBuffer.length < readLength) {
+                            messageBuffer = new byte[readLength];
                         }
-
-                        writer.write(message);
+                        decoder.readBytes(messageBuffer, 0, readLength);
+                        visitor.visitMessage(messageBuffer, readLength);
                     } else {
                         decoder.skipBytes(readLength);
                     }
@@ -387,4 +484,12 @@ public class TestOutputStore {
     public Reader reader() {
         return new Reader();
     }
+
+    /**
+     * Returns a reader for the output of the given test class written so far by the given writer, which can continue to write output.
+     */
+    // IMPORTANT: return must be closed when done with.
+    public Reader reader(Writer writer, long classId) {
+        return new Reader(writer, classId);
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor;
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.internal.id.CompositeIdGenerator;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.id.LongIdGenerator;
+
+import java.util.Map;
+
+/**
+ * Reports the results of the previous execution for test classes that do not need to run again, and passes the other test classes
+ * to its delegate.
+ */
+public class CarryOverTestClassResultsProcessor implements TestClassProcessor {
+    private final Map<String, TestClassResult> previousResults;
+    private final TestClassProcessor delegate;
+    private final IdGenerator<?> idGenerator = new CompositeIdGenerator("carried over", new LongIdGenerator());
+    private TestResultProcessor resultProcessor;
+
+    /**
+     * @param previousResults the previous results of the test classes that do not need to run again, by class name.
+     */
+    public CarryOverTestClassResultsProcessor(Map<String, TestClassResult> previousResults, TestClassProcessor delegate) {
+        this.previousResults = previousResults;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        this.resultProcessor = resultProcessor;
+        delegate.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        TestClassResult previousResult = previousResults.get(testClass.getTestClassName());
+        if (previousResult == null) {
+            delegate.processTestClass(testClass);
+        } else {
+            carryOver(previousResult);
+        }
+    }
+
+    private void carryOver(TestClassResult classResult) {
+        Object classId = idGenerator.generateId();
+        DefaultTestClassDescriptor classDescriptor = new DefaultTestClassDescriptor(classId, classResult.getClassName(), classResult.getClassDisplayName());
+        resultProcessor.started(classDescriptor, new TestStartEvent(classResult.getStartTime()));
+        for (TestMethodResult methodResult : classResult.getResults()) {
+            Object methodId = idGenerator.generateId();
+            DefaultTestDescriptor methodDescriptor = new DefaultTestDescriptor(methodId, classResult.getClassName(), methodResult.getName(),
+                classResult.getClassDisplayName(), methodResult.getDisplayName());
+            resultProcessor.started(methodDescriptor, new TestStartEvent(methodResult.getEndTime() - methodResult.getDuration(), classId));
+            resultProcessor.completed(methodId, new TestCompleteEvent(methodResult.getEndTime(), methodResult.getResultType()));
+        }
+        resultProcessor.completed(classId, new TestCompleteEvent(classResult.getStartTime() + classResult.getDuration()));
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    @Override
+    public void stopNow() {
+        delegate.stopNow();
+    }
+}
@@ -30,13 +30,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors. When durations of the test classes are known from a previous execution,
+ * each test class is assigned to the processor with the least estimated work. Otherwise, uses a simple round-robin
+ * algorithm to assign test classes to processors.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final TestClassDurationEstimates durationEstimates;
+    private final long[] estimatedWork;
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
@@ -46,9 +49,15 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private volatile boolean stoppedNow;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, TestClassDurationEstimates.NONE);
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, TestClassDurationEstimates durationEstimates) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.durationEstimates = durationEstimates;
+        this.estimatedWork = new long[maxProcessors];
     }
 
     @Override
@@ -65,21 +74,38 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
         }
 
         TestClassProcessor processor;
+        int index;
         if (processors.size() < maxProcessors) {
             processor = factory.create();
             rawProcessors.add(processor);
             Actor actor = actorFactory.createActor(processor);
             processor = actor.getProxy(TestClassProcessor.class);
             actors.add(actor);
+            index = processors.size();
             processors.add(processor);
             processor.startProcessing(resultProcessor);
+        } else if (durationEstimates.isAvailable()) {
+            index = leastBusyProcessor();
+            processor = processors.get(index);
         } else {
+            index = pos;
             processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
         }
+        estimatedWork[index] += durationEstimates.estimate(testClass.getTestClassName());
         processor.processTestClass(testClass);
     }
 
+    private int leastBusyProcessor() {
+        int index = 0;
+        for (int i = 1; i < processors.size(); i++) {
+            if (estimatedWork[i] < estimatedWork[index]) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
     @Override
     public void stop() {
         try {
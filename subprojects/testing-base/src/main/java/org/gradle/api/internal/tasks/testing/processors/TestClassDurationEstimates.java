@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Estimates how long each test class takes to run, based on the durations recorded by the previous execution of the tests.
+ * A test class without a recorded duration is assumed to take as long as the average recorded test class.
+ */
+public class TestClassDurationEstimates {
+    public static final TestClassDurationEstimates NONE = new TestClassDurationEstimates(Collections.<String, Long>emptyMap());
+
+    private final Map<String, Long> previousDurations;
+    private final long defaultDuration;
+
+    public TestClassDurationEstimates(Map<String, Long> previousDurations) {
+        this.previousDurations = previousDurations;
+        long total = 0;
+        for (Long duration : previousDurations.values()) {
+            total += duration;
+        }
+        this.defaultDuration = previousDurations.isEmpty() ? 0 : total / previousDurations.size();
+    }
+
+    /**
+     * Returns true when durations were recorded for at least one test class.
+     */
+    public boolean isAvailable() {
+        return !previousDurations.isEmpty();
+    }
+
+    public long estimate(String testClassName) {
+        Long duration = previousDurations.get(testClassName);
+        return duration != null ? duration : defaultDuration;
+    }
+}
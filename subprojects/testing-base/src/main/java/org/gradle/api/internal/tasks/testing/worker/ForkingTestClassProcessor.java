@@ -24,18 +24,30 @@ import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.process.JavaForkOptions;
 import org.gradle.process.internal.ExecException;
+import org.gradle.process.internal.JavaExecHandleBuilder;
 import org.gradle.process.internal.worker.WorkerProcess;
 import org.gradle.process.internal.worker.WorkerProcessBuilder;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 import org.gradle.util.CollectionUtils;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -47,15 +59,24 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
     private final ModuleRegistry moduleRegistry;
+    private final ReusableTestWorkerPool workerPool;
     private final Lock lock = new ReentrantLock();
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
+    private ReusableTestWorkerClient pooledWorker;
     private TestResultProcessor resultProcessor;
     private WorkerLeaseRegistry.WorkerLeaseCompletion completion;
     private DocumentationRegistry documentationRegistry;
     private boolean stoppedNow;
 
     public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry) {
+        this(parentWorkerLease, workerFactory, processorFactory, options, classPath, buildConfigAction, moduleRegistry, documentationRegistry, null);
+    }
+
+    /**
+     * @param workerPool the pool to take a warm worker from, or null to always start a new worker.
+     */
+    public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry, @Nullable ReusableTestWorkerPool workerPool) {
         this.currentWorkerLease = parentWorkerLease;
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
@@ -64,6 +85,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
         this.documentationRegistry = documentationRegistry;
+        this.workerPool = workerPool;
     }
 
     @Override
@@ -79,13 +101,22 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
                 return;
             }
 
-            if (remoteProcessor == null) {
+            if (remoteProcessor == null && pooledWorker == null) {
                 completion = currentWorkerLease.startChild();
                 JULRedirector.checkDeprecatedProperty(options);
-                remoteProcessor = forkProcess();
+                if (canUsePooledWorker()) {
+                    pooledWorker = startPooledWorkerSession();
+                }
+                if (pooledWorker == null) {
+                    remoteProcessor = forkProcess();
+                }
             }
 
-            remoteProcessor.processTestClass(testClass);
+            if (pooledWorker != null) {
+                pooledWorker.processTestClass(testClass);
+            } else {
+                remoteProcessor.processTestClass(testClass);
+            }
         } finally {
             lock.unlock();
         }
@@ -93,12 +124,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
 
     RemoteTestClassProcessor forkProcess() {
         WorkerProcessBuilder builder = workerFactory.create(new TestWorker(processorFactory));
-        builder.setBaseName("Gradle Test Executor");
-        builder.setImplementationClasspath(getTestWorkerImplementationClasspath());
-        builder.applicationClasspath(classPath);
-        options.copyTo(builder.getJavaCommand());
-        builder.getJavaCommand().jvmArgs("-Dorg.gradle.native=false");
-        buildConfigAction.execute(builder);
+        configureWorker(builder, classPath);
 
         workerProcess = builder.build();
         workerProcess.start();
@@ -112,6 +138,91 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         return remoteProcessor;
     }
 
+    private void configureWorker(WorkerProcessBuilder builder, Iterable<File> applicationClasspath) {
+        builder.setBaseName("Gradle Test Executor");
+        builder.setImplementationClasspath(getTestWorkerImplementationClasspath());
+        builder.applicationClasspath(applicationClasspath);
+        options.copyTo(builder.getJavaCommand());
+        builder.getJavaCommand().jvmArgs("-Dorg.gradle.native=false");
+        buildConfigAction.execute(builder);
+    }
+
+    private boolean canUsePooledWorker() {
+        if (workerPool == null || options.getDebug()) {
+            return false;
+        }
+        for (String jvmArg : options.getAllJvmArgs()) {
+            // Agents such as JaCoCo write their results when the JVM exits
+            if (jvmArg.startsWith("-javaagent")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the tests in a worker from the pool. The worker is started with the test framework jars only. Each session loads the whole
+     * test runtime classpath in its original order, so that no state of the other classes outlives the session.
+     *
+     * @return null when the test framework cannot be kept apart from the rest of the classpath.
+     */
+    @Nullable
+    private ReusableTestWorkerClient startPooledWorkerSession() {
+        WorkerProcessBuilder builder = workerFactory.create(new ReusableTestWorker());
+        configureWorker(builder, Collections.<File>emptyList());
+        ReusableTestWorkerClasspath workerClasspath = ReusableTestWorkerClasspath.of(classPath, builder.getSharedPackages());
+        if (workerClasspath == null) {
+            return null;
+        }
+        builder.applicationClasspath(workerClasspath.getFrameworkJars());
+
+        List<URL> sessionClasspath = new ArrayList<URL>();
+        for (File file : classPath) {
+            sessionClasspath.add(toURL(file));
+        }
+
+        ReusableTestWorkerClient worker = workerPool.acquire(workerKey(builder), builder);
+        workerProcess = worker.getWorkerProcess();
+        worker.startSession(resultProcessor, processorFactory, sessionClasspath, new ArrayList<String>(workerClasspath.getFrameworkPackages()));
+        return worker;
+    }
+
+    private HashCode workerKey(WorkerProcessBuilder builder) {
+        Hasher hasher = Hashing.md5().newHasher();
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        hasher.putString(javaCommand.getExecutable());
+        for (String jvmArg : javaCommand.getAllJvmArgs()) {
+            hasher.putString(jvmArg);
+        }
+        hasher.putString(javaCommand.getWorkingDir().getAbsolutePath());
+        for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(javaCommand.getEnvironment()).entrySet()) {
+            hasher.putString(entry.getKey());
+            hasher.putString(String.valueOf(entry.getValue()));
+        }
+        hasher.putString(builder.getLogLevel().name());
+        for (String sharedPackage : new TreeSet<String>(builder.getSharedPackages())) {
+            hasher.putString(sharedPackage);
+        }
+        for (URL url : getTestWorkerImplementationClasspath()) {
+            hasher.putString(url.toString());
+        }
+        for (File jar : builder.getApplicationClasspath()) {
+            hasher.putString(jar.getAbsolutePath());
+            hasher.putLong(jar.length());
+            hasher.putLong(jar.lastModified());
+        }
+        hasher.putString(processorFactory.getClass().getName());
+        return hasher.hash();
+    }
+
+    private static URL toURL(File file) {
+        try {
+            return file.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
     List<URL> getTestWorkerImplementationClasspath() {
         return CollectionUtils.flattenCollections(URL.class,
             moduleRegistry.getModule("gradle-core-api").getImplementationClasspath().getAsURLs(),
@@ -139,7 +250,9 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
 
     @Override
     public void stop() {
-        if (remoteProcessor != null) {
+        if (pooledWorker != null) {
+            stopPooledWorkerSession();
+        } else if (remoteProcessor != null) {
             try {
                 lock.lock();
                 try {
@@ -152,10 +265,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
                 workerProcess.waitForStop();
             } catch (ExecException e) {
                 if (!stoppedNow) {
-                    throw new ExecException(e.getMessage()
-                        + "\nThis problem might be caused by incorrect test process configuration."
-                        + "\nPlease refer to the test execution section in the user guide at "
-                        + documentationRegistry.getDocumentationFor("java_plugin", "sec:test_execution"), e.getCause());
+                    throw workerProcessFailed(e);
                 }
             } finally {
                 completion.leaseFinish();
@@ -163,12 +273,46 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         }
     }
 
+    private void stopPooledWorkerSession() {
+        try {
+            lock.lock();
+            try {
+                if (stoppedNow) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (pooledWorker.stopSession()) {
+                workerPool.release(pooledWorker);
+            } else {
+                workerProcess.waitForStop();
+                throw new ExecException("Test worker process finished before completing its tests.");
+            }
+        } catch (ExecException e) {
+            if (!stoppedNow) {
+                throw workerProcessFailed(e);
+            }
+        } finally {
+            completion.leaseFinish();
+        }
+    }
+
+    private ExecException workerProcessFailed(ExecException e) {
+        return new ExecException(e.getMessage()
+            + "\nThis problem might be caused by incorrect test process configuration."
+            + "\nPlease refer to the test execution section in the user guide at "
+            + documentationRegistry.getDocumentationFor("java_plugin", "sec:test_execution"), e.getCause());
+    }
+
     @Override
     public void stopNow() {
         lock.lock();
         try {
             stoppedNow = true;
-            if (remoteProcessor != null) {
+            if (pooledWorker != null) {
+                workerPool.discard(pooledWorker);
+            } else if (remoteProcessor != null) {
                 workerProcess.stopNow();
             }
         } finally {
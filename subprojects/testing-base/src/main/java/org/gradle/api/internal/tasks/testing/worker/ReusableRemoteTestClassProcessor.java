@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Controls a test worker that runs the tests of several test executions, one session at a time.
+ *
+ * @see RemoteTestClassProcessor
+ */
+public interface ReusableRemoteTestClassProcessor {
+    /**
+     * Starts a new session that runs tests using the given test framework. The session loads the classes of the given framework packages
+     * from the classpath of the worker, and every other class from the given session classpath. Does not block.
+     */
+    void startSession(WorkerTestClassProcessorFactory factory, List<URL> sessionClasspath, List<String> frameworkPackages);
+
+    /**
+     * Does not block.
+     */
+    void processTestClass(TestClassRunInfo testClass);
+
+    /**
+     * Completes the current session and resets the worker for the next one. Does not block.
+     */
+    void stopSession();
+
+    /**
+     * Stops the worker. Does not block.
+     */
+    void shutdown();
+}
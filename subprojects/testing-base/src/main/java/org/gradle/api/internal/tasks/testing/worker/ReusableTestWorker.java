@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.dispatch.ContextClassLoaderProxy;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.internal.worker.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.AccessControlException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that stays alive after its tests have run, so that it can run the tests of later test executions as well.
+ *
+ * <p>Each test execution is run in a session. The worker process is started with the test framework jars only. The whole test runtime
+ * classpath of a session is loaded by a class loader that is discarded at the end of the session, which takes only the test framework
+ * packages from the classpath of the worker. Global state of the JVM that tests commonly change is restored when a session completes.</p>
+ */
+public class ReusableTestWorker implements Action<WorkerProcessContext>, ReusableRemoteTestClassProcessor, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableTestWorker.class);
+    private CountDownLatch shutdown;
+    private WorkerProcessContext workerProcessContext;
+    private DefaultServiceRegistry testServices;
+    private TestResultProcessor resultProcessor;
+    private TestWorkerSessionListener sessionListener;
+    private Properties systemProperties;
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+    private URLClassLoader sessionClassLoader;
+    private TestClassProcessor processor;
+
+    @Override
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started executing tests.", workerProcessContext.getDisplayName());
+
+        this.workerProcessContext = workerProcessContext;
+        shutdown = new CountDownLatch(1);
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+        systemProperties = copyOf(System.getProperties());
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+
+        testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        sessionListener = serverConnection.addOutgoing(TestWorkerSessionListener.class);
+        serverConnection.addIncoming(ReusableRemoteTestClassProcessor.class, this);
+        serverConnection.connect();
+
+        try {
+            try {
+                shutdown.await();
+            } catch (InterruptedException e) {
+                throw new UncheckedException(e);
+            }
+        } finally {
+            LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
+            // Clean out any security manager the tests might have installed
+            System.setSecurityManager(null);
+            testServices.close();
+        }
+    }
+
+    @Override
+    public void startSession(WorkerTestClassProcessorFactory factory, List<URL> sessionClasspath, List<String> frameworkPackages) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            FilteringClassLoader.Spec frameworkSpec = new FilteringClassLoader.Spec();
+            for (String frameworkPackage : frameworkPackages) {
+                frameworkSpec.allowPackage(frameworkPackage);
+            }
+            ClassLoader frameworkClassLoader = new FilteringClassLoader(workerProcessContext.getApplicationClassLoader(), frameworkSpec);
+            sessionClassLoader = new URLClassLoader(sessionClasspath.toArray(new URL[0]), frameworkClassLoader);
+
+            TestClassProcessor targetProcessor = factory.create(testServices);
+            IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
+            targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                    workerProcessContext.getDisplayName(), testServices.get(Clock.class));
+            ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
+                    TestClassProcessor.class, targetProcessor, sessionClassLoader);
+            processor = proxy.getSource();
+            processor.startProcessing(resultProcessor);
+        } catch (RuntimeException e) {
+            // The session cannot run, so stop the worker rather than leaving the session incomplete
+            shutdown.countDown();
+            throw e;
+        }
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            processor.processTestClass(testClass);
+        } catch (AccessControlException e) {
+            shutdown.countDown();
+            throw e;
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+        }
+    }
+
+    @Override
+    public void stopSession() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            processor.stop();
+        } finally {
+            processor = null;
+            boolean reset = resetSession();
+            // Clean the interrupted status
+            // because some test class processors do work here, e.g. JUnitPlatform
+            Thread.interrupted();
+            reportSessionCompleted(reset);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown.countDown();
+    }
+
+    private boolean resetSession() {
+        ClassLoaderUtils.tryClose(sessionClassLoader);
+        sessionClassLoader = null;
+        try {
+            System.setSecurityManager(null);
+            System.setProperties(copyOf(systemProperties));
+            Locale.setDefault(defaultLocale);
+            TimeZone.setDefault(defaultTimeZone);
+            return true;
+        } catch (SecurityException e) {
+            LOGGER.info("{} could not be reset after running tests.", workerProcessContext.getDisplayName(), e);
+            return false;
+        }
+    }
+
+    private void reportSessionCompleted(boolean reset) {
+        Runtime runtime = Runtime.getRuntime();
+        if (!reset) {
+            // Report a full heap, so that the worker is not used again
+            sessionListener.sessionCompleted(runtime.maxMemory(), runtime.maxMemory());
+            return;
+        }
+        System.gc();
+        sessionListener.sessionCompleted(runtime.totalMemory() - runtime.freeMemory(), runtime.maxMemory());
+    }
+
+    private static Properties copyOf(Properties properties) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.internal.IoActions;
+import org.gradle.internal.UncheckedException;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * The part of a test runtime classpath that a {@link ReusableTestWorker} keeps loaded across sessions.
+ *
+ * <p>These are the jars holding the shared packages of the test framework, as the test framework support of the worker links against
+ * them, together with the jars those classes link against in turn. Every other class of the test runtime classpath is loaded again
+ * by each session.</p>
+ */
+class ReusableTestWorkerClasspath {
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final List<File> frameworkJars;
+    private final Set<String> frameworkPackages;
+
+    private ReusableTestWorkerClasspath(List<File> frameworkJars, Set<String> frameworkPackages) {
+        this.frameworkJars = frameworkJars;
+        this.frameworkPackages = frameworkPackages;
+    }
+
+    /**
+     * Finds the test framework jars on the given classpath.
+     *
+     * @return null when the test framework is not only provided by jars, in which case the classpath cannot be split.
+     */
+    @Nullable
+    static ReusableTestWorkerClasspath of(Iterable<File> classpath, Collection<String> sharedPackages) {
+        Map<File, Set<String>> packagesByJar = new LinkedHashMap<File, Set<String>>();
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                for (String sharedPackage : sharedPackages) {
+                    if (new File(file, sharedPackage.replace('.', '/')).isDirectory()) {
+                        return null;
+                    }
+                }
+            } else if (file.isFile()) {
+                Set<String> packages = packagesOf(file);
+                if (packages != null) {
+                    packagesByJar.put(file, packages);
+                }
+            }
+        }
+
+        Set<File> frameworkJars = new HashSet<File>();
+        LinkedList<File> toScan = new LinkedList<File>();
+        for (Map.Entry<File, Set<String>> entry : packagesByJar.entrySet()) {
+            if (containsSharedPackage(entry.getValue(), sharedPackages)) {
+                frameworkJars.add(entry.getKey());
+                toScan.add(entry.getKey());
+            }
+        }
+        while (!toScan.isEmpty()) {
+            Set<String> referencedPackages = referencedPackagesOf(toScan.removeFirst());
+            for (Map.Entry<File, Set<String>> entry : packagesByJar.entrySet()) {
+                if (!frameworkJars.contains(entry.getKey()) && !Collections.disjoint(entry.getValue(), referencedPackages)) {
+                    frameworkJars.add(entry.getKey());
+                    toScan.add(entry.getKey());
+                }
+            }
+        }
+
+        List<File> orderedJars = new ArrayList<File>();
+        Set<String> frameworkPackages = new TreeSet<String>(sharedPackages);
+        for (Map.Entry<File, Set<String>> entry : packagesByJar.entrySet()) {
+            if (frameworkJars.contains(entry.getKey())) {
+                orderedJars.add(entry.getKey());
+                frameworkPackages.addAll(entry.getValue());
+            }
+        }
+        return new ReusableTestWorkerClasspath(orderedJars, frameworkPackages);
+    }
+
+    /**
+     * The test framework jars, in classpath order.
+     */
+    List<File> getFrameworkJars() {
+        return frameworkJars;
+    }
+
+    /**
+     * The packages that sessions load from the test framework jars rather than from the session classpath.
+     */
+    Set<String> getFrameworkPackages() {
+        return frameworkPackages;
+    }
+
+    private static boolean containsSharedPackage(Set<String> packages, Collection<String> sharedPackages) {
+        for (String packageName : packages) {
+            for (String sharedPackage : sharedPackages) {
+                if (packageName.equals(sharedPackage) || packageName.startsWith(sharedPackage + ".")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static Set<String> packagesOf(File jar) {
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(jar);
+        } catch (ZipException e) {
+            // Not an archive, so the JVM ignores it as well
+            return null;
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        try {
+            Set<String> packages = new HashSet<String>();
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class")) {
+                    addPackage(name, packages);
+                }
+            }
+            return packages;
+        } finally {
+            IoActions.closeQuietly(zipFile);
+        }
+    }
+
+    private static Set<String> referencedPackagesOf(File jar) {
+        Set<String> packages = new HashSet<String>();
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.getName().endsWith(".class")) {
+                        InputStream inputStream = zipFile.getInputStream(entry);
+                        try {
+                            addReferencedPackages(inputStream, packages);
+                        } finally {
+                            inputStream.close();
+                        }
+                    }
+                }
+            } finally {
+                IoActions.closeQuietly(zipFile);
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        return packages;
+    }
+
+    /**
+     * Collects the packages of the types that a class file refers to, from the class and member references of its constant pool
+     * and from the descriptors of its fields and methods.
+     */
+    private static void addReferencedPackages(InputStream classFile, final Set<String> packages) throws IOException {
+        ClassReader reader;
+        try {
+            reader = new ClassReader(classFile);
+        } catch (IllegalArgumentException e) {
+            // A class file version that ASM cannot read, such as a class for a later Java version in a multi-release jar
+            return;
+        }
+        char[] charBuffer = new char[reader.getMaxStringLength()];
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int itemOffset = reader.getItem(i);
+            if (itemOffset > 0) {
+                int tag = reader.readByte(itemOffset - 1);
+                if (tag == CONSTANT_CLASS) {
+                    addPackage(Type.getObjectType(reader.readUTF8(itemOffset, charBuffer)), packages);
+                } else if (tag == CONSTANT_NAME_AND_TYPE) {
+                    addPackage(Type.getType(reader.readUTF8(itemOffset + 2, charBuffer)), packages);
+                }
+            }
+        }
+        reader.accept(new ClassVisitor(Opcodes.ASM6) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                addPackage(Type.getType(desc), packages);
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                addPackage(Type.getMethodType(desc), packages);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    private static void addPackage(Type type, Set<String> packages) {
+        switch (type.getSort()) {
+            case Type.METHOD:
+                for (Type argumentType : type.getArgumentTypes()) {
+                    addPackage(argumentType, packages);
+                }
+                addPackage(type.getReturnType(), packages);
+                break;
+            case Type.ARRAY:
+                addPackage(type.getElementType(), packages);
+                break;
+            case Type.OBJECT:
+                addPackage(type.getInternalName(), packages);
+                break;
+            default:
+                // A primitive type
+        }
+    }
+
+    private static void addPackage(String path, Set<String> packages) {
+        int separator = path.lastIndexOf('/');
+        if (separator > 0) {
+            packages.add(path.substring(0, separator).replace('/', '.'));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.dispatch.StreamCompletion;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.process.internal.worker.WorkerProcess;
+
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The build side of a {@link ReusableTestWorker}. Forwards the test events of the current session to the test execution that uses the
+ * worker, and keeps track of when the session has completed.
+ */
+class ReusableTestWorkerClient implements TestResultProcessor, TestWorkerSessionListener, StreamCompletion {
+    private final Object key;
+    private final WorkerProcess workerProcess;
+    private final Lock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private ReusableRemoteTestClassProcessor remoteProcessor;
+    private TestResultProcessor resultProcessor;
+    private Object sessionSuiteId;
+    private boolean sessionSuiteCompleted;
+    private boolean sessionReported;
+    private boolean ended;
+    private long usedHeap;
+    private long maxHeap;
+
+    ReusableTestWorkerClient(Object key, WorkerProcess workerProcess) {
+        this.key = key;
+        this.workerProcess = workerProcess;
+    }
+
+    void connect() {
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        connection.addIncoming(TestResultProcessor.class, this);
+        connection.addIncoming(TestWorkerSessionListener.class, this);
+        remoteProcessor = connection.addOutgoing(ReusableRemoteTestClassProcessor.class);
+        connection.connect();
+    }
+
+    Object getKey() {
+        return key;
+    }
+
+    WorkerProcess getWorkerProcess() {
+        return workerProcess;
+    }
+
+    void startSession(TestResultProcessor resultProcessor, WorkerTestClassProcessorFactory factory, List<URL> sessionClasspath, List<String> frameworkPackages) {
+        lock.lock();
+        try {
+            this.resultProcessor = resultProcessor;
+            sessionSuiteId = null;
+            sessionSuiteCompleted = false;
+            sessionReported = false;
+        } finally {
+            lock.unlock();
+        }
+        remoteProcessor.startSession(factory, sessionClasspath, frameworkPackages);
+    }
+
+    void processTestClass(TestClassRunInfo testClass) {
+        remoteProcessor.processTestClass(testClass);
+    }
+
+    /**
+     * Completes the current session, waiting until all its test events have been received.
+     *
+     * @return false when the worker process ended before completing the session.
+     */
+    boolean stopSession() {
+        remoteProcessor.stopSession();
+        lock.lock();
+        try {
+            while (!(sessionSuiteCompleted && sessionReported) && !ended) {
+                stateChanged.await();
+            }
+            resultProcessor = null;
+            return sessionSuiteCompleted && sessionReported;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true when the heap still in use after the last session is at most the given ratio of the maximum heap.
+     */
+    boolean isHealthy(double maxUsedHeapRatio) {
+        lock.lock();
+        try {
+            return !ended && usedHeap <= maxHeap * maxUsedHeapRatio;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void shutdown() {
+        remoteProcessor.shutdown();
+        workerProcess.waitForStop();
+    }
+
+    @Override
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        TestResultProcessor resultProcessor;
+        lock.lock();
+        try {
+            if (sessionSuiteId == null) {
+                sessionSuiteId = test.getId();
+            }
+            resultProcessor = this.resultProcessor;
+        } finally {
+            lock.unlock();
+        }
+        resultProcessor.started(test, event);
+    }
+
+    @Override
+    public void completed(Object testId, TestCompleteEvent event) {
+        currentResultProcessor().completed(testId, event);
+        lock.lock();
+        try {
+            if (testId.equals(sessionSuiteId)) {
+                sessionSuiteCompleted = true;
+                stateChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void output(Object testId, TestOutputEvent event) {
+        currentResultProcessor().output(testId, event);
+    }
+
+    @Override
+    public void failure(Object testId, Throwable result) {
+        currentResultProcessor().failure(testId, result);
+    }
+
+    @Override
+    public void sessionCompleted(long usedHeap, long maxHeap) {
+        lock.lock();
+        try {
+            this.usedHeap = usedHeap;
+            this.maxHeap = maxHeap;
+            sessionReported = true;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void endStream() {
+        lock.lock();
+        try {
+            ended = true;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TestResultProcessor currentResultProcessor() {
+        lock.lock();
+        try {
+            return resultProcessor;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
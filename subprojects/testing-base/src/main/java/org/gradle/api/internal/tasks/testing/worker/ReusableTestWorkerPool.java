@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.process.internal.worker.WorkerProcess;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps test worker processes alive between test executions, so that later test executions with the same worker configuration can
+ * use a warm JVM rather than starting a new one.
+ *
+ * <p>Workers are only returned to the pool when they look healthy after their tests have run, and the oldest idle workers are stopped
+ * when the pool holds more than a few of them.</p>
+ */
+public class ReusableTestWorkerPool implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.testing.reuse-workers";
+    private static final Logger LOGGER = Logging.getLogger(ReusableTestWorkerPool.class);
+    private static final int DEFAULT_MAX_IDLE_WORKERS = 4;
+    private static final double DEFAULT_MAX_USED_HEAP_RATIO = 0.5;
+
+    private final int maxIdleWorkers;
+    private final double maxUsedHeapRatio;
+    private final LinkedList<ReusableTestWorkerClient> idleWorkers = new LinkedList<ReusableTestWorkerClient>();
+    private boolean stopped;
+
+    public ReusableTestWorkerPool() {
+        this(DEFAULT_MAX_IDLE_WORKERS, DEFAULT_MAX_USED_HEAP_RATIO);
+    }
+
+    ReusableTestWorkerPool(int maxIdleWorkers, double maxUsedHeapRatio) {
+        this.maxIdleWorkers = maxIdleWorkers;
+        this.maxUsedHeapRatio = maxUsedHeapRatio;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns an idle worker with the given key, or starts a new worker using the given builder when there is none.
+     */
+    ReusableTestWorkerClient acquire(Object key, WorkerProcessBuilder builder) {
+        synchronized (idleWorkers) {
+            Iterator<ReusableTestWorkerClient> iterator = idleWorkers.iterator();
+            while (iterator.hasNext()) {
+                ReusableTestWorkerClient worker = iterator.next();
+                if (worker.getKey().equals(key)) {
+                    iterator.remove();
+                    LOGGER.info("Reusing {} for test execution.", worker.getWorkerProcess());
+                    return worker;
+                }
+            }
+        }
+        WorkerProcess workerProcess = builder.build();
+        workerProcess.start();
+        ReusableTestWorkerClient worker = new ReusableTestWorkerClient(key, workerProcess);
+        worker.connect();
+        return worker;
+    }
+
+    /**
+     * Returns a worker whose session has completed to the pool. Stops the worker instead when it is no longer healthy.
+     */
+    void release(ReusableTestWorkerClient worker) {
+        List<ReusableTestWorkerClient> toStop = new ArrayList<ReusableTestWorkerClient>();
+        synchronized (idleWorkers) {
+            if (stopped || !worker.isHealthy(maxUsedHeapRatio)) {
+                LOGGER.info("Stopping {} as it should not run further tests.", worker.getWorkerProcess());
+                toStop.add(worker);
+            } else {
+                idleWorkers.addLast(worker);
+                while (idleWorkers.size() > maxIdleWorkers) {
+                    toStop.add(idleWorkers.removeFirst());
+                }
+            }
+        }
+        shutdown(toStop);
+    }
+
+    /**
+     * Discards a worker that failed or was cancelled. The worker is not returned to the pool.
+     */
+    void discard(ReusableTestWorkerClient worker) {
+        worker.getWorkerProcess().stopNow();
+    }
+
+    int getIdleWorkerCount() {
+        synchronized (idleWorkers) {
+            return idleWorkers.size();
+        }
+    }
+
+    @Override
+    public void stop() {
+        List<ReusableTestWorkerClient> toStop;
+        synchronized (idleWorkers) {
+            stopped = true;
+            toStop = new ArrayList<ReusableTestWorkerClient>(idleWorkers);
+            idleWorkers.clear();
+        }
+        shutdown(toStop);
+    }
+
+    private static void shutdown(List<ReusableTestWorkerClient> workers) {
+        for (ReusableTestWorkerClient worker : workers) {
+            try {
+                worker.shutdown();
+            } catch (RuntimeException e) {
+                LOGGER.debug("Could not stop {}.", worker.getWorkerProcess(), e);
+            }
+        }
+    }
+}
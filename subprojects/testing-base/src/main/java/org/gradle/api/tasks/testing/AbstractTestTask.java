@@ -33,7 +33,7 @@ import org.gradle.api.internal.tasks.testing.TestExecuter;
 import org.gradle.api.internal.tasks.testing.TestExecutionSpec;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
-import org.gradle.api.internal.tasks.testing.junit.result.Binary2JUnitXmlReportGenerator;
+import org.gradle.api.internal.tasks.testing.junit.result.IncrementalJUnitXmlReportGenerator;
 import org.gradle.api.internal.tasks.testing.junit.result.InMemoryTestResultsProvider;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputAssociation;
@@ -65,8 +65,10 @@ import org.gradle.api.tasks.options.Option;
 import org.gradle.api.tasks.testing.logging.TestLogging;
 import org.gradle.api.tasks.testing.logging.TestLoggingContainer;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.logging.ConsoleRenderer;
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
@@ -77,8 +79,10 @@ import org.gradle.internal.remote.internal.inet.InetAddressFactory;
 import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.gradle.util.ConfigureUtil;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -434,6 +438,10 @@ public abstract class AbstractTestTask extends ConventionTask implements Verific
         TestExecutionSpec executionSpec = createTestExecutionSpec();
 
         File binaryResultsDir = getBinResultsDir();
+        JUnitXmlReport junitXml = reports.getJunitXml();
+        Map<String, HashCode> previousXmlReportDigests = junitXml.isEnabled()
+            ? IncrementalJUnitXmlReportGenerator.readDigests(binaryResultsDir, junitXml.getDestination())
+            : Collections.<String, HashCode>emptyMap();
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -446,6 +454,18 @@ public abstract class AbstractTestTask extends ConventionTask implements Verific
         addTestListener(testReportDataCollector);
         addTestOutputListener(testReportDataCollector);
 
+        IncrementalJUnitXmlReportGenerator xmlReportGenerator = null;
+        if (junitXml.isEnabled()) {
+            // Must be notified after the data collector, so that it sees the results of each test
+            TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
+                ? TestOutputAssociation.WITH_TESTCASE
+                : TestOutputAssociation.WITH_SUITE;
+            xmlReportGenerator = new IncrementalJUnitXmlReportGenerator(junitXml.getDestination(), binaryResultsDir, results, testOutputStore, outputWriter,
+                outputAssociation, getInetAddressFactory().getHostname(), getBuildOperationExecutor(), getServices().get(ExecutorFactory.class), previousXmlReportDigests);
+            addTestListener(xmlReportGenerator);
+            addTestOutputListener(xmlReportGenerator);
+        }
+
         TestCountLogger testCountLogger = new TestCountLogger(getProgressLoggerFactory());
         addTestListener(testCountLogger);
 
@@ -467,6 +487,10 @@ public abstract class AbstractTestTask extends ConventionTask implements Verific
 
         try {
             testExecuter.execute(executionSpec, resultProcessor);
+        } catch (RuntimeException e) {
+            // Reports are not generated, but wait for the files that are already being written
+            CompositeStoppable.stoppable(xmlReportGenerator).stop();
+            throw e;
         } finally {
             parentProgressLogger.completed();
             testWorkerProgressListener.completeAll();
@@ -478,7 +502,7 @@ public abstract class AbstractTestTask extends ConventionTask implements Verific
 
         new TestResultSerializer(binaryResultsDir).write(results.values());
 
-        createReporting(results, testOutputStore);
+        createReporting(results, testOutputStore, xmlReportGenerator);
 
         if (testCountLogger.hadFailures()) {
             handleTestFailures();
@@ -508,7 +532,7 @@ public abstract class AbstractTestTask extends ConventionTask implements Verific
         return reasons;
     }
 
-    private void createReporting(Map<String, TestClassResult> results, TestOutputStore testOutputStore) {
+    private void createReporting(Map<String, TestClassResult> results, TestOutputStore testOutputStore, @Nullable IncrementalJUnitXmlReportGenerator xmlReportGenerator) {
         TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore);
 
         try {
@@ -516,13 +540,8 @@ public abstract class AbstractTestTask extends ConventionTask implements Verific
                 testReporter = new DefaultTestReport(getBuildOperationExecutor());
             }
 
-            JUnitXmlReport junitXml = reports.getJunitXml();
-            if (junitXml.isEnabled()) {
-                TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
-                    ? TestOutputAssociation.WITH_TESTCASE
-                    : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation, getBuildOperationExecutor(), getInetAddressFactory().getHostname());
-                binary2JUnitXmlReportGenerator.generate();
+            if (xmlReportGenerator != null) {
+                xmlReportGenerator.complete();
             }
 
             DirectoryReport html = reports.getHtml();
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.api.GradleException
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.tasks.testing.TestDescriptor
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.WorkspaceTest
+
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdOut
+
+class IncrementalJUnitXmlReportGeneratorSpec extends WorkspaceTest {
+    TestFile binaryResultsDir
+    TestFile xmlDir
+    TestOutputStore outputStore
+
+    def setup() {
+        binaryResultsDir = testDirectory.createDir("binary")
+        xmlDir = testDirectory.createDir("xml")
+        outputStore = new TestOutputStore(binaryResultsDir)
+    }
+
+    def "writes the file of a test class when the class completes"() {
+        def writer = outputStore.writer()
+        def generator = generator(writer, ['FooTest': fooTest()])
+        writer.onOutput(1, 2, new DefaultTestOutputEvent(StdOut, "hello from foo"))
+
+        when:
+        generator.afterSuite(descriptor('FooTest'), Stub(TestResult))
+        generator.stop()
+
+        then:
+        def text = xmlDir.file("TEST-FooTest.xml").text
+        text.contains('<testcase name="foo"')
+        text.contains('hello from foo')
+
+        cleanup:
+        writer.close()
+    }
+
+    def "writes the file of a test class with the results and output it had when the class completed"() {
+        def writer = outputStore.writer()
+        def results = ['FooTest': fooTest()]
+        def generator = generator(writer, results)
+        writer.onOutput(1, 2, new DefaultTestOutputEvent(StdOut, "hello from foo"))
+
+        when:
+        generator.afterSuite(descriptor('FooTest'), Stub(TestResult))
+        results.FooTest.add(new TestMethodResult(3, 'bar', TestResult.ResultType.SUCCESS, 10, 120))
+        writer.onOutput(1, 3, new DefaultTestOutputEvent(StdOut, "hello from bar"))
+        generator.stop()
+
+        then:
+        def text = xmlDir.file("TEST-FooTest.xml").text
+        text.contains('<testcase name="foo"')
+        !text.contains('<testcase name="bar"')
+        text.contains('hello from foo')
+        !text.contains('hello from bar')
+
+        cleanup:
+        writer.close()
+    }
+
+    def "fails on completion when the file of a test class could not be written"() {
+        def writer = outputStore.writer()
+        def generator = generator(writer, ['FooTest': fooTest()])
+        xmlDir.createDir("TEST-FooTest.xml")
+
+        when:
+        generator.afterSuite(descriptor('FooTest'), Stub(TestResult))
+        writer.close()
+        generator.complete()
+
+        then:
+        def e = thrown(GradleException)
+        e.message.startsWith("Could not write XML test results for FooTest")
+    }
+
+    def "does not write the file of a test class again when its results have not changed"() {
+        given:
+        execute(['FooTest': fooTest()])
+        xmlDir.file("TEST-FooTest.xml").text = "unchanged"
+
+        when:
+        execute(['FooTest': fooTest()])
+
+        then:
+        xmlDir.file("TEST-FooTest.xml").text == "unchanged"
+    }
+
+    def "writes the file of a test class again when its results have changed"() {
+        given:
+        execute(['FooTest': fooTest()])
+        xmlDir.file("TEST-FooTest.xml").text = "old"
+
+        when:
+        execute(['FooTest': fooTest('bar')])
+
+        then:
+        xmlDir.file("TEST-FooTest.xml").text.contains('<testcase name="bar"')
+    }
+
+    def "writes the file of a test class again when it has changed after its class completed"() {
+        def writer = outputStore.writer()
+        def results = ['FooTest': fooTest()]
+        def generator = generator(writer, results)
+
+        when:
+        generator.afterSuite(descriptor('FooTest'), Stub(TestResult))
+        results.FooTest.add(new TestMethodResult(3, 'bar', TestResult.ResultType.SUCCESS, 10, 120))
+        generator.afterTest(descriptor('FooTest'), Stub(TestResult))
+        writer.close()
+        generator.complete()
+
+        then:
+        def text = xmlDir.file("TEST-FooTest.xml").text
+        text.contains('<testcase name="foo"')
+        text.contains('<testcase name="bar"')
+    }
+
+    def "writes files of classes without class events and removes files of classes without results on completion"() {
+        given:
+        xmlDir.file("TEST-OldTest.xml").text = "stale"
+
+        when:
+        def writer = outputStore.writer()
+        def generator = generator(writer, ['FooTest': fooTest()])
+        writer.close()
+        generator.complete()
+
+        then:
+        xmlDir.file("TEST-FooTest.xml").text.contains('<testcase name="foo"')
+        !xmlDir.file("TEST-OldTest.xml").exists()
+    }
+
+    private void execute(Map<String, TestClassResult> results) {
+        def writer = outputStore.writer()
+        def generator = generator(writer, results)
+        results.keySet().each { generator.afterSuite(descriptor(it), Stub(TestResult)) }
+        writer.close()
+        generator.complete()
+    }
+
+    private IncrementalJUnitXmlReportGenerator generator(TestOutputStore.Writer writer, Map<String, TestClassResult> results) {
+        def previousDigests = IncrementalJUnitXmlReportGenerator.readDigests(binaryResultsDir, xmlDir)
+        return new IncrementalJUnitXmlReportGenerator(xmlDir, binaryResultsDir, results, outputStore, writer, TestOutputAssociation.WITH_SUITE,
+            "localhost", new TestBuildOperationExecutor(), new DefaultExecutorFactory(), previousDigests)
+    }
+
+    private TestDescriptor descriptor(String className) {
+        return Stub(TestDescriptor) {
+            getClassName() >> className
+        }
+    }
+
+    private static TestClassResult fooTest(String methodName = 'foo') {
+        return new TestClassResult(1, 'FooTest', 100)
+            .add(new TestMethodResult(2, methodName, TestResult.ResultType.SUCCESS, 10, 110))
+    }
+}
@@ -18,6 +18,8 @@ package org.gradle.api.internal.tasks.testing.junit.result
 import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
 import org.gradle.api.internal.tasks.testing.TestDescriptorInternal
 import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
 import org.gradle.test.fixtures.file.WorkspaceTest
 
 import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdErr
@@ -98,6 +100,58 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "can read output of a test class while output is being written"() {
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, output(StdOut, "[out-1]"))
+        writer.onOutput(2, 1, output(StdOut, "[out-2]"))
+        writer.onOutput(1, 1, output(StdOut, "[out-3]"))
+        def reader = output.reader(writer, 1)
+        writer.onOutput(1, 1, output(StdOut, "[out-4]"))
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == "[out-1][out-3]"
+        collectAllOutput(reader, 2, StdOut) == ""
+
+        cleanup:
+        reader.close()
+        writer.close()
+    }
+
+    def "reads messages with multi-byte characters"() {
+        def message = "\u00fc\u20ac" * 2000
+
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, output(StdOut, "[out-1]"))
+        writer.onOutput(1, output(StdOut, message))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == "[out-1]" + message
+
+        cleanup:
+        reader.close()
+    }
+
+    def "hashes the same output of different test classes to the same value"() {
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdOut, "[out-1]"))
+        writer.onOutput(2, 3, output(StdOut, "[out-1]"))
+        writer.onOutput(3, 4, output(StdOut, "[out-2]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        hashAllOutput(reader, 1) == hashAllOutput(reader, 2)
+        hashAllOutput(reader, 1) != hashAllOutput(reader, 3)
+
+        cleanup:
+        reader.close()
+    }
+
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
         new DefaultTestOutputEvent(destination, msg)
     }
@@ -175,6 +229,12 @@ class TestOutputStoreSpec extends WorkspaceTest {
         return writer.toString()
     }
 
+    HashCode hashAllOutput(TestOutputStore.Reader reader, long classId) {
+        def hasher = Hashing.md5().newHasher()
+        reader.hashAllOutput(classId, StdOut, hasher)
+        return hasher.hash()
+    }
+
     String collectOutput(TestOutputStore.Reader reader, long classId, long testId, TestOutputEvent.Destination destination) {
         def writer = new StringWriter()
         reader.writeTestOutput(classId, testId, destination, writer)
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult
+import org.gradle.api.tasks.testing.TestResult
+import spock.lang.Specification
+
+class CarryOverTestClassResultsProcessorTest extends Specification {
+    TestClassProcessor delegate = Mock()
+    TestResultProcessor testResultProcessor = Mock()
+
+    def 'passes test classes without previous results to delegate'() {
+        given:
+        def processor = new CarryOverTestClassResultsProcessor([:], delegate)
+
+        when:
+        processor.startProcessing(testResultProcessor)
+        processor.processTestClass(new DefaultTestClassRunInfo('Class1'))
+        processor.stop()
+
+        then:
+        1 * delegate.startProcessing(testResultProcessor)
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class1'))
+        1 * delegate.stop()
+        0 * testResultProcessor._
+    }
+
+    def 'reports previous results of test classes instead of running them'() {
+        given:
+        def classResult = new TestClassResult(1, 'Class1', 100)
+        classResult.add(new TestMethodResult(2, 'passes', TestResult.ResultType.SUCCESS, 20, 120))
+        classResult.add(new TestMethodResult(3, 'skipped', TestResult.ResultType.SKIPPED, 0, 130))
+        def processor = new CarryOverTestClassResultsProcessor(['Class1': classResult], delegate)
+        def classId
+
+        when:
+        processor.startProcessing(testResultProcessor)
+        processor.processTestClass(new DefaultTestClassRunInfo('Class1'))
+
+        then:
+        1 * testResultProcessor.started({ it.className == 'Class1' && it.composite }, { it.startTime == 100 }) >> { classId = it[0].id }
+        then:
+        1 * testResultProcessor.started({ it.name == 'passes' }, { it.startTime == 100 && it.parentId == classId })
+        then:
+        1 * testResultProcessor.completed(_, { it.endTime == 120 && it.resultType == TestResult.ResultType.SUCCESS })
+        then:
+        1 * testResultProcessor.started({ it.name == 'skipped' }, { it.startTime == 130 && it.parentId == classId })
+        then:
+        1 * testResultProcessor.completed(_, { it.endTime == 130 && it.resultType == TestResult.ResultType.SKIPPED })
+        then:
+        1 * testResultProcessor.completed({ it == classId }, { it.endTime == 130 })
+        0 * delegate.processTestClass(_)
+    }
+}
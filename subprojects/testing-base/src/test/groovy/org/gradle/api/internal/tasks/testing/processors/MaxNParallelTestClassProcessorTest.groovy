@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
@@ -168,6 +169,34 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.processTestClass(test)
     }
 
+    def assignsTestClassesToProcessorWithLeastEstimatedWork() {
+        def estimates = new TestClassDurationEstimates([A: 100L, B: 10L, C: 10L, D: 50L])
+        def balancingProcessor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, estimates)
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+        actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        factory.create() >>> [processor1, processor2]
+        actorFactory.createActor(processor1) >> actor1
+        actorFactory.createActor(processor2) >> actor2
+        actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        balancingProcessor.startProcessing(resultProcessor)
+
+        when:
+        ['A', 'B', 'C', 'D'].each { balancingProcessor.processTestClass(new DefaultTestClassRunInfo(it)) }
+
+        then:
+        1 * asyncProcessor1.processTestClass(new DefaultTestClassRunInfo('A'))
+        1 * asyncProcessor2.processTestClass(new DefaultTestClassRunInfo('B'))
+        1 * asyncProcessor2.processTestClass(new DefaultTestClassRunInfo('C'))
+        1 * asyncProcessor2.processTestClass(new DefaultTestClassRunInfo('D'))
+    }
+
     def "stopNow propagates to factory created processors"() {
         TestClassRunInfo test = Mock()
         TestClassProcessor processor1 = Mock()
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.internal.remote.ObjectConnection
+import org.gradle.process.internal.worker.WorkerProcess
+import org.gradle.process.internal.worker.WorkerProcessBuilder
+import spock.lang.Specification
+
+class ReusableTestWorkerPoolTest extends Specification {
+    def pool = new ReusableTestWorkerPool(2, 0.5)
+
+    def "starts a worker when there is no idle worker with the same key"() {
+        def builder = Mock(WorkerProcessBuilder)
+        def process = workerProcess()
+
+        when:
+        def worker = pool.acquire("key", builder)
+
+        then:
+        1 * builder.build() >> process
+        1 * process.start()
+        worker.workerProcess == process
+    }
+
+    def "reuses a healthy worker with the same key"() {
+        def builder = Mock(WorkerProcessBuilder)
+        def worker = startedWorker("key", 10, 100)
+
+        when:
+        pool.release(worker)
+
+        then:
+        pool.idleWorkerCount == 1
+
+        when:
+        def reused = pool.acquire("key", builder)
+
+        then:
+        reused == worker
+        0 * builder._
+        pool.idleWorkerCount == 0
+    }
+
+    def "does not reuse a worker with a different key"() {
+        def builder = Mock(WorkerProcessBuilder)
+        def worker = startedWorker("key", 10, 100)
+        pool.release(worker)
+
+        when:
+        def other = pool.acquire("other", builder)
+
+        then:
+        1 * builder.build() >> workerProcess()
+        other != worker
+        pool.idleWorkerCount == 1
+    }
+
+    def "stops a worker that uses too much heap after its tests have run"() {
+        def worker = startedWorker("key", 60, 100)
+
+        when:
+        pool.release(worker)
+
+        then:
+        1 * worker.remoteProcessor.shutdown()
+        1 * worker.workerProcess.waitForStop()
+        pool.idleWorkerCount == 0
+    }
+
+    def "stops the oldest idle workers when there are too many"() {
+        def worker1 = startedWorker("key", 10, 100)
+        def worker2 = startedWorker("key", 10, 100)
+        def worker3 = startedWorker("key", 10, 100)
+
+        when:
+        pool.release(worker1)
+        pool.release(worker2)
+        pool.release(worker3)
+
+        then:
+        1 * worker1.remoteProcessor.shutdown()
+        0 * worker2.remoteProcessor.shutdown()
+        0 * worker3.remoteProcessor.shutdown()
+        pool.idleWorkerCount == 2
+    }
+
+    def "stops idle workers when stopped"() {
+        def worker = startedWorker("key", 10, 100)
+        pool.release(worker)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * worker.remoteProcessor.shutdown()
+        1 * worker.workerProcess.waitForStop()
+        pool.idleWorkerCount == 0
+    }
+
+    def "discards a worker without returning it to the pool"() {
+        def worker = startedWorker("key", 10, 100)
+
+        when:
+        pool.discard(worker)
+
+        then:
+        1 * worker.workerProcess.stopNow()
+        pool.idleWorkerCount == 0
+    }
+
+    private WorkerProcess workerProcess() {
+        def connection = Stub(ObjectConnection) {
+            addOutgoing(ReusableRemoteTestClassProcessor) >> Mock(ReusableRemoteTestClassProcessor)
+        }
+        return Mock(WorkerProcess) {
+            getConnection() >> connection
+        }
+    }
+
+    private ReusableTestWorkerClient startedWorker(Object key, long usedHeap, long maxHeap) {
+        def worker = new ReusableTestWorkerClient(key, workerProcess())
+        worker.connect()
+        worker.sessionCompleted(usedHeap, maxHeap)
+        return worker
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.testing
+
+import org.gradle.api.internal.tasks.testing.worker.ReusableTestWorkerPool
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.integtests.fixtures.DefaultTestExecutionResult
+
+class ReusableTestWorkerIntegrationTest extends AbstractIntegrationSpec {
+    def setup() {
+        executer.withArgument("-D${ReusableTestWorkerPool.ENABLED_PROPERTY}=true")
+    }
+
+    def "reused worker loads the test runtime classpath in order and afresh for each test execution"() {
+        buildFile << """
+            apply plugin: 'java'
+            ${mavenCentralRepository()}
+
+            sourceSets {
+                lib
+            }
+
+            task libJar(type: Jar) {
+                from sourceSets.lib.output
+                archiveName = 'lib.jar'
+            }
+
+            dependencies {
+                testCompile 'junit:junit:4.12'
+                testCompile files(libJar)
+            }
+
+            task otherTest(type: Test) {
+                testClassesDirs = sourceSets.test.output.classesDirs
+                classpath = sourceSets.test.runtimeClasspath
+                mustRunAfter test
+            }
+        """
+        file("src/lib/resources/shadowed.txt").text = "library"
+        file("src/lib/java/lib/Counter.java") << """
+            package lib;
+
+            public class Counter {
+                public static int count;
+            }
+        """
+        file("src/test/resources/shadowed.txt").text = "project"
+        file("src/test/java/ClasspathTest.java") << """
+            import java.io.InputStream;
+            import java.util.Scanner;
+            import org.junit.Test;
+            import static org.junit.Assert.assertEquals;
+
+            public class ClasspathTest {
+                @Test
+                public void projectResourceShadowsLibraryResource() {
+                    InputStream resource = getClass().getClassLoader().getResourceAsStream("shadowed.txt");
+                    assertEquals("project", new Scanner(resource).nextLine());
+                }
+
+                @Test
+                public void libraryStateIsNotKeptAcrossTestExecutions() {
+                    assertEquals(1, ++lib.Counter.count);
+                }
+            }
+        """
+
+        when:
+        executer.withArgument("-i")
+        succeeds "test", "otherTest"
+
+        then:
+        outputContains("Reusing")
+        new DefaultTestExecutionResult(testDirectory).testClass("ClasspathTest").assertTestsExecuted("libraryStateIsNotKeptAcrossTestExecutions", "projectResourceShadowsLibraryResource")
+        new DefaultTestExecutionResult(testDirectory, 'build', '', '', 'otherTest').testClass("ClasspathTest").assertTestsExecuted("libraryStateIsNotKeptAcrossTestExecutions", "projectResourceShadowsLibraryResource")
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.tasks.compile.incremental.asm.ClassDependenciesVisitor;
+import org.gradle.api.internal.tasks.testing.TestFramework;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.tasks.testing.testng.TestNGOptions;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.util.GFileUtils;
+import org.objectweb.asm.ClassReader;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Selects the test classes that are not affected by the changes made to the test runtime classpath since the previous test execution,
+ * so that their previous results can be used rather than running them again.
+ *
+ * <p>The classes in the directories of the classpath are analyzed for their static dependencies. A test class is affected when it,
+ * or any class it depends on directly or transitively, has changed. Any change to a jar or to a resource in a directory affects all
+ * test classes. Dependencies that only exist at runtime, for example through reflection, are not detected.</p>
+ *
+ * <p>All test classes are affected as well when the tests run with other settings: the Java executable, the JVM arguments including
+ * system properties, the working directory, the environment or the options of the test framework.</p>
+ */
+public class TestImpactSelection {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.testing.test-impact-selection";
+    private static final String SNAPSHOT_FILE_NAME = "test-impact.bin";
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final File snapshotFile;
+    private final ClasspathSnapshot previousSnapshot;
+    private final Map<String, TestClassResult> previousPassedResults;
+    private ClasspathSnapshot currentSnapshot;
+
+    private TestImpactSelection(File snapshotFile, @Nullable ClasspathSnapshot previousSnapshot, Map<String, TestClassResult> previousPassedResults) {
+        this.snapshotFile = snapshotFile;
+        this.previousSnapshot = previousSnapshot;
+        this.previousPassedResults = previousPassedResults;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Starts a test execution that runs all test classes, recording its state for the next execution.
+     */
+    public static TestImpactSelection ignorePrevious(File binaryResultsDir) {
+        return new TestImpactSelection(new File(binaryResultsDir, SNAPSHOT_FILE_NAME), null, Collections.<String, TestClassResult>emptyMap());
+    }
+
+    /**
+     * Removes the state of the previous test execution, for a test execution that does not use test impact selection. The state would
+     * otherwise no longer match the test results once they are replaced.
+     */
+    public static void discardPrevious(File binaryResultsDir) {
+        GFileUtils.deleteQuietly(new File(binaryResultsDir, SNAPSHOT_FILE_NAME));
+    }
+
+    /**
+     * Reads the state of the previous test execution. This needs to happen before the binary results of that execution are removed.
+     *
+     * @param binaryResultsDir the directory that contains the binary results of the previous execution, and that will contain those of the next execution.
+     * @param previousPassedResults the results of the test classes that passed in the previous execution, by class name.
+     */
+    public static TestImpactSelection readPrevious(File binaryResultsDir, Map<String, TestClassResult> previousPassedResults) {
+        File snapshotFile = new File(binaryResultsDir, SNAPSHOT_FILE_NAME);
+        return new TestImpactSelection(snapshotFile, ClasspathSnapshot.read(snapshotFile), previousPassedResults);
+    }
+
+    /**
+     * Analyzes the given classpath and settings, and returns the previous results of the test classes that are not affected by changes to them.
+     */
+    public Map<String, TestClassResult> selectUnaffected(Iterable<? extends File> classpath, JavaForkOptions forkOptions, TestFramework testFramework, WorkerTestClassProcessorFactory processorFactory) {
+        currentSnapshot = ClasspathSnapshot.of(classpath, settingsHash(forkOptions, testFramework, processorFactory));
+        if (previousSnapshot == null
+            || !previousSnapshot.settingsHash.equals(currentSnapshot.settingsHash)
+            || !previousSnapshot.otherFilesHash.equals(currentSnapshot.otherFilesHash)) {
+            return Collections.emptyMap();
+        }
+
+        Set<String> affected = currentSnapshot.dependentsOf(changedClasses());
+        Map<String, TestClassResult> unaffected = Maps.newHashMap();
+        for (Map.Entry<String, TestClassResult> entry : previousPassedResults.entrySet()) {
+            String className = entry.getKey();
+            if (currentSnapshot.classHashes.containsKey(className) && !affected.contains(className)) {
+                unaffected.put(className, entry.getValue());
+            }
+        }
+        return unaffected;
+    }
+
+    /**
+     * Records the state of the classpath the tests were executed with, once the test execution has completed.
+     */
+    public void executionCompleted() {
+        if (currentSnapshot != null) {
+            currentSnapshot.write(snapshotFile);
+        }
+    }
+
+    private static HashCode settingsHash(JavaForkOptions forkOptions, TestFramework testFramework, WorkerTestClassProcessorFactory processorFactory) {
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putString(forkOptions.getExecutable());
+        for (String jvmArg : forkOptions.getAllJvmArgs()) {
+            hasher.putString(jvmArg);
+        }
+        hasher.putString(forkOptions.getWorkingDir().getAbsolutePath());
+        for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(forkOptions.getEnvironment()).entrySet()) {
+            hasher.putString(entry.getKey());
+            hasher.putString(String.valueOf(entry.getValue()));
+        }
+        // The processor factory carries the options of the test framework to the test worker
+        hasher.putString(testFramework.getClass().getName());
+        hasher.putBytes(serialize(processorFactory));
+        if (testFramework.getOptions() instanceof TestNGOptions) {
+            // Suites are passed to the worker as files
+            TestNGOptions testNGOptions = (TestNGOptions) testFramework.getOptions();
+            for (File suiteXmlFile : testNGOptions.getSuiteXmlFiles()) {
+                hasher.putString(suiteXmlFile.getAbsolutePath());
+                if (suiteXmlFile.isFile()) {
+                    hasher.putBytes(ClasspathSnapshot.readContent(suiteXmlFile));
+                }
+            }
+            hasher.putString(String.valueOf(testNGOptions.getSuiteXmlWriter()));
+        }
+        return hasher.hash();
+    }
+
+    private static byte[] serialize(WorkerTestClassProcessorFactory processorFactory) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream outputStream = new ObjectOutputStream(bytes);
+            outputStream.writeObject(processorFactory);
+            outputStream.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Set<String> changedClasses() {
+        Set<String> changed = Sets.newHashSet();
+        for (Map.Entry<String, HashCode> entry : currentSnapshot.classHashes.entrySet()) {
+            if (!entry.getValue().equals(previousSnapshot.classHashes.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String className : previousSnapshot.classHashes.keySet()) {
+            if (!currentSnapshot.classHashes.containsKey(className)) {
+                changed.add(className);
+            }
+        }
+        return changed;
+    }
+
+    private static class ClasspathSnapshot {
+        private static final String CLASS_FILE_EXTENSION = ".class";
+        private final HashCode settingsHash;
+        private final HashCode otherFilesHash;
+        private final Map<String, HashCode> classHashes;
+        private final Map<String, Set<String>> dependents;
+
+        private ClasspathSnapshot(HashCode settingsHash, HashCode otherFilesHash, Map<String, HashCode> classHashes, Map<String, Set<String>> dependents) {
+            this.settingsHash = settingsHash;
+            this.otherFilesHash = otherFilesHash;
+            this.classHashes = classHashes;
+            this.dependents = dependents;
+        }
+
+        static ClasspathSnapshot of(Iterable<? extends File> classpath, HashCode settingsHash) {
+            Hasher otherFilesHasher = Hashing.md5().newHasher();
+            Map<String, HashCode> classHashes = Maps.newHashMap();
+            Map<String, Set<String>> dependencies = Maps.newHashMap();
+            for (File file : classpath) {
+                otherFilesHasher.putString(file.getAbsolutePath());
+                if (file.isDirectory()) {
+                    visitDirectory(file, "", otherFilesHasher, classHashes, dependencies);
+                } else if (file.isFile()) {
+                    otherFilesHasher.putLong(file.length());
+                    otherFilesHasher.putLong(file.lastModified());
+                }
+            }
+
+            // Only keep the dependencies on classes from the directories, as any other change affects all test classes
+            Map<String, Set<String>> dependents = Maps.newHashMap();
+            for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+                for (String dependency : entry.getValue()) {
+                    if (classHashes.containsKey(dependency)) {
+                        Set<String> classDependents = dependents.get(dependency);
+                        if (classDependents == null) {
+                            classDependents = Sets.newHashSet();
+                            dependents.put(dependency, classDependents);
+                        }
+                        classDependents.add(entry.getKey());
+                    }
+                }
+            }
+            return new ClasspathSnapshot(settingsHash, otherFilesHasher.hash(), classHashes, dependents);
+        }
+
+        private static void visitDirectory(File dir, String relativePath, Hasher otherFilesHasher, Map<String, HashCode> classHashes, Map<String, Set<String>> dependencies) {
+            File[] children = dir.listFiles();
+            if (children == null) {
+                return;
+            }
+            // Visit the files in a stable order, as the hash of the resources depends on it
+            Arrays.sort(children);
+            for (File child : children) {
+                String childPath = relativePath + child.getName();
+                if (child.isDirectory()) {
+                    visitDirectory(child, childPath + "/", otherFilesHasher, classHashes, dependencies);
+                    continue;
+                }
+                byte[] content = readContent(child);
+                if (childPath.endsWith(CLASS_FILE_EXTENSION)) {
+                    String className = childPath.substring(0, childPath.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.');
+                    if (classHashes.containsKey(className)) {
+                        // Shadowed by a class earlier on the classpath
+                        continue;
+                    }
+                    Set<String> classDependencies = analyze(className, content);
+                    if (classDependencies != null) {
+                        classHashes.put(className, Hashing.md5().hashBytes(content));
+                        dependencies.put(className, classDependencies);
+                        continue;
+                    }
+                }
+                otherFilesHasher.putString(childPath);
+                otherFilesHasher.putBytes(content);
+            }
+        }
+
+        /**
+         * Returns the classes the given class depends on, or null when it cannot be analyzed. Such a class is then treated like a resource.
+         */
+        @Nullable
+        private static Set<String> analyze(String className, byte[] content) {
+            try {
+                return ClassDependenciesVisitor.analyze(className, new ClassReader(content)).getClassDependencies();
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        static byte[] readContent(File file) {
+            try {
+                return Files.toByteArray(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Returns the given classes and all classes that depend on them, directly or transitively.
+         */
+        Set<String> dependentsOf(Set<String> classNames) {
+            Set<String> result = Sets.newHashSet(classNames);
+            Deque<String> queue = new ArrayDeque<String>(classNames);
+            while (!queue.isEmpty()) {
+                Set<String> classDependents = dependents.get(queue.removeFirst());
+                if (classDependents == null) {
+                    continue;
+                }
+                for (String dependent : classDependents) {
+                    if (result.add(dependent)) {
+                        queue.addLast(dependent);
+                    }
+                }
+            }
+            return result;
+        }
+
+        void write(File file) {
+            try {
+                OutputStream outputStream = new FileOutputStream(file);
+                try {
+                    FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                    encoder.writeSmallInt(SNAPSHOT_VERSION);
+                    encoder.writeBinary(settingsHash.toByteArray());
+                    encoder.writeBinary(otherFilesHash.toByteArray());
+                    encoder.writeSmallInt(classHashes.size());
+                    for (Map.Entry<String, HashCode> entry : classHashes.entrySet()) {
+                        encoder.writeString(entry.getKey());
+                        encoder.writeBinary(entry.getValue().toByteArray());
+                    }
+                    encoder.flush();
+                } finally {
+                    outputStream.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Nullable
+        static ClasspathSnapshot read(File file) {
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                InputStream inputStream = new FileInputStream(file);
+                try {
+                    Decoder decoder = new KryoBackedDecoder(inputStream);
+                    if (decoder.readSmallInt() != SNAPSHOT_VERSION) {
+                        return null;
+                    }
+                    HashCode settingsHash = HashCode.fromBytes(decoder.readBinary());
+                    HashCode otherFilesHash = HashCode.fromBytes(decoder.readBinary());
+                    int classCount = decoder.readSmallInt();
+                    Map<String, HashCode> classHashes = Maps.newHashMapWithExpectedSize(classCount);
+                    for (int i = 0; i < classCount; i++) {
+                        classHashes.put(decoder.readString(), HashCode.fromBytes(decoder.readBinary()));
+                    }
+                    return new ClasspathSnapshot(settingsHash, otherFilesHash, classHashes, Collections.<String, Set<String>>emptyMap());
+                } finally {
+                    inputStream.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
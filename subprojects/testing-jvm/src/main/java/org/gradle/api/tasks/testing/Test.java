@@ -35,12 +35,14 @@ import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestExecuter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestImpactSelection;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer;
 import org.gradle.api.internal.tasks.testing.junitplatform.JUnitPlatformTestFramework;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.ReusableTestWorkerPool;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
@@ -76,6 +78,7 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -567,24 +570,37 @@ public class Test extends AbstractTestTask implements JavaForkOptions, PatternFi
     protected JvmTestExecutionSpec createTestExecutionSpec() {
         DefaultJavaForkOptions javaForkOptions = new DefaultJavaForkOptions(getFileResolver());
         copyTo(javaForkOptions);
-        return new JvmTestExecutionSpec(getTestFramework(), getClasspath(), getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses());
+        Set<String> previousFailedTestClasses = new HashSet<String>();
+        Map<String, Long> previousTestClassDurations = new HashMap<String, Long>();
+        Map<String, TestClassResult> previousPassedTestClassResults = TestImpactSelection.isEnabled() ? new HashMap<String, TestClassResult>() : null;
+        readPreviousResults(previousFailedTestClasses, previousTestClassDurations, previousPassedTestClassResults);
+        TestImpactSelection testImpactSelection = null;
+        if (previousPassedTestClassResults == null) {
+            TestImpactSelection.discardPrevious(getBinResultsDir());
+        } else if (getServices().get(StartParameter.class).isRerunTasks()) {
+            testImpactSelection = TestImpactSelection.ignorePrevious(getBinResultsDir());
+        } else {
+            testImpactSelection = TestImpactSelection.readPrevious(getBinResultsDir(), previousPassedTestClassResults);
+        }
+        return new JvmTestExecutionSpec(getTestFramework(), getClasspath(), getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), previousFailedTestClasses, previousTestClassDurations, testImpactSelection);
     }
 
-    private Set<String> getPreviousFailedTestClasses() {
+    private void readPreviousResults(final Set<String> previousFailedTestClasses, final Map<String, Long> previousTestClassDurations, @Nullable final Map<String, TestClassResult> previousPassedTestClassResults) {
         TestResultSerializer serializer = new TestResultSerializer(getBinResultsDir());
         if (serializer.isHasResults()) {
-            final Set<String> previousFailedTestClasses = new HashSet<String>();
             serializer.read(new Action<TestClassResult>() {
                 @Override
                 public void execute(TestClassResult testClassResult) {
+                    String className = testClassResult.getClassName();
                     if (testClassResult.getFailuresCount() > 0) {
-                        previousFailedTestClasses.add(testClassResult.getClassName());
+                        previousFailedTestClasses.add(className);
+                    } else if (previousPassedTestClassResults != null) {
+                        previousPassedTestClassResults.put(className, testClassResult);
                     }
+                    Long duration = previousTestClassDurations.get(className);
+                    previousTestClassDurations.put(className, duration == null ? testClassResult.getDuration() : duration + testClassResult.getDuration());
                 }
             });
-            return previousFailedTestClasses;
-        } else {
-            return Collections.emptySet();
         }
     }
 
@@ -615,7 +631,8 @@ public class Test extends AbstractTestTask implements JavaForkOptions, PatternFi
                 getServices().get(StartParameter.class).getMaxWorkerCount(),
                 getServices().get(Clock.class),
                 getServices().get(DocumentationRegistry.class),
-                (DefaultTestFilter) getFilter());
+                (DefaultTestFilter) getFilter(),
+                ReusableTestWorkerPool.isEnabled() ? getServices().get(ReusableTestWorkerPool.class) : null);
         } else {
             return testExecuter;
         }
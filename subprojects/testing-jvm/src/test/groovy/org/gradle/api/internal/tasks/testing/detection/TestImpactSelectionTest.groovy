@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestFramework
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult
+import org.gradle.internal.service.ServiceRegistry
+import org.gradle.process.JavaForkOptions
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+class TestImpactSelectionTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    TestFile resultsDir = tmp.createDir("results")
+    TestFile classesDir = tmp.createDir("classes")
+    TestFile resourcesDir = tmp.createDir("resources")
+    Map<String, TestClassResult> passed = [
+        'ATest': new TestClassResult(1, 'ATest', 0),
+        'BTest': new TestClassResult(2, 'BTest', 0),
+        'CTest': new TestClassResult(3, 'CTest', 0)
+    ]
+    List<String> jvmArgs = ['-Dsome.property=1']
+    Map<String, Object> environment = [SOME_VARIABLE: '1']
+    def forkOptions = Stub(JavaForkOptions) {
+        getExecutable() >> 'java'
+        getAllJvmArgs() >> { jvmArgs }
+        getWorkingDir() >> tmp.testDirectory
+        getEnvironment() >> { environment }
+    }
+    def testFramework = Stub(TestFramework)
+    def processorFactory = new TestProcessorFactory(option: '1')
+
+    def setup() {
+        writeClass('A')
+        writeClass('B', 'A')
+        writeClass('ATest', 'A')
+        writeClass('BTest')
+        writeClass('CTest', 'B')
+        resourcesDir.file("config.properties").text = "value=1"
+    }
+
+    def "runs all test classes when there is no previous execution"() {
+        expect:
+        select(TestImpactSelection.readPrevious(resultsDir, passed)).isEmpty()
+    }
+
+    def "carries over all passed test classes when nothing has changed"() {
+        given:
+        executeTests()
+
+        expect:
+        unaffected() == ['ATest', 'BTest', 'CTest'] as Set
+    }
+
+    def "runs test classes that depend on a changed class"() {
+        given:
+        executeTests()
+        writeClass('A', 'java/lang/Object', 'changed')
+
+        expect:
+        unaffected() == ['BTest'] as Set
+    }
+
+    def "runs changed test classes"() {
+        given:
+        executeTests()
+        writeClass('BTest', 'java/lang/Object', 'changed')
+
+        expect:
+        unaffected() == ['ATest', 'CTest'] as Set
+    }
+
+    def "runs all test classes when a resource has changed"() {
+        given:
+        executeTests()
+        resourcesDir.file("config.properties").text = "value=2"
+
+        expect:
+        unaffected().isEmpty()
+    }
+
+    def "does not carry over test classes that no longer exist"() {
+        given:
+        executeTests()
+        classesDir.file("CTest.class").delete()
+
+        expect:
+        unaffected() == ['ATest', 'BTest'] as Set
+    }
+
+    def "runs all test classes when the JVM arguments have changed"() {
+        given:
+        executeTests()
+        jvmArgs = ['-Dsome.property=2']
+
+        expect:
+        unaffected().isEmpty()
+    }
+
+    def "runs all test classes when the environment has changed"() {
+        given:
+        executeTests()
+        environment = [SOME_VARIABLE: '2']
+
+        expect:
+        unaffected().isEmpty()
+    }
+
+    def "runs all test classes when the test framework options have changed"() {
+        given:
+        executeTests()
+        processorFactory = new TestProcessorFactory(option: '2')
+
+        expect:
+        unaffected().isEmpty()
+    }
+
+    def "runs all test classes when the previous execution is ignored"() {
+        given:
+        executeTests()
+
+        expect:
+        select(TestImpactSelection.ignorePrevious(resultsDir)).isEmpty()
+    }
+
+    def "does not carry over results of an execution that did not record its state"() {
+        given:
+        executeTests()
+        TestImpactSelection.discardPrevious(resultsDir)
+
+        expect:
+        unaffected().isEmpty()
+    }
+
+    private void executeTests() {
+        def selection = TestImpactSelection.readPrevious(resultsDir, [:])
+        select(selection)
+        selection.executionCompleted()
+    }
+
+    private Set<String> unaffected() {
+        return select(TestImpactSelection.readPrevious(resultsDir, passed)).keySet()
+    }
+
+    private Map<String, TestClassResult> select(TestImpactSelection selection) {
+        return selection.selectUnaffected([classesDir, resourcesDir], forkOptions, testFramework, processorFactory)
+    }
+
+    private void writeClass(String name, String superName = 'java/lang/Object', String constant = null) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, name, null, superName, null)
+        if (constant != null) {
+            writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "CONSTANT", "Ljava/lang/String;", null, constant).visitEnd()
+        }
+        writer.visitEnd()
+        classesDir.file("${name}.class").bytes = writer.toByteArray()
+    }
+
+    static class TestProcessorFactory implements WorkerTestClassProcessorFactory, Serializable {
+        String option
+
+        @Override
+        TestClassProcessor create(ServiceRegistry serviceRegistry) {
+            throw new UnsupportedOperationException()
+        }
+    }
+}